@@ -0,0 +1,445 @@
+package analyser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Analysis stage that normalises every frequency band with an automatic gain.
+ *
+ * For each band, a peak tracker follows increases of the intensity immediately
+ * and decays slowly towards the current intensity,
+ * and a floor tracker follows decreases immediately and rises slowly.
+ * The intensity is then mapped from the range between floor and peak to the range from 0 to 1.
+ * Quiet inputs are scaled up and loud inputs no longer clip,
+ * without the need to adjust the input gain by hand.
+ * The stereo intensities are mapped with the same range as the mono intensities of a band.
+ * <p>
+ * The work per frame is constant per band, and no memory is allocated while processing.
+ * The tracker state can be copied with {@link #getState(State)} and restored with {@link #setState(State)},
+ * e.g., to replay recorded spectrum data with the same gain curve.
+ * <p>
+ * The {@link SpectrumRecorder} writes the gain states into a state file next to each recording
+ * (see {@link #getStateFile(File)}), one line per change of the gain:
+ * the index of the recorded frame, a tab, and either the state before that frame
+ * or {@value #STATE_OFF} if the gain has been switched off.
+ * A {@link Replay} applies the gain to the recorded frames with these states.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class AdaptiveGain implements SpectrumAnalyser.Stage
+{
+    /**
+     * Class for a snapshot of the gain state.
+     */
+    public static class State
+    {
+        /**
+         * Creates an empty state.
+         */
+        public State()
+        {
+            peak  = new float[0];
+            floor = new float[0];
+        }
+
+        /**
+         * Copies the data of another state.
+         *
+         * @param other  the state to copy
+         */
+        public void copyFrom(State other)
+        {
+            if ( peak.length != other.peak.length )
+            {
+                peak  = new float[other.peak.length];
+                floor = new float[other.floor.length];
+            }
+            System.arraycopy(other.peak,  0, peak,  0, peak.length);
+            System.arraycopy(other.floor, 0, floor, 0, floor.length);
+            peakDecay  = other.peakDecay;
+            floorDecay = other.floorDecay;
+            minRange   = other.minRange;
+            frames     = other.frames;
+        }
+
+        /**
+         * Creates a text representation of the state,
+         * which can be converted back with {@link #parse(String)}.
+         *
+         * @return the text representation
+         */
+        @Override
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append(frames).append(SEPARATOR).append(peakDecay)
+              .append(SEPARATOR).append(floorDecay).append(SEPARATOR).append(minRange)
+              .append(SEPARATOR).append(peak.length);
+            for ( float p : peak  ) { sb.append(SEPARATOR).append(p); }
+            for ( float f : floor ) { sb.append(SEPARATOR).append(f); }
+            return sb.toString();
+        }
+
+        /**
+         * Converts a text representation back into a state.
+         *
+         * @param str  the text representation created by {@link #toString()}
+         * @return the state
+         * @throws IllegalArgumentException if the text is not a valid state
+         */
+        public static State parse(String str) throws IllegalArgumentException
+        {
+            String[] parts = str.trim().split(SEPARATOR);
+            try
+            {
+                State state = new State();
+                state.frames     = Long.parseLong(parts[0]);
+                state.peakDecay  = Float.parseFloat(parts[1]);
+                state.floorDecay = Float.parseFloat(parts[2]);
+                state.minRange   = Float.parseFloat(parts[3]);
+                int bands = Integer.parseInt(parts[4]);
+                if ( parts.length != 5 + 2 * bands )
+                {
+                    throw new IllegalArgumentException("Invalid amount of gain state values (" + parts.length + ")");
+                }
+                state.peak  = new float[bands];
+                state.floor = new float[bands];
+                for ( int b = 0 ; b < bands ; b++ )
+                {
+                    state.peak[b]  = Float.parseFloat(parts[5 + b]);
+                    state.floor[b] = Float.parseFloat(parts[5 + bands + b]);
+                }
+                return state;
+            }
+            catch (NumberFormatException | ArrayIndexOutOfBoundsException e)
+            {
+                throw new IllegalArgumentException("Invalid gain state (" + e + ")");
+            }
+        }
+
+        /** Peak tracker value per band */
+        public float[] peak;
+        /** Floor tracker value per band */
+        public float[] floor;
+        /** Decay factor of the peak trackers per frame */
+        public float   peakDecay;
+        /** Decay factor of the floor trackers per frame */
+        public float   floorDecay;
+        /** Minimum range between floor and peak */
+        public float   minRange;
+        /** Amount of frames processed since the last reset */
+        public long    frames;
+
+        private static final String SEPARATOR = ",";
+    }
+
+
+    /**
+     * Class for applying the gain to recorded frames with the states of a state file,
+     * which results in the same gain curve as during the recording.
+     */
+    public static class Replay
+    {
+        /**
+         * Reads the states of a state file.
+         *
+         * @param stateFile  the state file written next to a recording
+         * @throws IOException if the file cannot be read or contains invalid lines
+         */
+        public Replay(File stateFile) throws IOException
+        {
+            frames = new ArrayList<Long>();
+            states = new ArrayList<State>();
+            BufferedReader r = new BufferedReader(new FileReader(stateFile));
+            try
+            {
+                String line;
+                while ( (line = r.readLine()) != null )
+                {
+                    if ( line.trim().isEmpty() ) continue;
+                    int tab = line.indexOf('\t');
+                    try
+                    {
+                        long  frame = Long.parseLong(line.substring(0, Math.max(0, tab)));
+                        String str  = line.substring(tab + 1).trim();
+                        frames.add(frame);
+                        states.add(str.equals(STATE_OFF) ? null : State.parse(str));
+                    }
+                    catch (IllegalArgumentException e)
+                    {
+                        throw new IOException("Invalid gain state in " + stateFile + " (" + e.getMessage() + ")");
+                    }
+                }
+            }
+            finally
+            {
+                r.close();
+            }
+            gain   = new AdaptiveGain();
+            info   = new SpectrumInfo();
+            next   = 0;
+            active = false;
+        }
+
+        /**
+         * Applies the gain to the next recorded frame.
+         * The frames have to be processed in order, starting with frame 0.
+         *
+         * @param frame      the index of the frame in the recording
+         * @param intensity  the intensities of the frame, which are replaced by the normalised intensities
+         */
+        public void process(long frame, float[] intensity)
+        {
+            while ( (next < frames.size()) && (frames.get(next) <= frame) )
+            {
+                State state = states.get(next);
+                active = (state != null);
+                if ( active ) { gain.setState(state); }
+                next++;
+            }
+            if ( active )
+            {
+                info.intensity = intensity;
+                gain.process(info);
+            }
+        }
+
+        private final List<Long>   frames;
+        private final List<State>  states;
+        private final AdaptiveGain gain;
+        private final SpectrumInfo info;
+        private int                next;
+        private boolean            active;
+    }
+
+
+    /**
+     * Creates a new adaptive gain stage with a peak decay time of 10s,
+     * a floor rise time of 30s and a minimum range of 0.1.
+     */
+    public AdaptiveGain()
+    {
+        this(10, 30, 0.1f);
+    }
+
+    /**
+     * Creates a new adaptive gain stage.
+     *
+     * @param peakTime   the time constant in s of the peak trackers decaying towards the intensity
+     * @param floorTime  the time constant in s of the floor trackers rising towards the intensity
+     * @param minRange   the minimum range between floor and peak,
+     *                   which limits the amplification of silent bands
+     */
+    public AdaptiveGain(float peakTime, float floorTime, float minRange)
+    {
+        this.peakTime  = peakTime;
+        this.floorTime = floorTime;
+        this.minRange  = minRange;
+        frameRate    = 60;
+        state        = new State();
+        pendingState = null;
+        seq          = 0;
+        allocate(0);
+    }
+
+    @Override
+    public void reset(SpectrumAnalyser analyser)
+    {
+        frameRate = analyser.getAnalyseFrequency();
+        allocate(analyser.getSpectrumBandCount());
+    }
+
+    /**
+     * Allocates the trackers and resets them.
+     *
+     * @param bands  the amount of frequency bands
+     */
+    private void allocate(int bands)
+    {
+        seq++;
+        state.peak       = new float[bands];
+        state.floor      = new float[bands];
+        state.peakDecay  = (float) Math.exp(-1.0 / (peakTime  * frameRate));
+        state.floorDecay = (float) Math.exp(-1.0 / (floorTime * frameRate));
+        state.minRange   = minRange;
+        state.frames     = 0;
+        seq++;
+    }
+
+    @Override
+    public void process(SpectrumInfo info)
+    {
+        float[] intensity = info.intensity;
+        if ( intensity == null ) return;
+
+        State restore = pendingState;
+        if ( restore != null )
+        {
+            pendingState = null;
+            seq++;
+            state.copyFrom(restore);
+            seq++;
+        }
+        if ( intensity.length != state.peak.length )
+        {
+            // only happens for the first frame after a change of the band layout
+            allocate(intensity.length);
+        }
+
+        float[] peak       = state.peak;
+        float[] floor      = state.floor;
+        float   peakDecay  = state.peakDecay;
+        float   floorDecay = state.floorDecay;
+        float   range      = state.minRange;
+        boolean first      = (state.frames == 0);
+
+        seq++;
+        for ( int b = 0 ; b < intensity.length ; b++ )
+        {
+            float x = intensity[b];
+            float p = peak[b];
+            float f = floor[b];
+            if ( first )
+            {
+                p = f = x;
+            }
+            else
+            {
+                p = (x > p) ? x : x + (p - x) * peakDecay;
+                f = (x < f) ? x : x + (f - x) * floorDecay;
+            }
+            peak[b]  = p;
+            floor[b] = f;
+
+            float scale = 1 / Math.max(p - f, range);
+            intensity[b] = normalise(x, f, scale);
+            if ( info.intensityL != null )
+            {
+                info.intensityL[b]    = normalise(info.intensityL[b],    f, scale);
+                info.intensityR[b]    = normalise(info.intensityR[b],    f, scale);
+                info.intensityMid[b]  = normalise(info.intensityMid[b],  f, scale);
+                info.intensitySide[b] = normalise(info.intensitySide[b], f, scale);
+            }
+        }
+        state.frames++;
+        seq++;
+    }
+
+    /**
+     * Gets the frame counter of the state,
+     * which counts the frames processed since the last reset and is part of a restored state.
+     * The value is only exact on the analysis thread.
+     *
+     * @return the amount of processed frames
+     */
+    public long getFrameCount()
+    {
+        return state.frames;
+    }
+
+    /**
+     * Gets the state file next to a recorded spectrum file.
+     *
+     * @param spectrumFile  the spectrum file
+     * @return the state file (which may not exist)
+     */
+    public static File getStateFile(File spectrumFile)
+    {
+        String name = spectrumFile.getName();
+        int    dot  = name.lastIndexOf('.');
+        if ( dot > 0 ) { name = name.substring(0, dot); }
+        return new File(spectrumFile.getAbsoluteFile().getParentFile(), name + STATE_EXTENSION);
+    }
+
+    /**
+     * Creates a line of a state file.
+     *
+     * @param frame  the index of the recorded frame
+     * @param state  the state before the frame or <code>null</code> if the gain has been switched off
+     * @return the line
+     */
+    public static String getStateLine(long frame, State state)
+    {
+        return frame + "\t" + ((state != null) ? state.toString() : STATE_OFF);
+    }
+
+    /**
+     * Maps an intensity from the tracked range to the range from 0 to 1.
+     *
+     * @param x      the intensity
+     * @param floor  the floor of the range
+     * @param scale  the inverse size of the range
+     * @return the normalised intensity
+     */
+    private static float normalise(float x, float floor, float scale)
+    {
+        float y = (x - floor) * scale;
+        return (y < 0) ? 0 : ((y > SpectrumInfo.MAX_SPECTRUM) ? SpectrumInfo.MAX_SPECTRUM : y);
+    }
+
+    /**
+     * Copies a consistent snapshot of the gain state.
+     * This can be called from any thread.
+     *
+     * @param copy  the state to copy the data into
+     * @return the state with the copied data
+     */
+    public State getState(State copy)
+    {
+        while ( true )
+        {
+            int s = seq;
+            if ( (s & 1) == 0 )
+            {
+                float[] peak  = state.peak;
+                float[] floor = state.floor;
+                if ( copy.peak.length != peak.length )
+                {
+                    copy.peak  = new float[peak.length];
+                    copy.floor = new float[peak.length];
+                }
+                if ( floor.length == peak.length )
+                {
+                    System.arraycopy(peak,  0, copy.peak,  0, peak.length);
+                    System.arraycopy(floor, 0, copy.floor, 0, floor.length);
+                    copy.peakDecay  = state.peakDecay;
+                    copy.floorDecay = state.floorDecay;
+                    copy.minRange   = state.minRange;
+                    copy.frames     = state.frames;
+                    if ( s == seq ) return copy;
+                }
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Restores a snapshot of the gain state.
+     * The state is applied before the next frame is processed.
+     *
+     * @param restore  the state to restore
+     */
+    public void setState(State restore)
+    {
+        State copy = new State();
+        copy.copyFrom(restore);
+        pendingState = copy;
+    }
+
+
+    /** Extension of the state files next to recorded spectrum files */
+    public static final String STATE_EXTENSION = ".gain";
+    /** Entry of a state file for the gain being switched off */
+    public static final String STATE_OFF       = "off";
+
+    private final float     peakTime, floorTime, minRange;
+    private float           frameRate;
+    private final State     state;
+    private volatile State  pendingState;
+    private volatile int    seq;
+}
@@ -0,0 +1,243 @@
+package analyser;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class for a fixed set of analysis threads that are shared by several spectrum analysers.
+ *
+ * Without a pool, every attached spectrum analyser runs its own analysis thread.
+ * With a pool, the worker threads check the schedulers of all attached analysers in turn
+ * and analyse one frame of each analyser whose frame is due.
+ * An analyser is only ever analysed by one worker at a time,
+ * so frames of the same analyser are still analysed in order.
+ * Idle workers sleep until an audio thread reports new samples or a paced frame is due.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class AnalysisPool
+{
+    /**
+     * Creates a new analysis pool.
+     * The worker threads are started when the first analyser is added.
+     *
+     * @param threadCount  the amount of worker threads
+     */
+    public AnalysisPool(int threadCount)
+    {
+        entries = new CopyOnWriteArrayList<Entry>();
+        workers = new Thread[Math.max(1, threadCount)];
+        running = false;
+        wakeUp  = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                wakeUp();
+            }
+        };
+    }
+
+    /**
+     * Gets the amount of worker threads.
+     *
+     * @return the amount of worker threads
+     */
+    public int getThreadCount()
+    {
+        return workers.length;
+    }
+
+    /**
+     * Gets the amount of spectrum analysers that use this pool.
+     *
+     * @return the amount of attached spectrum analysers
+     */
+    public int getAnalyserCount()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Adds an attached spectrum analyser to the pool.
+     * This is called by the analyser when it attaches to an audio stream.
+     *
+     * @param analyser  the spectrum analyser to add
+     */
+    synchronized void add(SpectrumAnalyser analyser)
+    {
+        analyser.getScheduler().setWakeUp(wakeUp);
+        entries.add(new Entry(analyser));
+        start();
+        wakeUp();
+    }
+
+    /**
+     * Removes a spectrum analyser from the pool
+     * and waits until a worker that is analysing a frame of the analyser has finished.
+     * This is called by the analyser when it detaches from an audio stream.
+     *
+     * @param analyser  the spectrum analyser to remove
+     */
+    void remove(SpectrumAnalyser analyser)
+    {
+        Entry entry = null;
+        synchronized (this)
+        {
+            for ( Entry e : entries )
+            {
+                if ( e.analyser == analyser ) { entry = e; }
+            }
+            if ( entry == null ) return;
+            entries.remove(entry);
+        }
+        analyser.getScheduler().setWakeUp(null);
+
+        // claim the analyser so that no worker can analyse it any more
+        while ( !entry.busy.compareAndSet(false, true) )
+        {
+            LockSupport.parkNanos(this, REMOVE_WAIT);
+        }
+    }
+
+    /**
+     * Starts the worker threads, if they are not running yet.
+     */
+    private synchronized void start()
+    {
+        if ( running ) return;
+        running = true;
+        for ( int i = 0 ; i < workers.length ; i++ )
+        {
+            workers[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    work();
+                }
+            }, "AnalysisPool Worker " + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Stops the worker threads and waits until they have finished.
+     * Analysers that are still attached are not analysed until the pool is started again
+     * by adding another analyser.
+     */
+    public void stop()
+    {
+        synchronized (this)
+        {
+            if ( !running ) return;
+            running = false;
+        }
+        wakeUp();
+        boolean interrupted = false;
+        for ( Thread t : workers )
+        {
+            while ( t.isAlive() )
+            {
+                try
+                {
+                    t.join();
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        if ( interrupted ) { Thread.currentThread().interrupt(); }
+    }
+
+    /**
+     * Wakes up all sleeping worker threads.
+     */
+    private void wakeUp()
+    {
+        for ( Thread t : workers )
+        {
+            if ( t != null ) { LockSupport.unpark(t); }
+        }
+    }
+
+    /**
+     * Main loop of the worker threads.
+     */
+    private void work()
+    {
+        while ( running )
+        {
+            boolean analysed = false;
+            long    wait     = MAX_WAIT;
+            for ( Entry e : entries )
+            {
+                // skip analysers that another worker is busy with
+                if ( !e.busy.compareAndSet(false, true) ) continue;
+                try
+                {
+                    AnalysisScheduler scheduler = e.analyser.getScheduler();
+                    long frameStart = scheduler.pollFrame();
+                    if ( frameStart >= 0 )
+                    {
+                        e.analyser.analyseFrame(frameStart);
+                        analysed = true;
+                    }
+                    else
+                    {
+                        wait = Math.min(wait, scheduler.getWaitTime());
+                    }
+                }
+                catch (RuntimeException ex)
+                {
+                    LOG.log(Level.WARNING, "Analysis failed", ex);
+                }
+                finally
+                {
+                    e.busy.set(false);
+                }
+            }
+            if ( !analysed )
+            {
+                LockSupport.parkNanos(this, wait);
+            }
+        }
+    }
+
+
+    /**
+     * Class for the state of an analyser in the pool.
+     */
+    private static class Entry
+    {
+        public Entry(SpectrumAnalyser analyser)
+        {
+            this.analyser = analyser;
+            this.busy     = new AtomicBoolean(false);
+        }
+
+        public final SpectrumAnalyser analyser;
+        public final AtomicBoolean    busy;
+    }
+
+
+    // maximum time an idle worker waits before checking the analysers again
+    private static final long MAX_WAIT    = 100000000L;
+    // time to wait for a worker to finish a frame before checking again
+    private static final long REMOVE_WAIT = 100000L;
+
+    private final List<Entry> entries;
+    private final Thread[]    workers;
+    private final Runnable    wakeUp;
+    private volatile boolean  running;
+
+    private static final Logger LOG = Logger.getLogger(AnalysisPool.class.getName());
+}
@@ -0,0 +1,349 @@
+package analyser;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class for scheduling analysis frames on a stream of samples.
+ *
+ * The audio thread only reports how many samples it has written into the circular buffer.
+ * The analysis thread asks the scheduler for the next frame to analyse.
+ * Frames that arrive in a burst with a large audio block are spread evenly
+ * over the duration of that block, so the analysis load is smooth.
+ * If the analysis falls behind by more than one audio block, stale frames are dropped
+ * and the analysis continues with the most recent frame.
+ * If samples have been overwritten by the audio thread before they could be analysed,
+ * the frame is counted as an overrun and skipped.
+ * The audio thread never waits for the analysis.
+ * The analysis can either run on a dedicated thread that waits with {@link #awaitFrame()},
+ * or on a shared thread that checks several schedulers with {@link #pollFrame()}.
+ *
+ * All sample positions are absolute, counted from the start of the stream.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class AnalysisScheduler
+{
+    /**
+     * Creates a new analysis scheduler.
+     *
+     * @param windowSize  the amount of samples in an analysis frame
+     * @param hopSize     the amount of samples between the starts of two analysis frames
+     * @param ringSize    the size of the circular sample buffer
+     * @param sampleRate  the sample rate of the audio stream
+     */
+    public AnalysisScheduler(int windowSize, int hopSize, int ringSize, float sampleRate)
+    {
+        this.windowSize     = windowSize;
+        this.hopSize        = hopSize;
+        this.ringSize       = ringSize;
+        this.nanosPerSample = 1e9 / sampleRate;
+        pacing = true;
+        waiter = null;
+        wakeUp = null;
+        reset();
+    }
+
+    /**
+     * Resets the scheduler to the start of a new stream.
+     * This must not be called while the audio or the analysis thread are running.
+     */
+    public void reset()
+    {
+        blockSequence  = 0;
+        samplesWritten = 0;
+        maxBlockSize   = 0;
+        blockSize      = 0;
+        blockTime      = 0;
+        nextFrameStart = 0;
+        analysedFrames = 0;
+        droppedFrames  = 0;
+        overrunFrames  = 0;
+        waitTime       = 0;
+    }
+
+    /**
+     * Checks if frames of a burst are spread evenly over the duration of an audio block.
+     *
+     * @return <code>true</code> if frames are spread evenly,
+     *         <code>false</code> if frames are analysed as soon as their samples are available
+     */
+    public boolean isPacing()
+    {
+        return pacing;
+    }
+
+    /**
+     * Selects whether frames of a burst are spread evenly over the duration of an audio block.
+     * Pacing smooths the analysis load at the cost of up to one audio block of latency.
+     *
+     * @param pacing  <code>true</code> to spread frames evenly,
+     *                <code>false</code> to analyse frames as soon as possible
+     */
+    public void setPacing(boolean pacing)
+    {
+        this.pacing = pacing;
+    }
+
+    /**
+     * Sets a callback that is run whenever the audio thread has written new samples,
+     * e.g., to wake up a shared analysis thread.
+     * The callback runs on the audio thread and must return quickly.
+     *
+     * @param wakeUp  the callback or <code>null</code> for no callback
+     */
+    public void setWakeUp(Runnable wakeUp)
+    {
+        this.wakeUp = wakeUp;
+    }
+
+    /**
+     * Reports a block of samples that the audio thread has written into the circular buffer.
+     * Only the audio thread may call this method.
+     *
+     * @param count  the amount of samples written
+     */
+    public void samplesWritten(int count)
+    {
+        if ( count > maxBlockSize ) { maxBlockSize = count; }
+        // an odd sequence number marks the block information as being changed
+        long sequence   = blockSequence;
+        blockSequence   = sequence + 1;
+        blockSize       = count;
+        blockTime       = System.nanoTime();
+        samplesWritten += count;
+        blockSequence   = sequence + 2;
+        Thread t = waiter;
+        if ( t != null ) { LockSupport.unpark(t); }
+        Runnable r = wakeUp;
+        if ( r != null ) { r.run(); }
+    }
+
+    /**
+     * Waits until the next analysis frame is due.
+     * Only the analysis thread may call this method.
+     *
+     * @return the absolute position of the first sample of the frame
+     * @throws InterruptedException if the analysis thread has been interrupted
+     */
+    public long awaitFrame() throws InterruptedException
+    {
+        waiter = Thread.currentThread();
+        try
+        {
+            while ( true )
+            {
+                if ( Thread.interrupted() ) throw new InterruptedException();
+                long frameStart = pollFrame();
+                if ( frameStart >= 0 ) return frameStart;
+                LockSupport.parkNanos(this, waitTime);
+            }
+        }
+        finally
+        {
+            waiter = null;
+        }
+    }
+
+    /**
+     * Checks if the next analysis frame is due, without waiting.
+     * Only one thread at a time may call this method.
+     * If no frame is due, {@link #getWaitTime()} returns the time until the next check.
+     *
+     * @return the absolute position of the first sample of the frame
+     *         or -1 if no frame is due yet
+     */
+    public long pollFrame()
+    {
+        while ( true )
+        {
+            long  sequence = blockSequence;
+            long  written  = samplesWritten;
+            int   block    = blockSize;
+            long  time     = blockTime;
+            long  newest   = written - windowSize;
+            // a new block is arriving or has just arrived
+            if ( ((sequence & 1) != 0) || (sequence != blockSequence) ) continue;
+            if ( nextFrameStart > newest )
+            {
+                // there is no complete frame yet
+                waitTime = MAX_WAIT;
+                return -1;
+            }
+
+            long pending = (newest - nextFrameStart) / hopSize + 1;
+            if ( nextFrameStart < getOldestSafePosition(written, 2) )
+            {
+                // samples have already been overwritten: continue with the most recent frame
+                overrunFrames  += pending - 1;
+                nextFrameStart += (pending - 1) * hopSize;
+                return nextFrameStart;
+            }
+            if ( pending > getMaxPendingFrames() )
+            {
+                // analysis is lagging behind more than one block: drop stale frames
+                droppedFrames  += pending - 1;
+                nextFrameStart += (pending - 1) * hopSize;
+                return nextFrameStart;
+            }
+            if ( !pacing ) return nextFrameStart;
+
+            // spread the frame ends of the last block evenly over the block duration
+            long blockStart = written - block;
+            long frameEnd   = nextFrameStart + windowSize;
+            long due        = time + (long) ((frameEnd - blockStart) * nanosPerSample);
+            long wait       = due - System.nanoTime();
+            if ( (frameEnd <= blockStart) || (wait <= 0) ) return nextFrameStart;
+            waitTime = Math.min(wait, MAX_WAIT);
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the time until the next frame may be due,
+     * after {@link #pollFrame()} has found no frame.
+     * New samples may make a frame due earlier, which the wake up callback reports.
+     *
+     * @return the time to wait in ns
+     */
+    public long getWaitTime()
+    {
+        return waitTime;
+    }
+
+    /**
+     * Finishes the current analysis frame.
+     * Only the analysis thread may call this method,
+     * after the samples of the frame have been copied out of the circular buffer.
+     *
+     * @param frameStart  the absolute position of the first sample of the frame
+     * @return <code>true</code> if the copied samples are valid,
+     *         <code>false</code> if the audio thread has overwritten them in the meantime
+     */
+    public boolean frameCompleted(long frameStart)
+    {
+        nextFrameStart = frameStart + hopSize;
+        if ( frameStart < getOldestSafePosition(samplesWritten, 1) )
+        {
+            overrunFrames++;
+            return false;
+        }
+        analysedFrames++;
+        return true;
+    }
+
+    /**
+     * Calculates the oldest sample position that is safe from being overwritten.
+     *
+     * @param written  the amount of samples written so far
+     * @param blocks   the amount of audio blocks the audio thread may write in the meantime
+     * @return the oldest safe sample position
+     */
+    private long getOldestSafePosition(long written, int blocks)
+    {
+        return written + blocks * maxBlockSize - ringSize;
+    }
+
+    /**
+     * Gets the maximum amount of frames that may be pending before stale frames are dropped.
+     *
+     * @return the maximum amount of pending frames
+     */
+    private long getMaxPendingFrames()
+    {
+        return (maxBlockSize + hopSize - 1) / hopSize + 1;
+    }
+
+    /**
+     * Gets the absolute position of the sample following the last written sample.
+     *
+     * @return the amount of samples written since the start of the stream
+     */
+    public long getSamplesWritten()
+    {
+        return samplesWritten;
+    }
+
+    /**
+     * Estimates the time when a sample has been handed to the scheduler by the audio thread.
+     * Samples of the last block arrived with that block,
+     * for older samples, the time is extrapolated backwards with the sample rate.
+     *
+     * @param position  the absolute position of the sample
+     * @return the estimated arrival time in ns (as returned by {@link System#nanoTime()})
+     */
+    public long getArrivalTime(long position)
+    {
+        while ( true )
+        {
+            long sequence = blockSequence;
+            long written  = samplesWritten;
+            int  block    = blockSize;
+            long time     = blockTime;
+            // a new block is arriving or has just arrived
+            if ( ((sequence & 1) != 0) || (sequence != blockSequence) ) continue;
+            long age = (written - block) - position;
+            return (age < 0) ? time : time - (long) (age * nanosPerSample);
+        }
+    }
+
+    /**
+     * Gets the amount of analysis frames that are ready but not analysed yet.
+     *
+     * @return the amount of pending analysis frames
+     */
+    public long getPendingFrameCount()
+    {
+        long newest = samplesWritten - windowSize;
+        long next   = nextFrameStart;
+        return (next > newest) ? 0 : (newest - next) / hopSize + 1;
+    }
+
+    /**
+     * Gets the amount of frames that have been analysed successfully.
+     *
+     * @return the amount of analysed frames
+     */
+    public long getAnalysedFrameCount()
+    {
+        return analysedFrames;
+    }
+
+    /**
+     * Gets the amount of frames that have been dropped because the analysis was lagging behind.
+     *
+     * @return the amount of dropped frames
+     */
+    public long getDroppedFrameCount()
+    {
+        return droppedFrames;
+    }
+
+    /**
+     * Gets the amount of frames that have been lost because their samples were overwritten
+     * before they could be analysed.
+     *
+     * @return the amount of overrun frames
+     */
+    public long getOverrunCount()
+    {
+        return overrunFrames;
+    }
+
+
+    // maximum time to wait before checking the state again
+    private static final long MAX_WAIT = 100000000L;
+
+    private final int         windowSize, hopSize, ringSize;
+    private final double      nanosPerSample;
+    private volatile boolean  pacing;
+    private volatile Thread   waiter;
+    private volatile Runnable wakeUp;
+    private long              waitTime;
+    // incremented before and after the audio thread changes the information of the last block
+    private volatile long     blockSequence;
+    private volatile long     samplesWritten, blockTime;
+    private volatile int      blockSize, maxBlockSize;
+    private volatile long     nextFrameStart;
+    private volatile long     analysedFrames, droppedFrames, overrunFrames;
+}
@@ -1,5 +1,6 @@
 package analyser;
 
+import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.CompoundControl;
 import javax.sound.sampled.Control;
 import javax.sound.sampled.FloatControl;
@@ -10,32 +11,43 @@ import javax.sound.sampled.Mixer;
 /**
  * Class for an audio input, including the gain controller.
  * 
+ * An input can be created as a placeholder that only knows the mixer it belongs to.
+ * The gain controller of a placeholder is found later in the background,
+ * because opening a line can take a long time on some devices.
+ * 
  * @author  Stefan Marks
  * @version 1.0 - 17.09.2013: Created
+ * @version 1.1 - 18.10.2026: Placeholders that are resolved in the background
  */
 public class AudioInput 
 {
     /**
      * Creates an audio input object.
      * 
-     * @param port  the port mixer
+     * @param line  the port or line to find the gain controller of
      * @param mixer the line mixer
      */
     public AudioInput(Line line, Mixer mixer)
     {
-        this.line  = line;
+        this(mixer.getMixerInfo(), 0);
         this.mixer = mixer;
+        resolve(line);
+    }
         
-        try
-        {
-            line.open();
-            findGainControl();
-            line.close();
-        }
-        catch (LineUnavailableException e)
-        {
-            // do nothing
-        }
+    
+    /**
+     * Creates a placeholder for an audio input.
+     * 
+     * @param mixerInfo  the information about the line mixer
+     * @param order      the position of the input in the list of inputs
+     */
+    AudioInput(Mixer.Info mixerInfo, int order)
+    {
+        this.mixerInfo = mixerInfo;
+        this.order     = order;
+        mixer       = null;
+        gainControl = null;
+        resolved    = false;
     }
     
     
@@ -46,6 +58,10 @@ public class AudioInput
      */
     public Mixer getMixer()
     {
+        if ( mixer == null )
+        {
+            mixer = AudioSystem.getMixer(mixerInfo);
+        }
         return mixer;
     }
     
@@ -54,6 +70,7 @@ public class AudioInput
      * Gets the gain controller for the port.
      * 
      * @return the port gain controller
+     *         or <code>null</code> if there is none or the input has not been resolved yet
      */
     public FloatControl getGainControl()
     {
@@ -61,14 +78,63 @@ public class AudioInput
     }
     
     
-    private void findGainControl()
+    /**
+     * Checks if the search for the gain controller has finished.
+     * 
+     * @return <code>true</code> if the input is resolved,
+     *         <code>false</code> if it is still a placeholder
+     */
+    public boolean isResolved()
+    {
+        return resolved;
+    }
+    
+    
+    /**
+     * Gets the position of the input in the list of inputs.
+     * 
+     * @return the position of the input
+     */
+    int getOrder()
+    {
+        return order;
+    }
+    
+    
+    /**
+     * Finds the gain controller by opening the line once.
+     * 
+     * @param line  the port or line to examine
+     *              or <code>null</code> if the input has no line that could be examined
+     */
+    void resolve(Line line)
+    {
+        if ( line != null )
+        {
+            try
+            {
+                line.open();
+                findGainControl(line);
+                line.close();
+            }
+            catch (LineUnavailableException e)
+            {
+                // do nothing
+            }
+        }
+        resolved = true;
+    }
+    
+    
+    private void findGainControl(Line line)
     {
+        FloatControl found = null;
         for ( Control lineCtrl : line.getControls() )
         {
             if ( lineCtrl.getType().equals(FloatControl.Type.MASTER_GAIN) ||
                  lineCtrl.getType().equals(FloatControl.Type.VOLUME) )
             {
-                gainControl = (FloatControl) lineCtrl;
+                found = (FloatControl) lineCtrl;
             }
             else if ( lineCtrl instanceof CompoundControl )
             {
@@ -77,23 +143,26 @@ public class AudioInput
                 {
                     if ( ctrl.getType().equals(FloatControl.Type.VOLUME) )
                     {
-                        gainControl = (FloatControl) ctrl;
+                        found = (FloatControl) ctrl;
                         break;
                     }
                 }
             }
-            if ( gainControl != null ) break;
+            if ( found != null ) break;
         }
+        gainControl = found;
     }
     
     
     @Override
     public String toString()
     {
-        return mixer.getMixerInfo().getName();
+        return mixerInfo.getName();
     }
     
-    private Line         line;
-    private Mixer        mixer;
-    private FloatControl gainControl;
+    private final Mixer.Info        mixerInfo;
+    private final int               order;
+    private volatile Mixer          mixer;
+    private volatile FloatControl   gainControl;
+    private volatile boolean        resolved;
 }
@@ -0,0 +1,395 @@
+package analyser;
+
+import ddf.minim.Minim;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sound.sampled.LineUnavailableException;
+import processing.core.PApplet;
+
+/**
+ * Class for keeping several audio inputs open, each with its own spectrum analyser.
+ *
+ * Selecting an input that is already open only changes the active channel,
+ * so the rendering can switch between inputs without waiting for an audio line to open.
+ * Inputs that are not active stay open on standby until they have not been used
+ * for a while, and are then closed in the background.
+ * All analysers share the worker threads of one {@link AnalysisPool}.
+ * Inputs are either opened with Minim or captured directly with a {@link LineCapture}.
+ * The analysis settings of the pool apply to all open and future channels.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class AudioInputPool
+{
+    /**
+     * Class for an open audio input with its spectrum analyser.
+     */
+    public static class Channel
+    {
+        private Channel(AudioInput input, Minim minim, LineCapture capture, SpectrumAnalyser analyser)
+        {
+            this.input    = input;
+            this.minim    = minim;
+            this.capture  = capture;
+            this.analyser = analyser;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        /**
+         * Gets the audio input of this channel.
+         *
+         * @return the audio input
+         */
+        public AudioInput getInput()
+        {
+            return input;
+        }
+
+        /**
+         * Gets the spectrum analyser of this channel.
+         *
+         * @return the spectrum analyser
+         */
+        public SpectrumAnalyser getAnalyser()
+        {
+            return analyser;
+        }
+
+        /**
+         * Checks if the input of this channel is captured directly.
+         *
+         * @return <code>true</code> if the input is captured directly,
+         *         <code>false</code> if it is opened with Minim
+         */
+        public boolean isDirectCapture()
+        {
+            return capture != null;
+        }
+
+        /**
+         * Gets the time this channel was last active.
+         *
+         * @return the time in ms (as returned by {@link System#currentTimeMillis()})
+         */
+        public long getLastUsed()
+        {
+            return lastUsed;
+        }
+
+        @Override
+        public String toString()
+        {
+            return input.toString();
+        }
+
+        private final AudioInput       input;
+        private final Minim            minim;
+        private final LineCapture      capture;
+        private final SpectrumAnalyser analyser;
+        private volatile long          lastUsed;
+    }
+
+
+    /**
+     * Creates a new audio input pool.
+     *
+     * @param applet            the applet that Minim needs for opening the inputs
+     * @param analyseFrequency  the frequency in Hz for analysing the waveforms
+     * @param historySize       the size of the spectrum history of each analyser
+     * @param threadCount       the amount of shared analysis threads
+     * @param standbyTime       the time in ms that inactive inputs stay open
+     */
+    public AudioInputPool(PApplet applet, int analyseFrequency, int historySize, int threadCount, long standbyTime)
+    {
+        this.applet           = applet;
+        this.analyseFrequency = analyseFrequency;
+        this.historySize      = historySize;
+        this.standbyTime      = standbyTime;
+
+        workers       = new AnalysisPool(threadCount);
+        channels      = new ArrayList<Channel>();
+        active        = null;
+        stereo        = false;
+        directCapture = false;
+        engineType    = SpectrumEngineEnum.FFT;
+        windowType    = WindowEnum.HANN;
+
+        standbyTimer = new Timer("AudioInputPool Standby", true);
+        standbyTimer.schedule(new TimerTask()
+        {
+            @Override
+            public void run()
+            {
+                closeIdleChannels();
+            }
+        }, STANDBY_CHECK, STANDBY_CHECK);
+    }
+
+    /**
+     * Opens an audio input, if it is not open yet, without making it active.
+     * This can be used to prepare an input for switching to it later.
+     *
+     * @param input  the audio input to open
+     * @return the channel of the input
+     */
+    public synchronized Channel open(AudioInput input)
+    {
+        Channel channel = findChannel(input);
+        if ( channel == null )
+        {
+            SpectrumAnalyser analyser = new SpectrumAnalyser(analyseFrequency, historySize);
+            analyser.setStereo(stereo);
+            analyser.setEngineType(engineType);
+            analyser.setWindowType(windowType);
+            analyser.setAnalysisPool(workers);
+
+            Minim       minim   = null;
+            LineCapture capture = null;
+            if ( directCapture )
+            {
+                try
+                {
+                    capture = LineCapture.open(input, CAPTURE_SAMPLE_RATE);
+                    analyser.attachToCapture(capture);
+                }
+                catch (LineUnavailableException | IllegalArgumentException e)
+                {
+                    LOG.log(Level.WARNING, "Could not capture {0} directly, using Minim instead ({1})", new Object[] {input, e});
+                    capture = null;
+                }
+            }
+            if ( capture == null )
+            {
+                minim = new Minim(applet);
+                minim.setInputMixer(input.getMixer());
+                analyser.attachToAudio(minim.getLineIn());
+            }
+
+            channel = new Channel(input, minim, capture, analyser);
+            channels.add(channel);
+            LOG.log(Level.INFO, "Opened audio input {0} ({1} open)", new Object[] {input, channels.size()});
+        }
+        channel.lastUsed = System.currentTimeMillis();
+        return channel;
+    }
+
+    /**
+     * Selects the active audio input.
+     * The previously active input stays open on standby.
+     *
+     * @param input  the audio input to activate or <code>null</code> to deactivate all inputs
+     * @return the active channel or <code>null</code> if no input is active
+     */
+    public synchronized Channel select(AudioInput input)
+    {
+        Channel previous = active;
+        if ( previous != null ) { previous.lastUsed = System.currentTimeMillis(); }
+        active = (input != null) ? open(input) : null;
+        return active;
+    }
+
+    /**
+     * Gets the active channel.
+     *
+     * @return the active channel or <code>null</code> if no input is active
+     */
+    public Channel getActive()
+    {
+        return active;
+    }
+
+    /**
+     * Gets all open channels.
+     *
+     * @return a list of the open channels
+     */
+    public synchronized List<Channel> getChannels()
+    {
+        return Collections.unmodifiableList(new ArrayList<Channel>(channels));
+    }
+
+    /**
+     * Gets the pool of analysis threads that the analysers share.
+     *
+     * @return the analysis pool
+     */
+    public AnalysisPool getAnalysisPool()
+    {
+        return workers;
+    }
+
+    /**
+     * Selects stereo or mono analysis for all channels.
+     *
+     * @param stereo  <code>true</code> to analyse both channels,
+     *                <code>false</code> to only analyse the left channel
+     */
+    public synchronized void setStereo(boolean stereo)
+    {
+        this.stereo = stereo;
+        for ( Channel c : channels )
+        {
+            c.analyser.setStereo(stereo);
+        }
+    }
+
+    /**
+     * Sets the type of spectrum engine for all channels.
+     *
+     * @param type  the new spectrum engine type
+     */
+    public synchronized void setEngineType(SpectrumEngineEnum type)
+    {
+        engineType = type;
+        for ( Channel c : channels )
+        {
+            c.analyser.setEngineType(type);
+        }
+    }
+
+    /**
+     * Sets the analysis window for all channels.
+     *
+     * @param type  the new analysis window
+     */
+    public synchronized void setWindowType(WindowEnum type)
+    {
+        windowType = type;
+        for ( Channel c : channels )
+        {
+            c.analyser.setWindowType(type);
+        }
+    }
+
+    /**
+     * Checks if inputs are captured directly instead of being opened with Minim.
+     *
+     * @return <code>true</code> if inputs are captured directly,
+     *         <code>false</code> if they are opened with Minim
+     */
+    public boolean isDirectCapture()
+    {
+        return directCapture;
+    }
+
+    /**
+     * Selects whether inputs are captured directly instead of being opened with Minim.
+     * All open inputs are closed, and the active input is opened again.
+     *
+     * @param direct  <code>true</code> to capture inputs directly,
+     *                <code>false</code> to open them with Minim
+     */
+    public void setDirectCapture(boolean direct)
+    {
+        List<Channel> all;
+        AudioInput    input;
+        synchronized (this)
+        {
+            if ( direct == directCapture ) return;
+            directCapture = direct;
+            all   = new ArrayList<Channel>(channels);
+            input = (active != null) ? active.input : null;
+            channels.clear();
+            active = null;
+        }
+        for ( Channel c : all )
+        {
+            closeChannel(c);
+        }
+        select(input);
+    }
+
+    /**
+     * Closes all inactive channels that have not been used for longer than the standby time.
+     */
+    public void closeIdleChannels()
+    {
+        List<Channel> idle = new ArrayList<Channel>();
+        synchronized (this)
+        {
+            long now = System.currentTimeMillis();
+            for ( Channel c : channels )
+            {
+                if ( (c != active) && (now - c.lastUsed > standbyTime) ) { idle.add(c); }
+            }
+            channels.removeAll(idle);
+        }
+        // closing a line can take a while, so don't block the pool in the meantime
+        for ( Channel c : idle )
+        {
+            closeChannel(c);
+            LOG.log(Level.INFO, "Closed unused audio input {0}", c);
+        }
+    }
+
+    /**
+     * Closes all channels and stops the analysis threads.
+     */
+    public void close()
+    {
+        List<Channel> all;
+        synchronized (this)
+        {
+            standbyTimer.cancel();
+            all = new ArrayList<Channel>(channels);
+            channels.clear();
+            active = null;
+        }
+        for ( Channel c : all )
+        {
+            closeChannel(c);
+        }
+        workers.stop();
+    }
+
+    /**
+     * Detaches the analyser of a channel and closes the audio input.
+     *
+     * @param channel  the channel to close
+     */
+    private static void closeChannel(Channel channel)
+    {
+        channel.analyser.detachFromAudio();
+        if ( channel.minim != null ) { channel.minim.stop(); }
+    }
+
+    /**
+     * Finds the channel of an audio input.
+     *
+     * @param input  the audio input to search for
+     * @return the channel of the input or <code>null</code> if the input is not open
+     */
+    private Channel findChannel(AudioInput input)
+    {
+        for ( Channel c : channels )
+        {
+            if ( c.input == input ) return c;
+        }
+        return null;
+    }
+
+
+    // interval for checking for unused inputs in ms
+    private static final long  STANDBY_CHECK       = 1000;
+    // sample rate for direct capture
+    private static final float CAPTURE_SAMPLE_RATE = 44100;
+
+    private final PApplet         applet;
+    private final int             analyseFrequency, historySize;
+    private final long            standbyTime;
+    private final AnalysisPool    workers;
+    private final List<Channel>   channels;
+    private final Timer           standbyTimer;
+    private volatile Channel      active;
+    private boolean               stereo, directCapture;
+    private SpectrumEngineEnum    engineType;
+    private WindowEnum            windowType;
+
+    private static final Logger LOG = Logger.getLogger(AudioInputPool.class.getName());
+}
@@ -1,8 +1,26 @@
 package analyser;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.BooleanControl;
 import javax.sound.sampled.Clip;
@@ -18,28 +36,69 @@ import javax.sound.sampled.Port;
 /**
  * Class for managing and simplifying audio ports and lines.
  * 
+ * The mixers are probed for input ports in parallel in the background,
+ * with a timeout for each mixer, so slow devices do not delay the program start.
+ * The results are cached in a file, keyed by the identity of the mixer,
+ * so on the next start the known inputs are available immediately as placeholders.
+ * Placeholders are resolved in the background as well.
+ * 
  * @author  Stefan Marks
  * @version 1.0 - 17.09.2013: Created
+ * @version 1.1 - 18.10.2026: Parallel probing in the background with a cache
  */
 public class AudioManager 
 {   
     /**
-     * Creates an audio manager instance.
+     * Creates an audio manager instance without a cache.
      */
     public AudioManager()
     {
-        collectPortMixerInformation();
+        this(null);
+    }
+    
+    
+    /**
+     * Creates an audio manager instance.
+     * The constructor returns immediately, the mixers are probed in the background.
+     * 
+     * @param cacheFile  the file to cache the probe results in
+     *                   or <code>null</code> to probe all mixers every time
+     */
+    public AudioManager(File cacheFile)
+    {
+        this.cacheFile = cacheFile;
+        audioInputs    = new ArrayList<AudioInput>();
+        cache          = new Properties();
+        modifications  = 0;
+        loadCache();
         
-        if ( audioInputs.isEmpty() )
+        probeThread = new Thread(new Runnable()
         {
-            // could not find any ports, now search lines
-            collectLineMixerInformation();
+            @Override
+            public void run()
+            {
+                probeMixers();
+            }
+        }, "AudioManager Probe");
+        probeThread.setDaemon(true);
+        
+        // known inputs are available immediately
+        mixerInfos = AudioSystem.getMixerInfo();
+        for ( int i = 0 ; i < mixerInfos.length ; i++ )
+        {
+            if ( CACHE_PORT.equals(cache.getProperty(getIdentity(mixerInfos[i]))) )
+            {
+                addInput(new AudioInput(findMatchingMixer(mixerInfos[i]), i));
+            }
         }
+        probeThread.start();
     }
     
     
     /**
      * Gets a list of audio inputs.
+     * The list may still grow while the mixers are probed,
+     * and some inputs may still be placeholders (see {@link AudioInput#isResolved()}).
      * 
      * @return the list of audio inputs
      */
@@ -57,63 +116,281 @@ public class AudioManager
      */
     public AudioInput getInput(int idx)
     {
-        return ((idx < 0) || (idx >= audioInputs.size())) ? null : audioInputs.get(idx);
+        List<AudioInput> inputs = audioInputs;
+        return ((idx < 0) || (idx >= inputs.size())) ? null : inputs.get(idx);
     }
     
     
     /**
-     * Gather information about mixer input ports.
+     * Gets the amount of changes of the list of audio inputs,
+     * e.g., to check if a list in a GUI has to be updated.
+     * 
+     * @return the amount of changes of the list of inputs
      */
-    private void collectPortMixerInformation()
+    public int getModificationCount()
     {
-        audioInputs = new LinkedList<AudioInput>();
+        return modifications;
+    }
+    
+    
+    /**
+     * Checks if the mixers are still being probed.
+     * 
+     * @return <code>true</code> if probing is in progress,
+     *         <code>false</code> if all mixers have been probed
+     */
+    public boolean isProbing()
+    {
+        return probeThread.isAlive();
+    }
+    
+    
+    /**
+     * Waits until all mixers have been probed.
+     * 
+     * @param timeout  the maximum time to wait in ms
+     * @return <code>true</code> if probing has finished,
+     *         <code>false</code> if the timeout has expired
+     */
+    public boolean waitForProbing(long timeout)
+    {
+        try
+        {
+            probeThread.join(timeout);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        return !probeThread.isAlive();
+    }
+    
+    
+    /**
+     * Adds an audio input at its position in the list.
+     * 
+     * @param input  the input to add
+     */
+    private synchronized void addInput(AudioInput input)
+    {
+        List<AudioInput> inputs = new ArrayList<AudioInput>(audioInputs);
+        inputs.add(input);
+        Collections.sort(inputs, new Comparator<AudioInput>()
+        {
+            @Override
+            public int compare(AudioInput i1, AudioInput i2)
+            {
+                return Integer.compare(i1.getOrder(), i2.getOrder());
+            }
+        });
+        audioInputs = inputs;
+        modifications++;
+    }
+    
+    
+    /**
+     * Removes an audio input from the list.
+     * 
+     * @param input  the input to remove
+     */
+    private synchronized void removeInput(AudioInput input)
+    {
+        List<AudioInput> inputs = new ArrayList<AudioInput>(audioInputs);
+        if ( inputs.remove(input) )
+        {
+            audioInputs = inputs;
+            modifications++;
+        }
+    }
+    
+    
+    /**
+     * Main method of the probe thread.
+     * Probes all mixers for input ports in parallel and resolves the inputs.
+     */
+    private void probeMixers()
+    {
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "AudioManager Probe Worker");
+                t.setDaemon(true);
+                return t;
+            }
+        });
         
-        final Port.Info searchInfos[] = { Port.Info.LINE_IN, Port.Info.MICROPHONE };
+        // search input ports of all mixers at the same time
+        List<Future<Port>> probes = new ArrayList<Future<Port>>();
+        for ( final Mixer.Info mixerInfo : mixerInfos )
+        {
+            probes.add(executor.submit(new Callable<Port>()
+            {
+                @Override
+                public Port call()
+                {
+                    return findInputPort(mixerInfo);
+                }
+            }));
+        }
         
-        for ( Mixer.Info mixerInfo : AudioSystem.getMixerInfo() )
+        List<Future<?>> resolvers = new ArrayList<Future<?>>();
+        boolean foundPorts = false;
+        for ( int i = 0 ; i < mixerInfos.length ; i++ )
         {
-            Mixer mixer = AudioSystem.getMixer(mixerInfo);
-            // search input ports
-            Port port = null;
-            for ( Port.Info info : searchInfos )
+            final Port port = waitForProbe(probes.get(i), start, mixerInfos[i].getName());
+            String key    = getIdentity(mixerInfos[i]);
+            String cached = cache.getProperty(key);
+            if ( port != null )
             {
-                if ( mixer.isLineSupported(info) )
+                foundPorts = true;
+                final AudioInput input = CACHE_PORT.equals(cached) ? findInput(i) 
+                                                                   : new AudioInput(findMatchingMixer(mixerInfos[i]), i);
+                if ( !CACHE_PORT.equals(cached) ) { addInput(input); }
+                cache.setProperty(key, CACHE_PORT);
+                resolvers.add(executor.submit(new Runnable()
                 {
-                    try
+                    @Override
+                    public void run()
                     {
-                        port = (Port) mixer.getLine(info);
+                        input.resolve(port);
                     }
-                    catch ( LineUnavailableException e )
-                    {
-                        // nothing to do
-                    }
-                }
+                }));
             }
-            if ( port != null )
+            else if ( probes.get(i).isCancelled() )
+            {
+                // timeout: keep a cached input, but don't resolve it
+                foundPorts |= CACHE_PORT.equals(cached);
+            }
+            else
             {
-                Mixer source = findMatchingMixer(mixer);
-                AudioInput input = new AudioInput(port, source);
-                audioInputs.add(input);
+                // the port of a cached input may have disappeared
+                if ( CACHE_PORT.equals(cached) ) { removeInput(findInput(i)); }
+                cache.setProperty(key, CACHE_NONE);
             }
         }
+        
+        if ( !foundPorts )
+        {
+            // could not find any ports, now search lines
+            collectLineMixerInformation(executor, resolvers);
+        }
+        
+        // opening the lines may take as long again
+        long resolveStart = System.currentTimeMillis();
+        for ( Future<?> resolver : resolvers )
+        {
+            waitForProbe(resolver, resolveStart, "inputs");
+        }
+        // inputs that could not be examined in time have no gain controller
+        for ( AudioInput input : audioInputs )
+        {
+            if ( !input.isResolved() ) { input.resolve(null); }
+        }
+        executor.shutdownNow();
+        saveCache();
+        LOG.log(Level.INFO, "Probed {0} mixers in {1}ms, found {2} inputs", 
+                new Object[] {mixerInfos.length, System.currentTimeMillis() - start, audioInputs.size()});
+    }
+    
+    
+    /**
+     * Waits for the result of a probe.
+     * 
+     * @param probe      the probe to wait for
+     * @param start      the time in ms that the timeout is counted from
+     * @param name       the name of the probed device (for logging)
+     * @return the result of the probe or <code>null</code> if the probe failed or timed out
+     */
+    private <T> T waitForProbe(Future<T> probe, long start, String name)
+    {
+        try
+        {
+            long wait = Math.max(0, start + PROBE_TIMEOUT - System.currentTimeMillis());
+            return probe.get(wait, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e)
+        {
+            probe.cancel(true);
+            LOG.log(Level.WARNING, "Timeout while probing audio device {0}", name);
+        }
+        catch (ExecutionException e)
+        {
+            LOG.log(Level.WARNING, "Could not probe audio device " + name, e.getCause());
+        }
+        catch (InterruptedException e)
+        {
+            probe.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+    
+    
+    /**
+     * Finds the input at a specific position in the list of inputs.
+     * 
+     * @param order  the position of the input
+     * @return the input or <code>null</code> if there is none
+     */
+    private AudioInput findInput(int order)
+    {
+        for ( AudioInput input : audioInputs )
+        {
+            if ( input.getOrder() == order ) return input;
+        }
+        return null;
+    }
+    
+    
+    /**
+     * Searches an input port of a mixer.
+     * 
+     * @param mixerInfo  the information about the mixer
+     * @return the input port or <code>null</code> if the mixer has no input port
+     */
+    private static Port findInputPort(Mixer.Info mixerInfo)
+    {
+        final Port.Info searchInfos[] = { Port.Info.LINE_IN, Port.Info.MICROPHONE };
+        
+        Mixer mixer = AudioSystem.getMixer(mixerInfo);
+        // search input ports
+        Port port = null;
+        for ( Port.Info info : searchInfos )
+        {
+            if ( mixer.isLineSupported(info) )
+            {
+                try
+                {
+                    port = (Port) mixer.getLine(info);
+                }
+                catch ( LineUnavailableException e )
+                {
+                    // nothing to do
+                }
+            }
+        }
+        return port;
     }
     
     
     /**
      * Finds a mixer for a specific port.
+     * Only the names of the mixers are compared, so no mixer has to be opened.
      * 
-     * @param mixer1 the port mixer to find the corresponding line mixer for.
+     * @param portInfo the information about the port mixer to find the corresponding line mixer for.
      */
-    private Mixer findMatchingMixer(Mixer mixer1)
+    private Mixer.Info findMatchingMixer(Mixer.Info portInfo)
     {
-        Mixer retMixer = mixer1;
-        for ( Mixer.Info mixerInfo : AudioSystem.getMixerInfo() )
+        Mixer.Info retMixer = portInfo;
+        for ( Mixer.Info mixerInfo : mixerInfos )
         {
-            Mixer mixer2 = AudioSystem.getMixer(mixerInfo);
-            String searchFor = "Port " + mixer2.getMixerInfo().getName();
-            if ( mixer1.getMixerInfo().getName().indexOf(searchFor) == 0 )
+            String searchFor = "Port " + mixerInfo.getName();
+            if ( portInfo.getName().indexOf(searchFor) == 0 )
             {
-                retMixer = mixer2;
+                retMixer = mixerInfo;
             }
         }
         return retMixer;
@@ -122,20 +399,95 @@ public class AudioManager
     
     /**
      * Gather information about any mixers that have "microp" or "line in" in their names.
+     * 
+     * @param executor   the executor for resolving the inputs
+     * @param resolvers  the list to add the resolving tasks to
      */
-    private void collectLineMixerInformation()
+    private void collectLineMixerInformation(ExecutorService executor, List<Future<?>> resolvers)
     {
-        for ( Mixer.Info mixerInfo : AudioSystem.getMixerInfo() )
+        for ( int i = 0 ; i < mixerInfos.length ; i++ )
         {
+            final Mixer.Info mixerInfo = mixerInfos[i];
             String name = mixerInfo.getName().toLowerCase();
             if ( name.contains("microp") || 
                  name.contains("input")  ||
                  (name.contains("line") && name.contains("in")) )
             {
-                Mixer mixer = AudioSystem.getMixer(mixerInfo);
-                audioInputs.add(new AudioInput(mixer, mixer));
+                final AudioInput input = new AudioInput(mixerInfo, i);
+                addInput(input);
+                resolvers.add(executor.submit(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        input.resolve(input.getMixer());
+                    }
+                }));
+            }
+        }
+    }
+    
+    
+    /**
+     * Creates the key of a mixer in the cache.
+     * 
+     * @param mixerInfo  the information about the mixer
+     * @return the identity of the mixer
+     */
+    private static String getIdentity(Mixer.Info mixerInfo)
+    {
+        return mixerInfo.getName() + "|" + mixerInfo.getVendor() + "|" + 
+               mixerInfo.getVersion() + "|" + mixerInfo.getDescription();
+    }
+    
+    
+    /**
+     * Loads the probe results of the last run.
+     */
+    private void loadCache()
+    {
+        if ( (cacheFile == null) || !cacheFile.exists() ) return;
+        try
+        {
+            InputStream in = new FileInputStream(cacheFile);
+            try
+            {
+                cache.load(in);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            LOG.log(Level.WARNING, "Could not read audio device cache ({0})", e);
+        }
+    }
+    
+    
+    /**
+     * Saves the probe results for the next run.
+     */
+    private void saveCache()
+    {
+        if ( cacheFile == null ) return;
+        try
+        {
+            OutputStream out = new FileOutputStream(cacheFile);
+            try
+            {
+                cache.store(out, "SoundBites audio devices (" + CACHE_PORT + "=has input port, " + CACHE_NONE + "=no input port)");
+            }
+            finally
+            {
+                out.close();
             }
         }
+        catch (IOException e)
+        {
+            LOG.log(Level.WARNING, "Could not write audio device cache ({0})", e);
+        }
     }
     
     
@@ -238,5 +590,19 @@ public class AudioManager
         return "    Control: unknown type";
     }
 
-    private List<AudioInput> audioInputs;
+
+    // time a mixer may take to be probed in ms
+    private static final long   PROBE_TIMEOUT = 2000;
+    // values of the probe results in the cache
+    private static final String CACHE_PORT    = "port";
+    private static final String CACHE_NONE    = "none";
+    
+    private final File                  cacheFile;
+    private final Properties            cache;
+    private final Mixer.Info[]          mixerInfos;
+    private final Thread                probeThread;
+    private volatile List<AudioInput>   audioInputs; // replaced as a whole on every change
+    private volatile int                modifications;
+    
+    private static final Logger LOG = Logger.getLogger(AudioManager.class.getName());
 }
@@ -0,0 +1,316 @@
+package analyser;
+
+/**
+ * Analysis stage that detects onsets and beats in the spectrum.
+ *
+ * Onsets are detected with the spectral flux of the band intensities,
+ * i.e., the sum of all intensity increases from one frame to the next,
+ * compared against an adaptive threshold.
+ * The tempo is estimated with a running autocorrelation of the onset strength,
+ * and beats are placed on onsets that match the tempo.
+ * If the onsets stop for a short while, beats continue with the estimated tempo.
+ * <p>
+ * The work per frame is proportional to the number of bands for the onsets,
+ * plus one update per lag of the tempo range for the autocorrelation,
+ * and no memory is allocated while processing.
+ * The lag range is deliberate: it only depends on the frame rate and the tempo range
+ * (41 lags for 60 to 180 BPM at 60 frames per second), not on the number of bands,
+ * and a running autocorrelation cannot be updated with less than one term per lag.
+ * The tempo is selected in the same pass over the lags.
+ * Beat times are based on {@link SpectrumInfo#sampleIdx}.
+ * The detector is polled, e.g., by the render thread with {@link #readLastBeat(Beat)}.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class BeatDetector implements SpectrumAnalyser.Stage
+{
+    /**
+     * Class with the information about a beat.
+     */
+    public static class Beat
+    {
+        /** The number of the beat (counted from the last reset) */
+        public long  count;
+        /** The time of the beat in ms, the same time base as {@link SpectrumInfo#sampleIdx} */
+        public int   time;
+        /** The onset strength of the beat (0 if the beat was predicted without onset) */
+        public float strength;
+        /** The tempo at the time of the beat in beats per minute */
+        public float tempo;
+    }
+
+
+    /**
+     * Creates a new beat detector with the default tempo range of 60 to 180 BPM.
+     */
+    public BeatDetector()
+    {
+        this(60, 180);
+    }
+
+    /**
+     * Creates a new beat detector.
+     *
+     * @param minTempo  the minimum tempo in beats per minute
+     * @param maxTempo  the maximum tempo in beats per minute
+     */
+    public BeatDetector(float minTempo, float maxTempo)
+    {
+        this.minTempo = minTempo;
+        this.maxTempo = maxTempo;
+        frameRate = 60;
+        allocate(0);
+    }
+
+    @Override
+    public void reset(SpectrumAnalyser analyser)
+    {
+        frameRate = analyser.getAnalyseFrequency();
+        allocate(analyser.getSpectrumBandCount());
+    }
+
+    /**
+     * Allocates the buffers and resets the detection state.
+     *
+     * @param bands  the amount of frequency bands
+     */
+    private void allocate(int bands)
+    {
+        minLag   = Math.max(1, (int) Math.floor(frameRate * 60 / maxTempo));
+        maxLag   = Math.max(minLag, (int) Math.ceil(frameRate * 60 / minTempo));
+        previous = new float[bands];
+        envelope = new float[maxLag + 1];
+        acf      = new float[maxLag + 1];
+        acfDecay = (float) Math.exp(-1.0 / (ACF_TIME * frameRate));
+        avgRate  = (float) (1 - Math.exp(-1.0 / (THRESHOLD_TIME * frameRate)));
+
+        frame         = 0;
+        fluxMean      = 0;
+        fluxVar       = 0;
+        prevTime      = 0;
+        lastOnset     = -MIN_ONSET_INTERVAL;
+        period        = 0;
+        predicted     = 0;
+        flywheelBeats = 0;
+        seq           = 0;
+        beatCount     = 0;
+        beatTime      = 0;
+        beatStrength  = 0;
+        beatTempo     = 0;
+        onsetStrength = 0;
+    }
+
+    @Override
+    public void process(SpectrumInfo info)
+    {
+        float[] intensity = info.intensity;
+        if ( intensity == null ) return;
+        if ( intensity.length != previous.length )
+        {
+            // only happens for the first frame after a change of the band layout
+            allocate(intensity.length);
+        }
+
+        // spectral flux: sum of all positive intensity changes
+        float flux = 0;
+        for ( int b = 0 ; b < intensity.length ; b++ )
+        {
+            float d = intensity[b] - previous[b];
+            if ( d > 0 ) { flux += d; }
+            previous[b] = intensity[b];
+        }
+        flux /= Math.max(1, intensity.length);
+
+        // onset strength: flux above the running mean
+        float dev = flux - fluxMean;
+        fluxMean += avgRate * dev;
+        fluxVar  += avgRate * (dev * dev - fluxVar);
+        float strength = Math.max(0, flux - fluxMean);
+        int   idx      = (int) (frame % envelope.length);
+        envelope[idx]  = strength;
+        onsetStrength  = strength;
+
+        // running autocorrelation of the onset strength for the tempo estimation,
+        // and the lag with the highest autocorrelation in the same pass
+        int   bestLag = 0;
+        float best    = 0;
+        for ( int lag = minLag ; lag <= maxLag ; lag++ )
+        {
+            float old = (frame >= lag) ? envelope[(int) ((frame - lag) % envelope.length)] : 0;
+            float a   = acf[lag] * acfDecay + strength * old;
+            acf[lag]  = a;
+            if ( a > best )
+            {
+                best    = a;
+                bestLag = lag;
+            }
+        }
+        updateTempo(bestLag);
+
+        // peak picking with a delay of one frame
+        if ( frame >= 2 )
+        {
+            float prev  = envelope[(int) ((frame - 1) % envelope.length)];
+            float prev2 = envelope[(int) ((frame - 2) % envelope.length)];
+            float threshold = THRESHOLD_FACTOR * (float) Math.sqrt(fluxVar);
+            if ( (prev > prev2) && (prev >= strength) && (prev > threshold) &&
+                 (prevTime - lastOnset >= MIN_ONSET_INTERVAL) )
+            {
+                lastOnset = prevTime;
+                onset(prevTime, prev);
+            }
+        }
+
+        // no matching onset: continue with the estimated tempo for a while
+        if ( (period > 0) && (beatCount > 0) && (flywheelBeats < MAX_FLYWHEEL_BEATS) &&
+             (info.sampleIdx > predicted + BEAT_TOLERANCE * period) )
+        {
+            flywheelBeats++;
+            publishBeat(predicted, 0);
+        }
+
+        prevTime = info.sampleIdx;
+        frame++;
+    }
+
+    /**
+     * Selects the tempo of the lag with the highest autocorrelation.
+     *
+     * @param bestLag  the lag with the highest autocorrelation or 0 if there is no autocorrelation yet
+     */
+    private void updateTempo(int bestLag)
+    {
+        if ( bestLag == 0 ) return;
+        float best = acf[bestLag];
+
+        // refine the peak with a parabola through the neighbours
+        float offset = 0;
+        if ( (bestLag > minLag) && (bestLag < maxLag) )
+        {
+            float l = acf[bestLag - 1], r = acf[bestLag + 1];
+            float d = l - 2 * best + r;
+            if ( d < 0 ) { offset = 0.5f * (l - r) / d; }
+        }
+        period = (bestLag + offset) * 1000 / frameRate;
+    }
+
+    /**
+     * Handles a detected onset.
+     *
+     * @param time      the time of the onset in ms
+     * @param strength  the onset strength
+     */
+    private void onset(int time, float strength)
+    {
+        // onsets between the beats are ignored
+        if ( (beatCount == 0) || (period <= 0) || (time - beatTime >= (1 - BEAT_TOLERANCE) * period) )
+        {
+            flywheelBeats = 0;
+            publishBeat(time, strength);
+        }
+    }
+
+    /**
+     * Publishes a beat to the readers.
+     *
+     * @param time      the time of the beat in ms
+     * @param strength  the onset strength of the beat
+     */
+    private void publishBeat(float time, float strength)
+    {
+        seq++;
+        beatTime     = (int) time;
+        beatStrength = strength;
+        beatTempo    = (period > 0) ? 60000 / period : 0;
+        beatCount++;
+        seq++;
+        predicted = time + period;
+    }
+
+    /**
+     * Copies the information about the most recent beat.
+     *
+     * @param beat  the beat information to copy the data into
+     * @return <code>true</code> if there was a beat,
+     *         <code>false</code> if no beat has been detected yet
+     */
+    public boolean readLastBeat(Beat beat)
+    {
+        while ( true )
+        {
+            int s = seq;
+            if ( (s & 1) == 0 )
+            {
+                beat.count    = beatCount;
+                beat.time     = beatTime;
+                beat.strength = beatStrength;
+                beat.tempo    = beatTempo;
+                if ( s == seq ) return beat.count > 0;
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Gets the amount of beats detected since the last reset.
+     * A change of this value indicates a new beat.
+     *
+     * @return the amount of beats
+     */
+    public long getBeatCount()
+    {
+        return beatCount;
+    }
+
+    /**
+     * Gets the current tempo estimation.
+     *
+     * @return the tempo in beats per minute or 0 if there is no estimation yet
+     */
+    public float getTempo()
+    {
+        float p = period;
+        return (p > 0) ? 60000 / p : 0;
+    }
+
+    /**
+     * Gets the onset strength of the most recent frame.
+     *
+     * @return the onset strength
+     */
+    public float getOnsetStrength()
+    {
+        return onsetStrength;
+    }
+
+
+    // time constant of the running onset statistics in s
+    private static final float THRESHOLD_TIME     = 2.0f;
+    // onsets have to exceed the running mean by this many standard deviations
+    private static final float THRESHOLD_FACTOR   = 1.5f;
+    // time constant of the running autocorrelation in s
+    private static final float ACF_TIME           = 4.0f;
+    // minimum time between two onsets in ms
+    private static final int   MIN_ONSET_INTERVAL = 100;
+    // relative tolerance of beat times
+    private static final float BEAT_TOLERANCE     = 0.2f;
+    // amount of predicted beats without matching onsets
+    private static final int   MAX_FLYWHEEL_BEATS = 4;
+
+    private final float    minTempo, maxTempo;
+    private float          frameRate;
+    private int            minLag, maxLag;
+    private float[]        previous, envelope, acf;
+    private float          acfDecay, avgRate;
+    private long           frame;
+    private float          fluxMean, fluxVar;
+    private int            prevTime, lastOnset;
+    private volatile float period;
+    private float          predicted;
+    private int            flywheelBeats;
+    private volatile int   seq;
+    private volatile long  beatCount;
+    private volatile int   beatTime;
+    private volatile float beatStrength, beatTempo, onsetStrength;
+}
@@ -0,0 +1,34 @@
+package analyser;
+
+/**
+ * Interface for modules that calculate the forward FFT of a real valued signal.
+ *
+ * The transform works in place on a single array.
+ * After the transform, the array contains the spectrum in packed form:
+ * <ul>
+ * <li><code>data[0]</code>: real part of bin 0 (DC)</li>
+ * <li><code>data[1]</code>: real part of bin N/2 (Nyquist frequency)</li>
+ * <li><code>data[2k]</code>, <code>data[2k+1]</code>: real and imaginary part of bin k (0 &lt; k &lt; N/2)</li>
+ * </ul>
+ * The values are not normalised, so a full scale sine wave results in a magnitude of N/2.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public interface FFTEngine
+{
+    /**
+     * Gets the size of the transform.
+     *
+     * @return the amount of samples the transform accepts
+     */
+    int getSize();
+
+    /**
+     * Calculates the forward transform of a real valued signal in place.
+     *
+     * @param data  the samples, {@link #getSize()} long,
+     *              which are replaced by the packed spectrum
+     */
+    void forward(float[] data);
+}
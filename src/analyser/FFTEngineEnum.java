@@ -0,0 +1,45 @@
+package analyser;
+
+/**
+ * Enumeration for the FFT engine selection choices.
+ * 
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public enum FFTEngineEnum 
+{
+    MINIM("Minim"),
+    REAL( "Real");
+
+    
+    private FFTEngineEnum(String name)
+    {
+        this.name = name;
+    }
+    
+    
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+    
+    
+    /**
+     * Creates an FFT engine instance.
+     * 
+     * @param size  the size of the transform (must be a power of 2)
+     * @return the FFT engine
+     */
+    public FFTEngine createEngine(int size)
+    {
+        switch ( this )
+        {
+            case MINIM : return new MinimFFTEngine(size);
+            default    : return new RealFFTEngine(size);
+        }
+    }
+    
+    
+    private final String name;
+}
@@ -0,0 +1,159 @@
+package analyser;
+
+/**
+ * Spectrum engine that uses a single {@link MaxFFT} over the whole window
+ * and reduces it to logarithmic frequency bands.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class FFTSpectrumEngine implements SpectrumEngine
+{
+    /**
+     * Creates a new FFT spectrum engine.
+     *
+     * @param windowSize      the size of the FFT (must be a power of 2)
+     * @param sampleRate      the sample rate of the audio signal
+     * @param minBandwidth    the minimum bandwidth of an octave in Hz
+     * @param bandsPerOctave  the number of bands per octave
+     * @param fftType         the type of FFT engine to use
+     */
+    public FFTSpectrumEngine(int windowSize, float sampleRate, int minBandwidth, int bandsPerOctave, FFTEngineEnum fftType)
+    {
+        fft = new MaxFFT(windowSize, sampleRate, fftType.createEngine(windowSize));
+        fft.logAverages(minBandwidth, bandsPerOctave);
+        fft.window(WindowEnum.HANN);
+
+        scale = 2.0f / fft.specSize();
+        bands = new float[fft.avgSize()];
+        raw   = new float[fft.specSize()];
+        stereoBands = new float[4][fft.avgSize()];
+        rawEnabled  = true;
+    }
+
+    @Override
+    public int getWindowSize()
+    {
+        return fft.timeSize();
+    }
+
+    @Override
+    public int getBandCount()
+    {
+        return fft.avgSize();
+    }
+
+    @Override
+    public float getBandFrequency(int band)
+    {
+        return fft.getAverageCenterFrequency(band);
+    }
+
+    @Override
+    public int getRawBandCount()
+    {
+        return rawEnabled ? raw.length : 0;
+    }
+
+    @Override
+    public void setRawBandsEnabled(boolean enabled)
+    {
+        rawEnabled = enabled;
+    }
+
+    @Override
+    public void setHopSize(int hopSize)
+    {
+        // every window is analysed independently
+    }
+
+    @Override
+    public void setWindowStart(long start)
+    {
+        // every window is analysed independently
+    }
+
+    @Override
+    public void setWindow(WindowEnum window)
+    {
+        fft.window(window);
+    }
+
+    @Override
+    public void analyse(float[] left, float[] right)
+    {
+        if ( right != null )
+        {
+            fft.forwardStereo(left, right);
+            for ( int c = 0 ; c < stereoBands.length ; c++ )
+            {
+                scaleData(fft.getStereoAverages(c), stereoBands[c]);
+            }
+        }
+        else
+        {
+            fft.forward(left);
+        }
+
+        scaleData(fft.getAverages(), bands);
+        if ( rawEnabled )
+        {
+            scaleData(fft.getSpectrum(), raw);
+        }
+    }
+
+    /**
+     * Normalises FFT data.
+     *
+     * @param src  the FFT data
+     * @param dst  the array for the normalised data
+     */
+    private void scaleData(float[] src, float[] dst)
+    {
+        for ( int i = 0 ; i < dst.length ; i++ )
+        {
+            dst[i] = src[i] * scale;
+        }
+    }
+
+    @Override
+    public boolean isStereo()
+    {
+        return fft.isStereo();
+    }
+
+    @Override
+    public float[] getBands()
+    {
+        return bands;
+    }
+
+    @Override
+    public float[] getStereoBands(int channel)
+    {
+        return stereoBands[channel];
+    }
+
+    @Override
+    public float[] getRawBands()
+    {
+        return rawEnabled ? raw : null;
+    }
+
+    /**
+     * Gets the FFT analyser.
+     *
+     * @return the FFT analyser
+     */
+    public MaxFFT getFFT()
+    {
+        return fft;
+    }
+
+
+    private final MaxFFT    fft;
+    private final float     scale;
+    private final float[]   bands, raw;
+    private final float[][] stereoBands;
+    private boolean         rawEnabled;
+}
@@ -0,0 +1,192 @@
+package analyser;
+
+/**
+ * Histogram of latency values with a constant relative precision.
+ *
+ * Like an HDR histogram, the value range is divided into power-of-two magnitudes,
+ * and each magnitude into the same amount of linear sub-buckets.
+ * This keeps the error of every recorded value below 1/32 (about 3%)
+ * over the whole range from 1us to the maximum value,
+ * with a fixed array of counters and without allocating memory while recording.
+ * Values above the maximum are counted in the highest bucket.
+ * <p>
+ * The histogram is not thread safe, so all values have to be recorded and read on one thread.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class LatencyHistogram
+{
+    /**
+     * Creates a new latency histogram.
+     *
+     * @param maxValue  the highest value to distinguish in us
+     */
+    public LatencyHistogram(long maxValue)
+    {
+        this.maxValue = Math.max(maxValue, 2 * SUB_BUCKETS);
+        counts = new long[getIndex(this.maxValue) + 1];
+        reset();
+    }
+
+    /**
+     * Removes all values from the histogram.
+     */
+    public void reset()
+    {
+        for ( int i = 0 ; i < counts.length ; i++ )
+        {
+            counts[i] = 0;
+        }
+        totalCount = 0;
+        sum        = 0;
+        min        = Long.MAX_VALUE;
+        max        = 0;
+    }
+
+    /**
+     * Records a latency value.
+     *
+     * @param value  the latency in us (negative values are counted as 0)
+     */
+    public void record(long value)
+    {
+        if ( value < 0 ) { value = 0; }
+        counts[getIndex(Math.min(value, maxValue))]++;
+        totalCount++;
+        sum += value;
+        if ( value < min ) { min = value; }
+        if ( value > max ) { max = value; }
+    }
+
+    /**
+     * Calculates the counter index of a value.
+     * Values below twice the amount of sub-buckets have their own counter,
+     * above that, each magnitude is split into the same amount of counters.
+     *
+     * @param value  the value
+     * @return the index of the counter
+     */
+    private static int getIndex(long value)
+    {
+        if ( value < 2 * SUB_BUCKETS ) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Calculates the highest value that is counted by a counter.
+     *
+     * @param index  the index of the counter
+     * @return the highest value of the counter
+     */
+    private static long getHighestValue(int index)
+    {
+        if ( index < 2 * SUB_BUCKETS ) return index;
+        int  shift = index / SUB_BUCKETS - 1;
+        long low  = (long) (index - shift * SUB_BUCKETS) << shift;
+        return low + (1L << shift) - 1;
+    }
+
+    /**
+     * Gets the amount of recorded values.
+     *
+     * @return the amount of recorded values
+     */
+    public long getCount()
+    {
+        return totalCount;
+    }
+
+    /**
+     * Gets the smallest recorded value.
+     *
+     * @return the smallest value in us or 0 if the histogram is empty
+     */
+    public long getMin()
+    {
+        return (totalCount > 0) ? min : 0;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return the largest value in us or 0 if the histogram is empty
+     */
+    public long getMax()
+    {
+        return max;
+    }
+
+    /**
+     * Gets the mean of the recorded values.
+     *
+     * @return the mean value in us or 0 if the histogram is empty
+     */
+    public double getMean()
+    {
+        return (totalCount > 0) ? (double) sum / totalCount : 0;
+    }
+
+    /**
+     * Gets the value at a percentile of the recorded values.
+     * The value is the upper end of the bucket that contains the percentile,
+     * but never more than the largest recorded value.
+     *
+     * @param percentile  the percentile (0...100)
+     * @return the value in us or 0 if the histogram is empty
+     */
+    public long getPercentile(double percentile)
+    {
+        if ( totalCount == 0 ) return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long count  = 0;
+        for ( int i = 0 ; i < counts.length ; i++ )
+        {
+            count += counts[i];
+            if ( count >= target ) return Math.min(getHighestValue(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * Gets the amount of counters of the histogram.
+     *
+     * @return the amount of counters
+     */
+    public int getBucketCount()
+    {
+        return counts.length;
+    }
+
+    /**
+     * Gets the amount of values counted by a counter.
+     *
+     * @param index  the index of the counter
+     * @return the amount of values
+     */
+    public long getCount(int index)
+    {
+        return counts[index];
+    }
+
+    /**
+     * Gets the highest value counted by a counter.
+     *
+     * @param index  the index of the counter
+     * @return the highest value in us
+     */
+    public long getValue(int index)
+    {
+        return getHighestValue(index);
+    }
+
+
+    // amount of linear sub-buckets per power-of-two magnitude
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+
+    private final long   maxValue;
+    private final long[] counts;
+    private long         totalCount, sum, min, max;
+}
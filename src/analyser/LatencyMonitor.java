@@ -0,0 +1,213 @@
+package analyser;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+
+/**
+ * Class for measuring the latency from the audio input to the rendered surface.
+ *
+ * Every analysed frame carries the time stamps of the arrival of its last sample
+ * and of the start and end of its analysis ({@link SpectrumInfo#captureTime} etc.).
+ * The render thread adds the time when it picks up the frame,
+ * when the surface has been updated with it, and when the updated surface has been rendered.
+ * The latency of each interval between these points and the total latency
+ * are collected in {@link LatencyHistogram}s,
+ * which can be shown as text lines or written to a report file.
+ * <p>
+ * The latency before the audio thread hands over the samples,
+ * e.g., the buffers of the sound driver, and the delay of the display itself are not included.
+ * All methods have to be called on the same thread, usually the render thread.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class LatencyMonitor
+{
+    /**
+     * Enumeration of the measured intervals.
+     */
+    public enum Interval
+    {
+        QUEUE("Capture to analysis"),
+        ANALYSIS("Analysis"),
+        PICKUP("Analysis to draw"),
+        SURFACE("Surface update"),
+        RENDER("Update to render"),
+        TOTAL("Capture to render");
+
+        private Interval(String description)
+        {
+            this.description = description;
+        }
+
+        @Override
+        public String toString()
+        {
+            return description;
+        }
+
+        private final String description;
+    }
+
+
+    /**
+     * Creates a new latency monitor.
+     */
+    public LatencyMonitor()
+    {
+        Interval[] intervals = Interval.values();
+        histograms = new LatencyHistogram[intervals.length];
+        for ( int i = 0 ; i < intervals.length ; i++ )
+        {
+            histograms[i] = new LatencyHistogram(MAX_LATENCY);
+        }
+        reset();
+    }
+
+    /**
+     * Removes all measurements.
+     */
+    public void reset()
+    {
+        for ( LatencyHistogram h : histograms )
+        {
+            h.reset();
+        }
+        lastAnalysisEnd = 0;
+        pendingCapture  = 0;
+        pendingUpdate   = 0;
+        startTime       = System.currentTimeMillis();
+    }
+
+    /**
+     * Records the intervals up to the pick up of an analysed frame by the render thread.
+     * Frames that have already been recorded are ignored.
+     *
+     * @param times       the spectrum information with the time stamps of the frame
+     * @param pickupTime  the time in ns when the render thread has picked up the frame
+     * @return <code>true</code> if the frame is new,
+     *         <code>false</code> if it has already been recorded or has no time stamps
+     */
+    public boolean framePickedUp(SpectrumInfo times, long pickupTime)
+    {
+        if ( (times.analysisEnd == 0) || (times.analysisEnd == lastAnalysisEnd) ) return false;
+        lastAnalysisEnd = times.analysisEnd;
+        record(Interval.QUEUE,    times.analysisStart - times.captureTime);
+        record(Interval.ANALYSIS, times.analysisEnd   - times.analysisStart);
+        record(Interval.PICKUP,   pickupTime          - times.analysisEnd);
+        pendingCapture = times.captureTime;
+        return true;
+    }
+
+    /**
+     * Records the time it took to update the surface with the last picked up frame.
+     *
+     * @param startTime  the time in ns when the update started
+     * @param endTime    the time in ns when the update was finished
+     */
+    public void surfaceUpdated(long startTime, long endTime)
+    {
+        if ( pendingCapture == 0 ) return;
+        record(Interval.SURFACE, endTime - startTime);
+        pendingUpdate = endTime;
+    }
+
+    /**
+     * Records the intervals up to the rendering of the surface
+     * with the last updated frame.
+     *
+     * @param renderTime  the time in ns when the surface has been rendered
+     */
+    public void surfaceRendered(long renderTime)
+    {
+        if ( pendingUpdate == 0 ) return;
+        record(Interval.RENDER, renderTime - pendingUpdate);
+        record(Interval.TOTAL,  renderTime - pendingCapture);
+        pendingCapture = 0;
+        pendingUpdate  = 0;
+    }
+
+    /**
+     * Records a latency value.
+     *
+     * @param interval  the measured interval
+     * @param nanos     the latency in ns
+     */
+    public void record(Interval interval, long nanos)
+    {
+        histograms[interval.ordinal()].record(nanos / 1000);
+    }
+
+    /**
+     * Gets the histogram of an interval.
+     *
+     * @param interval  the interval
+     * @return the histogram with the latency values in us
+     */
+    public LatencyHistogram getHistogram(Interval interval)
+    {
+        return histograms[interval.ordinal()];
+    }
+
+    /**
+     * Creates a single line summary of the latency of an interval.
+     *
+     * @param interval  the interval
+     * @return the summary with the median, the 99th percentile and the maximum in ms
+     */
+    public String getSummary(Interval interval)
+    {
+        LatencyHistogram h = getHistogram(interval);
+        return String.format("%-20s p50 %6.2f  p99 %6.2f  max %6.2f ms",
+                interval, h.getPercentile(50) / 1000.0, h.getPercentile(99) / 1000.0, h.getMax() / 1000.0);
+    }
+
+    /**
+     * Writes a report with a summary and the distribution of the latency of all intervals.
+     * The distribution lists the upper value of every non-empty bucket,
+     * together with the cumulative percentile and count.
+     *
+     * @param file  the file to write the report to
+     * @throws FileNotFoundException if the file could not be created
+     */
+    public void writeReport(File file) throws FileNotFoundException
+    {
+        PrintWriter w = new PrintWriter(file);
+        w.println("Latency measurements over " + (System.currentTimeMillis() - startTime) / 1000 + "s");
+        w.println();
+        w.println("Interval\tCount\tMin\tMean\tp50\tp90\tp99\tp99.9\tMax\t(ms)");
+        for ( Interval i : Interval.values() )
+        {
+            LatencyHistogram h = getHistogram(i);
+            w.println(String.format("%s\t%d\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f",
+                    i, h.getCount(), h.getMin() / 1000.0, h.getMean() / 1000.0,
+                    h.getPercentile(50) / 1000.0, h.getPercentile(90) / 1000.0,
+                    h.getPercentile(99) / 1000.0, h.getPercentile(99.9) / 1000.0, h.getMax() / 1000.0));
+        }
+        for ( Interval i : Interval.values() )
+        {
+            LatencyHistogram h = getHistogram(i);
+            w.println();
+            w.println(i);
+            w.println("Value (ms)\tPercentile\tCount");
+            long count = 0;
+            for ( int b = 0 ; b < h.getBucketCount() ; b++ )
+            {
+                if ( h.getCount(b) == 0 ) continue;
+                count += h.getCount(b);
+                w.println(String.format("%.3f\t%.4f\t%d",
+                        h.getValue(b) / 1000.0, 100.0 * count / h.getCount(), count));
+            }
+        }
+        w.close();
+    }
+
+
+    // highest latency to distinguish in us
+    private static final long MAX_LATENCY = 10000000L;
+
+    private final LatencyHistogram[] histograms;
+    private long                     lastAnalysisEnd, pendingCapture, pendingUpdate;
+    private long                     startTime;
+}
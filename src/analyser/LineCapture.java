@@ -0,0 +1,301 @@
+package analyser;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.TargetDataLine;
+
+/**
+ * Class for capturing audio directly from a target data line, without Minim.
+ *
+ * A capture thread with high priority reads blocks of PCM data from the line
+ * into a reused byte buffer, and the spectrum analyser converts them
+ * straight into its circular input buffers.
+ * Compared to the Minim line input, this avoids Minim's own buffering
+ * and the copies of every block on the way to the analyser.
+ * Signed 16 and 24 bit PCM data in mono or stereo, little or big endian, is supported.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class LineCapture
+{
+    /**
+     * Creates a capture of a target data line.
+     *
+     * @param line       the line to capture (may already be open)
+     * @param format     the audio format to capture with
+     * @param blockSize  the amount of sample frames to read at once
+     * @throws IllegalArgumentException if the format is not supported
+     */
+    public LineCapture(TargetDataLine line, AudioFormat format, int blockSize) throws IllegalArgumentException
+    {
+        if ( (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED) ||
+             ((format.getSampleSizeInBits() != 16) && (format.getSampleSizeInBits() != 24)) ||
+             (format.getChannels() < 1) || (format.getChannels() > 2) )
+        {
+            throw new IllegalArgumentException("Unsupported capture format " + format);
+        }
+        this.line      = line;
+        this.format    = format;
+        this.blockSize = blockSize;
+        bytesPerSample = format.getSampleSizeInBits() / 8;
+        frameSize      = bytesPerSample * format.getChannels();
+        bigEndian      = format.isBigEndian();
+        buffer         = new byte[blockSize * frameSize];
+        thread         = null;
+        analyser       = null;
+        readCount      = 0;
+    }
+
+    /**
+     * Creates a capture of the line of an audio input
+     * with 16 bit stereo samples and a block size of 512 sample frames.
+     *
+     * @param input       the audio input to capture
+     * @param sampleRate  the sample rate to capture with
+     * @return the line capture
+     * @throws LineUnavailableException if the input does not provide a suitable line
+     */
+    public static LineCapture open(AudioInput input, float sampleRate) throws LineUnavailableException
+    {
+        AudioFormat   format = new AudioFormat(sampleRate, 16, 2, true, false);
+        Mixer         mixer  = input.getMixer();
+        DataLine.Info info   = new DataLine.Info(TargetDataLine.class, format);
+        if ( !mixer.isLineSupported(info) )
+        {
+            throw new LineUnavailableException("Input " + input + " does not support " + format);
+        }
+        return new LineCapture((TargetDataLine) mixer.getLine(info), format, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Gets the sample rate of the capture.
+     *
+     * @return the sample rate in Hz
+     */
+    public float getSampleRate()
+    {
+        return format.getSampleRate();
+    }
+
+    /**
+     * Gets the amount of sample frames that are read at once.
+     *
+     * @return the block size in sample frames
+     */
+    public int getBlockSize()
+    {
+        return blockSize;
+    }
+
+    /**
+     * Gets the amount of blocks read from the line so far.
+     *
+     * @return the amount of blocks
+     */
+    public long getReadCount()
+    {
+        return readCount;
+    }
+
+    /**
+     * Opens and starts the line and the capture thread.
+     * This is called by the spectrum analyser when it attaches to the capture.
+     *
+     * @param analyser  the spectrum analyser to write the samples into
+     */
+    synchronized void start(SpectrumAnalyser analyser)
+    {
+        if ( thread != null ) return;
+        this.analyser = analyser;
+        try
+        {
+            if ( !line.isOpen() )
+            {
+                // leave room for a few blocks in case the capture thread is late
+                line.open(format, LINE_BLOCKS * buffer.length);
+            }
+        }
+        catch (LineUnavailableException e)
+        {
+            LOG.log(Level.WARNING, "Could not open capture line ({0})", e);
+            return;
+        }
+        line.flush();
+        line.start();
+        thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                capture();
+            }
+        }, "LineCapture");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stops the capture thread and closes the line.
+     * This is called by the spectrum analyser when it detaches from the capture.
+     */
+    void stop()
+    {
+        Thread t;
+        synchronized (this)
+        {
+            t = thread;
+            thread = null;
+        }
+        if ( t == null ) return;
+        // stopping the line also ends a blocking read
+        line.stop();
+        line.flush();
+        boolean interrupted = false;
+        while ( t.isAlive() )
+        {
+            try
+            {
+                t.join();
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        line.close();
+        analyser = null;
+        if ( interrupted ) { Thread.currentThread().interrupt(); }
+    }
+
+    /**
+     * Main loop of the capture thread.
+     */
+    private void capture()
+    {
+        Thread self  = Thread.currentThread();
+        int    count = 0;
+        while ( thread == self )
+        {
+            int read = line.read(buffer, count, buffer.length - count);
+            if ( read <= 0 )
+            {
+                // line has been stopped
+                LockSupport.parkNanos(this, IDLE_WAIT);
+                continue;
+            }
+            count += read;
+            int frames = count / frameSize;
+            if ( frames == 0 ) continue;
+
+            analyser.samplesCaptured(this, buffer, frames);
+            readCount++;
+
+            // keep an incomplete sample frame for the next read
+            int used = frames * frameSize;
+            System.arraycopy(buffer, used, buffer, 0, count - used);
+            count -= used;
+        }
+    }
+
+    /**
+     * Converts PCM data into float samples in circular buffers.
+     * Mono data is written into both buffers.
+     *
+     * @param pcm       the PCM data
+     * @param frames    the amount of sample frames to convert
+     * @param ringL     the circular buffer for the left channel
+     * @param ringR     the circular buffer for the right channel
+     * @param writeIdx  the position in the circular buffers to start writing at
+     */
+    void decode(byte[] pcm, int frames, float[] ringL, float[] ringR, int writeIdx)
+    {
+        int len   = Math.min(frames, ringL.length);
+        int first = Math.min(len, ringL.length - writeIdx);
+        decode(pcm, 0, first, ringL, ringR, writeIdx);
+        decode(pcm, first, len - first, ringL, ringR, 0);
+    }
+
+    /**
+     * Converts a contiguous part of PCM data into float samples.
+     *
+     * @param pcm      the PCM data
+     * @param start    the first sample frame to convert
+     * @param frames   the amount of sample frames to convert
+     * @param dstL     the array for the left channel
+     * @param dstR     the array for the right channel
+     * @param dstIdx   the position in the arrays to start writing at
+     */
+    private void decode(byte[] pcm, int start, int frames, float[] dstL, float[] dstR, int dstIdx)
+    {
+        boolean stereo = (frameSize != bytesPerSample);
+        int     idx    = start * frameSize;
+        if ( bytesPerSample == 2 )
+        {
+            // 16 bit samples: high byte keeps the sign
+            int hi = bigEndian ? 0 : 1;
+            int lo = 1 - hi;
+            for ( int i = 0 ; i < frames ; i++ )
+            {
+                float l = (float) ((pcm[idx + hi] << 8) | (pcm[idx + lo] & 0xFF)) * SCALE_16;
+                idx += 2;
+                float r = l;
+                if ( stereo )
+                {
+                    r = (float) ((pcm[idx + hi] << 8) | (pcm[idx + lo] & 0xFF)) * SCALE_16;
+                    idx += 2;
+                }
+                dstL[dstIdx + i] = l;
+                dstR[dstIdx + i] = r;
+            }
+        }
+        else
+        {
+            // 24 bit samples
+            int hi  = bigEndian ? 0 : 2;
+            int mid = 1;
+            int lo  = 2 - hi;
+            for ( int i = 0 ; i < frames ; i++ )
+            {
+                float l = (float) ((pcm[idx + hi] << 16) | ((pcm[idx + mid] & 0xFF) << 8) | (pcm[idx + lo] & 0xFF)) * SCALE_24;
+                idx += 3;
+                float r = l;
+                if ( stereo )
+                {
+                    r = (float) ((pcm[idx + hi] << 16) | ((pcm[idx + mid] & 0xFF) << 8) | (pcm[idx + lo] & 0xFF)) * SCALE_24;
+                    idx += 3;
+                }
+                dstL[dstIdx + i] = l;
+                dstR[dstIdx + i] = r;
+            }
+        }
+    }
+
+
+    // default amount of sample frames to read at once
+    private static final int   DEFAULT_BLOCK_SIZE = 512;
+    // size of the line buffer in blocks
+    private static final int   LINE_BLOCKS        = 4;
+    // time to wait before reading again from a stopped line in ns
+    private static final long  IDLE_WAIT          = 1000000L;
+    // scale factors from integer samples to the range -1...1
+    private static final float SCALE_16           = 1.0f / 32768;
+    private static final float SCALE_24           = 1.0f / 8388608;
+
+    private final TargetDataLine      line;
+    private final AudioFormat         format;
+    private final int                 blockSize, bytesPerSample, frameSize;
+    private final boolean             bigEndian;
+    private final byte[]              buffer;
+    private volatile Thread           thread;
+    private volatile SpectrumAnalyser analyser;
+    private volatile long             readCount;
+
+    private static final Logger LOG = Logger.getLogger(LineCapture.class.getName());
+}
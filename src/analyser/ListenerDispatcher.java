@@ -0,0 +1,448 @@
+package analyser;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class for delivering analysis notifications to the listeners of a spectrum analyser
+ * on a separate dispatcher thread.
+ *
+ * The analysis thread publishes the history frame number of each analysed frame
+ * into a preallocated ring buffer.
+ * The dispatcher thread delivers the notifications to every listener in turn.
+ * Listeners with {@link SpectrumAnalyser.Delivery#BLOCKING} delivery receive every notification,
+ * and the analysis thread waits if the ring buffer is full, but only up to {@link #MAX_BLOCK_TIME},
+ * so a stuck listener cannot stall the analysis (or a shared analysis thread).
+ * After that, the oldest notification is overwritten and counted as an overflow.
+ * Listeners with {@link SpectrumAnalyser.Delivery#LATEST} delivery only receive the most recent
+ * notification and skip any older ones.
+ * Listeners can be registered and unregistered at any time.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class ListenerDispatcher
+{
+    /**
+     * Class with the delivery state and lag statistics of a single listener.
+     */
+    public static class Subscription
+    {
+        private Subscription(SpectrumAnalyser.Listener listener, SpectrumAnalyser.Delivery delivery, long cursor)
+        {
+            this.listener = listener;
+            this.delivery = delivery;
+            this.cursor   = cursor;
+        }
+
+        /**
+         * Gets the listener of this subscription.
+         *
+         * @return the listener
+         */
+        public SpectrumAnalyser.Listener getListener()
+        {
+            return listener;
+        }
+
+        /**
+         * Gets the delivery mode of this subscription.
+         *
+         * @return the delivery mode
+         */
+        public SpectrumAnalyser.Delivery getDelivery()
+        {
+            return delivery;
+        }
+
+        /**
+         * Gets the amount of notifications delivered to the listener.
+         *
+         * @return the amount of delivered notifications
+         */
+        public long getDeliveredCount()
+        {
+            return delivered;
+        }
+
+        /**
+         * Gets the amount of notifications that the listener skipped
+         * because newer notifications were available.
+         *
+         * @return the amount of skipped notifications
+         */
+        public long getSkippedCount()
+        {
+            return skipped;
+        }
+
+        /**
+         * Gets the lag between publishing and delivering the last notification.
+         *
+         * @return the lag of the last notification in ns
+         */
+        public long getLastLag()
+        {
+            return lastLag;
+        }
+
+        /**
+         * Gets the maximum lag between publishing and delivering a notification.
+         *
+         * @return the maximum lag in ns
+         */
+        public long getMaxLag()
+        {
+            return maxLag;
+        }
+
+        /**
+         * Gets the average lag between publishing and delivering a notification.
+         *
+         * @return the average lag in ns
+         */
+        public long getAverageLag()
+        {
+            long count = delivered;
+            return (count > 0) ? totalLag / count : 0;
+        }
+
+        @Override
+        public String toString()
+        {
+            return listener + " (" + delivery + ": " + delivered + " delivered, " + skipped + " skipped, " +
+                   "lag avg " + getAverageLag() / 1000 + "us, max " + maxLag / 1000 + "us)";
+        }
+
+        private final SpectrumAnalyser.Listener listener;
+        private final SpectrumAnalyser.Delivery delivery;
+        private volatile long                   cursor;
+        private volatile long                   delivered, skipped;
+        private volatile long                   lastLag, maxLag, totalLag;
+    }
+
+
+    /**
+     * Creates a new listener dispatcher.
+     *
+     * @param analyser  the spectrum analyser to pass to the listeners
+     */
+    public ListenerDispatcher(SpectrumAnalyser analyser)
+    {
+        this.analyser = analyser;
+        subscriptions = new CopyOnWriteArrayList<Subscription>();
+        eventFrames   = new long[CAPACITY];
+        eventTimes    = new long[CAPACITY];
+        published     = 0;
+        blockedCount  = 0;
+        overflowCount = 0;
+        currentFrame  = -1;
+        thread        = null;
+    }
+
+    /**
+     * Starts the dispatcher thread.
+     */
+    public synchronized void start()
+    {
+        if ( thread != null ) return;
+        thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                dispatch();
+            }
+        }, "SpectrumAnalyser Dispatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the dispatcher thread and waits until it has finished.
+     * Notifications that have not been delivered yet are discarded.
+     * When called by a listener on the dispatcher thread, e.g., when it detaches the analyser,
+     * the thread finishes after the listener has returned.
+     */
+    public void stop()
+    {
+        Thread t;
+        synchronized (this)
+        {
+            t = thread;
+            thread = null;
+        }
+        if ( t == null ) return;
+        LockSupport.unpark(t);
+        // the dispatcher thread cannot wait for itself
+        if ( t == Thread.currentThread() ) return;
+        boolean interrupted = false;
+        while ( t.isAlive() )
+        {
+            try
+            {
+                t.join();
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        // nothing is pending any more
+        for ( Subscription s : subscriptions )
+        {
+            s.cursor = published;
+        }
+        if ( interrupted ) { Thread.currentThread().interrupt(); }
+    }
+
+    /**
+     * Registers a listener.
+     *
+     * @param listener  the listener to register
+     * @param delivery  the delivery mode for the listener
+     * @return <code>true</code> if the listener was registered,
+     *         <code>false</code> if it was already registered
+     */
+    public synchronized boolean register(SpectrumAnalyser.Listener listener, SpectrumAnalyser.Delivery delivery)
+    {
+        if ( getSubscription(listener) != null ) return false;
+        // new listeners only receive future notifications
+        subscriptions.add(new Subscription(listener, delivery, published));
+        return true;
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener  the listener to unregister
+     * @return <code>true</code> if the listener was unregistered,
+     *         <code>false</code> if it was not registered
+     */
+    public synchronized boolean unregister(SpectrumAnalyser.Listener listener)
+    {
+        Subscription s = getSubscription(listener);
+        return (s != null) && subscriptions.remove(s);
+    }
+
+    /**
+     * Gets the subscription of a listener.
+     *
+     * @param listener  the listener to look for
+     * @return the subscription of the listener or <code>null</code> if the listener is not registered
+     */
+    public Subscription getSubscription(SpectrumAnalyser.Listener listener)
+    {
+        for ( Subscription s : subscriptions )
+        {
+            if ( s.listener == listener ) return s;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the subscriptions of all registered listeners.
+     *
+     * @return the list of subscriptions
+     */
+    public List<Subscription> getSubscriptions()
+    {
+        return subscriptions;
+    }
+
+    /**
+     * Gets the history frame number of the notification that is currently delivered.
+     * This is only valid on the dispatcher thread, while a listener is notified.
+     *
+     * @return the history frame number of the current notification
+     */
+    public long getCurrentFrame()
+    {
+        return currentFrame;
+    }
+
+    /**
+     * Gets how often the analysis thread had to wait for a listener with blocking delivery.
+     *
+     * @return the amount of times the analysis thread was blocked
+     */
+    public long getBlockedCount()
+    {
+        return blockedCount;
+    }
+
+    /**
+     * Gets how often the analysis thread stopped waiting for a listener with blocking delivery
+     * and overwrote a notification that the listener had not received yet.
+     *
+     * @return the amount of overwritten notifications
+     */
+    public long getOverflowCount()
+    {
+        return overflowCount;
+    }
+
+    /**
+     * Publishes a notification.
+     * Only the analysis thread may call this method.
+     * If a listener with blocking delivery has not yet received the oldest notification
+     * in the ring buffer, this method waits until it has, but at most {@link #MAX_BLOCK_TIME}.
+     *
+     * @param frameNumber  the history frame number of the analysed frame
+     * @return <code>true</code> if the notification was published,
+     *         <code>false</code> if the thread was interrupted while waiting
+     */
+    public boolean publish(long frameNumber)
+    {
+        long seq = published;
+        if ( subscriptions.isEmpty() )
+        {
+            published = seq + 1;
+            return true;
+        }
+
+        long blockStart = 0;
+        while ( isBlocked(seq) && (thread != null) )
+        {
+            long now = System.nanoTime();
+            if ( blockStart == 0 )
+            {
+                blockedCount++;
+                blockStart = now;
+            }
+            else if ( now - blockStart >= MAX_BLOCK_TIME )
+            {
+                // the listener will skip the overwritten notification
+                overflowCount++;
+                break;
+            }
+            if ( Thread.currentThread().isInterrupted() ) return false;
+            LockSupport.parkNanos(this, BLOCK_WAIT);
+        }
+
+        int slot = (int) (seq & (CAPACITY - 1));
+        eventFrames[slot] = frameNumber;
+        eventTimes[slot]  = System.nanoTime();
+        published = seq + 1;
+
+        Thread t = thread;
+        if ( t != null ) { LockSupport.unpark(t); }
+        return true;
+    }
+
+    /**
+     * Checks if a notification would overwrite a slot
+     * that a listener with blocking delivery has not received yet.
+     *
+     * @param seq  the sequence number of the notification
+     * @return <code>true</code> if the publisher has to wait,
+     *         <code>false</code> if not
+     */
+    private boolean isBlocked(long seq)
+    {
+        for ( Subscription s : subscriptions )
+        {
+            if ( (s.delivery == SpectrumAnalyser.Delivery.BLOCKING) && (s.cursor <= seq - CAPACITY) ) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Main loop of the dispatcher thread.
+     * Delivers one notification to every listener in turn, so a slow listener
+     * does not delay the others by more than one notification.
+     */
+    private void dispatch()
+    {
+        Thread self = Thread.currentThread();
+        while ( thread == self )
+        {
+            boolean delivered = false;
+            for ( Subscription s : subscriptions )
+            {
+                delivered |= deliver(s);
+            }
+            if ( !delivered )
+            {
+                LockSupport.parkNanos(this, IDLE_WAIT);
+            }
+        }
+    }
+
+    /**
+     * Delivers the next notification to a listener.
+     *
+     * @param s  the subscription of the listener
+     * @return <code>true</code> if a notification was delivered,
+     *         <code>false</code> if there was no notification for the listener
+     */
+    private boolean deliver(Subscription s)
+    {
+        long head = published;
+        long seq  = s.cursor;
+        if ( seq >= head ) return false;
+
+        // skip notifications that are outdated or have been overwritten already
+        long oldest = (s.delivery == SpectrumAnalyser.Delivery.LATEST) ? head - 1 : head - CAPACITY;
+        if ( seq < oldest )
+        {
+            s.skipped += oldest - seq;
+            seq = oldest;
+        }
+        int  slot  = (int) (seq & (CAPACITY - 1));
+        long frame = eventFrames[slot];
+        long time  = eventTimes[slot];
+        if ( published - seq > CAPACITY )
+        {
+            // overwritten while reading: try again with newer data
+            s.skipped++;
+            s.cursor = seq + 1;
+            return true;
+        }
+
+        currentFrame = frame;
+        try
+        {
+            s.listener.analysisUpdated(analyser);
+        }
+        catch (RuntimeException e)
+        {
+            LOG.log(Level.WARNING, "Analysis listener " + s.listener + " failed", e);
+        }
+        currentFrame = -1;
+
+        long lag = System.nanoTime() - time;
+        s.lastLag   = lag;
+        s.totalLag += lag;
+        if ( lag > s.maxLag ) { s.maxLag = lag; }
+        s.delivered++;
+        s.cursor = seq + 1;
+        return true;
+    }
+
+
+    // size of the notification ring buffer (must be a power of 2)
+    private static final int  CAPACITY   = 64;
+    /**
+     * Maximum time in ns that the analysis thread waits for a listener with blocking delivery.
+     */
+    public static final long MAX_BLOCK_TIME = 10000000L;
+
+    // time the publisher waits for blocking listeners before checking again
+    private static final long BLOCK_WAIT = 100000L;
+    // time the dispatcher waits for notifications before checking again
+    private static final long IDLE_WAIT  = 100000000L;
+
+    private final SpectrumAnalyser         analyser;
+    private final List<Subscription>       subscriptions;
+    private final long[]                   eventFrames, eventTimes;
+    private volatile long                  published;
+    private volatile long                  blockedCount, overflowCount;
+    private volatile long                  currentFrame;
+    private volatile Thread                thread;
+
+    private static final Logger LOG = Logger.getLogger(ListenerDispatcher.class.getName());
+}
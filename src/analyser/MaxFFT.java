@@ -1,15 +1,32 @@
 package analyser;
 
+import ddf.minim.Minim;
 import ddf.minim.analysis.FFT;
+import ddf.minim.analysis.WindowFunction;
 
 /**
  * FFT that uses the maximum of a spectrum band instead of the average.
  * 
+ * Can also analyse both channels of a stereo signal in a single complex FFT pass.
+ * 
  * @author  Stefan Marks
  * @version 1.0 - 15.06.2013: Created
+ * @version 1.1 - 18.10.2026: Added stereo analysis
+ * @version 1.2 - 18.10.2026: Band boundaries are precomputed
+ * @version 1.3 - 18.10.2026: Transform can be done by an {@link FFTEngine}
+ * @version 1.4 - 18.10.2026: Cached window tables
  */
 public class MaxFFT extends FFT
 {
+  /** Index of the left channel for stereo analysis results */
+  public static final int LEFT  = 0;
+  /** Index of the right channel for stereo analysis results */
+  public static final int RIGHT = 1;
+  /** Index of the mid signal (L+R)/2 for stereo analysis results */
+  public static final int MID   = 2;
+  /** Index of the side signal (L-R)/2 for stereo analysis results */
+  public static final int SIDE  = 3;
+  
   /**
    * Constructs an FFT that will accept sample buffers that are
    * <code>timeSize</code> long and have been recorded with a sample rate of
@@ -22,8 +39,406 @@ public class MaxFFT extends FFT
    *          the sample rate of the audio you will be analyzing
    */
   public MaxFFT(int timeSize, float sampleRate)
+  {
+    this(timeSize, sampleRate, null);
+  }
+  
+  /**
+   * Constructs an FFT that uses a specific FFT engine for the transforms.
+   * With an FFT engine, the real and imaginary parts of the spectrum
+   * are not available, only the amplitudes.
+   * 
+   * @param timeSize
+   *          the length of the sample buffers you will be analyzing
+   * @param sampleRate
+   *          the sample rate of the audio you will be analyzing
+   * @param engine
+   *          the FFT engine to use (<code>timeSize</code> long)
+   *          or <code>null</code> to use the Minim FFT
+   */
+  public MaxFFT(int timeSize, float sampleRate, FFTEngine engine)
   {
     super(timeSize, sampleRate);
+    this.engine = engine;
+    workL = (engine != null) ? new float[timeSize] : null;
+    workR = (engine != null) ? new float[timeSize] : null;
+    stereo = false;
+    stereoPass = false;
+    stereoSpectrum = new float[4][specSize()];
+    stereoAverages = new float[4][];
+    configureBands();
+  }
+  
+  @Override
+  public void linAverages(int numAvg)
+  {
+    super.linAverages(numAvg);
+    configureBands();
+  }
+  
+  @Override
+  public void logAverages(int minBandwidth, int bandsPerOctave)
+  {
+    super.logAverages(minBandwidth, bandsPerOctave);
+    configureBands();
+  }
+  
+  @Override
+  public void noAverages()
+  {
+    super.noAverages();
+    configureBands();
+  }
+  
+  /**
+   * Sets a window that is applied with a cached coefficient table,
+   * instead of evaluating the window function for every sample.
+   * 
+   * @param window
+   *          the window to apply before every transform
+   */
+  public void window(WindowEnum window)
+  {
+    super.window(NONE);
+    windowTable = window.getTable(timeSize);
+  }
+  
+  @Override
+  public void window(WindowFunction windowFunction)
+  {
+    super.window(windowFunction);
+    windowTable = null;
+  }
+  
+  @Override
+  protected void doWindow(float[] samples)
+  {
+    float[] table = windowTable;
+    if ( table != null )
+    {
+      WindowEnum.apply(table, samples);
+    }
+    else
+    {
+      super.doWindow(samples);
+    }
+  }
+  
+  /**
+   * Allocates the stereo averages and calculates the spectrum index boundaries
+   * of all bands, so they don't have to be recalculated for every transform.
+   */
+  private void configureBands()
+  {
+    // also called by the superclass constructor before the arrays exist
+    if ( stereoAverages == null ) return;
+    int avgCount = avgSize();
+    for (int c = 0; c < stereoAverages.length; c++)
+    {
+      stereoAverages[c] = new float[avgCount];
+    }
+    
+    bandLo = new int[avgCount];
+    bandHi = new int[avgCount];
+    int specLen = specSize();
+    if ( whichAverage == LINAVG )
+    {
+      int avgWidth = specLen / avgCount;
+      for (int i = 0; i < avgCount; i++)
+      {
+        bandLo[i] = i * avgWidth;
+        bandHi[i] = Math.min(bandLo[i] + avgWidth, specLen) - 1;
+      }
+    }
+    else if ( whichAverage == LOGAVG )
+    {
+      for (int i = 0; i < octaves; i++)
+      {
+        float lowFreq = (i == 0) ? 0 : (sampleRate / 2) / (float) Math.pow(2, octaves - i);
+        float hiFreq  = (sampleRate / 2) / (float) Math.pow(2, octaves - i - 1);
+        float freqStep = (hiFreq - lowFreq) / avgPerOctave;
+        float f = lowFreq;
+        for (int j = 0; j < avgPerOctave; j++)
+        {
+          int band = j + i * avgPerOctave;
+          bandLo[band] = freqToIndex(f);
+          bandHi[band] = freqToIndex(f + freqStep);
+          f += freqStep;
+        }
+      }
+    }
+  }
+  
+  /**
+   * Performs a forward transform on two real valued channels at once.
+   * Both channels are packed into the real and imaginary part of a single
+   * complex FFT and separated afterwards using the symmetry of real signals.
+   * With an FFT engine, both channels are transformed separately with the real FFT.
+   * The spectra of the left, right, mid and side signal are then available via
+   * {@link #getStereoBand(int, int)} and {@link #getStereoAvg(int, int)}, 
+   * while {@link #getBand(int)} and {@link #getAvg(int)} return the mid signal.
+   * <p>
+   * Both buffers will be modified by the window function.
+   * 
+   * @param left
+   *          the left channel samples, must be <code>timeSize</code> long
+   * @param right
+   *          the right channel samples, must be <code>timeSize</code> long
+   */
+  public void forwardStereo(float[] left, float[] right)
+  {
+    doWindow(left);
+    doWindow(right);
+    if ( engine != null )
+    {
+      forwardStereoEngine(left, right);
+    }
+    else
+    {
+      forwardStereoComplex(left, right);
+    }
+    
+    for (int c = 0; c < stereoSpectrum.length; c++)
+    {
+      calcAverages(stereoSpectrum[c], stereoAverages[c]);
+    }
+    // mono accessors return the mid signal
+    System.arraycopy(stereoSpectrum[MID], 0, spectrum, 0, spectrum.length);
+    System.arraycopy(stereoAverages[MID], 0, averages, 0, averages.length);
+    stereo = true;
+  }
+  
+  /**
+   * Calculates the stereo spectra with a single complex Minim FFT.
+   * 
+   * @param left
+   *          the windowed left channel samples
+   * @param right
+   *          the windowed right channel samples
+   */
+  private void forwardStereoComplex(float[] left, float[] right)
+  {
+    stereoPass = true;
+    forward(left, right);
+    stereoPass = false;
+    
+    // separate the two channels: 
+    // L[k] = (Z[k] + conj(Z[N-k])) / 2, R[k] = (Z[k] - conj(Z[N-k])) / 2i
+    for (int k = 0; k < spectrum.length; k++)
+    {
+      int n = (timeSize - k) % timeSize;
+      setStereoBins(k, (real[k] + real[n]) * 0.5f, (imag[k] - imag[n]) * 0.5f,
+                       (imag[k] + imag[n]) * 0.5f, (real[n] - real[k]) * 0.5f);
+    }
+  }
+  
+  /**
+   * Calculates the stereo spectra with two real transforms of the FFT engine.
+   * 
+   * @param left
+   *          the windowed left channel samples
+   * @param right
+   *          the windowed right channel samples
+   */
+  private void forwardStereoEngine(float[] left, float[] right)
+  {
+    System.arraycopy(left,  0, workL, 0, timeSize);
+    System.arraycopy(right, 0, workR, 0, timeSize);
+    engine.forward(workL);
+    engine.forward(workR);
+    
+    int half = timeSize / 2;
+    setStereoBins(0,    workL[0], 0, workR[0], 0);
+    setStereoBins(half, workL[1], 0, workR[1], 0);
+    for (int k = 1; k < half; k++)
+    {
+      setStereoBins(k, workL[2 * k], workL[2 * k + 1], workR[2 * k], workR[2 * k + 1]);
+    }
+  }
+  
+  /**
+   * Calculates the left, right, mid and side amplitudes of a single frequency bin.
+   * 
+   * @param k
+   *          the index of the frequency bin
+   * @param lRe
+   *          the real part of the left channel bin
+   * @param lIm
+   *          the imaginary part of the left channel bin
+   * @param rRe
+   *          the real part of the right channel bin
+   * @param rIm
+   *          the imaginary part of the right channel bin
+   */
+  private void setStereoBins(int k, float lRe, float lIm, float rRe, float rIm)
+  {
+    stereoSpectrum[LEFT][k]  = (float) Math.sqrt(lRe * lRe + lIm * lIm);
+    stereoSpectrum[RIGHT][k] = (float) Math.sqrt(rRe * rRe + rIm * rIm);
+    float mRe = (lRe + rRe) * 0.5f;
+    float mIm = (lIm + rIm) * 0.5f;
+    float sRe = (lRe - rRe) * 0.5f;
+    float sIm = (lIm - rIm) * 0.5f;
+    stereoSpectrum[MID][k]   = (float) Math.sqrt(mRe * mRe + mIm * mIm);
+    stereoSpectrum[SIDE][k]  = (float) Math.sqrt(sRe * sRe + sIm * sIm);
+  }
+  
+  @Override
+  public void forward(float[] buffer)
+  {
+    if ( engine != null )
+    {
+      if ( buffer.length != timeSize )
+      {
+        // same behaviour as the Minim FFT
+        Minim.error("FFT.forward: The length of the passed sample buffer must be equal to timeSize().");
+        return;
+      }
+      doWindow(buffer);
+      System.arraycopy(buffer, 0, workL, 0, timeSize);
+      engine.forward(workL);
+      int half = timeSize / 2;
+      spectrum[0]    = Math.abs(workL[0]);
+      spectrum[half] = Math.abs(workL[1]);
+      for (int k = 1; k < half; k++)
+      {
+        float re = workL[2 * k];
+        float im = workL[2 * k + 1];
+        spectrum[k] = (float) Math.sqrt(re * re + im * im);
+      }
+      calcAverages(spectrum, averages);
+    }
+    else
+    {
+      super.forward(buffer);
+    }
+    stereo = false;
+  }
+  
+  @Override
+  protected void fillSpectrum()
+  {
+    // the spectrum of a packed stereo transform is not meaningful,
+    // forwardStereo() calculates the channel spectra itself
+    if ( !stereoPass )
+    {
+      for (int i = 0; i < spectrum.length; i++)
+      {
+        spectrum[i] = (float) Math.sqrt(real[i] * real[i] + imag[i] * imag[i]);
+      }
+      calcAverages(spectrum, averages);
+    }
+  }
+  
+  /**
+   * Checks if the last transform was a stereo transform.
+   * 
+   * @return <code>true</code> if the last transform was done with {@link #forwardStereo(float[], float[])},
+   *         <code>false</code> if not
+   */
+  public boolean isStereo()
+  {
+    return stereo;
+  }
+  
+  /**
+   * Gets the amplitude of a frequency band of a channel of the last stereo transform.
+   * 
+   * @param channel
+   *          the channel ({@link #LEFT}, {@link #RIGHT}, {@link #MID}, or {@link #SIDE})
+   * @param i
+   *          the index of the frequency band
+   * @return the amplitude of the frequency band
+   */
+  public float getStereoBand(int channel, int i)
+  {
+    return stereoSpectrum[channel][i];
+  }
+  
+  /**
+   * Gets the value of an average of a channel of the last stereo transform.
+   * 
+   * @param channel
+   *          the channel ({@link #LEFT}, {@link #RIGHT}, {@link #MID}, or {@link #SIDE})
+   * @param i
+   *          the index of the average
+   * @return the value of the average
+   */
+  public float getStereoAvg(int channel, int i)
+  {
+    return stereoAverages[channel][i];
+  }
+  
+  /**
+   * Gets the spectrum of the last transform.
+   * The array is reused for every transform and must not be modified.
+   * 
+   * @return the amplitudes of all frequency bands
+   */
+  public float[] getSpectrum()
+  {
+    return spectrum;
+  }
+  
+  /**
+   * Gets the averages of the last transform.
+   * The array is reused for every transform and must not be modified.
+   * 
+   * @return the values of all averages
+   */
+  public float[] getAverages()
+  {
+    return averages;
+  }
+  
+  /**
+   * Gets the averages of a channel of the last stereo transform.
+   * The array is reused for every transform and must not be modified.
+   * 
+   * @param channel
+   *          the channel ({@link #LEFT}, {@link #RIGHT}, {@link #MID}, or {@link #SIDE})
+   * @return the values of all averages of the channel
+   */
+  public float[] getStereoAverages(int channel)
+  {
+    return stereoAverages[channel];
+  }
+  
+  /**
+   * Calculates the averages of a spectrum in a single sweep 
+   * using the precomputed band boundaries.
+   * 
+   * @param spec
+   *          the spectrum to calculate the averages for
+   * @param avg
+   *          the array to store the averages in
+   */
+  private void calcAverages(float[] spec, float[] avg)
+  {
+    if ( whichAverage == LINAVG )
+    {
+      for (int i = 0; i < avg.length; i++)
+      {
+        float sum = 0;
+        for (int k = bandLo[i]; k <= bandHi[i]; k++)
+        {
+          sum += spec[k];
+        }
+        // same divisor as the Minim FFT
+        avg[i] = sum / (bandHi[i] - bandLo[i] + 2);
+      }
+    }
+    else if ( whichAverage == LOGAVG )
+    {
+      for (int i = 0; i < avg.length; i++)
+      {
+        float max = 0;
+        for (int k = bandLo[i]; k <= bandHi[i]; k++)
+        {
+          max = Math.max(spec[k], max);
+        }
+        avg[i] = max;
+      }
+    }
   }
   
   /**
@@ -48,4 +463,12 @@ public class MaxFFT extends FFT
     }
     return max;
   }
+  
+  private final FFTEngine   engine;
+  private final float[]     workL, workR;
+  private volatile float[]  windowTable;
+  private boolean           stereo, stereoPass;
+  private int[]             bandLo, bandHi;
+  private final float[][]   stereoSpectrum;
+  private final float[][]   stereoAverages;
 }
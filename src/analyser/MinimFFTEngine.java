@@ -0,0 +1,68 @@
+package analyser;
+
+import ddf.minim.analysis.FFT;
+
+/**
+ * FFT engine that uses the Minim FFT.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class MinimFFTEngine implements FFTEngine
+{
+    /**
+     * Creates a new Minim FFT engine.
+     *
+     * @param size  the size of the transform (must be a power of 2)
+     */
+    public MinimFFTEngine(int size)
+    {
+        fft = new PackingFFT(size);
+    }
+
+    @Override
+    public int getSize()
+    {
+        return fft.timeSize();
+    }
+
+    @Override
+    public void forward(float[] data)
+    {
+        fft.forward(data);
+        fft.pack(data);
+    }
+
+
+    /**
+     * Minim FFT with access to the complex result.
+     */
+    private static class PackingFFT extends FFT
+    {
+        public PackingFFT(int size)
+        {
+            // sample rate is irrelevant for the transform itself
+            super(size, size);
+        }
+
+        /**
+         * Copies the complex result into an array in packed form.
+         *
+         * @param data  the array to copy the result into
+         */
+        public void pack(float[] data)
+        {
+            int half = timeSize / 2;
+            data[0] = real[0];
+            data[1] = real[half];
+            for ( int k = 1 ; k < half ; k++ )
+            {
+                data[2 * k]     = real[k];
+                data[2 * k + 1] = imag[k];
+            }
+        }
+    }
+
+
+    private final PackingFFT fft;
+}
@@ -0,0 +1,347 @@
+package analyser;
+
+/**
+ * Spectrum engine that analyses each octave at its own sample rate.
+ *
+ * The window is decimated by 2 repeatedly with a half-band filter.
+ * The two top octaves are analysed with a short FFT on the original signal,
+ * every lower octave with an FFT of the same size on a decimated version of the signal.
+ * The lowest octaves therefore use long windows while the high octaves
+ * use short windows with a good time resolution.
+ * The band layout is identical to {@link MaxFFT#logAverages(int, int)},
+ * and band values are the maximum of the bins within a band.
+ * The windowed samples of each level are zero padded to four times the FFT size,
+ * so every band covers several bins of the interpolated spectrum, even in the top octave of a level,
+ * and a sine peaks in the same band as with the {@link FFTSpectrumEngine}.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class MultiRateSpectrumEngine implements SpectrumEngine
+{
+    /**
+     * Creates a new multi-rate spectrum engine.
+     *
+     * @param fftSize         the size of a single FFT that would cover the lowest octave
+     *                        with the same frequency resolution (must be a power of 2)
+     * @param sampleRate      the sample rate of the audio signal
+     * @param minBandwidth    the minimum bandwidth of an octave in Hz
+     * @param bandsPerOctave  the number of bands per octave
+     * @param fftType         the type of FFT engine to use
+     * @throws IllegalArgumentException if the parameters result in less than 3 octaves
+     *                                  or FFT sizes below 8 samples
+     */
+    public MultiRateSpectrumEngine(int fftSize, float sampleRate, int minBandwidth, int bandsPerOctave, FFTEngineEnum fftType)
+        throws IllegalArgumentException
+    {
+        // calculate octaves the same way as the Minim FFT
+        int   nyquist = (int) sampleRate / 2;
+        float nyq     = nyquist;
+        int   octaves = 1;
+        while ( (nyq /= 2) > minBandwidth ) { octaves++; }
+        if ( octaves < 3 )
+        {
+            throw new IllegalArgumentException("Multi-rate analysis needs at least 3 octaves");
+        }
+
+        // top level covers two octaves, lowest level covers octave 0 and is only half the size
+        int levels    = octaves - 1;
+        int levelSize = fftSize >> (levels - 2);
+        if ( levelSize < 16 )
+        {
+            throw new IllegalArgumentException("FFT size too small for multi-rate analysis (" + fftSize + ")");
+        }
+
+        // create decimation filter and calculate required buffer sizes from the lowest level upwards
+        createFilter();
+        ffts       = new MaxFFT[levels];
+        fftInL     = new float[levels][];
+        fftInR     = new float[levels][];
+        decimatedL = new float[levels][];
+        decimatedR = new float[levels][];
+        levelScale = new float[levels];
+        windows    = new float[levels][];
+        int[] need = new int[levels];
+        for ( int level = levels - 1 ; level >= 0 ; level-- )
+        {
+            int size = (level == levels - 1) ? levelSize / 2 : levelSize;
+            // the window only covers the samples, not the padding
+            ffts[level] = new MaxFFT(size * PADDING, sampleRate / (1 << level), fftType.createEngine(size * PADDING));
+            ffts[level].noAverages();
+            ffts[level].window(MaxFFT.NONE);
+            windows[level] = WindowEnum.HANN.getTable(size);
+            fftInL[level]  = new float[size * PADDING];
+            fftInR[level]  = new float[size * PADDING];
+            levelScale[level] = 2.0f / (size / 2 + 1);
+
+            need[level] = (level == levels - 1) ? size : Math.max(size, 2 * (need[level + 1] - 1) + filterTaps.length);
+            if ( level > 0 )
+            {
+                decimatedL[level] = new float[need[level]];
+                decimatedR[level] = new float[need[level]];
+            }
+        }
+        windowSize = need[0];
+
+        // assign each band to a level and a range of bins within that level
+        int bandCount = octaves * bandsPerOctave;
+        bandLevel = new int[bandCount];
+        bandLo    = new int[bandCount];
+        bandHi    = new int[bandCount];
+        bandFreq  = new float[bandCount];
+        for ( int i = 0 ; i < octaves ; i++ )
+        {
+            float lowFreq  = (i == 0) ? 0 : nyquist / (float) Math.pow(2, octaves - i);
+            float hiFreq   = nyquist / (float) Math.pow(2, octaves - i - 1);
+            float freqStep = (hiFreq - lowFreq) / bandsPerOctave;
+            int   level    = (i == 0) ? levels - 1 : Math.max(0, octaves - 2 - i);
+            float f        = lowFreq;
+            for ( int j = 0 ; j < bandsPerOctave ; j++ )
+            {
+                int band = j + i * bandsPerOctave;
+                bandLevel[band] = level;
+                bandFreq[band]  = f + freqStep / 2;
+                bandLo[band]    = freqToIndex(f,            sampleRate / (1 << level), ffts[level].timeSize());
+                bandHi[band]    = freqToIndex(f + freqStep, sampleRate / (1 << level), ffts[level].timeSize());
+                f += freqStep;
+            }
+        }
+
+        stereo      = false;
+        bands       = new float[bandCount];
+        stereoBands = new float[4][bandCount];
+    }
+
+    /**
+     * Creates a windowed sinc half-band low pass filter for decimation by 2.
+     * The filter has a passband up to 1/8 of the input sample rate
+     * and suppresses everything that would alias into that passband.
+     */
+    private void createFilter()
+    {
+        final int taps = 15;
+        filterTaps = new float[taps];
+        int   centre = taps / 2;
+        float sum    = 0;
+        for ( int i = 0 ; i < taps ; i++ )
+        {
+            int    n    = i - centre;
+            double sinc = (n == 0) ? 0.5 : ((n % 2 == 0) ? 0 : Math.sin(Math.PI * n / 2) / (Math.PI * n));
+            // Blackman window
+            double w    = 0.42 - 0.5 * Math.cos(2 * Math.PI * (i + 1) / (taps + 1))
+                               + 0.08 * Math.cos(4 * Math.PI * (i + 1) / (taps + 1));
+            filterTaps[i] = (float) (sinc * w);
+            sum += filterTaps[i];
+        }
+        for ( int i = 0 ; i < taps ; i++ )
+        {
+            filterTaps[i] /= sum;
+        }
+        // every second tap of a half-band filter is zero, so only keep the others
+        int nonZero = 0;
+        for ( float tap : filterTaps ) { if ( tap != 0 ) nonZero++; }
+        tapIdx = new int[nonZero];
+        tapVal = new float[nonZero];
+        nonZero = 0;
+        for ( int i = 0 ; i < taps ; i++ )
+        {
+            if ( filterTaps[i] != 0 )
+            {
+                tapIdx[nonZero] = i;
+                tapVal[nonZero] = filterTaps[i];
+                nonZero++;
+            }
+        }
+    }
+
+    /**
+     * Converts a frequency to a bin index the same way the Minim FFT does.
+     *
+     * @param freq        the frequency
+     * @param sampleRate  the sample rate of the FFT
+     * @param timeSize    the size of the FFT
+     * @return the bin index
+     */
+    private static int freqToIndex(float freq, float sampleRate, int timeSize)
+    {
+        float bandWidth = sampleRate / timeSize;
+        if ( freq < bandWidth / 2 ) return 0;
+        if ( freq > sampleRate / 2 - bandWidth / 2 ) return timeSize / 2;
+        return Math.round(timeSize * freq / sampleRate);
+    }
+
+    /**
+     * Decimates the end of a buffer by a factor of 2.
+     *
+     * @param in   the input buffer
+     * @param out  the output buffer, which is completely filled
+     */
+    private void decimate(float[] in, float[] out)
+    {
+        int start = in.length - (2 * (out.length - 1) + filterTaps.length);
+        for ( int n = 0 ; n < out.length ; n++ )
+        {
+            float sum = 0;
+            int   idx = start + 2 * n;
+            for ( int k = 0 ; k < tapIdx.length ; k++ )
+            {
+                sum += tapVal[k] * in[idx + tapIdx[k]];
+            }
+            out[n] = sum;
+        }
+    }
+
+    @Override
+    public int getWindowSize()
+    {
+        return windowSize;
+    }
+
+    @Override
+    public int getBandCount()
+    {
+        return bands.length;
+    }
+
+    @Override
+    public float getBandFrequency(int band)
+    {
+        return bandFreq[band];
+    }
+
+    @Override
+    public int getRawBandCount()
+    {
+        return 0;
+    }
+
+    @Override
+    public void setRawBandsEnabled(boolean enabled)
+    {
+        // no raw bins available
+    }
+
+    @Override
+    public void setHopSize(int hopSize)
+    {
+        // every window is analysed independently
+    }
+
+    @Override
+    public void setWindowStart(long start)
+    {
+        // every window is analysed independently
+    }
+
+    @Override
+    public void setWindow(WindowEnum window)
+    {
+        for ( int level = 0 ; level < windows.length ; level++ )
+        {
+            windows[level] = window.getTable(windows[level].length);
+        }
+    }
+
+    @Override
+    public void analyse(float[] left, float[] right)
+    {
+        stereo = (right != null);
+
+        // decimate and transform each level
+        for ( int level = 0 ; level < ffts.length ; level++ )
+        {
+            float[] srcL = (level == 0) ? left  : decimatedL[level];
+            float[] srcR = (level == 0) ? right : decimatedR[level];
+            if ( level > 0 )
+            {
+                decimate((level == 1) ? left : decimatedL[level - 1], srcL);
+                if ( stereo )
+                {
+                    decimate((level == 1) ? right : decimatedR[level - 1], srcR);
+                }
+            }
+
+            // the padding after the samples stays 0
+            float[] window = windows[level];
+            int     size   = window.length;
+            System.arraycopy(srcL, srcL.length - size, fftInL[level], 0, size);
+            WindowEnum.apply(window, fftInL[level]);
+            if ( stereo )
+            {
+                System.arraycopy(srcR, srcR.length - size, fftInR[level], 0, size);
+                WindowEnum.apply(window, fftInR[level]);
+                ffts[level].forwardStereo(fftInL[level], fftInR[level]);
+            }
+            else
+            {
+                ffts[level].forward(fftInL[level]);
+            }
+        }
+
+        // collect the band maxima
+        for ( int band = 0 ; band < bands.length ; band++ )
+        {
+            MaxFFT fft = ffts[bandLevel[band]];
+            float  max = 0;
+            for ( int k = bandLo[band] ; k <= bandHi[band] ; k++ )
+            {
+                max = Math.max(max, fft.getBand(k));
+            }
+            bands[band] = max * levelScale[bandLevel[band]];
+
+            if ( stereo )
+            {
+                for ( int c = 0 ; c < stereoBands.length ; c++ )
+                {
+                    max = 0;
+                    for ( int k = bandLo[band] ; k <= bandHi[band] ; k++ )
+                    {
+                        max = Math.max(max, fft.getStereoBand(c, k));
+                    }
+                    stereoBands[c][band] = max * levelScale[bandLevel[band]];
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isStereo()
+    {
+        return stereo;
+    }
+
+    @Override
+    public float[] getBands()
+    {
+        return bands;
+    }
+
+    @Override
+    public float[] getStereoBands(int channel)
+    {
+        return stereoBands[channel];
+    }
+
+    @Override
+    public float[] getRawBands()
+    {
+        return null;
+    }
+
+
+    // zero padding factor of the FFTs
+    private static final int PADDING = 4;
+
+    private float[]         filterTaps, tapVal;
+    private int[]           tapIdx;
+    private final MaxFFT[]  ffts;
+    private final float[][] fftInL, fftInR, decimatedL, decimatedR;
+    private final float[]   levelScale;
+    private final float[][] windows;
+    private final int       windowSize;
+    private final int[]     bandLevel, bandLo, bandHi;
+    private final float[]   bandFreq;
+    private boolean         stereo;
+    private final float[]   bands;
+    private final float[][] stereoBands;
+}
@@ -0,0 +1,375 @@
+package analyser;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Class for analysing audio files faster than realtime.
+ *
+ * The whole file is decoded first, then the analysis frames are split into chunks
+ * that are analysed in parallel on a fork-join pool.
+ * Every frame is analysed independently from its own window of samples,
+ * so the result does not depend on the number of threads.
+ * The result is written as a tab-separated spectrum file.
+ * <p>
+ * The analysis can take a while for long files, so it should not run on the render thread.
+ * Its progress can be polled with {@link #getProgress()} from any thread,
+ * and it can be cancelled with {@link #cancel()}.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class OfflineAnalyser
+{
+    /**
+     * Creates a new offline analyser.
+     *
+     * @param analyseFrequency  the frequency in Hz for analysing the waveforms
+     * @param engineType        the type of spectrum engine to use
+     * @param shaper            the spectrum shaper to use
+     * @param stereo            <code>true</code> to analyse both channels,
+     *                          <code>false</code> to only analyse the left channel
+     * @param parallelism       the amount of threads to use
+     *                          (0: use all available processors)
+     */
+    public OfflineAnalyser(int analyseFrequency, SpectrumEngineEnum engineType, SpectrumShaper shaper, boolean stereo, int parallelism)
+    {
+        this.analyseFrequency = analyseFrequency;
+        this.engineType       = engineType;
+        this.shaper           = shaper;
+        this.stereo           = stereo;
+        this.parallelism      = (parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors();
+        analysedFrames = new AtomicInteger(0);
+        frameCount     = 0;
+        cancelled      = false;
+    }
+
+    /**
+     * Cancels the analysis.
+     * A running analysis stops as soon as possible, and no further analysis is started.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * Checks if the analysis has been cancelled.
+     *
+     * @return <code>true</code> if the analysis has been cancelled
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Gets the progress of the analysis.
+     * While the audio file is decoded, the progress is 0.
+     *
+     * @return the progress (0...1)
+     */
+    public float getProgress()
+    {
+        int count = frameCount;
+        return (count == 0) ? 0 : (float) analysedFrames.get() / count;
+    }
+
+    /**
+     * Analyses an audio file and writes the result into a spectrum file.
+     *
+     * @param audioFile     the audio file to analyse
+     * @param spectrumFile  the spectrum file to write
+     * @return <code>true</code> if the spectrum file has been written,
+     *         <code>false</code> if the analysis has been cancelled
+     * @throws IOException if the files cannot be read or written
+     * @throws UnsupportedAudioFileException if the audio file format is not supported
+     */
+    public boolean analyse(File audioFile, File spectrumFile) throws IOException, UnsupportedAudioFileException
+    {
+        long startTime = System.currentTimeMillis();
+        decode(audioFile);
+        long decodeTime = System.currentTimeMillis();
+        float[][] spectrum = cancelled ? null : analyse(dataL, dataR, sampleRate);
+        if ( cancelled )
+        {
+            dataL = dataR = null;
+            return false;
+        }
+        long analyseTime = System.currentTimeMillis();
+        writeSpectrumFile(spectrumFile, spectrum);
+        LOG.log(Level.INFO,
+                "Analysed {0} ({1} samples, {2} frames) with {3} threads: decoding {4}ms, analysis {5}ms, writing {6}ms",
+                new Object[] { audioFile.getName(), dataL.length, spectrum.length, parallelism,
+                               decodeTime - startTime, analyseTime - decodeTime, System.currentTimeMillis() - analyseTime});
+        dataL = dataR = null;
+        return true;
+    }
+
+    /**
+     * Analyses audio data.
+     *
+     * @param left        the samples of the left channel
+     * @param right       the samples of the right channel
+     * @param sampleRate  the sample rate of the audio data
+     * @return the shaped frequency band intensities of each analysis frame
+     *         (frames that have not been analysed because of {@link #cancel()} are <code>null</code>)
+     */
+    public float[][] analyse(float[] left, float[] right, float sampleRate)
+    {
+        SpectrumEngine engine = SpectrumAnalyser.createEngine(engineType, FFTEngineEnum.REAL, sampleRate);
+        this.sampleRate = sampleRate;
+        windowSize = engine.getWindowSize();
+        frameStep  = (int) (sampleRate / analyseFrequency);
+        bandFrequencies = new float[engine.getBandCount()];
+        for ( int i = 0 ; i < bandFrequencies.length ; i++ )
+        {
+            bandFrequencies[i] = engine.getBandFrequency(i);
+        }
+
+        int frameCount = (left.length < windowSize) ? 0 : (left.length - windowSize) / frameStep + 1;
+        float[][] result = new float[frameCount][];
+        analysedFrames.set(0);
+        this.frameCount = frameCount;
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try
+        {
+            pool.invoke(new ChunkTask(left, right, sampleRate, result, 0, frameCount));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        return result;
+    }
+
+    /**
+     * Gets the time of an analysis frame.
+     *
+     * @param frame  the index of the analysis frame
+     * @return the time of the start of the analysis window in ms
+     */
+    public int getFrameTime(int frame)
+    {
+        return (int) ((long) frame * frameStep * 1000 / sampleRate);
+    }
+
+    /**
+     * Decodes an audio file into float samples.
+     *
+     * @param audioFile  the file to decode
+     * @throws IOException if the file cannot be read
+     * @throws UnsupportedAudioFileException if the file format is not supported
+     */
+    private void decode(File audioFile) throws IOException, UnsupportedAudioFileException
+    {
+        AudioInputStream srcStream = AudioSystem.getAudioInputStream(audioFile);
+        AudioFormat      srcFormat = srcStream.getFormat();
+        int              channels  = srcFormat.getChannels();
+        AudioFormat      pcmFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
+                srcFormat.getSampleRate(), 16, channels, channels * 2, srcFormat.getSampleRate(), false);
+        AudioInputStream pcmStream = AudioSystem.getAudioInputStream(pcmFormat, srcStream);
+
+        try
+        {
+            int    frameSize = channels * 2;
+            byte[] buf       = new byte[4096 * frameSize];
+            float[] left  = new float[1 << 16];
+            float[] right = new float[1 << 16];
+            int    count  = 0;
+            int    len, rest = 0;
+            while ( !cancelled && ((len = pcmStream.read(buf, rest, buf.length - rest)) >= 0) )
+            {
+                len += rest;
+                int frames = len / frameSize;
+                if ( count + frames > left.length )
+                {
+                    left  = Arrays.copyOf(left,  Math.max(left.length * 2, count + frames));
+                    right = Arrays.copyOf(right, left.length);
+                }
+                for ( int f = 0 ; f < frames ; f++ )
+                {
+                    int idx = f * frameSize;
+                    left[count]  = (short) ((buf[idx + 1] << 8) | (buf[idx] & 0xFF)) / 32768f;
+                    idx += (channels > 1) ? 2 : 0;
+                    right[count] = (short) ((buf[idx + 1] << 8) | (buf[idx] & 0xFF)) / 32768f;
+                    count++;
+                }
+                // keep incomplete frames for the next read
+                rest = len - frames * frameSize;
+                System.arraycopy(buf, frames * frameSize, buf, 0, rest);
+            }
+            dataL      = Arrays.copyOf(left,  count);
+            dataR      = Arrays.copyOf(right, count);
+            sampleRate = pcmFormat.getSampleRate();
+        }
+        finally
+        {
+            pcmStream.close();
+        }
+    }
+
+    /**
+     * Writes a tab-separated spectrum file.
+     * The first line contains the band frequencies,
+     * every other line the time in ms and the intensities of one analysis frame.
+     *
+     * @param file      the file to write
+     * @param spectrum  the spectrum data to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeSpectrumFile(File file, float[][] spectrum) throws IOException
+    {
+        PrintWriter w = new PrintWriter(new BufferedWriter(new FileWriter(file), 1 << 16));
+        try
+        {
+            StringBuilder line = new StringBuilder("Time");
+            for ( float freq : bandFrequencies )
+            {
+                line.append('\t').append(freq);
+            }
+            w.println(line);
+            for ( int frame = 0 ; frame < spectrum.length ; frame++ )
+            {
+                line.setLength(0);
+                line.append(getFrameTime(frame));
+                for ( float value : spectrum[frame] )
+                {
+                    line.append('\t').append(value);
+                }
+                w.println(line);
+            }
+        }
+        finally
+        {
+            w.close();
+        }
+        if ( w.checkError() )
+        {
+            throw new IOException("Could not write spectrum file " + file);
+        }
+    }
+
+
+    /**
+     * Task for analysing a range of frames.
+     * Ranges that are too large are split into two subtasks.
+     */
+    private class ChunkTask extends RecursiveAction
+    {
+        public ChunkTask(float[] left, float[] right, float sampleRate, float[][] result, int startFrame, int endFrame)
+        {
+            this.left       = left;
+            this.right      = right;
+            this.sampleRate = sampleRate;
+            this.result     = result;
+            this.startFrame = startFrame;
+            this.endFrame   = endFrame;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ( endFrame - startFrame > CHUNK_FRAMES )
+            {
+                int middle = (startFrame + endFrame) / 2;
+                invokeAll(new ChunkTask(left, right, sampleRate, result, startFrame, middle),
+                          new ChunkTask(left, right, sampleRate, result, middle, endFrame));
+                return;
+            }
+
+            // every chunk has its own engine and buffers
+            SpectrumEngine engine  = SpectrumAnalyser.createEngine(engineType, FFTEngineEnum.REAL, sampleRate);
+            engine.setRawBandsEnabled(false);
+            engine.setHopSize(frameStep);
+            SpectrumInfo   info    = new SpectrumInfo();
+            float[]        windowL = new float[windowSize];
+            float[]        windowR = new float[windowSize];
+            int frame = startFrame;
+            for ( ; (frame < endFrame) && !cancelled ; frame++ )
+            {
+                int start = frame * frameStep;
+                System.arraycopy(left, start, windowL, 0, windowSize);
+                engine.setWindowStart(start);
+                if ( stereo )
+                {
+                    System.arraycopy(right, start, windowR, 0, windowSize);
+                    engine.analyse(windowL, windowR);
+                }
+                else
+                {
+                    engine.analyse(windowL, null);
+                }
+                info.copySpectrumData(0, (float) start / left.length, engine, shaper);
+                result[frame] = info.intensity.clone();
+            }
+            analysedFrames.addAndGet(frame - startFrame);
+        }
+
+        private static final long serialVersionUID = 1L;
+
+        private final float[]   left, right;
+        private final float     sampleRate;
+        private final float[][] result;
+        private final int       startFrame, endFrame;
+    }
+
+
+    /**
+     * Analyses an audio file from the command line.
+     *
+     * @param args  audio file, spectrum file, and optionally the number of threads
+     */
+    public static void main(String[] args)
+    {
+        if ( args.length < 2 )
+        {
+            System.err.println("Usage: OfflineAnalyser <audio file> <spectrum file> [threads]");
+            return;
+        }
+        int threads = (args.length > 2) ? Integer.parseInt(args[2]) : 0;
+        OfflineAnalyser analyser = new OfflineAnalyser(60, SpectrumEngineEnum.FFT, SpectrumShaper.LOGARITHMIC, false, threads);
+        try
+        {
+            analyser.analyse(new File(args[0]), new File(args[1]));
+        }
+        catch (IOException | UnsupportedAudioFileException e)
+        {
+            System.err.println("Could not analyse " + args[0] + " (" + e + ")");
+        }
+    }
+
+
+    // amount of frames that are analysed in one task
+    private static final int CHUNK_FRAMES = 64;
+
+    private final int                analyseFrequency;
+    private final SpectrumEngineEnum engineType;
+    private final SpectrumShaper     shaper;
+    private final boolean            stereo;
+    private final int                parallelism;
+    private float[]                  dataL, dataR;
+    private float                    sampleRate;
+    private int                      windowSize, frameStep;
+    private float[]                  bandFrequencies;
+    // frames analysed so far out of the frames of the current analysis
+    private final AtomicInteger      analysedFrames;
+    private volatile int             frameCount;
+    private volatile boolean         cancelled;
+
+    private static final Logger LOG = Logger.getLogger(OfflineAnalyser.class.getName());
+}
@@ -0,0 +1,218 @@
+package analyser;
+
+import java.util.Arrays;
+
+/**
+ * FFT engine for real valued signals that works in place on a single array.
+ *
+ * The N real samples are treated as N/2 complex samples (even samples as real parts,
+ * odd samples as imaginary parts) and transformed with a complex FFT of half the size.
+ * The spectrum of the real signal is then separated from that result in a final pass.
+ * The complex FFT uses radix-4 butterflies (with a single radix-2 pass if needed)
+ * on bit-reversed data.
+ * Twiddle factors and bit-reversal permutations are precomputed.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class RealFFTEngine implements FFTEngine
+{
+    /**
+     * Creates a new real FFT engine.
+     *
+     * @param size  the size of the transform (must be a power of 2 and at least 4)
+     * @throws IllegalArgumentException if the size is not a power of 2 or too small
+     */
+    public RealFFTEngine(int size) throws IllegalArgumentException
+    {
+        if ( (size < 4) || (Integer.bitCount(size) != 1) )
+        {
+            throw new IllegalArgumentException("FFT size must be a power of 2 and at least 4 (" + size + ")");
+        }
+        this.size = size;
+        int half = size / 2;
+
+        // twiddle factors of the complex transform: exp(-2 pi i k / half)
+        cosTable = new float[Math.max(1, half / 2)];
+        sinTable = new float[cosTable.length];
+        for ( int k = 0 ; k < cosTable.length ; k++ )
+        {
+            double angle = 2 * Math.PI * k / half;
+            cosTable[k] = (float) Math.cos(angle);
+            sinTable[k] = (float) -Math.sin(angle);
+        }
+
+        // twiddle factors of the real separation pass: exp(-2 pi i k / size)
+        realCos = new float[half / 2 + 1];
+        realSin = new float[realCos.length];
+        for ( int k = 0 ; k < realCos.length ; k++ )
+        {
+            double angle = 2 * Math.PI * k / size;
+            realCos[k] = (float) Math.cos(angle);
+            realSin[k] = (float) -Math.sin(angle);
+        }
+
+        // pairs of complex indices that have to be swapped for the bit reversal
+        int bits  = Integer.numberOfTrailingZeros(half);
+        int pairs = 0;
+        int[] swap = new int[half];
+        for ( int i = 0 ; i < half ; i++ )
+        {
+            int j = (bits == 0) ? 0 : Integer.reverse(i) >>> (32 - bits);
+            if ( i < j )
+            {
+                swap[pairs++] = i;
+                swap[pairs++] = j;
+            }
+        }
+        swapTable = Arrays.copyOf(swap, pairs);
+    }
+
+    @Override
+    public int getSize()
+    {
+        return size;
+    }
+
+    @Override
+    public void forward(float[] data)
+    {
+        bitReverse(data);
+        transform(data);
+        separate(data);
+    }
+
+    /**
+     * Reorders the complex samples into bit-reversed order.
+     *
+     * @param data  the interleaved complex samples
+     */
+    private void bitReverse(float[] data)
+    {
+        for ( int p = 0 ; p < swapTable.length ; p += 2 )
+        {
+            int   i  = 2 * swapTable[p];
+            int   j  = 2 * swapTable[p + 1];
+            float re = data[i];
+            float im = data[i + 1];
+            data[i]     = data[j];
+            data[i + 1] = data[j + 1];
+            data[j]     = re;
+            data[j + 1] = im;
+        }
+    }
+
+    /**
+     * Performs the complex decimation in time FFT on bit-reversed data.
+     *
+     * @param data  the interleaved complex samples in bit-reversed order
+     */
+    private void transform(float[] data)
+    {
+        int half    = size / 2;
+        int quarter = 1;
+        if ( Integer.numberOfTrailingZeros(half) % 2 == 1 )
+        {
+            // odd amount of stages: start with a radix-2 pass without twiddle factors
+            for ( int i = 0 ; i < 2 * half ; i += 4 )
+            {
+                float re = data[i + 2];
+                float im = data[i + 3];
+                data[i + 2] = data[i]     - re;
+                data[i + 3] = data[i + 1] - im;
+                data[i]     += re;
+                data[i + 1] += im;
+            }
+            quarter = 2;
+        }
+
+        // radix-4 passes, each combining two radix-2 stages
+        for ( ; quarter < half ; quarter *= 4 )
+        {
+            int span   = 4 * quarter;
+            int stride = half / span;
+            for ( int j = 0 ; j < quarter ; j++ )
+            {
+                // w1 = exp(-2 pi i j / (2 * quarter)), w2 = exp(-2 pi i j / (4 * quarter))
+                float w1r = cosTable[2 * j * stride];
+                float w1i = sinTable[2 * j * stride];
+                float w2r = cosTable[j * stride];
+                float w2i = sinTable[j * stride];
+                for ( int start = j ; start < half ; start += span )
+                {
+                    int i0 = 2 * start;
+                    int i1 = i0 + 2 * quarter;
+                    int i2 = i1 + 2 * quarter;
+                    int i3 = i2 + 2 * quarter;
+
+                    // first stage: (a0, a1) and (a2, a3) with twiddle w1
+                    float tr = w1r * data[i1] - w1i * data[i1 + 1];
+                    float ti = w1r * data[i1 + 1] + w1i * data[i1];
+                    float b0r = data[i0] + tr,     b0i = data[i0 + 1] + ti;
+                    float b1r = data[i0] - tr,     b1i = data[i0 + 1] - ti;
+                    tr = w1r * data[i3] - w1i * data[i3 + 1];
+                    ti = w1r * data[i3 + 1] + w1i * data[i3];
+                    float b2r = data[i2] + tr,     b2i = data[i2 + 1] + ti;
+                    float b3r = data[i2] - tr,     b3i = data[i2 + 1] - ti;
+
+                    // second stage: (b0, b2) with twiddle w2, (b1, b3) with twiddle -i * w2
+                    tr = w2r * b2r - w2i * b2i;
+                    ti = w2r * b2i + w2i * b2r;
+                    data[i0]     = b0r + tr;
+                    data[i0 + 1] = b0i + ti;
+                    data[i2]     = b0r - tr;
+                    data[i2 + 1] = b0i - ti;
+                    tr =  w2r * b3i + w2i * b3r;
+                    ti = -w2r * b3r + w2i * b3i;
+                    data[i1]     = b1r + tr;
+                    data[i1 + 1] = b1i + ti;
+                    data[i3]     = b1r - tr;
+                    data[i3 + 1] = b1i - ti;
+                }
+            }
+        }
+    }
+
+    /**
+     * Separates the spectrum of the real signal from the half size complex transform.
+     *
+     * @param data  the result of the complex transform,
+     *              which is replaced by the packed real spectrum
+     */
+    private void separate(float[] data)
+    {
+        int half = size / 2;
+        float re0 = data[0];
+        float im0 = data[1];
+        data[0] = re0 + im0;
+        data[1] = re0 - im0;
+
+        for ( int k = 1 ; k <= half / 2 ; k++ )
+        {
+            int   ik = 2 * k;
+            int   in = 2 * (half - k);
+            float a  = data[ik], b = data[ik + 1];
+            float c  = data[in], d = data[in + 1];
+            // even part E = (Z[k] + conj Z[N/2-k]) / 2, odd part O = (Z[k] - conj Z[N/2-k]) / 2i
+            float er = (a + c) * 0.5f;
+            float ei = (b - d) * 0.5f;
+            float or = (b + d) * 0.5f;
+            float oi = (c - a) * 0.5f;
+            // X[k] = E + W^k O, X[N/2-k] = conj(E - W^k O)
+            float wr = realCos[k];
+            float wi = realSin[k];
+            float tr = wr * or - wi * oi;
+            float ti = wr * oi + wi * or;
+            data[ik]     = er + tr;
+            data[ik + 1] = ei + ti;
+            data[in]     = er - tr;
+            data[in + 1] = ti - ei;
+        }
+    }
+
+
+    private final int     size;
+    private final float[] cosTable, sinTable;
+    private final float[] realCos, realSin;
+    private final int[]   swapTable;
+}
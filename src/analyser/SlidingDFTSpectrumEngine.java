@@ -0,0 +1,482 @@
+package analyser;
+
+import java.util.Arrays;
+
+/**
+ * Spectrum engine that updates the frequency bins feeding the bands
+ * with a sliding DFT for every new sample.
+ *
+ * The band layout and the frequency resolution of each octave are the same as for
+ * {@link MultiRateSpectrumEngine}: the two top octaves use a short DFT length,
+ * every lower octave doubles the length.
+ * With that, each band only needs one or two bins, and the work per input sample
+ * is proportional to the number of bands, independent of the analysis frequency.
+ * Only the read out of the bands happens per analysis frame.
+ * <p>
+ * The sliding DFT is rectangular, so the analysis window is applied in the frequency domain
+ * by combining neighbouring bins. This works for the cosine sum windows (Hann, Hamming, Blackman-Harris).
+ * The Kaiser window is approximated by the Blackman-Harris window.
+ * <p>
+ * The bin state is kept in double precision, and it is re-synchronised
+ * with a full FFT of the window in regular intervals, so rounding errors cannot accumulate.
+ * The engine also re-synchronises whenever the new window does not continue the previous one,
+ * e.g., after dropped frames.
+ * The engine needs to know the distance between two windows, see {@link #setHopSize(int)},
+ * and the position of each window in the audio stream, see {@link #setWindowStart(long)}.
+ * Without a position, every window is re-synchronised.
+ * Between two windows, the engine only keeps the samples that leave the window with the next hop,
+ * so the work per frame outside of the bin updates is proportional to the hop size.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SlidingDFTSpectrumEngine implements SpectrumEngine
+{
+    /**
+     * Creates a new sliding DFT spectrum engine.
+     *
+     * @param fftSize         the size of a single FFT that would cover the lowest octave
+     *                        with the same frequency resolution (must be a power of 2)
+     * @param sampleRate      the sample rate of the audio signal
+     * @param minBandwidth    the minimum bandwidth of an octave in Hz
+     * @param bandsPerOctave  the number of bands per octave
+     * @param fftType         the type of FFT engine to use for re-synchronisation
+     * @throws IllegalArgumentException if the parameters result in less than 3 octaves
+     *                                  or DFT lengths below 16 samples
+     */
+    public SlidingDFTSpectrumEngine(int fftSize, float sampleRate, int minBandwidth, int bandsPerOctave, FFTEngineEnum fftType)
+        throws IllegalArgumentException
+    {
+        // calculate octaves the same way as the Minim FFT
+        int   nyquist = (int) sampleRate / 2;
+        float nyq     = nyquist;
+        int   octaves = 1;
+        while ( (nyq /= 2) > minBandwidth ) { octaves++; }
+        if ( octaves < 3 )
+        {
+            throw new IllegalArgumentException("Sliding DFT analysis needs at least 3 octaves");
+        }
+
+        // top level covers two octaves, lowest level covers octave 0 with half the length
+        int levels    = octaves - 1;
+        int levelSize = fftSize >> (levels - 2);
+        if ( levelSize < 16 )
+        {
+            throw new IllegalArgumentException("FFT size too small for sliding DFT analysis (" + fftSize + ")");
+        }
+        levelLength = new int[levels];
+        levelScale  = new float[levels];
+        fftEngines  = new FFTEngine[levels];
+        fftBuffers  = new float[levels][];
+        int maxLength = 0;
+        for ( int level = 0 ; level < levels ; level++ )
+        {
+            levelLength[level] = (level == levels - 1) ? (levelSize / 2) << level : levelSize << level;
+            levelScale[level]  = 2.0f / (levelLength[level] / 2 + 1);
+            fftEngines[level]  = fftType.createEngine(levelLength[level]);
+            fftBuffers[level]  = new float[levelLength[level]];
+            maxLength = Math.max(maxLength, levelLength[level]);
+        }
+        windowSize = maxLength;
+
+        // assign each band to a level and a range of bins within that level
+        int bandCount = octaves * bandsPerOctave;
+        bandLevel = new int[bandCount];
+        bandLo    = new int[bandCount];
+        bandHi    = new int[bandCount];
+        bandFreq  = new float[bandCount];
+        int[] levelLo = new int[levels];
+        int[] levelHi = new int[levels];
+        Arrays.fill(levelLo, Integer.MAX_VALUE);
+        Arrays.fill(levelHi, -1);
+        for ( int i = 0 ; i < octaves ; i++ )
+        {
+            float lowFreq  = (i == 0) ? 0 : nyquist / (float) Math.pow(2, octaves - i);
+            float hiFreq   = nyquist / (float) Math.pow(2, octaves - i - 1);
+            float freqStep = (hiFreq - lowFreq) / bandsPerOctave;
+            int   level    = (i == 0) ? levels - 1 : Math.max(0, octaves - 2 - i);
+            float f        = lowFreq;
+            for ( int j = 0 ; j < bandsPerOctave ; j++ )
+            {
+                int band = j + i * bandsPerOctave;
+                bandLevel[band] = level;
+                bandFreq[band]  = f + freqStep / 2;
+                bandLo[band]    = freqToIndex(f,            sampleRate, levelLength[level]);
+                bandHi[band]    = freqToIndex(f + freqStep, sampleRate, levelLength[level]);
+                levelLo[level]  = Math.min(levelLo[level], bandLo[band]);
+                levelHi[level]  = Math.max(levelHi[level], bandHi[band]);
+                f += freqStep;
+            }
+        }
+
+        // track the bins of each level plus the neighbours needed for the window
+        levelFirstBin = new int[levels + 1];
+        levelFirstK   = new int[levels];
+        int binCount  = 0;
+        for ( int level = 0 ; level < levels ; level++ )
+        {
+            levelFirstK[level]   = Math.max(0, levelLo[level] - MAX_WINDOW_TERMS);
+            levelFirstBin[level] = binCount;
+            binCount += Math.min(levelLength[level] / 2, levelHi[level] + MAX_WINDOW_TERMS) - levelFirstK[level] + 1;
+        }
+        levelFirstBin[levels] = binCount;
+        rotRe = new double[binCount];
+        rotIm = new double[binCount];
+        for ( int level = 0 ; level < levels ; level++ )
+        {
+            for ( int b = levelFirstBin[level] ; b < levelFirstBin[level + 1] ; b++ )
+            {
+                double omega = 2 * Math.PI * (levelFirstK[level] + b - levelFirstBin[level]) / levelLength[level];
+                rotRe[b] = Math.cos(omega);
+                rotIm[b] = Math.sin(omega);
+            }
+        }
+        stateRe = new double[2][binCount];
+        stateIm = new double[2][binCount];
+        binRe   = new float[2][binCount];
+        binIm   = new float[2][binCount];
+        deltas  = new double[maxLength];
+        leavingL = new float[maxLength];
+        leavingR = new float[maxLength];
+
+        hopSize             = 0;
+        windowStart         = -1;
+        prevStart           = -1;
+        prevHop             = 0;
+        resyncInterval      = (int) sampleRate;
+        samplesSinceResync  = 0;
+        valid               = false;
+        stereo              = false;
+        bands       = new float[bandCount];
+        stereoBands = new float[4][bandCount];
+        setWindow(WindowEnum.HANN);
+    }
+
+    /**
+     * Converts a frequency to a bin index the same way the Minim FFT does.
+     *
+     * @param freq        the frequency
+     * @param sampleRate  the sample rate
+     * @param length      the length of the DFT
+     * @return the bin index
+     */
+    private static int freqToIndex(float freq, float sampleRate, int length)
+    {
+        float bandWidth = sampleRate / length;
+        if ( freq < bandWidth / 2 ) return 0;
+        if ( freq > sampleRate / 2 - bandWidth / 2 ) return length / 2;
+        return Math.round(length * freq / sampleRate);
+    }
+
+    @Override
+    public int getWindowSize()
+    {
+        return windowSize;
+    }
+
+    @Override
+    public int getBandCount()
+    {
+        return bands.length;
+    }
+
+    @Override
+    public float getBandFrequency(int band)
+    {
+        return bandFreq[band];
+    }
+
+    @Override
+    public int getRawBandCount()
+    {
+        return 0;
+    }
+
+    @Override
+    public void setRawBandsEnabled(boolean enabled)
+    {
+        // no raw bins available
+    }
+
+    @Override
+    public void setHopSize(int hopSize)
+    {
+        this.hopSize = hopSize;
+    }
+
+    @Override
+    public void setWindowStart(long start)
+    {
+        windowStart = start;
+    }
+
+    @Override
+    public void setWindow(WindowEnum window)
+    {
+        // coefficients of the cosine sum: w(t) = a0 - a1 cos(x) + a2 cos(2x) - a3 cos(3x)
+        double[] a;
+        switch ( window )
+        {
+            case HAMMING : a = new double[] { 0.54, 0.46 }; break;
+            case HANN    : a = new double[] { 0.5,  0.5  }; break;
+            default      : a = new double[] { 0.35875, 0.48829, 0.14128, 0.01168 }; break;
+        }
+        // in the frequency domain, neighbour j is weighted with (-1)^j * a_j / 2
+        float[] coef = new float[a.length];
+        coef[0] = (float) a[0];
+        for ( int j = 1 ; j < a.length ; j++ )
+        {
+            coef[j] = (float) (((j % 2 == 1) ? -a[j] : a[j]) / 2);
+        }
+        windowCoef = coef;
+    }
+
+    @Override
+    public void analyse(float[] left, float[] right)
+    {
+        boolean st    = (right != null);
+        int     h     = hopSize;
+        long    start = windowStart;
+        windowStart = -1;
+
+        // the position tells if the window continues the previous one,
+        // the samples themselves are not compared
+        boolean continuous = valid && (st == stereo) && (h > 0) && (h < windowSize) && (h == prevHop) &&
+                             (start >= 0) && (prevStart >= 0) && (start == prevStart + h);
+        samplesSinceResync += h;
+        if ( !continuous || (samplesSinceResync >= resyncInterval) )
+        {
+            resync(left, 0);
+            if ( st ) { resync(right, 1); }
+            samplesSinceResync = 0;
+        }
+        else
+        {
+            update(left, leavingL, 0, h);
+            if ( st ) { update(right, leavingR, 1, h); }
+        }
+        // keep the samples that leave the window with the next hop
+        if ( (h > 0) && (h < windowSize) )
+        {
+            System.arraycopy(left, 0, leavingL, 0, h);
+            if ( st ) { System.arraycopy(right, 0, leavingR, 0, h); }
+        }
+        prevStart = start;
+        prevHop   = h;
+        valid     = true;
+        stereo    = st;
+
+        readBands();
+    }
+
+    /**
+     * Slides all bins of a channel over the new samples at the end of the window.
+     *
+     * @param window   the new window
+     * @param leaving  the first samples of the previous window, which have left the window
+     * @param channel  the channel index
+     * @param hop      the amount of new samples
+     */
+    private void update(float[] window, float[] leaving, int channel, int hop)
+    {
+        double[] sRe   = stateRe[channel];
+        double[] sIm   = stateIm[channel];
+        int      first = windowSize - hop;
+        for ( int level = 0 ; level < levelLength.length ; level++ )
+        {
+            // difference between the entering and the leaving sample
+            int len = levelLength[level];
+            for ( int t = 0 ; t < hop ; t++ )
+            {
+                int idx = first + t - len;
+                deltas[t] = window[first + t] - ((idx >= 0) ? window[idx] : leaving[idx + hop]);
+            }
+            // S(n) = x(n) - x(n - N) + exp(i w) S(n - 1)
+            // (bins in the inner loop are independent of each other, which keeps the pipeline busy)
+            int from = levelFirstBin[level];
+            int to   = levelFirstBin[level + 1];
+            for ( int t = 0 ; t < hop ; t++ )
+            {
+                double delta = deltas[t];
+                for ( int b = from ; b < to ; b++ )
+                {
+                    double re = sRe[b], im = sIm[b];
+                    sRe[b] = re * rotRe[b] - im * rotIm[b] + delta;
+                    sIm[b] = re * rotIm[b] + im * rotRe[b];
+                }
+            }
+        }
+    }
+
+    /**
+     * Recalculates all bins of a channel from the window with full FFTs.
+     *
+     * @param window   the window
+     * @param channel  the channel index
+     */
+    private void resync(float[] window, int channel)
+    {
+        double[] sRe = stateRe[channel];
+        double[] sIm = stateIm[channel];
+        for ( int level = 0 ; level < levelLength.length ; level++ )
+        {
+            int     len = levelLength[level];
+            float[] buf = fftBuffers[level];
+            System.arraycopy(window, windowSize - len, buf, 0, len);
+            fftEngines[level].forward(buf);
+            for ( int b = levelFirstBin[level] ; b < levelFirstBin[level + 1] ; b++ )
+            {
+                int    k  = levelFirstK[level] + b - levelFirstBin[level];
+                double re = (k == 0) ? buf[0] : ((k == len / 2) ? buf[1] : buf[2 * k]);
+                double im = ((k == 0) || (k == len / 2)) ? 0 : buf[2 * k + 1];
+                // X = exp(i w) S  =>  S = exp(-i w) X
+                sRe[b] = re * rotRe[b] + im * rotIm[b];
+                sIm[b] = im * rotRe[b] - re * rotIm[b];
+            }
+        }
+    }
+
+    /**
+     * Applies the window to the bins and collects the band maxima.
+     */
+    private void readBands()
+    {
+        int channels = stereo ? 2 : 1;
+        for ( int c = 0 ; c < channels ; c++ )
+        {
+            // X = exp(i w) S
+            for ( int b = 0 ; b < rotRe.length ; b++ )
+            {
+                double re = stateRe[c][b], im = stateIm[c][b];
+                binRe[c][b] = (float) (re * rotRe[b] - im * rotIm[b]);
+                binIm[c][b] = (float) (re * rotIm[b] + im * rotRe[b]);
+            }
+        }
+
+        float[] coef = windowCoef;
+        for ( int band = 0 ; band < bands.length ; band++ )
+        {
+            int   level = bandLevel[band];
+            float max   = 0;
+            float maxL  = 0, maxR = 0, maxM = 0, maxS = 0;
+            for ( int k = bandLo[band] ; k <= bandHi[band] ; k++ )
+            {
+                float lRe = 0, lIm = 0, rRe = 0, rIm = 0;
+                for ( int j = -coef.length + 1 ; j < coef.length ; j++ )
+                {
+                    float w   = coef[Math.abs(j)];
+                    int   b   = getBinIndex(level, k + j);
+                    // bins outside of 0...N/2 are the complex conjugates of bins inside
+                    float sgn = ((k + j < 0) || (k + j > levelLength[level] / 2)) ? -1 : 1;
+                    lRe += w * binRe[0][b];
+                    lIm += w * binIm[0][b] * sgn;
+                    if ( stereo )
+                    {
+                        rRe += w * binRe[1][b];
+                        rIm += w * binIm[1][b] * sgn;
+                    }
+                }
+                if ( stereo )
+                {
+                    maxL = Math.max(maxL, magnitude(lRe, lIm));
+                    maxR = Math.max(maxR, magnitude(rRe, rIm));
+                    maxM = Math.max(maxM, magnitude((lRe + rRe) * 0.5f, (lIm + rIm) * 0.5f));
+                    maxS = Math.max(maxS, magnitude((lRe - rRe) * 0.5f, (lIm - rIm) * 0.5f));
+                }
+                else
+                {
+                    max = Math.max(max, magnitude(lRe, lIm));
+                }
+            }
+            float scale = levelScale[level];
+            if ( stereo )
+            {
+                stereoBands[MaxFFT.LEFT][band]  = maxL * scale;
+                stereoBands[MaxFFT.RIGHT][band] = maxR * scale;
+                stereoBands[MaxFFT.MID][band]   = maxM * scale;
+                stereoBands[MaxFFT.SIDE][band]  = maxS * scale;
+                bands[band] = maxM * scale;
+            }
+            else
+            {
+                bands[band] = max * scale;
+            }
+        }
+    }
+
+    /**
+     * Gets the index of the tracked bin that holds a specific frequency bin of a level.
+     * Bins outside of 0...N/2 are mapped to their mirrored bins.
+     *
+     * @param level  the level
+     * @param k      the frequency bin within the level
+     * @return the index of the tracked bin
+     */
+    private int getBinIndex(int level, int k)
+    {
+        int len = levelLength[level];
+        if ( k < 0 )       { k = -k; }
+        if ( k > len / 2 ) { k = len - k; }
+        return levelFirstBin[level] + k - levelFirstK[level];
+    }
+
+    /**
+     * Calculates the magnitude of a complex number.
+     *
+     * @param re  the real part
+     * @param im  the imaginary part
+     * @return the magnitude
+     */
+    private static float magnitude(float re, float im)
+    {
+        return (float) Math.sqrt(re * re + im * im);
+    }
+
+    @Override
+    public boolean isStereo()
+    {
+        return stereo;
+    }
+
+    @Override
+    public float[] getBands()
+    {
+        return bands;
+    }
+
+    @Override
+    public float[] getStereoBands(int channel)
+    {
+        return stereoBands[channel];
+    }
+
+    @Override
+    public float[] getRawBands()
+    {
+        return null;
+    }
+
+
+    // maximum amount of neighbour bins a window combines on each side
+    private static final int MAX_WINDOW_TERMS = 3;
+
+    private final int[]         levelLength;
+    private final float[]       levelScale;
+    private final FFTEngine[]   fftEngines;
+    private final float[][]     fftBuffers;
+    private final int           windowSize;
+    private final int[]         bandLevel, bandLo, bandHi;
+    private final float[]       bandFreq;
+    private final int[]         levelFirstBin, levelFirstK;
+    private final double[]      rotRe, rotIm;
+    private final double[][]    stateRe, stateIm;
+    private final float[][]     binRe, binIm;
+    private final double[]      deltas;
+    private final float[]       leavingL, leavingR;
+    private volatile float[]    windowCoef;
+    private int                 hopSize, prevHop, resyncInterval, samplesSinceResync;
+    private long                windowStart, prevStart;
+    private boolean             valid, stereo;
+    private final float[]       bands;
+    private final float[][]     stereoBands;
+}
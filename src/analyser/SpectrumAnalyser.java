@@ -3,10 +3,10 @@ package analyser;
 import ddf.minim.AudioListener;
 import ddf.minim.AudioSource;
 import ddf.minim.Playable;
-import ddf.minim.analysis.FFT;
-import ddf.minim.analysis.HannWindow;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -18,14 +18,70 @@ import java.util.logging.Logger;
  */
 public class SpectrumAnalyser implements AudioListener
 {
+    // lowest frequency the analysis window has to capture a whole phase of
+    static final float MIN_FREQUENCY    = 20;
+    // minimum bandwidth of the lowest octave
+    static final int   MIN_BANDWIDTH    = 100;
+    // amount of frequency bands per octave
+    static final int   BANDS_PER_OCTAVE = 8;
+    
     /**
      * Listener class for notifications when a new sample has been analysed.
+     * Listeners are notified on the dispatcher thread.
+     * The frame that a notification refers to is returned by {@link SpectrumAnalyser#getNotifiedFrame()}.
      */
     public interface Listener
     {
         void analysisUpdated(SpectrumAnalyser analyser);
     };
     
+    /**
+     * Interface for processing stages that run on the analysis thread
+     * for every analysed frame, before the frame is published in the history.
+     * Stages must not block and should not allocate memory while processing.
+     */
+    public interface Stage
+    {
+        /**
+         * Prepares the stage for a new audio stream or analysis configuration.
+         * This is never called while the stage processes a frame.
+         * 
+         * @param analyser  the spectrum analyser the stage is attached to
+         */
+        void reset(SpectrumAnalyser analyser);
+        
+        /**
+         * Processes an analysed frame.
+         * 
+         * @param info  the spectrum information of the frame, which the stage may modify
+         */
+        void process(SpectrumInfo info);
+    };
+    
+    /**
+     * Representations of the spectrum that consumers can subscribe to.
+     */
+    public enum Representation
+    {
+        /** Frequency bands (always calculated) */
+        BANDS,
+        /** Raw frequency bins */
+        RAW,
+        /** Frequency bands and raw frequency bins */
+        BOTH
+    }
+    
+    /**
+     * Delivery modes for analysis result listeners.
+     */
+    public enum Delivery
+    {
+        /** Every analysed frame is delivered, the analysis waits a limited time for slow listeners */
+        BLOCKING,
+        /** Only the most recent frame is delivered, older frames are skipped */
+        LATEST
+    }
+    
     /**
      * Creates a new Spectrum Analyser instance.
      * 
@@ -36,67 +92,164 @@ public class SpectrumAnalyser implements AudioListener
     {
         this.analyseFrequency = analyseFrequency;
         audioSource = null;
+        lineCapture = null;
         dataRawL = dataRawR = null; 
-        fft = null;
+        engine = null;
+        engineType = SpectrumEngineEnum.FFT;
+        fftType = FFTEngineEnum.REAL;
+        windowType = WindowEnum.HANN;
+        stereo = false;
+        analysisPool = attachedPool = null;
         
-        history = new SpectrumInfo[historySize];
-        for ( int i = 0 ; i < history.length ; i++ )
-        {
-            history[i] = new SpectrumInfo();
-        }
-        historyIdx = 0;
+        history = new SpectrumHistory(historySize);
+        archive = null;
+        
+        dispatcher = new ListenerDispatcher(this);
+        stages     = new CopyOnWriteArrayList<Stage>();
+        stageSequence = 0;
+        stageThread   = null;
         
-        listeners = new HashSet<Listener>();
+        rawSubscribers = new AtomicInteger(0);
+        rawRequested   = new AtomicBoolean(false);
     }
     
     /**
-     * Resets the spectrum history.
+     * Attaches the spectrum analyser to an audio stream.
+     * 
+     * @param as  the audio stream to attach to
      */
-    private void resetHistory()
+    public void attachToAudio(AudioSource as)
     {
-        for ( SpectrumInfo info : history )
-        {
-            info.reset();
-        }
-        historyIdx = 0;
+        audioSource = as;
+        attach(as.sampleRate(), as.bufferSize());
+        audioSource.addListener(this);
     }
     
     /**
-     * Attaches the spectrum analyser to an audio stream.
+     * Attaches the spectrum analyser to a direct capture of an audio line.
+     * The capture thread writes the samples straight into the input buffers of the analyser.
      * 
-     * @param as  the audio stream to attach to
+     * @param capture  the line capture to attach to
      */
-    public void attachToAudio(AudioSource as)
+    public void attachToCapture(LineCapture capture)
     {
-        audioSource = as;
-        
-        float rate = audioSource.sampleRate();
-        float minFreq = 20;
-        // calculate minimum FFT buffer size 
-        // to reliably measure a whole phase of a specific minimum frequency
-        int minFftBufferSize = 1 << (int) (Math.log(rate / minFreq) / Math.log(2));
-        // then add the sample buffer size
-        int inputBufferSize = minFftBufferSize + audioSource.bufferSize();
+        lineCapture = capture;
+        attach(capture.getSampleRate(), capture.getBlockSize());
+        capture.start(this);
+    }
+    
+    /**
+     * Prepares the buffers, the engine and the analysis thread for a new audio stream.
+     * 
+     * @param rate        the sample rate of the stream
+     * @param bufferSize  the amount of samples the stream delivers at once
+     */
+    private void attach(float rate, int bufferSize)
+    {
+        sampleRate = rate;
+        engine = createEngine(engineType, fftType, rate);
+        engine.setWindow(windowType);
+        int windowSize = engine.getWindowSize();
+        // calculate sample steps for desired analysis frequency
+        dataIdxStep = (int) (rate / analyseFrequency);
+        engine.setHopSize(dataIdxStep);
+        // then add enough room for the analysis thread to lag behind the audio thread
+        int inputBufferSize = windowSize + LAG_BUFFERS * (bufferSize + dataIdxStep);
         LOG.log(Level.INFO, 
-                "Attached to sound source (Sample Rate {0}, Playback buffer size {1}, FFT buffer size {2}, Total buffer size {3})", 
-                new Object[] {rate, audioSource.bufferSize(), minFftBufferSize, inputBufferSize});
+                "Attached to sound source (Sample Rate {0}, Playback buffer size {1}, {2}/{3} analysis window size {4}, Total buffer size {5})", 
+                new Object[] {rate, bufferSize, engineType, fftType, windowSize, inputBufferSize});
         
         dataRawL = new float[inputBufferSize];
         dataRawR = new float[inputBufferSize];
-        dataFftL = new float[minFftBufferSize];
-        dataFftR = new float[minFftBufferSize];
-        // data enters from the end of the buffer, so put index at end
-        dataIdx = inputBufferSize; 
-        // calculate sample steps for desired analysis frequency
-        dataIdxStep = (int) (audioSource.sampleRate() / analyseFrequency);
+        dataFftL = new float[windowSize];
+        dataFftR = new float[windowSize];
+        // input buffers are circular, new data enters at the write index
+        dataWriteIdx = 0;
+        scheduler = new AnalysisScheduler(windowSize, dataIdxStep, inputBufferSize, rate);
                 
-        fft = new MaxFFT(minFftBufferSize, rate);
-        fft.logAverages(100, 8);
-        fft.window(new HannWindow());
         shaper = SpectrumShaper.LOGARITHMIC;
 
-        // ready to go -> attach listener
-        audioSource.addListener(this);
+        for ( Stage stage : stages )
+        {
+            stage.reset(this);
+        }
+        SpectrumArchive a = archive;
+        if ( a != null ) { a.reset(this); }
+        
+        // ready to go -> start analysis thread (or join the shared pool)
+        attachedPool = analysisPool;
+        if ( attachedPool != null )
+        {
+            attachedPool.add(this);
+        }
+        else
+        {
+            analysisThread = new Thread(new AnalysisWorker(), "SpectrumAnalyser");
+            analysisThread.setDaemon(true);
+            analysisThread.start();
+        }
+        dispatcher.start();
+    }
+    
+    /**
+     * Creates a spectrum engine with the standard analysis parameters.
+     * 
+     * @param type     the type of spectrum engine
+     * @param fftType  the type of FFT engine
+     * @param rate     the sample rate of the audio signal
+     * @return the spectrum engine
+     */
+    static SpectrumEngine createEngine(SpectrumEngineEnum type, FFTEngineEnum fftType, float rate)
+    {
+        // calculate minimum FFT buffer size 
+        // to reliably measure a whole phase of a specific minimum frequency
+        int minFftBufferSize = 1 << (int) (Math.log(rate / MIN_FREQUENCY) / Math.log(2));
+        return type.createEngine(minFftBufferSize, rate, MIN_BANDWIDTH, BANDS_PER_OCTAVE, fftType);
+    }
+    
+    /**
+     * Gets the frequency of the analysis.
+     * 
+     * @return the amount of analysis frames per second
+     */
+    public int getAnalyseFrequency()
+    {
+        return analyseFrequency;
+    }
+    
+    /**
+     * Sets the frequency of the analysis.
+     * If the analyser is attached to an audio stream, it is re-attached with the new frequency.
+     * High frequencies are best combined with the {@link SpectrumEngineEnum#SLIDING_DFT} engine.
+     * 
+     * @param analyseFrequency  the amount of analysis frames per second
+     */
+    public void setAnalyseFrequency(int analyseFrequency)
+    {
+        this.analyseFrequency = analyseFrequency;
+        reattach();
+    }
+    
+    /**
+     * Gets the pool of shared analysis threads the analyser uses.
+     * 
+     * @return the analysis pool or <code>null</code> if the analyser uses its own thread
+     */
+    public AnalysisPool getAnalysisPool()
+    {
+        return analysisPool;
+    }
+    
+    /**
+     * Selects a pool of shared analysis threads for the analyser.
+     * If the analyser is attached to an audio stream, it is re-attached with the new pool.
+     * 
+     * @param pool  the analysis pool or <code>null</code> to use a separate analysis thread
+     */
+    public void setAnalysisPool(AnalysisPool pool)
+    {
+        analysisPool = pool;
+        reattach();
     }
     
     /**
@@ -119,6 +272,97 @@ public class SpectrumAnalyser implements AudioListener
         this.shaper = shaper;
     }
     
+    /**
+     * Gets the type of spectrum engine the analyser uses.
+     * 
+     * @return the spectrum engine type
+     */
+    public SpectrumEngineEnum getEngineType()
+    {
+        return engineType;
+    }
+    
+    /**
+     * Sets the type of spectrum engine the analyser uses.
+     * If the analyser is attached to an audio stream, it is re-attached with the new engine.
+     * 
+     * @param type  the new spectrum engine type
+     */
+    public void setEngineType(SpectrumEngineEnum type)
+    {
+        engineType = type;
+        reattach();
+    }
+    
+    /**
+     * Gets the type of FFT engine the analyser uses.
+     * 
+     * @return the FFT engine type
+     */
+    public FFTEngineEnum getFFTType()
+    {
+        return fftType;
+    }
+    
+    /**
+     * Sets the type of FFT engine the analyser uses.
+     * If the analyser is attached to an audio stream, it is re-attached with the new FFT engine.
+     * 
+     * @param type  the new FFT engine type
+     */
+    public void setFFTType(FFTEngineEnum type)
+    {
+        fftType = type;
+        reattach();
+    }
+    
+    /**
+     * Gets the analysis window the analyser uses.
+     * 
+     * @return the analysis window
+     */
+    public WindowEnum getWindowType()
+    {
+        return windowType;
+    }
+    
+    /**
+     * Sets the analysis window the analyser uses.
+     * The window can be changed while the analyser is attached to an audio stream.
+     * 
+     * @param type  the new analysis window
+     */
+    public void setWindowType(WindowEnum type)
+    {
+        windowType = type;
+        SpectrumEngine e = engine;
+        if ( e != null ) { e.setWindow(type); }
+    }
+    
+    /**
+     * Checks if the analyser analyses both stereo channels.
+     * 
+     * @return <code>true</code> if both channels are analysed,
+     *         <code>false</code> if only the left channel is analysed
+     */
+    public boolean isStereo()
+    {
+        return stereo;
+    }
+    
+    /**
+     * Selects stereo or mono analysis.
+     * In stereo mode, both channels are analysed in a single complex FFT
+     * and the spectrum information contains per-channel and mid/side intensities.
+     * 
+     * @param stereo  <code>true</code> to analyse both channels,
+     *                <code>false</code> to only analyse the left channel
+     */
+    public void setStereo(boolean stereo)
+    {
+        this.stereo = stereo;
+    }
+    
     /**
      * Checks if the analyser is attached to an audio stream.
      * 
@@ -127,7 +371,27 @@ public class SpectrumAnalyser implements AudioListener
      */
     public boolean isAttachedToAudio()
     {
-        return fft != null;
+        return engine != null;
+    }
+    
+    /**
+     * Re-attaches the spectrum analyser to its audio stream, if it is attached,
+     * to apply changed analysis parameters.
+     */
+    private void reattach()
+    {
+        if ( audioSource != null )
+        {
+            AudioSource as = audioSource;
+            detachFromAudio();
+            attachToAudio(as);
+        }
+        else if ( lineCapture != null )
+        {
+            LineCapture capture = lineCapture;
+            detachFromAudio();
+            attachToCapture(capture);
+        }
     }
     
     /**
@@ -135,37 +399,237 @@ public class SpectrumAnalyser implements AudioListener
      */
     public void detachFromAudio()
     {
-        if ( audioSource != null )
+        if ( (audioSource != null) || (lineCapture != null) )
         {
-            ((AudioSource) audioSource).removeListener(this);  
-            fft = null;
+            if ( audioSource != null )
+            {
+                ((AudioSource) audioSource).removeListener(this);  
+            }
+            else
+            {
+                lineCapture.stop();
+            }
+            if ( attachedPool != null )
+            {
+                attachedPool.remove(this);
+                attachedPool = null;
+            }
+            else
+            {
+                stopAnalysisThread();
+            }
+            dispatcher.stop();
+            LOG.log(Level.INFO,
+                    "Detached from sound source ({0} frames analysed, {1} dropped, {2} overruns)",
+                    new Object[] {scheduler.getAnalysedFrameCount(), scheduler.getDroppedFrameCount(), scheduler.getOverrunCount()});
+            engine = null;
             audioSource = null;
-            resetHistory();
+            lineCapture = null;
+            history.reset();
         }
     }
     
     /**
-     * Registers a new analysis result listener.
+     * Stops the analysis thread and waits until it has finished.
+     */
+    private void stopAnalysisThread()
+    {
+        analysisThread.interrupt();
+        boolean interrupted = false;
+        while ( analysisThread.isAlive() )
+        {
+            try
+            {
+                analysisThread.join();
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        analysisThread = null;
+        if ( interrupted ) { Thread.currentThread().interrupt(); }
+    }
+    
+    /**
+     * Registers a new analysis result listener that receives the most recent analysed frame.
+     * Listeners that need every frame have to be registered with {@link Delivery#BLOCKING}.
      * 
-     * @param fd  the analysis result listener to register.
+     * @param l  the analysis result listener to register.
      * @return <code>true</code> if the analysis result listener was successfully registered,
      *         <code>false</code> if not
      */
     public boolean registerListener(Listener l)
     {
-        return listeners.add(l);
+        return registerListener(l, Delivery.LATEST);
+    }
+    
+    /**
+     * Registers a new analysis result listener.
+     * Listeners can be registered at any time, even while the analyser is running.
+     * 
+     * @param l         the analysis result listener to register.
+     * @param delivery  the delivery mode for the listener
+     * @return <code>true</code> if the analysis result listener was successfully registered,
+     *         <code>false</code> if not
+     */
+    public boolean registerListener(Listener l, Delivery delivery)
+    {
+        return dispatcher.register(l, delivery);
     }
     
     /**
      * Unregisters an analysis result listener.
      * 
-     * @param fd  the analysis result listener to un register.
+     * @param l  the analysis result listener to un register.
      * @return <code>true</code> if the analysis result listener was successfully unregistered,
      *         <code>false</code> if not
      */
     public boolean unregisterListener(Listener l)
     {
-        return listeners.remove(l);
+        return dispatcher.unregister(l);
+    }
+    
+    /**
+     * Gets the listener dispatcher, e.g., to query the lag of each listener.
+     * 
+     * @return the listener dispatcher
+     */
+    public ListenerDispatcher getDispatcher()
+    {
+        return dispatcher;
+    }
+    
+    /**
+     * Gets the history frame number that the current listener notification refers to.
+     * This is only valid within {@link Listener#analysisUpdated(SpectrumAnalyser)}.
+     * 
+     * @return the frame number to use with {@link #getFrameSpectrumInfo(long, SpectrumInfo)}
+     */
+    public long getNotifiedFrame()
+    {
+        return dispatcher.getCurrentFrame();
+    }
+    
+    /**
+     * Adds a processing stage to the end of the analysis pipeline.
+     * Stages can be added at any time, even while the analyser is running.
+     * 
+     * @param stage  the stage to add
+     * @return <code>true</code> if the stage was added,
+     *         <code>false</code> if it was already part of the pipeline
+     */
+    public boolean addStage(Stage stage)
+    {
+        if ( stages.contains(stage) ) return false;
+        // reset before the analysis thread can see the stage
+        stage.reset(this);
+        return stages.add(stage);
+    }
+    
+    /**
+     * Adds a processing stage at a position in the analysis pipeline,
+     * e.g., to run it before stages that change the spectrum data.
+     * Stages can be added at any time, even while the analyser is running.
+     * 
+     * @param index  the position of the stage, 0 for the start of the pipeline
+     * @param stage  the stage to add
+     * @return <code>true</code> if the stage was added,
+     *         <code>false</code> if it was already part of the pipeline
+     */
+    public boolean addStage(int index, Stage stage)
+    {
+        if ( stages.contains(stage) ) return false;
+        // reset before the analysis thread can see the stage
+        stage.reset(this);
+        stages.add(Math.min(index, stages.size()), stage);
+        return true;
+    }
+    
+    /**
+     * Removes a processing stage from the analysis pipeline.
+     * If the stage is processing a frame at the moment, this waits until the frame has passed the stages,
+     * so the stage is not called by this analyser any more when this method returns,
+     * e.g., before the stage is added to another analyser.
+     * A stage can also remove itself while processing a frame.
+     * 
+     * @param stage  the stage to remove
+     * @return <code>true</code> if the stage was removed,
+     *         <code>false</code> if it was not part of the pipeline
+     */
+    public boolean removeStage(Stage stage)
+    {
+        if ( !stages.remove(stage) ) return false;
+        long s = stageSequence;
+        if ( ((s & 1) != 0) && (stageThread != Thread.currentThread()) )
+        {
+            // stages must not block, so the frame passes quickly
+            while ( stageSequence == s )
+            {
+                Thread.yield();
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Subscribes to a representation of the spectrum.
+     * Raw frequency bins are only calculated and stored in the history
+     * while there is at least one subscriber for them.
+     * 
+     * @param r  the representation to subscribe to
+     */
+    public void subscribe(Representation r)
+    {
+        // bands are always calculated, only raw subscriptions are counted
+        if ( r != Representation.BANDS ) { rawSubscribers.incrementAndGet(); }
+    }
+    
+    /**
+     * Unsubscribes from a representation of the spectrum.
+     * Every call has to match a previous call of {@link #subscribe(Representation)}.
+     * 
+     * @param r  the representation to unsubscribe from
+     * @return <code>true</code> if the subscription was removed,
+     *         <code>false</code> if there was no matching subscription
+     */
+    public boolean unsubscribe(Representation r)
+    {
+        if ( r == Representation.BANDS ) return true;
+        // never go below 0, or the next subscriber would not get raw frequency bins
+        while ( true )
+        {
+            int count = rawSubscribers.get();
+            if ( count == 0 ) return false;
+            if ( rawSubscribers.compareAndSet(count, count - 1) ) return true;
+        }
+    }
+    
+    /**
+     * Checks if raw frequency bins are currently calculated.
+     * 
+     * @return <code>true</code> if raw frequency bins are calculated,
+     *         <code>false</code> if not
+     */
+    public boolean isRawSpectrumEnabled()
+    {
+        return rawSubscribers.get() > 0;
+    }
+    
+    /**
+     * Requests the raw frequency bins for the next analysis frame only,
+     * without subscribing to them.
+     * Once the frame is in the history, it can be retrieved 
+     * with {@link #getSpectrumInfo(int, SpectrumInfo)}
+     * and is recognised by {@link SpectrumInfo#hasRawSpectrum()}.
+     * <p>
+     * Raw bins cannot be derived later from the bands of a frame in the history,
+     * and keeping the FFT output of every frame for that would cost more than calculating the raw bins,
+     * so on demand means for the next frame.
+     */
+    public void requestRawSpectrum()
+    {
+        rawRequested.set(true);
     }
     
     @Override
@@ -179,57 +643,185 @@ public class SpectrumAnalyser implements AudioListener
     {
         if ( audioSource == null ) return;
         
-        Playable playable = null;
         if ( audioSource instanceof Playable )
         {
-            playable = (Playable) audioSource;
-            if ( !playable.isPlaying() ) return;
+            if ( !((Playable) audioSource).isPlaying() ) return;
         }
         
-        // shift data in input arrays
-        System.arraycopy(dataRawL, sampL.length, dataRawL, 0, dataRawL.length - sampL.length);
-        System.arraycopy(dataRawR, sampR.length, dataRawR, 0, dataRawR.length - sampR.length);
-        // copy samples into array for analysis
-        System.arraycopy(sampL, 0, dataRawL, dataRawL.length - sampL.length, sampL.length); 
-        System.arraycopy(sampR, 0, dataRawR, dataRawR.length - sampR.length, sampR.length); 
-        // move back the analysis index
-        dataIdx -= sampL.length;
+        // only copy samples into the circular arrays, 
+        // the analysis itself runs on the analysis thread
+        writeToRing(sampL, dataRawL, dataWriteIdx);
+        writeToRing(sampR, dataRawR, dataWriteIdx);
+        dataWriteIdx = (dataWriteIdx + sampL.length) % dataRawL.length;
+        scheduler.samplesWritten(sampL.length);
+    }
+    
+    /**
+     * Writes a block of PCM data from a line capture into the circular input buffers.
+     * The samples are converted straight into the buffers without intermediate copies.
+     * This is only called from the capture thread.
+     * 
+     * @param capture  the line capture that has read the data
+     * @param pcm      the PCM data
+     * @param frames   the amount of sample frames in the data
+     */
+    void samplesCaptured(LineCapture capture, byte[] pcm, int frames)
+    {
+        if ( lineCapture != capture ) return;
         
-        // process as much data as possible
-        while ( dataIdx + fft.timeSize() <= dataRawL.length )
+        capture.decode(pcm, frames, dataRawL, dataRawR, dataWriteIdx);
+        dataWriteIdx = (dataWriteIdx + frames) % dataRawL.length;
+        scheduler.samplesWritten(frames);
+    }
+    
+    /**
+     * Analyses a single frame.
+     * This is only called from the analysis thread or a worker of the analysis pool.
+     * 
+     * @param frameStart  the absolute position of the first sample of the frame
+     */
+    void analyseFrame(long frameStart)
+    {
+        long startTime = System.nanoTime();
+        // copy samples array into FFT array so values can be shaped by the windows
+        // without destroying the original samples
+        int readIdx = (int) (frameStart % dataRawL.length);
+        readFromRing(dataRawL, readIdx, dataFftL);
+        if ( stereo ) { readFromRing(dataRawR, readIdx, dataFftR); }
+        long written     = scheduler.getSamplesWritten();
+        long captureTime = scheduler.getArrivalTime(frameStart + dataFftL.length - 1);
+        if ( !scheduler.frameCompleted(frameStart) ) return;
+        
+        // do analysis
+        // a request that arrives during the analysis is served by the next frame,
+        // and clearing the flag atomically never loses a request that arrives at the same time
+        boolean raw = rawRequested.getAndSet(false) || (rawSubscribers.get() > 0);
+        engine.setRawBandsEnabled(raw);
+        engine.setWindowStart(frameStart);
+        engine.analyse(dataFftL, stereo ? dataFftR : null);
+
+        // enter dataset into history
+        // calculate analysis offset to current playback position
+        // (live streams use the time since attaching)
+        Playable playable  = (audioSource instanceof Playable) ? (Playable) audioSource : null;
+        int      posOffset = (int) ((written - frameStart) / sampleRate * 1000);
+        int      posIdx    = (playable != null) ? playable.position() - posOffset 
+                                                : (int) (frameStart * 1000 / sampleRate);
+        float    posRel    = (playable != null) ? (float) posIdx / (float) playable.length() : 0.0f;
+        SpectrumInfo info = history.beginWrite();
+        try
         {
-            // copy samples array into FFT array so values can be shaped by the windows
-            // without destroying the original samples
-            System.arraycopy(dataRawL, dataIdx, dataFftL, 0, dataFftL.length);
-            // System.arraycopy(dataRawR, dataIdx, dataFftR, 0, dataFftR.length); 
-            
-            // do FFT
-            fft.forward(dataFftL);
+            info.copySpectrumData(posIdx, posRel, this);
+            info.captureTime   = captureTime;
+            info.analysisStart = startTime;
+            processStages(info);
+            SpectrumArchive a = archive;
+            if ( a != null ) { a.process(info); }
+        }
+        finally
+        {
+            // a failing stage must not leave the frame locked for the next write
+            info.analysisEnd = System.nanoTime();
+            history.endWrite();
+        }
 
-            // enter dataset into history
-            synchronized(history)
-            {      
-                // calculate analysis offset to current playback position
-                int   posOffset = (int) ((dataRawL.length - dataIdx) / audioSource.sampleRate() * 1000);
-                int   posIdx    = (playable != null) ? playable.position() - posOffset : 0;
-                float posRel    = (playable != null) ? (float) posIdx / (float) playable.length() : 0.0f;
-                history[historyIdx].copySpectrumData(posIdx, posRel, this);
+        // notify listeners
+        dispatcher.publish(history.getWriteCount() - 1);
+    }
+  
+    
+    /**
+     * Passes an analysed frame through the stages of the pipeline.
+     * 
+     * @param info  the spectrum information of the frame
+     */
+    private void processStages(SpectrumInfo info)
+    {
+        stageThread = Thread.currentThread();
+        // odd while the stages process the frame
+        stageSequence++;
+        try
+        {
+            for ( Stage stage : stages )
+            {
+                stage.process(info);
             }
-
-            // move analysis window and history index forwards
-            historyIdx = (historyIdx + 1) % history.length;
-            dataIdx += dataIdxStep;
-
-            // notify listeners
-            for (Listener listener : listeners)
+        }
+        finally
+        {
+            stageSequence++;
+        }
+    }
+    
+    
+    /**
+     * Thread for analysing the frames that the scheduler hands out.
+     */
+    private class AnalysisWorker implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            try
+            {
+                while ( true )
+                {
+                    long frameStart = scheduler.awaitFrame();
+                    try
+                    {
+                        analyseFrame(frameStart);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        // a failing frame, e.g., in a stage, must not end the analysis
+                        LOG.log(Level.WARNING, "Analysis failed", e);
+                    }
+                }
+            }
+            catch (InterruptedException e)
             {
-               listener.analysisUpdated(this);
+                // detached from audio
             }
-        } 
+        }
     }
-  
+    
+    
+    /**
+     * Copies a block of samples into a circular buffer.
+     * 
+     * @param src       the samples to copy
+     * @param ring      the circular buffer to copy into
+     * @param writeIdx  the position in the circular buffer to start writing at
+     */
+    static void writeToRing(float[] src, float[] ring, int writeIdx)
+    {
+        int len   = Math.min(src.length, ring.length);
+        int first = Math.min(len, ring.length - writeIdx);
+        System.arraycopy(src, 0, ring, writeIdx, first);
+        System.arraycopy(src, first, ring, 0, len - first);
+    }
+    
+    /**
+     * Copies a block of samples out of a circular buffer.
+     * 
+     * @param ring     the circular buffer to copy from
+     * @param readIdx  the position in the circular buffer to start reading at
+     *                 (may be beyond the end of the buffer)
+     * @param dst      the array to copy into
+     */
+    static void readFromRing(float[] ring, int readIdx, float[] dst)
+    {
+        int start = readIdx % ring.length;
+        int len   = Math.min(dst.length, ring.length);
+        int first = Math.min(len, ring.length - start);
+        System.arraycopy(ring, start, dst, 0, first);
+        System.arraycopy(ring, 0, dst, first, len - first);
+    }
+    
     /**
      * Gets the raw audio data for the left channel.
+     * The array is a circular buffer, starting at {@link #getAudioDataOffset()}.
+     * Use {@link #copyAudioDataL(float[])} to get the data in chronological order.
      * 
      * @return the raw left channel audio data
      */
@@ -240,6 +832,8 @@ public class SpectrumAnalyser implements AudioListener
     
     /**
      * Gets the raw audio data for the right channel.
+     * The array is a circular buffer, starting at {@link #getAudioDataOffset()}.
+     * Use {@link #copyAudioDataR(float[])} to get the data in chronological order.
      * 
      * @return the raw right channel audio data
      */
@@ -248,6 +842,40 @@ public class SpectrumAnalyser implements AudioListener
         return dataRawR;
     }
     
+    /**
+     * Gets the index of the oldest sample in the raw audio data arrays.
+     * 
+     * @return the index of the oldest sample in the circular audio data buffers
+     */
+    public int getAudioDataOffset()
+    {
+        return dataWriteIdx;
+    }
+    
+    /**
+     * Copies the most recent raw audio data for the left channel 
+     * in chronological order (oldest sample first).
+     * 
+     * @param dst  the array to copy the data into
+     *             (the most recent <code>dst.length</code> samples are copied)
+     */
+    public void copyAudioDataL(float[] dst)
+    {
+        readFromRing(dataRawL, dataWriteIdx + dataRawL.length - Math.min(dst.length, dataRawL.length), dst);
+    }
+    
+    /**
+     * Copies the most recent raw audio data for the right channel 
+     * in chronological order (oldest sample first).
+     * 
+     * @param dst  the array to copy the data into
+     *             (the most recent <code>dst.length</code> samples are copied)
+     */
+    public void copyAudioDataR(float[] dst)
+    {
+        readFromRing(dataRawR, dataWriteIdx + dataRawR.length - Math.min(dst.length, dataRawR.length), dst);
+    }
+    
     /**
      * Gets the number of frequency bands the analyser returns.
      * 
@@ -255,7 +883,17 @@ public class SpectrumAnalyser implements AudioListener
      */
     public int getSpectrumBandCount()
     {
-        return (fft != null) ? fft.avgSize() : 0;
+        return (engine != null) ? engine.getBandCount() : 0;
+    }
+    
+    /**
+     * Gets the sample rate of the audio stream.
+     * 
+     * @return the sample rate in Hz or 0 if the analyser has never been attached to audio
+     */
+    public float getSampleRate()
+    {
+        return sampleRate;
     }
     
     /**
@@ -265,59 +903,138 @@ public class SpectrumAnalyser implements AudioListener
      */
     public int getHistorySize()
     {
-        return history.length;
+        return history.getSize();
     }
     
     /**
-     * Gets the spectrum information for a specific position in history.
+     * Sets the archive that keeps a long history of the intensities.
+     * The archive receives every frame after all stages, like the spectrum history.
+     * An archive must not be used by two analysers at the same time.
      * 
-     * @param idx  the index of history (0: most recent)
-     * @return the spectrum information 
-     *         or <code>null</code> if there is no information
+     * @param archive  the archive or <code>null</code> to not keep an archive
      */
-    public SpectrumInfo getSpectrumInfo(int idx)
+    public void setArchive(SpectrumArchive archive)
     {
-        SpectrumInfo retInfo = null;
-        
-        if ( idx < history.length )
-        {
-            synchronized(history)
-            {
-                int absIdx = historyIdx - 1 - idx;
-                if ( absIdx < 0 ) 
-                { 
-                    absIdx += history.length; 
-                }
-                retInfo = history[absIdx];
-            }
-            if ( !retInfo.isDefined() )
-            {
-                // not defined -> return null
-                retInfo = null;
-            }
-        }
-        return retInfo;
+        // reset before the analysis thread can see the archive
+        if ( archive != null ) { archive.reset(this); }
+        this.archive = archive;
+    }
+    
+    /**
+     * Gets the archive that keeps a long history of the intensities.
+     * 
+     * @return the archive or <code>null</code> if the analyser does not keep an archive
+     */
+    public SpectrumArchive getArchive()
+    {
+        return archive;
+    }
+    
+    /**
+     * Copies the spectrum information for a specific position in history.
+     * The copy is a consistent snapshot, even while the analyser is running.
+     * 
+     * @param idx   the index of history (0: most recent)
+     * @param info  the spectrum information instance to copy the data into
+     * @return <code>true</code> if the information was copied,
+     *         <code>false</code> if there is no information
+     */
+    public boolean getSpectrumInfo(int idx, SpectrumInfo info)
+    {
+        return history.read(idx, info);
+    }
+    
+    /**
+     * Copies the spectrum information of a specific frame,
+     * e.g., the frame returned by {@link #getNotifiedFrame()}.
+     * 
+     * @param frame  the frame number
+     * @param info   the spectrum information instance to copy the data into
+     * @return <code>true</code> if the information was copied,
+     *         <code>false</code> if the frame is not or no longer in the history
+     */
+    public boolean getFrameSpectrumInfo(long frame, SpectrumInfo info)
+    {
+        return history.readFrame(frame, info);
+    }
+    
+    /**
+     * Copies the frequency intensities for a specific position in history.
+     * The copy is a consistent snapshot, even while the analyser is running.
+     * 
+     * @param idx        the index of history (0: most recent)
+     * @param intensity  the array to copy the intensities into
+     * @return the number of copied intensity values
+     *         or -1 if there is no information
+     */
+    public int getSpectrumIntensity(int idx, float[] intensity)
+    {
+        return history.readIntensity(idx, intensity);
+    }
+    
+    /**
+     * Copies the frequency intensities and the time stamps of a spectrum from the history,
+     * e.g., for measuring the latency from the audio input to the display.
+     * 
+     * @param idx        the index of history (0: most recent)
+     * @param intensity  the array to copy the intensities into
+     * @param times      the spectrum information to copy the time stamps into
+     * @return the number of copied intensity values
+     *         or -1 if there is no information
+     */
+    public int getSpectrumIntensity(int idx, float[] intensity, SpectrumInfo times)
+    {
+        return history.readIntensity(idx, intensity, times);
     }
     
     /**
-     * Gets the FFT analyser.
+     * Gets the spectrum engine.
      * 
-     * @return the FFT analyser
+     * @return the spectrum engine or <code>null</code> if not attached to audio
      */
-    public FFT getFFT()
+    public SpectrumEngine getEngine()
     {
-        return fft;
+        return engine;
     }
+    
+    /**
+     * Gets the scheduler of the analysis frames,
+     * e.g., to query the amount of dropped and overrun frames.
+     * 
+     * @return the analysis scheduler or <code>null</code> if not attached to audio
+     */
+    public AnalysisScheduler getScheduler()
+    {
+        return scheduler;
+    }
+
+    private AudioSource              audioSource;
+    private LineCapture              lineCapture;
+    private float                    sampleRate;
+    private float[]                  dataRawL, dataRawR, dataFftL, dataFftR;
+    private int                      dataIdxStep, dataWriteIdx;
+    private AnalysisScheduler        scheduler;
+    private Thread                   analysisThread;
+    private AnalysisPool             analysisPool, attachedPool;
+    private SpectrumEngine           engine;
+    private SpectrumEngineEnum       engineType;
+    private FFTEngineEnum            fftType;
+    private WindowEnum               windowType;
+    private SpectrumShaper           shaper;
+    private int                      analyseFrequency;
+    private boolean                  stereo;
+    private final SpectrumHistory    history;
+    private volatile SpectrumArchive archive;
+    private final ListenerDispatcher dispatcher;
+    private final List<Stage>        stages;
+    private final AtomicInteger      rawSubscribers;
+    private final AtomicBoolean      rawRequested;
+    // sequence of frames passing the stages, odd while a frame is in the stages
+    private volatile long            stageSequence;
+    private volatile Thread          stageThread;
 
-    private AudioSource          audioSource;
-    private float[]              dataRawL, dataRawR, dataFftL, dataFftR;
-    private int                  dataIdx, dataIdxStep;
-    private FFT                  fft;
-    private SpectrumShaper       shaper;
-    private int                  analyseFrequency;
-    private final SpectrumInfo[] history;
-    private int                  historyIdx;
-    private Set<Listener>        listeners;
+    // amount of audio blocks and frames the analysis thread may lag behind
+    private static final int LAG_BUFFERS = 4;
 
     private static final Logger LOG = Logger.getLogger(SpectrumAnalyser.class.getName());
 }
@@ -0,0 +1,387 @@
+package analyser;
+
+/**
+ * Analysis stage that keeps a long history of the frequency band intensities.
+ *
+ * The intensities of all frames are stored in a single flat array,
+ * used as a ring buffer of frames with a fixed amount of bands each,
+ * together with the time stamp ({@link SpectrumInfo#sampleIdx}) of each frame.
+ * Frames can be looked up by time with a binary search,
+ * and ranges of frames are returned as views into the array without copying.
+ * This way, consumers can look back over minutes of spectrum data,
+ * e.g., for normalisation, waterfall displays or replays,
+ * without keeping their own copies.
+ * <p>
+ * The archive can be added as a stage,
+ * or set as the archive of an analyser with {@link SpectrumAnalyser#setArchive(SpectrumArchive)},
+ * which stores the frames after all stages, like the spectrum history of the analyser.
+ * <p>
+ * Frames are numbered from the last reset.
+ * There is a single writer (the analysis thread) and any number of readers.
+ * The writer never waits, so readers of a view have to check with {@link View#isValid()}
+ * after reading that the frames have not been overwritten in the meantime.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumArchive implements SpectrumAnalyser.Stage
+{
+    /**
+     * Class for a range of frames in the archive.
+     * A view is only a window into the archive array and can be reused for several queries.
+     */
+    public static class View
+    {
+        /**
+         * Creates a new, empty view.
+         */
+        public View()
+        {
+            archive    = null;
+            buffer     = null;
+            firstFrame = 0;
+            frameCount = 0;
+        }
+
+        /**
+         * Gets the number of the first frame of the view.
+         *
+         * @return the number of the first frame
+         */
+        public long getFirstFrame()
+        {
+            return firstFrame;
+        }
+
+        /**
+         * Gets the amount of frames in the view.
+         *
+         * @return the amount of frames
+         */
+        public int getFrameCount()
+        {
+            return frameCount;
+        }
+
+        /**
+         * Gets the amount of bands of each frame.
+         *
+         * @return the amount of bands
+         */
+        public int getBandCount()
+        {
+            return (buffer != null) ? buffer.bands : 0;
+        }
+
+        /**
+         * Gets the time stamp of a frame of the view.
+         *
+         * @param idx  the index of the frame in the view (0: oldest)
+         * @return the time stamp of the frame in ms
+         */
+        public int getTime(int idx)
+        {
+            return buffer.times[buffer.getSlot(firstFrame + idx)];
+        }
+
+        /**
+         * Gets the intensity of a band of a frame of the view.
+         *
+         * @param idx   the index of the frame in the view (0: oldest)
+         * @param band  the index of the band
+         * @return the intensity of the band
+         */
+        public float get(int idx, int band)
+        {
+            return buffer.data[getOffset(idx) + band];
+        }
+
+        /**
+         * Gets the array that contains the intensities of all frames.
+         * Together with {@link #getOffset(int)}, this allows direct access to the data.
+         * The array must not be modified.
+         *
+         * @return the array of intensities
+         */
+        public float[] getData()
+        {
+            return (buffer != null) ? buffer.data : null;
+        }
+
+        /**
+         * Gets the position of the first band of a frame in the data array.
+         * The bands of a frame are consecutive,
+         * but consecutive frames may wrap around the end of the array.
+         *
+         * @param idx  the index of the frame in the view (0: oldest)
+         * @return the position of the frame in the data array
+         */
+        public int getOffset(int idx)
+        {
+            return buffer.getSlot(firstFrame + idx) * buffer.bands;
+        }
+
+        /**
+         * Checks if the frames of the view are still in the archive.
+         * Call this after reading the data, to make sure that it has not been overwritten.
+         *
+         * @return <code>true</code> if the data of the view is valid,
+         *         <code>false</code> if some frames have been overwritten
+         */
+        public boolean isValid()
+        {
+            return (archive != null) && (archive.buffer == buffer) &&
+                   ((frameCount == 0) || (firstFrame >= archive.getOldestFrame()));
+        }
+
+        /**
+         * Sets the range of the view.
+         *
+         * @param archive     the archive to view
+         * @param buffer      the buffer of the archive at the time of the query
+         * @param firstFrame  the number of the first frame
+         * @param frameCount  the amount of frames
+         * @return this view
+         */
+        private View set(SpectrumArchive archive, Buffer buffer, long firstFrame, int frameCount)
+        {
+            this.archive    = archive;
+            this.buffer     = buffer;
+            this.firstFrame = firstFrame;
+            this.frameCount = frameCount;
+            return this;
+        }
+
+        private SpectrumArchive archive;
+        private Buffer          buffer;
+        private long            firstFrame;
+        private int             frameCount;
+    }
+
+
+    /**
+     * Class for the arrays of the archive, which are replaced together
+     * when the band layout changes.
+     */
+    private static class Buffer
+    {
+        public Buffer(int capacity, int bands)
+        {
+            this.bands = bands;
+            times = new int[capacity];
+            data  = new float[capacity * bands];
+        }
+
+        /**
+         * Calculates the slot of a frame in the ring buffer.
+         *
+         * @param frame  the number of the frame
+         * @return the slot of the frame
+         */
+        public int getSlot(long frame)
+        {
+            return (int) (frame % times.length);
+        }
+
+        public final int     bands;
+        public final int[]   times;
+        public final float[] data;
+    }
+
+
+    /**
+     * Creates a new spectrum archive.
+     *
+     * @param duration  the time span of the archive in s
+     */
+    public SpectrumArchive(float duration)
+    {
+        this.duration = duration;
+        frameRate = 60;
+        allocate(0);
+    }
+
+    @Override
+    public void reset(SpectrumAnalyser analyser)
+    {
+        frameRate = analyser.getAnalyseFrequency();
+        allocate(analyser.getSpectrumBandCount());
+    }
+
+    /**
+     * Allocates the arrays and removes all frames.
+     *
+     * @param bandCount  the amount of frequency bands of each frame
+     */
+    private void allocate(int bandCount)
+    {
+        writeCount = 0;
+        firstFrame = 0;
+        buffer     = new Buffer(Math.max(1, (int) Math.ceil(duration * frameRate)), bandCount);
+    }
+
+    @Override
+    public void process(SpectrumInfo info)
+    {
+        float[] intensity = info.intensity;
+        if ( intensity == null ) return;
+        Buffer b = buffer;
+        if ( intensity.length != b.bands )
+        {
+            // only happens for the first frame after a change of the band layout
+            allocate(intensity.length);
+            b = buffer;
+        }
+
+        long frame = writeCount;
+        if ( (frame > firstFrame) && (info.sampleIdx < b.times[b.getSlot(frame - 1)]) )
+        {
+            // time has jumped back (e.g., the playback position has changed):
+            // start over, so the time stamps stay sorted
+            firstFrame = frame;
+        }
+        int slot = b.getSlot(frame);
+        b.times[slot] = info.sampleIdx;
+        System.arraycopy(intensity, 0, b.data, slot * b.bands, b.bands);
+        writeCount = frame + 1;
+    }
+
+    /**
+     * Gets the maximum amount of frames in the archive.
+     *
+     * @return the capacity of the archive in frames
+     */
+    public int getCapacity()
+    {
+        return buffer.times.length;
+    }
+
+    /**
+     * Gets the amount of bands of each frame.
+     *
+     * @return the amount of bands
+     */
+    public int getBandCount()
+    {
+        return buffer.bands;
+    }
+
+    /**
+     * Gets the total amount of frames written to the archive.
+     * The number of the most recent frame is one less.
+     *
+     * @return the total amount of frames written since the last reset
+     */
+    public long getWriteCount()
+    {
+        return writeCount;
+    }
+
+    /**
+     * Gets the number of the oldest frame that is still in the archive.
+     *
+     * @return the number of the oldest frame
+     */
+    public long getOldestFrame()
+    {
+        // the slot of the frame that is written next may already be overwritten
+        return getOldestFrame(buffer);
+    }
+
+    /**
+     * Gets the number of the oldest frame that is still in a buffer of the archive.
+     *
+     * @param b  the buffer
+     * @return the number of the oldest frame
+     */
+    private long getOldestFrame(Buffer b)
+    {
+        return Math.max(firstFrame, writeCount + 1 - b.times.length);
+    }
+
+    /**
+     * Gets the time stamp of a frame.
+     *
+     * @param frame  the number of the frame
+     * @return the time stamp of the frame in ms
+     *         or {@link Integer#MIN_VALUE} if the frame is not in the archive
+     */
+    public int getTime(long frame)
+    {
+        Buffer b = buffer;
+        if ( (frame < getOldestFrame(b)) || (frame >= writeCount) ) return Integer.MIN_VALUE;
+        return b.times[b.getSlot(frame)];
+    }
+
+    /**
+     * Finds the most recent frame at or before a specific time with a binary search.
+     *
+     * @param time  the time in ms
+     * @return the number of the frame
+     *         or -1 if the time is before the oldest frame or the archive is empty
+     */
+    public long findFrame(int time)
+    {
+        return findFrame(buffer, time);
+    }
+
+    /**
+     * Finds the most recent frame at or before a specific time in a buffer of the archive.
+     *
+     * @param b     the buffer
+     * @param time  the time in ms
+     * @return the number of the frame
+     *         or -1 if the time is before the oldest frame or the archive is empty
+     */
+    private long findFrame(Buffer b, int time)
+    {
+        long high = writeCount - 1;
+        long low  = getOldestFrame(b);
+        if ( (high < low) || (b.times[b.getSlot(low)] > time) ) return -1;
+        // invariant: the time stamp of frame "low" is at or before the time
+        while ( low < high )
+        {
+            long mid = (low + high + 1) >>> 1;
+            if ( b.times[b.getSlot(mid)] <= time ) { low = mid; } else { high = mid - 1; }
+        }
+        return low;
+    }
+
+    /**
+     * Gets a view of all frames with time stamps in a time range.
+     *
+     * @param startTime  the start of the range in ms (inclusive)
+     * @param endTime    the end of the range in ms (inclusive)
+     * @param view       the view to set
+     * @return the view (empty if there are no frames in the range)
+     */
+    public View getRange(int startTime, int endTime, View view)
+    {
+        Buffer b    = buffer;
+        long   last = findFrame(b, endTime);
+        if ( last < 0 ) return view.set(this, b, writeCount, 0);
+        long first = Math.max(findFrame(b, startTime - 1) + 1, getOldestFrame(b));
+        return view.set(this, b, first, (int) Math.max(0, last - first + 1));
+    }
+
+    /**
+     * Gets a view of the most recent frames.
+     *
+     * @param count  the maximum amount of frames
+     * @param view   the view to set
+     * @return the view (with fewer frames if the archive contains less than the requested amount)
+     */
+    public View getRecent(int count, View view)
+    {
+        Buffer b     = buffer;
+        long   end   = writeCount;
+        long   first = Math.max(getOldestFrame(b), end - count);
+        return view.set(this, b, first, (int) Math.max(0, end - first));
+    }
+
+
+    private final float      duration;
+    private float            frameRate;
+    private volatile Buffer  buffer;
+    private volatile long    writeCount, firstFrame;
+}
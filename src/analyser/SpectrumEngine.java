@@ -0,0 +1,120 @@
+package analyser;
+
+/**
+ * Interface for modules that calculate the frequency bands of an audio window.
+ *
+ * All band values are normalised so that a full scale sine wave
+ * results in a value of approximately 1.
+ * Stereo results are indexed by the channel constants of {@link MaxFFT}.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public interface SpectrumEngine
+{
+    /**
+     * Gets the amount of samples the engine needs per analysis.
+     *
+     * @return the size of the analysis window
+     */
+    int getWindowSize();
+
+    /**
+     * Gets the amount of frequency bands the engine calculates.
+     *
+     * @return the number of frequency bands
+     */
+    int getBandCount();
+
+    /**
+     * Gets the centre frequency of a frequency band.
+     *
+     * @param band  the index of the frequency band
+     * @return the centre frequency in Hz
+     */
+    float getBandFrequency(int band);
+
+    /**
+     * Gets the amount of raw frequency bins the engine calculates.
+     *
+     * @return the number of raw frequency bins 
+     *         or 0 if the engine has no raw bins or their calculation is disabled
+     */
+    int getRawBandCount();
+
+    /**
+     * Enables or disables the calculation of raw frequency bins.
+     * While disabled, {@link #getRawBandCount()} returns 0.
+     *
+     * @param enabled  <code>true</code> to calculate raw frequency bins,
+     *                 <code>false</code> to only calculate frequency bands
+     */
+    void setRawBandsEnabled(boolean enabled);
+
+    /**
+     * Sets the amount of samples between the starts of two consecutive analysis windows.
+     * Engines that update their results incrementally use this to find the new samples,
+     * all other engines ignore it.
+     *
+     * @param hopSize  the amount of samples between two analysis windows
+     */
+    void setHopSize(int hopSize);
+
+    /**
+     * Sets the position of the next analysis window in the audio stream.
+     * Engines that update their results incrementally use this to check
+     * if the next window continues the previous one, all other engines ignore it.
+     * The position only applies to the next call of {@link #analyse(float[], float[])}.
+     *
+     * @param start  the absolute position of the first sample of the next window
+     */
+    void setWindowStart(long start);
+
+    /**
+     * Selects the window that is applied to the samples before the analysis.
+     *
+     * @param window  the analysis window
+     */
+    void setWindow(WindowEnum window);
+
+    /**
+     * Analyses a window of samples.
+     * The content of the sample arrays may be modified by the engine.
+     *
+     * @param left   the left channel samples, {@link #getWindowSize()} long
+     * @param right  the right channel samples or <code>null</code> for mono analysis
+     */
+    void analyse(float[] left, float[] right);
+
+    /**
+     * Checks if the last analysis was a stereo analysis.
+     *
+     * @return <code>true</code> if the last analysis included both channels,
+     *         <code>false</code> if not
+     */
+    boolean isStereo();
+
+    /**
+     * Gets the frequency bands of the last analysis.
+     * For stereo analysis, these are the bands of the mid signal.
+     *
+     * @return the frequency bands
+     */
+    float[] getBands();
+
+    /**
+     * Gets the frequency bands of a specific channel of the last stereo analysis.
+     *
+     * @param channel  the channel ({@link MaxFFT#LEFT}, {@link MaxFFT#RIGHT}, {@link MaxFFT#MID}, or {@link MaxFFT#SIDE})
+     * @return the frequency bands of the channel
+     */
+    float[] getStereoBands(int channel);
+
+    /**
+     * Gets the raw frequency bins of the last analysis.
+     *
+     * @return the raw frequency bins 
+     *         or <code>null</code> if the engine has no raw bins or their calculation is disabled
+     */
+    float[] getRawBands();
+}
@@ -0,0 +1,51 @@
+package analyser;
+
+/**
+ * Enumeration for the spectrum engine selection choices.
+ * 
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public enum SpectrumEngineEnum 
+{
+    FFT(        "FFT"),
+    MULTI_RATE( "Multi-Rate"),
+    SLIDING_DFT("Sliding DFT");
+
+    
+    private SpectrumEngineEnum(String name)
+    {
+        this.name = name;
+    }
+    
+    
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+    
+    
+    /**
+     * Creates a spectrum engine instance.
+     * 
+     * @param fftSize         the size of the FFT for the lowest frequencies
+     * @param sampleRate      the sample rate of the audio signal
+     * @param minBandwidth    the minimum bandwidth of an octave in Hz
+     * @param bandsPerOctave  the number of bands per octave
+     * @param fftType         the type of FFT engine to use
+     * @return the spectrum engine
+     */
+    public SpectrumEngine createEngine(int fftSize, float sampleRate, int minBandwidth, int bandsPerOctave, FFTEngineEnum fftType)
+    {
+        switch ( this )
+        {
+            case MULTI_RATE  : return new MultiRateSpectrumEngine(fftSize, sampleRate, minBandwidth, bandsPerOctave, fftType);
+            case SLIDING_DFT : return new SlidingDFTSpectrumEngine(fftSize, sampleRate, minBandwidth, bandsPerOctave, fftType);
+            default          : return new FFTSpectrumEngine(fftSize, sampleRate, minBandwidth, bandsPerOctave, fftType);
+        }
+    }
+    
+    
+    private final String name;
+}
@@ -0,0 +1,617 @@
+package analyser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class for spectrum files in a compact binary format.
+ *
+ * The file starts with a header (all values little endian):
+ * <ul>
+ * <li>the magic number "SPEC"</li>
+ * <li>the format version (int)</li>
+ * <li>the encoding of the intensities (int, see {@link Encoding})</li>
+ * <li>the amount of bands and the amount of frames (int each)</li>
+ * <li>the sample rate of the analysed audio in Hz (float, 0 if unknown)</li>
+ * <li>the amount of frames per second (float)</li>
+ * <li>the frequency of every band in Hz (float each)</li>
+ * </ul>
+ * followed by the intensities of all bands of all frames without any gaps.
+ * Files are opened by mapping them into memory, so opening a file takes
+ * the same short time regardless of its size,
+ * and the intensities are read straight from the file cache without copying.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumFile
+{
+    /**
+     * Enumeration of the encodings of the intensities.
+     */
+    public enum Encoding
+    {
+        /** 32 bit floating point values */
+        FLOAT32(4),
+        /** 16 bit floating point values (IEEE 754 half precision) */
+        FLOAT16(2);
+
+        private Encoding(int size)
+        {
+            this.size = size;
+        }
+
+        /**
+         * Gets the size of a value.
+         *
+         * @return the size of a value in bytes
+         */
+        public int getSize()
+        {
+            return size;
+        }
+
+        private final int size;
+    }
+
+
+    /**
+     * Class for writing a spectrum file frame by frame.
+     * The amount of frames is only known when the writer is closed,
+     * so the header is completed then, or whenever the frames are committed.
+     */
+    public static class Writer
+    {
+        /**
+         * Creates a new spectrum file.
+         *
+         * @param file             the file to create
+         * @param bandFrequencies  the frequencies of the bands in Hz
+         * @param sampleRate       the sample rate of the analysed audio in Hz (0 if unknown)
+         * @param frameRate        the amount of frames per second
+         * @param encoding         the encoding of the intensities
+         * @throws IOException if the file could not be created
+         */
+        public Writer(File file, float[] bandFrequencies, float sampleRate, float frameRate, Encoding encoding) throws IOException
+        {
+            this.bandFrequencies = bandFrequencies.clone();
+            this.sampleRate      = sampleRate;
+            this.frameRate       = frameRate;
+            this.encoding        = encoding;
+            frameCount = 0;
+            channel    = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            buffer     = ByteBuffer.allocate(Math.max(WRITE_BUFFER_SIZE, getHeaderSize(bandFrequencies.length)));
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            writeHeader();
+        }
+
+        /**
+         * Sets the amount of frames per second,
+         * e.g., if it is only known after all frames have been written.
+         *
+         * @param frameRate  the amount of frames per second
+         */
+        public void setFrameRate(float frameRate)
+        {
+            this.frameRate = frameRate;
+        }
+
+        /**
+         * Writes the next frame.
+         *
+         * @param intensity  the intensities of the bands
+         * @throws IOException if the frame could not be written
+         */
+        public void writeFrame(float[] intensity) throws IOException
+        {
+            if ( buffer.remaining() < bandFrequencies.length * encoding.getSize() )
+            {
+                flush();
+            }
+            for ( int band = 0 ; band < bandFrequencies.length ; band++ )
+            {
+                float value = (band < intensity.length) ? intensity[band] : 0;
+                if ( encoding == Encoding.FLOAT16 )
+                {
+                    buffer.putShort(toHalf(value));
+                }
+                else
+                {
+                    buffer.putFloat(value);
+                }
+            }
+            frameCount++;
+        }
+
+        /**
+         * Gets the amount of frames written so far.
+         *
+         * @return the amount of frames
+         */
+        public int getFrameCount()
+        {
+            return frameCount;
+        }
+
+        /**
+         * Writes the buffered frames and updates the amount of frames in the header,
+         * so that the file can already be read up to here, e.g., during a long recording.
+         *
+         * @throws IOException if the file could not be written
+         */
+        public void commit() throws IOException
+        {
+            flush();
+            long end = channel.position();
+            channel.position(0);
+            writeHeader();
+            channel.position(end);
+        }
+
+        /**
+         * Completes the header and closes the file.
+         *
+         * @throws IOException if the file could not be written
+         */
+        public void close() throws IOException
+        {
+            try
+            {
+                flush();
+                channel.position(0);
+                writeHeader();
+            }
+            finally
+            {
+                channel.close();
+            }
+        }
+
+        /**
+         * Writes the header at the current position of the file.
+         *
+         * @throws IOException if the header could not be written
+         */
+        private void writeHeader() throws IOException
+        {
+            buffer.clear();
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(encoding.ordinal())
+                  .putInt(bandFrequencies.length).putInt(frameCount)
+                  .putFloat(sampleRate).putFloat(frameRate);
+            for ( float f : bandFrequencies )
+            {
+                buffer.putFloat(f);
+            }
+            flush();
+        }
+
+        /**
+         * Writes the content of the buffer into the file.
+         *
+         * @throws IOException if the data could not be written
+         */
+        private void flush() throws IOException
+        {
+            buffer.flip();
+            while ( buffer.hasRemaining() )
+            {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private final float[]     bandFrequencies;
+        private final float       sampleRate;
+        private float             frameRate;
+        private final Encoding    encoding;
+        private int               frameCount;
+        private final FileChannel channel;
+        private final ByteBuffer  buffer;
+    }
+
+
+    /**
+     * Opens a spectrum file by mapping it into memory.
+     *
+     * @param file  the file to open
+     * @throws IOException if the file could not be opened or is not a valid spectrum file
+     */
+    public SpectrumFile(File file) throws IOException
+    {
+        MappedByteBuffer map;
+        try ( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ) )
+        {
+            // the mapping stays valid after the channel has been closed
+            if ( channel.size() > Integer.MAX_VALUE )
+            {
+                throw new IOException("Spectrum file " + file + " is too large to be mapped");
+            }
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        if ( (map.limit() < HEADER_SIZE) || (map.getInt(0) != MAGIC) )
+        {
+            throw new IOException(file + " is not a spectrum file");
+        }
+        if ( map.getInt(4) != VERSION )
+        {
+            throw new IOException("Unsupported version " + map.getInt(4) + " of spectrum file " + file);
+        }
+        int encodingIdx = map.getInt(8);
+        if ( (encodingIdx < 0) || (encodingIdx >= Encoding.values().length) )
+        {
+            throw new IOException("Unsupported encoding " + encodingIdx + " of spectrum file " + file);
+        }
+        encoding   = Encoding.values()[encodingIdx];
+        bandCount  = map.getInt(12);
+        frameCount = map.getInt(16);
+        sampleRate = map.getFloat(20);
+        frameRate  = map.getFloat(24);
+        int dataStart = getHeaderSize(bandCount);
+        if ( (bandCount < 0) || (frameCount < 0) ||
+             (map.limit() < dataStart + (long) frameCount * bandCount * encoding.getSize()) )
+        {
+            throw new IOException("Spectrum file " + file + " is truncated");
+        }
+        bandFrequencies = new float[bandCount];
+        for ( int band = 0 ; band < bandCount ; band++ )
+        {
+            bandFrequencies[band] = map.getFloat(HEADER_SIZE + band * 4);
+        }
+
+        map.position(dataStart);
+        ByteBuffer data = map.slice().order(ByteOrder.LITTLE_ENDIAN);
+        floatData = (encoding == Encoding.FLOAT32) ? data.asFloatBuffer() : null;
+        halfData  = (encoding == Encoding.FLOAT16) ? data.asShortBuffer() : null;
+    }
+
+    /**
+     * Checks if a file is a binary spectrum file.
+     *
+     * @param file  the file to check
+     * @return <code>true</code> if the file starts with the magic number of spectrum files,
+     *         <code>false</code> if not
+     */
+    public static boolean isSpectrumFile(File file)
+    {
+        try ( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ) )
+        {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while ( magic.hasRemaining() && (channel.read(magic) >= 0) ) { }
+            return !magic.hasRemaining() && (magic.getInt(0) == MAGIC);
+        }
+        catch (IOException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Converts a tab separated spectrum file into a binary spectrum file.
+     * The file is converted frame by frame, so the memory needed does not depend on its size.
+     * The frame rate is calculated from the time stamps of the first and the last frame.
+     *
+     * @param textFile  the tab separated spectrum file
+     * @param file      the binary spectrum file to create
+     * @param encoding  the encoding of the intensities
+     * @throws IOException if a file could not be read or written
+     */
+    public static void convert(File textFile, File file, Encoding encoding) throws IOException
+    {
+        SpectrumFileReader reader = new SpectrumFileReader(textFile);
+        reader.open();
+        try
+        {
+            Writer  writer    = new Writer(file, reader.getBandFrequencies(), 0, 0, encoding);
+            float[] frame     = new float[reader.getBandCount()];
+            float   firstTime = 0;
+            try
+            {
+                while ( reader.readFrame(frame) )
+                {
+                    if ( writer.getFrameCount() == 0 ) { firstTime = reader.getFrameTime(); }
+                    writer.writeFrame(frame);
+                }
+                float duration = reader.getFrameTime() - firstTime;
+                if ( (writer.getFrameCount() > 1) && (duration > 0) )
+                {
+                    writer.setFrameRate((writer.getFrameCount() - 1) * 1000 / duration);
+                }
+            }
+            finally
+            {
+                writer.close();
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Gets the encoding of the intensities.
+     *
+     * @return the encoding
+     */
+    public Encoding getEncoding()
+    {
+        return encoding;
+    }
+
+    /**
+     * Gets the amount of frequency bands.
+     *
+     * @return the amount of frequency bands
+     */
+    public int getBandCount()
+    {
+        return bandCount;
+    }
+
+    /**
+     * Gets the frequencies of the bands.
+     *
+     * @return the band frequencies in Hz
+     */
+    public float[] getBandFrequencies()
+    {
+        return bandFrequencies;
+    }
+
+    /**
+     * Gets the amount of frames in the file.
+     *
+     * @return the amount of frames
+     */
+    public int getFrameCount()
+    {
+        return frameCount;
+    }
+
+    /**
+     * Gets the sample rate of the analysed audio.
+     *
+     * @return the sample rate in Hz or 0 if it is unknown
+     */
+    public float getSampleRate()
+    {
+        return sampleRate;
+    }
+
+    /**
+     * Gets the amount of frames per second.
+     *
+     * @return the frame rate in Hz or 0 if it is unknown
+     */
+    public float getFrameRate()
+    {
+        return frameRate;
+    }
+
+    /**
+     * Gets the intensity of a band of a frame.
+     *
+     * @param frame  the index of the frame
+     * @param band   the index of the band
+     * @return the intensity
+     */
+    public float get(int frame, int band)
+    {
+        int idx = frame * bandCount + band;
+        return (floatData != null) ? floatData.get(idx) : fromHalf(halfData.get(idx));
+    }
+
+    /**
+     * Copies the intensities of all bands of a frame.
+     *
+     * @param frame      the index of the frame
+     * @param intensity  the array to copy the intensities into
+     */
+    public void getFrame(int frame, float[] intensity)
+    {
+        int idx = frame * bandCount;
+        int len = Math.min(bandCount, intensity.length);
+        if ( floatData != null )
+        {
+            for ( int band = 0 ; band < len ; band++ )
+            {
+                intensity[band] = floatData.get(idx + band);
+            }
+        }
+        else
+        {
+            for ( int band = 0 ; band < len ; band++ )
+            {
+                intensity[band] = fromHalf(halfData.get(idx + band));
+            }
+        }
+    }
+
+    /**
+     * Copies the intensities of all bands of several consecutive frames.
+     *
+     * @param frame      the index of the first frame
+     * @param count      the amount of frames
+     * @param intensity  the array to copy the intensities into, frame after frame
+     */
+    public void getFrames(int frame, int count, float[] intensity)
+    {
+        int idx = frame * bandCount;
+        int len = count * bandCount;
+        if ( floatData != null )
+        {
+            FloatBuffer src = floatData.duplicate();
+            src.position(idx);
+            src.get(intensity, 0, len);
+        }
+        else
+        {
+            for ( int i = 0 ; i < len ; i++ )
+            {
+                intensity[i] = fromHalf(halfData.get(idx + i));
+            }
+        }
+    }
+
+    /**
+     * Reads the spectrum data.
+     * If the file contains more than the maximum amount of frames,
+     * each row of the result is the average of several consecutive frames,
+     * like {@link SpectrumFileReader#read(int)}.
+     *
+     * @param maxRows  the maximum amount of rows to return
+     * @return the intensities of the frequency bands of each row
+     */
+    public float[][] read(int maxRows)
+    {
+        int       step  = getStep(maxRows);
+        float[][] rows  = new float[frameCount / step][bandCount];
+        float[]   frame = new float[bandCount];
+        // 32 bit frames are read in sequence with a single view of the data
+        FloatBuffer src = (floatData != null) ? floatData.duplicate() : null;
+        for ( int f = 0 ; f < rows.length * step ; f++ )
+        {
+            if ( src != null ) { src.get(frame); } else { getFrame(f, frame); }
+            float[] row = rows[f / step];
+            for ( int band = 0 ; band < bandCount ; band++ )
+            {
+                row[band] += frame[band] / step;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Calculates the amount of frames that {@link #read(int)} averages into each row.
+     *
+     * @param maxRows  the maximum amount of rows
+     * @return the amount of frames per row
+     */
+    public int getStep(int maxRows)
+    {
+        return ((frameCount - 1) / maxRows) + 1;
+    }
+
+    /**
+     * Calculates the size of the header.
+     *
+     * @param bandCount  the amount of bands
+     * @return the size of the header in bytes
+     */
+    private static int getHeaderSize(int bandCount)
+    {
+        return HEADER_SIZE + bandCount * 4;
+    }
+
+    /**
+     * Converts a float value into a half precision value, rounding to the nearest value.
+     *
+     * @param value  the float value
+     * @return the bits of the half precision value
+     */
+    static short toHalf(float value)
+    {
+        int bits     = Float.floatToRawIntBits(value);
+        int sign     = (bits >>> 16) & 0x8000;
+        int exponent = (bits >>> 23) & 0xFF;
+        int mantissa = bits & 0x7FFFFF;
+        if ( exponent == 0xFF )
+        {
+            // infinity or NaN
+            return (short) (sign | 0x7C00 | ((mantissa != 0) ? 0x200 : 0));
+        }
+        int e = exponent - 127 + 15;
+        if ( e >= 0x1F )
+        {
+            // too large: infinity
+            return (short) (sign | 0x7C00);
+        }
+        if ( e <= 0 )
+        {
+            // subnormal half or zero
+            if ( e < -10 ) return (short) sign;
+            mantissa |= 0x800000;
+            int shift = 14 - e;
+            int half  = mantissa >> shift;
+            int rest  = mantissa & ((1 << shift) - 1);
+            int mid   = 1 << (shift - 1);
+            if ( (rest > mid) || ((rest == mid) && ((half & 1) != 0)) ) { half++; }
+            return (short) (sign | half);
+        }
+        // round to nearest even, a carry into the exponent is correct
+        int half = (e << 10) | (mantissa >> 13);
+        int rest = mantissa & 0x1FFF;
+        if ( (rest > 0x1000) || ((rest == 0x1000) && ((half & 1) != 0)) ) { half++; }
+        return (short) (sign | half);
+    }
+
+    /**
+     * Converts a half precision value into a float value.
+     *
+     * @param half  the bits of the half precision value
+     * @return the float value
+     */
+    static float fromHalf(short half)
+    {
+        return HALF_TO_FLOAT[half & 0xFFFF];
+    }
+
+    /**
+     * Creates the table of all half precision values.
+     *
+     * @return the float values of all half precision values
+     */
+    private static float[] createHalfTable()
+    {
+        float[] table = new float[1 << 16];
+        for ( int h = 0 ; h < table.length ; h++ )
+        {
+            int sign     = (h & 0x8000) << 16;
+            int exponent = (h >>> 10) & 0x1F;
+            int mantissa = h & 0x3FF;
+            float value;
+            if ( exponent == 0 )
+            {
+                value = mantissa * 0x1p-24f;
+            }
+            else if ( exponent == 0x1F )
+            {
+                value = (mantissa == 0) ? Float.POSITIVE_INFINITY : Float.NaN;
+            }
+            else
+            {
+                value = Float.intBitsToFloat(((exponent - 15 + 127) << 23) | (mantissa << 13));
+            }
+            table[h] = (sign != 0) ? -value : value;
+        }
+        return table;
+    }
+
+
+    /** File name extension of binary spectrum files */
+    public static final String EXTENSION = ".spc";
+
+    // magic number "SPEC" (little endian)
+    private static final int     MAGIC             = 'S' | ('P' << 8) | ('E' << 16) | ('C' << 24);
+    private static final int     VERSION           = 1;
+    // size of the header without the band frequencies
+    private static final int     HEADER_SIZE       = 28;
+    private static final int     WRITE_BUFFER_SIZE = 1 << 16;
+    private static final float[] HALF_TO_FLOAT     = createHalfTable();
+
+    private final Encoding    encoding;
+    private final int         bandCount, frameCount;
+    private final float       sampleRate, frameRate;
+    private final float[]     bandFrequencies;
+    private final FloatBuffer floatData;
+    private final ShortBuffer halfData;
+}
@@ -0,0 +1,551 @@
+package analyser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Class for loading a spectrum file in the background.
+ *
+ * The loader reduces the file to a maximum amount of rows, like {@link SpectrumFileReader#read(int)},
+ * on its own thread. As soon as the size of the file is known, the array of rows is allocated,
+ * and every row is published as soon as it is complete.
+ * The render thread can poll {@link #getLoadedRowCount()} and show the rows as they arrive.
+ * <p>
+ * Binary spectrum files are read directly.
+ * Tab separated files are converted into a binary file next to them while they are loaded,
+ * so the next time they open much faster (see {@link #getBinaryFile(File)}).
+ * When the file has been loaded completely, a {@link SpectrumPyramid} of the binary file is built,
+ * which reduces the file to any other amount of rows or range of frames without reading it again.
+ * Loading can be cancelled at any time.
+ * <p>
+ * The loader can also analyse an audio file with an {@link OfflineAnalyser} first
+ * and then load the spectrum file that the analysis has written,
+ * so the analysis does not block the render thread either.
+ * <p>
+ * Recordings with a gain state file next to them (see {@link AdaptiveGain#getStateFile(File)})
+ * are shown with the gain applied like during the recording.
+ * The result is kept in another binary file next to the recording, which the pyramid is built from.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumFileLoader
+{
+    /**
+     * Creates a new loader.
+     *
+     * @param file     the spectrum file to load
+     * @param maxRows  the maximum amount of rows to reduce the file to
+     */
+    public SpectrumFileLoader(File file, int maxRows)
+    {
+        this(null, null, file, maxRows);
+    }
+
+    /**
+     * Creates a new loader that analyses an audio file first
+     * and then loads the spectrum file that the analysis writes.
+     *
+     * @param audioFile  the audio file to analyse
+     * @param analyser   the offline analyser to use
+     * @param file       the spectrum file to write and load
+     * @param maxRows    the maximum amount of rows to reduce the file to
+     */
+    public SpectrumFileLoader(File audioFile, OfflineAnalyser analyser, File file, int maxRows)
+    {
+        this.audioFile = audioFile;
+        this.analyser  = analyser;
+        this.file      = file;
+        this.maxRows   = maxRows;
+        analysing  = false;
+        rows       = null;
+        loadedRows = 0;
+        frameCount = 0;
+        step       = 1;
+        cancelled  = false;
+        finished   = false;
+        error      = null;
+        pyramid    = null;
+        thread     = null;
+    }
+
+    /**
+     * Starts loading the file in the background.
+     */
+    public synchronized void start()
+    {
+        if ( thread != null ) return;
+        thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                load();
+            }
+        }, "SpectrumFileLoader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Cancels loading.
+     * The rows that have been loaded so far stay valid.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+        if ( analyser != null ) { analyser.cancel(); }
+    }
+
+    /**
+     * Checks if loading has been cancelled.
+     *
+     * @return <code>true</code> if loading has been cancelled
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Checks if the audio file is still being analysed.
+     *
+     * @return <code>true</code> if the audio file is being analysed,
+     *         <code>false</code> if there is no audio file or the spectrum file is being loaded
+     */
+    public boolean isAnalysing()
+    {
+        return analysing;
+    }
+
+    /**
+     * Checks if the loader has finished, successfully or not.
+     *
+     * @return <code>true</code> if the loader has finished
+     */
+    public boolean isFinished()
+    {
+        return finished;
+    }
+
+    /**
+     * Gets the error that has stopped loading.
+     *
+     * @return the error or <code>null</code> if there was no error
+     */
+    public Exception getError()
+    {
+        return error;
+    }
+
+    /**
+     * Gets the file that is loaded.
+     *
+     * @return the spectrum file
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Gets the rows of the spectrum data.
+     * Only the rows up to {@link #getLoadedRowCount()} are complete,
+     * the remaining rows are 0.
+     *
+     * @return the rows or <code>null</code> if the size of the file is not known yet
+     */
+    public float[][] getRows()
+    {
+        return rows;
+    }
+
+    /**
+     * Gets the pyramid of the spectrum file.
+     *
+     * @return the pyramid or <code>null</code> if the file has not been loaded completely
+     *         or there is no binary version of it
+     */
+    public SpectrumPyramid getPyramid()
+    {
+        return pyramid;
+    }
+
+    /**
+     * Gets the amount of rows that are complete.
+     *
+     * @return the amount of loaded rows
+     */
+    public int getLoadedRowCount()
+    {
+        return loadedRows;
+    }
+
+    /**
+     * Gets the progress of loading, or of the analysis while the audio file is being analysed.
+     *
+     * @return the progress (0...1)
+     */
+    public float getProgress()
+    {
+        float[][] r = rows;
+        if ( finished ) return 1;
+        if ( analysing ) return analyser.getProgress();
+        return ((r == null) || (r.length == 0)) ? 0 : (float) loadedRows / r.length;
+    }
+
+    /**
+     * Gets the amount of frames in the file.
+     *
+     * @return the amount of frames
+     */
+    public int getFrameCount()
+    {
+        return frameCount;
+    }
+
+    /**
+     * Gets the amount of frames that are averaged into each row.
+     *
+     * @return the amount of frames per row
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * Gets the name of the binary version of a tab separated spectrum file.
+     *
+     * @param file  the tab separated spectrum file
+     * @return the binary spectrum file (which may not exist)
+     */
+    public static File getBinaryFile(File file)
+    {
+        String name = file.getName();
+        int    dot  = name.lastIndexOf('.');
+        if ( dot > 0 ) { name = name.substring(0, dot); }
+        return new File(file.getAbsoluteFile().getParentFile(), name + SpectrumFile.EXTENSION);
+    }
+
+    /**
+     * Main method of the loader thread.
+     */
+    private void load()
+    {
+        try
+        {
+            if ( audioFile != null )
+            {
+                boolean analysed;
+                analysing = true;
+                try
+                {
+                    analysed = analyser.analyse(audioFile, file);
+                }
+                finally
+                {
+                    analysing = false;
+                }
+                if ( !analysed ) return;
+            }
+            if ( SpectrumFile.isSpectrumFile(file) )
+            {
+                loadBinary(file);
+            }
+            else
+            {
+                File binaryFile = getBinaryFile(file);
+                if ( !binaryFile.equals(file.getAbsoluteFile()) && binaryFile.exists() &&
+                     (binaryFile.lastModified() >= file.lastModified()) && SpectrumFile.isSpectrumFile(binaryFile) )
+                {
+                    loadBinary(binaryFile);
+                }
+                else
+                {
+                    loadText(binaryFile);
+                }
+            }
+        }
+        catch (IOException | UnsupportedAudioFileException | RuntimeException e)
+        {
+            error = e;
+            LOG.log(Level.WARNING, "Could not load spectrum file {0} ({1})", new Object[] {file, e});
+        }
+        finally
+        {
+            finished = true;
+        }
+    }
+
+    /**
+     * Loads a binary spectrum file.
+     * If there is a gain state file next to it, the gain is applied like during the recording.
+     *
+     * @param binaryFile  the binary spectrum file
+     * @throws IOException if the file could not be read
+     */
+    private void loadBinary(File binaryFile) throws IOException
+    {
+        File stateFile = AdaptiveGain.getStateFile(binaryFile);
+        if ( stateFile.exists() )
+        {
+            File gainFile = getGainFile(binaryFile);
+            if ( gainFile.exists() && SpectrumFile.isSpectrumFile(gainFile) &&
+                 (gainFile.lastModified() >= Math.max(binaryFile.lastModified(), stateFile.lastModified())) )
+            {
+                binaryFile = gainFile;
+            }
+            else
+            {
+                loadWithGain(binaryFile, stateFile, gainFile);
+                return;
+            }
+        }
+        
+        SpectrumFile spectrum = new SpectrumFile(binaryFile);
+        frameCount = spectrum.getFrameCount();
+        step       = spectrum.getStep(maxRows);
+        float[][] r     = new float[frameCount / step][spectrum.getBandCount()];
+        float[]   frame = new float[spectrum.getBandCount()];
+        rows = r;
+        for ( int f = 0 ; (f < r.length * step) && !cancelled ; f++ )
+        {
+            spectrum.getFrame(f, frame);
+            addFrame(r, f, frame);
+        }
+        buildPyramid(spectrum);
+    }
+
+    /**
+     * Loads a tab separated spectrum file and converts it into a binary file at the same time.
+     * If the binary file cannot be written or replaced, the file is only loaded.
+     *
+     * @param binaryFile  the binary spectrum file to create
+     * @throws IOException if the file could not be read
+     */
+    private void loadText(File binaryFile) throws IOException
+    {
+        SpectrumFileReader reader = new SpectrumFileReader(file);
+        reader.open();
+        File                tempFile = new File(binaryFile.getPath() + ".tmp");
+        SpectrumFile.Writer writer   = null;
+        try
+        {
+            frameCount = reader.getFrameCount();
+            step       = ((frameCount - 1) / maxRows) + 1;
+            float[][] r     = new float[frameCount / step][reader.getBandCount()];
+            float[]   frame = new float[reader.getBandCount()];
+            rows = r;
+
+            if ( !binaryFile.equals(file.getAbsoluteFile()) )
+            {
+                try
+                {
+                    writer = new SpectrumFile.Writer(tempFile, reader.getBandFrequencies(), 0, 0, SpectrumFile.Encoding.FLOAT32);
+                }
+                catch (IOException e)
+                {
+                    LOG.log(Level.INFO, "Could not create binary spectrum file {0} ({1})", new Object[] {binaryFile, e});
+                }
+            }
+
+            float firstTime = 0;
+            for ( int f = 0 ; !cancelled && reader.readFrame(frame) ; f++ )
+            {
+                if ( f == 0 ) { firstTime = reader.getFrameTime(); }
+                if ( f < r.length * step ) { addFrame(r, f, frame); }
+                if ( writer != null ) { writer.writeFrame(frame); }
+            }
+
+            if ( writer != null )
+            {
+                float duration = reader.getFrameTime() - firstTime;
+                if ( (writer.getFrameCount() > 1) && (duration > 0) )
+                {
+                    writer.setFrameRate((writer.getFrameCount() - 1) * 1000 / duration);
+                }
+                writer.close();
+                writer = null;
+                if ( !cancelled )
+                {
+                    try
+                    {
+                        Files.move(tempFile.toPath(), binaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    catch (IOException e)
+                    {
+                        // e.g., the old binary file is still mapped, which prevents replacing it on Windows
+                        LOG.log(Level.INFO, "Could not replace binary spectrum file {0} ({1})", new Object[] {binaryFile, e});
+                        return;
+                    }
+                    buildPyramid(new SpectrumFile(binaryFile));
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+            if ( writer != null )
+            {
+                try
+                {
+                    writer.close();
+                }
+                catch (IOException e)
+                {
+                    // the file is deleted anyway
+                }
+            }
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Loads a recorded binary spectrum file, applies the gain with the states of its state file,
+     * and writes the result into another binary file at the same time, which the pyramid is built from.
+     * If that file cannot be written, the file is only loaded.
+     *
+     * @param binaryFile  the recorded binary spectrum file
+     * @param stateFile   the gain state file of the recording
+     * @param gainFile    the binary spectrum file with the gain to create
+     * @throws IOException if the files could not be read
+     */
+    private void loadWithGain(File binaryFile, File stateFile, File gainFile) throws IOException
+    {
+        SpectrumFile        spectrum = new SpectrumFile(binaryFile);
+        AdaptiveGain.Replay replay   = new AdaptiveGain.Replay(stateFile);
+        File                tempFile = new File(gainFile.getPath() + ".tmp");
+        SpectrumFile.Writer writer   = null;
+        try
+        {
+            frameCount = spectrum.getFrameCount();
+            step       = spectrum.getStep(maxRows);
+            float[][] r     = new float[frameCount / step][spectrum.getBandCount()];
+            float[]   frame = new float[spectrum.getBandCount()];
+            rows = r;
+
+            try
+            {
+                writer = new SpectrumFile.Writer(tempFile, spectrum.getBandFrequencies(), 
+                                                 spectrum.getSampleRate(), spectrum.getFrameRate(), spectrum.getEncoding());
+            }
+            catch (IOException e)
+            {
+                LOG.log(Level.INFO, "Could not create binary spectrum file {0} ({1})", new Object[] {gainFile, e});
+            }
+
+            // the gain depends on all previous frames, so every frame is processed in order
+            for ( int f = 0 ; (f < frameCount) && !cancelled ; f++ )
+            {
+                spectrum.getFrame(f, frame);
+                replay.process(f, frame);
+                if ( f < r.length * step ) { addFrame(r, f, frame); }
+                if ( writer != null ) { writer.writeFrame(frame); }
+            }
+
+            if ( writer != null )
+            {
+                writer.close();
+                writer = null;
+                if ( !cancelled )
+                {
+                    try
+                    {
+                        Files.move(tempFile.toPath(), gainFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    catch (IOException e)
+                    {
+                        LOG.log(Level.INFO, "Could not replace binary spectrum file {0} ({1})", new Object[] {gainFile, e});
+                        return;
+                    }
+                    buildPyramid(new SpectrumFile(gainFile));
+                }
+            }
+        }
+        finally
+        {
+            if ( writer != null )
+            {
+                try
+                {
+                    writer.close();
+                }
+                catch (IOException e)
+                {
+                    // the file is deleted anyway
+                }
+            }
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Gets the name of the binary spectrum file with the gain applied of a recorded spectrum file.
+     *
+     * @param binaryFile  the recorded binary spectrum file
+     * @return the binary spectrum file with the gain (which may not exist)
+     */
+    private static File getGainFile(File binaryFile)
+    {
+        String name = binaryFile.getName();
+        int    dot  = name.lastIndexOf('.');
+        if ( dot > 0 ) { name = name.substring(0, dot); }
+        return new File(binaryFile.getAbsoluteFile().getParentFile(), name + GAIN_SUFFIX + SpectrumFile.EXTENSION);
+    }
+
+    /**
+     * Builds the pyramid of a completely loaded binary file.
+     *
+     * @param spectrum  the binary spectrum file
+     */
+    private void buildPyramid(SpectrumFile spectrum)
+    {
+        if ( cancelled || (spectrum.getFrameCount() == 0) ) return;
+        pyramid = new SpectrumPyramid(spectrum, 0);
+    }
+
+    /**
+     * Adds a frame to its row and publishes the row when it is complete.
+     *
+     * @param r      the rows
+     * @param f      the index of the frame
+     * @param frame  the intensities of the frame
+     */
+    private void addFrame(float[][] r, int f, float[] frame)
+    {
+        float[] row = r[f / step];
+        for ( int band = 0 ; band < row.length ; band++ )
+        {
+            row[band] += frame[band] / step;
+        }
+        if ( (f + 1) % step == 0 )
+        {
+            // publishing the count makes the row visible to other threads
+            loadedRows = (f + 1) / step;
+        }
+    }
+
+
+    // suffix of the name of binary files with the gain of a recording applied
+    private static final String GAIN_SUFFIX = "_gain";
+
+    private final File               audioFile;
+    private final OfflineAnalyser    analyser;
+    private final File               file;
+    private final int                maxRows;
+    private volatile float[][]       rows;
+    private volatile int             loadedRows;
+    private volatile int             frameCount, step;
+    private volatile boolean         analysing, cancelled, finished;
+    private volatile Exception       error;
+    private volatile SpectrumPyramid pyramid;
+    private Thread                   thread;
+
+    private static final Logger LOG = Logger.getLogger(SpectrumFileLoader.class.getName());
+}
@@ -0,0 +1,495 @@
+package analyser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class for reading spectrum files as written by {@link OfflineAnalyser#writeSpectrumFile(File, float[][])}.
+ *
+ * The file is a tab separated table with a header line
+ * ("Time" and the frequency of every band), followed by one line per frame
+ * (the time in ms and the intensity of every band).
+ * The amount of bands is taken from the first frame, ignoring empty fields at the end of the line.
+ * Header fields that are not numbers, e.g., text labels, are read as unknown frequencies (0),
+ * and times that are not numbers are read as 0.
+ * The file is streamed through a small buffer and the numbers are parsed straight from the bytes,
+ * so no line strings or tokens are created.
+ * When the file has more frames than requested, consecutive frames are averaged on the fly.
+ * This way, the memory needed for reading a file is the size of the result,
+ * independent of the size of the file.
+ * The file can also be read frame by frame, e.g., for converting it into another format.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumFileReader
+{
+    /**
+     * Creates a reader for a spectrum file.
+     *
+     * @param file  the spectrum file to read
+     */
+    public SpectrumFileReader(File file)
+    {
+        this.file       = file;
+        bandFrequencies = new float[0];
+        frameCount      = 0;
+        step            = 1;
+        buffer          = null;
+        channel         = null;
+    }
+
+    /**
+     * Reads the spectrum data.
+     * If the file contains more than the maximum amount of frames,
+     * each row of the result is the average of several consecutive frames.
+     *
+     * @param maxRows  the maximum amount of rows to return
+     * @return the intensities of the frequency bands of each row
+     * @throws IOException if the file could not be read
+     */
+    public float[][] read(int maxRows) throws IOException
+    {
+        open();
+        try
+        {
+            // the amount of frames determines how many are averaged into a row
+            step = ((frameCount - 1) / maxRows) + 1;
+            float[][] rows  = new float[frameCount / step][];
+            float[]   frame = new float[bandFrequencies.length];
+            for ( int row = 0 ; row < rows.length ; row++ )
+            {
+                rows[row] = new float[frame.length];
+            }
+            for ( int f = 0 ; (f < rows.length * step) && readFrame(frame) ; f++ )
+            {
+                float[] row = rows[f / step];
+                for ( int band = 0 ; band < row.length ; band++ )
+                {
+                    row[band] += frame[band] / step;
+                }
+            }
+            return rows;
+        }
+        finally
+        {
+            close();
+        }
+    }
+
+    /**
+     * Opens the file for reading it frame by frame with {@link #readFrame(float[])}.
+     * The lines of the file are counted and the header is read.
+     *
+     * @throws IOException if the file could not be read
+     */
+    public void open() throws IOException
+    {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        buffer  = new byte[BUFFER_SIZE];
+        try
+        {
+            frameCount = Math.max(0, countLines() - 1);
+            channel.position(0);
+            start = end = limit = 0;
+            eof       = false;
+            frameTime = 0;
+            if ( nextLine() )
+            {
+                readHeader();
+            }
+            else
+            {
+                bandFrequencies = new float[0];
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next frame of the file.
+     * Bands that are missing or empty in the file are set to 0.
+     *
+     * @param frame  the array for the intensities of the frequency bands
+     * @return <code>true</code> if a frame has been read,
+     *         <code>false</code> if the end of the file has been reached
+     * @throws IOException if the file could not be read
+     * @throws NumberFormatException if an intensity of the frame is not a number
+     */
+    public boolean readFrame(float[] frame) throws IOException, NumberFormatException
+    {
+        if ( !nextLine() ) return false;
+        int pos = skipField(start);
+        frameTime = parseLabel(start, pos);
+        pos++;
+        for ( int band = 0 ; band < frame.length ; band++ )
+        {
+            if ( pos <= end )
+            {
+                int fieldEnd = skipField(pos);
+                frame[band] = (fieldEnd > pos) ? parseFloat(buffer, pos, fieldEnd) : 0;
+                pos = fieldEnd + 1;
+            }
+            else
+            {
+                frame[band] = 0;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the time of the frame that has been read last.
+     *
+     * @return the time of the frame in ms
+     */
+    public float getFrameTime()
+    {
+        return frameTime;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    public void close() throws IOException
+    {
+        if ( channel == null ) return;
+        try
+        {
+            channel.close();
+        }
+        finally
+        {
+            channel = null;
+            buffer  = null;
+        }
+    }
+
+    /**
+     * Gets the frequencies of the bands in the header of the file.
+     *
+     * @return the band frequencies in Hz
+     */
+    public float[] getBandFrequencies()
+    {
+        return bandFrequencies;
+    }
+
+    /**
+     * Gets the amount of frequency bands.
+     *
+     * @return the amount of frequency bands
+     */
+    public int getBandCount()
+    {
+        return bandFrequencies.length;
+    }
+
+    /**
+     * Gets the amount of frames in the file.
+     *
+     * @return the amount of frames
+     */
+    public int getFrameCount()
+    {
+        return frameCount;
+    }
+
+    /**
+     * Gets the amount of frames that have been averaged into each row.
+     *
+     * @return the amount of frames per row
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * Counts the non-empty lines of the file.
+     *
+     * @return the amount of lines
+     * @throws IOException if the file could not be read
+     */
+    private int countLines() throws IOException
+    {
+        ByteBuffer bb      = ByteBuffer.wrap(buffer);
+        int        lines   = 0;
+        boolean    content = false;
+        while ( channel.read(bb) >= 0 )
+        {
+            int len = bb.position();
+            for ( int i = 0 ; i < len ; i++ )
+            {
+                byte b = buffer[i];
+                if ( b == '\n' )
+                {
+                    if ( content ) { lines++; }
+                    content = false;
+                }
+                else if ( b != '\r' )
+                {
+                    content = true;
+                }
+            }
+            bb.clear();
+        }
+        return content ? lines + 1 : lines;
+    }
+
+    /**
+     * Advances to the next non-empty line and makes sure that it is completely in the buffer.
+     * Afterwards, the line is in the buffer between {@link #start} and {@link #end}.
+     *
+     * @return <code>true</code> if there is a line,
+     *         <code>false</code> if the end of the file has been reached
+     * @throws IOException if the file could not be read
+     */
+    private boolean nextLine() throws IOException
+    {
+        // skip the end of the previous line
+        start = end;
+        while ( true )
+        {
+            while ( (start < limit) && ((buffer[start] == '\n') || (buffer[start] == '\r')) )
+            {
+                start++;
+            }
+            end = start;
+            while ( (end < limit) && (buffer[end] != '\n') && (buffer[end] != '\r') )
+            {
+                end++;
+            }
+            if ( (end < limit) || (eof && (end > start)) ) return true;
+            if ( eof ) return false;
+            fillBuffer();
+        }
+    }
+
+    /**
+     * Moves the current line to the start of the buffer and reads more data behind it.
+     * The buffer is enlarged if the line does not fit.
+     *
+     * @throws IOException if the file could not be read
+     */
+    private void fillBuffer() throws IOException
+    {
+        int len = limit - start;
+        if ( len == buffer.length )
+        {
+            byte[] larger = new byte[buffer.length * 2];
+            System.arraycopy(buffer, start, larger, 0, len);
+            buffer = larger;
+        }
+        else
+        {
+            System.arraycopy(buffer, start, buffer, 0, len);
+        }
+        start = 0;
+        limit = len;
+        ByteBuffer bb   = ByteBuffer.wrap(buffer, limit, buffer.length - limit);
+        int        read = channel.read(bb);
+        if ( read < 0 ) { eof = true; } else { limit += read; }
+    }
+
+    /**
+     * Reads the band frequencies from the header line.
+     * The amount of bands is determined by the first frame, which is left unread,
+     * or by the header if there is no frame.
+     *
+     * @throws IOException if the file could not be read
+     */
+    private void readHeader() throws IOException
+    {
+        float[] header = new float[countBands()];
+        int     pos    = skipField(start) + 1;
+        for ( int band = 0 ; band < header.length ; band++ )
+        {
+            int fieldEnd = skipField(pos);
+            header[band] = parseLabel(pos, fieldEnd);
+            pos = fieldEnd + 1;
+        }
+
+        int count = header.length;
+        if ( nextLine() )
+        {
+            count = countBands();
+            // the next call of nextLine() returns the same line again
+            end = start;
+        }
+        // frequencies that are not in the header are unknown as well
+        bandFrequencies = new float[count];
+        System.arraycopy(header, 0, bandFrequencies, 0, Math.min(count, header.length));
+    }
+
+    /**
+     * Counts the bands of the current line, which are the fields after the first one,
+     * without empty fields at the end of the line.
+     *
+     * @return the amount of bands
+     */
+    private int countBands()
+    {
+        int count  = 0;
+        int fields = 0;
+        int pos    = skipField(start);
+        while ( pos < end )
+        {
+            int fieldEnd = skipField(pos + 1);
+            fields++;
+            if ( fieldEnd > pos + 1 ) { count = fields; }
+            pos = fieldEnd;
+        }
+        return count;
+    }
+
+    /**
+     * Parses a field that is not an intensity, i.e., a header field or the time of a frame.
+     *
+     * @param from  the start of the field
+     * @param to    the end of the field (exclusive)
+     * @return the parsed number or 0 if the field is empty or not a number
+     */
+    private float parseLabel(int from, int to)
+    {
+        if ( from >= to ) return 0;
+        try
+        {
+            return parseFloat(buffer, from, to);
+        }
+        catch (NumberFormatException e)
+        {
+            return 0;
+        }
+    }
+
+    /**
+     * Finds the end of a field of the current line.
+     *
+     * @param pos  the start of the field
+     * @return the position of the tab after the field or the end of the line
+     */
+    private int skipField(int pos)
+    {
+        while ( (pos < end) && (buffer[pos] != '\t') )
+        {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Parses a decimal number from ASCII bytes without creating a string.
+     * Numbers with more significant digits or a larger exponent than a double can represent exactly
+     * are passed on to {@link Float#parseFloat(String)}.
+     * The fast path converts the number into a correctly rounded double first.
+     * Rounding this double to a float gives the same result as {@link Float#parseFloat(String)},
+     * unless the double lies exactly halfway between two floats,
+     * since the exact number is closer to the double than to any other double.
+     * These numbers and float subnormals are passed on as well.
+     *
+     * @param data   the bytes
+     * @param from   the start of the number
+     * @param to     the end of the number (exclusive)
+     * @return the parsed number
+     * @throws NumberFormatException if the bytes are not a number
+     */
+    static float parseFloat(byte[] data, int from, int to) throws NumberFormatException
+    {
+        int     i        = from;
+        boolean negative = false;
+        if ( (i < to) && ((data[i] == '-') || (data[i] == '+')) )
+        {
+            negative = (data[i] == '-');
+            i++;
+        }
+        long    mantissa = 0;
+        int     digits   = 0;
+        int     exponent = 0;
+        boolean valid    = false;
+        boolean fraction = false;
+        for ( ; i < to ; i++ )
+        {
+            int d = data[i] - '0';
+            if ( (d >= 0) && (d <= 9) )
+            {
+                mantissa = mantissa * 10 + d;
+                if ( mantissa != 0 ) { digits++; }
+                if ( fraction ) { exponent--; }
+                valid = true;
+            }
+            else if ( (data[i] == '.') && !fraction )
+            {
+                fraction = true;
+            }
+            else break;
+        }
+        if ( valid && (i < to) && ((data[i] == 'E') || (data[i] == 'e')) )
+        {
+            i++;
+            boolean negExp = false;
+            if ( (i < to) && ((data[i] == '-') || (data[i] == '+')) )
+            {
+                negExp = (data[i] == '-');
+                i++;
+            }
+            int exp = 0;
+            valid = (i < to);
+            for ( ; (i < to) && (exp < 1000) ; i++ )
+            {
+                int d = data[i] - '0';
+                if ( (d < 0) || (d > 9) ) break;
+                exp = exp * 10 + d;
+            }
+            exponent += negExp ? -exp : exp;
+        }
+        if ( !valid || (i != to) || (digits > MAX_DIGITS) || (Math.abs(exponent) >= POWERS_OF_TEN.length) )
+        {
+            // NaN, Infinity, or a number that the fast path cannot convert exactly
+            return Float.parseFloat(new String(data, from, to - from, StandardCharsets.US_ASCII));
+        }
+        double value = (exponent < 0) ? mantissa / POWERS_OF_TEN[-exponent]
+                                      : mantissa * POWERS_OF_TEN[exponent];
+        long   bits  = Double.doubleToRawLongBits(value);
+        if ( ((bits & FLOAT_ROUNDING_MASK) == FLOAT_HALFWAY) || ((value != 0) && (value < Float.MIN_NORMAL)) )
+        {
+            // rounding twice could round the wrong way
+            return Float.parseFloat(new String(data, from, to - from, StandardCharsets.US_ASCII));
+        }
+        return (float) (negative ? -value : value);
+    }
+
+
+    // initial size of the read buffer
+    private static final int      BUFFER_SIZE   = 1 << 16;
+    // maximum amount of significant digits that a double holds exactly
+    private static final int      MAX_DIGITS    = 15;
+    // bits of a double mantissa that are rounded away when converting to a float,
+    // and their value for a double exactly halfway between two floats
+    private static final long     FLOAT_ROUNDING_MASK = (1L << 29) - 1;
+    private static final long     FLOAT_HALFWAY       = 1L << 28;
+    // powers of ten that a double holds exactly
+    private static final double[] POWERS_OF_TEN = {
+        1e0,  1e1,  1e2,  1e3,  1e4,  1e5,  1e6,  1e7,  1e8,  1e9,  1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final File    file;
+    private float[]       bandFrequencies;
+    private int           frameCount, step;
+    private FileChannel   channel;
+    private byte[]        buffer;
+    private int           start, end, limit;
+    private boolean       eof;
+    private float         frameTime;
+}
@@ -0,0 +1,216 @@
+package analyser;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Ring buffer of spectrum information for passing analysis results
+ * from a single writer (the audio thread) to any number of readers
+ * (e.g., the render thread).
+ *
+ * The writer never waits for readers.
+ * Readers use optimistic reads, copy the data into their own buffers,
+ * and retry if the frame has been modified while it was copied.
+ * This way, readers never see partially written frames.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumHistory
+{
+    /**
+     * Creates a new spectrum history.
+     *
+     * @param size  the amount of spectrum frames to keep
+     */
+    public SpectrumHistory(int size)
+    {
+        frames       = new SpectrumInfo[size];
+        frameNumbers = new long[size];
+        locks        = new StampedLock[size];
+        for ( int i = 0 ; i < size ; i++ )
+        {
+            frames[i] = new SpectrumInfo();
+            locks[i]  = new StampedLock();
+        }
+        writeCount = 0;
+        writeStamp = 0;
+    }
+
+    /**
+     * Gets the size of the history.
+     *
+     * @return the amount of spectrum frames in the history
+     */
+    public int getSize()
+    {
+        return frames.length;
+    }
+
+    /**
+     * Gets the total amount of frames written to the history.
+     *
+     * @return the total amount of frames written since the last reset
+     */
+    public long getWriteCount()
+    {
+        return writeCount;
+    }
+
+    /**
+     * Resets the spectrum history.
+     * This must not be called while a frame is being written.
+     */
+    public void reset()
+    {
+        for ( int i = 0 ; i < frames.length ; i++ )
+        {
+            long stamp = locks[i].writeLock();
+            frames[i].reset();
+            frameNumbers[i] = -1;
+            locks[i].unlockWrite(stamp);
+        }
+        writeCount = 0;
+    }
+
+    /**
+     * Starts writing the next frame of the history.
+     * Only the writer thread may call this method,
+     * and every call has to be followed by {@link #endWrite()}.
+     *
+     * @return the spectrum information frame to fill
+     */
+    public SpectrumInfo beginWrite()
+    {
+        int slot = (int) (writeCount % frames.length);
+        writeStamp = locks[slot].writeLock();
+        frameNumbers[slot] = writeCount;
+        return frames[slot];
+    }
+
+    /**
+     * Finishes writing the current frame and publishes it to the readers.
+     */
+    public void endWrite()
+    {
+        int slot = (int) (writeCount % frames.length);
+        locks[slot].unlockWrite(writeStamp);
+        writeCount++;
+    }
+
+    /**
+     * Copies a consistent snapshot of a spectrum frame.
+     *
+     * @param age   the index of history (0: most recent)
+     * @param info  the spectrum information to copy the frame into
+     * @return <code>true</code> if the frame was copied,
+     *         <code>false</code> if there is no information
+     */
+    public boolean read(int age, SpectrumInfo info)
+    {
+        for ( int attempt = 0 ; attempt < MAX_READ_ATTEMPTS ; attempt++ )
+        {
+            long frameNumber = writeCount - 1 - age;
+            if ( (age >= frames.length) || (frameNumber < 0) ) return false;
+
+            int  slot  = (int) (frameNumber % frames.length);
+            long stamp = locks[slot].tryOptimisticRead();
+            if ( stamp == 0 ) continue; // frame is being written
+
+            boolean defined = frames[slot].isDefined();
+            info.copyFrom(frames[slot]);
+            if ( (frameNumbers[slot] == frameNumber) && locks[slot].validate(stamp) )
+            {
+                return defined;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies a consistent snapshot of a specific spectrum frame.
+     *
+     * @param frameNumber  the number of the frame (counted from the last reset)
+     * @param info         the spectrum information to copy the frame into
+     * @return <code>true</code> if the frame was copied,
+     *         <code>false</code> if the frame is not or no longer in the history
+     */
+    public boolean readFrame(long frameNumber, SpectrumInfo info)
+    {
+        for ( int attempt = 0 ; attempt < MAX_READ_ATTEMPTS ; attempt++ )
+        {
+            long count = writeCount;
+            if ( (frameNumber < 0) || (frameNumber >= count) || (frameNumber < count - frames.length) ) return false;
+
+            int  slot  = (int) (frameNumber % frames.length);
+            long stamp = locks[slot].tryOptimisticRead();
+            if ( stamp == 0 ) continue; // frame is being written
+
+            boolean defined = frames[slot].isDefined();
+            info.copyFrom(frames[slot]);
+            if ( (frameNumbers[slot] == frameNumber) && locks[slot].validate(stamp) )
+            {
+                return defined;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies a consistent snapshot of the frequency intensities of a spectrum frame.
+     *
+     * @param age        the index of history (0: most recent)
+     * @param intensity  the array to copy the intensities into
+     * @return the number of copied intensity values
+     *         or -1 if there is no information
+     */
+    public int readIntensity(int age, float[] intensity)
+    {
+        return readIntensity(age, intensity, null);
+    }
+
+    /**
+     * Copies a consistent snapshot of the frequency intensities and the time stamps of a spectrum frame.
+     *
+     * @param age        the index of history (0: most recent)
+     * @param intensity  the array to copy the intensities into
+     * @param times      the spectrum information to copy the time stamps into
+     *                   or <code>null</code> if the time stamps are not needed
+     * @return the number of copied intensity values
+     *         or -1 if there is no information
+     */
+    public int readIntensity(int age, float[] intensity, SpectrumInfo times)
+    {
+        for ( int attempt = 0 ; attempt < MAX_READ_ATTEMPTS ; attempt++ )
+        {
+            long frameNumber = writeCount - 1 - age;
+            if ( (age >= frames.length) || (frameNumber < 0) ) return -1;
+
+            int  slot  = (int) (frameNumber % frames.length);
+            long stamp = locks[slot].tryOptimisticRead();
+            if ( stamp == 0 ) continue; // frame is being written
+
+            float[] src = frames[slot].intensity;
+            int     len = -1;
+            if ( src != null )
+            {
+                len = Math.min(src.length, intensity.length);
+                System.arraycopy(src, 0, intensity, 0, len);
+            }
+            if ( times != null ) { times.copyTimes(frames[slot]); }
+            if ( (frameNumbers[slot] == frameNumber) && locks[slot].validate(stamp) )
+            {
+                return len;
+            }
+        }
+        return -1;
+    }
+
+
+    private static final int MAX_READ_ATTEMPTS = 16;
+
+    private final SpectrumInfo[] frames;
+    private final long[]         frameNumbers;
+    private final StampedLock[]  locks;
+    private volatile long        writeCount;
+    private long                 writeStamp;
+}
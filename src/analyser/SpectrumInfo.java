@@ -1,12 +1,12 @@
 package analyser;
 
-import ddf.minim.analysis.FFT;
-
 /**
  * Class with information about the spectrum at a specific time.
  * 
  * @author  Stefan Marks
  * @version 1.0 - 12.05.2013: Created
+ * @version 1.1 - 18.10.2026: Time stamps for measuring the latency
+ * @version 1.2 - 18.10.2026: Raw frequency bins are kept when a frame has none
  */
 public class SpectrumInfo 
 {
@@ -21,7 +21,7 @@ public class SpectrumInfo
     }
 
     /**
-     * Copies spectrum analysis data from an FFT analyser.
+     * Copies spectrum analysis data from the spectrum engine of an analyser.
      * 
      * @param posIdx   the position in ms in the audio file
      * @param posRel   the relative position in the audio file
@@ -29,28 +29,130 @@ public class SpectrumInfo
      */
     public void copySpectrumData(int posIdx, float posRel, SpectrumAnalyser analyser)
     {
-        FFT fft          = analyser.getFFT();
-        int spectrumSize = fft.avgSize();
+        copySpectrumData(posIdx, posRel, analyser.getEngine(), analyser.getSpectrumShaper());
+    }
+    
+    /**
+     * Copies spectrum analysis data from a spectrum engine.
+     * 
+     * @param posIdx   the position in ms in the audio file
+     * @param posRel   the relative position in the audio file
+     * @param engine   the spectrum engine
+     * @param shaper   the spectrum shaper to apply
+     */
+    public void copySpectrumData(int posIdx, float posRel, SpectrumEngine engine, SpectrumShaper shaper)
+    {
+        int spectrumSize = engine.getBandCount();
+        int rawSize      = engine.getRawBandCount();
        
         if ( (intensity == null) || (intensity.length != spectrumSize) )
         {
             intensity    = new float[spectrumSize];
-            intensityRaw = new float[fft.specSize()];
+        }
+        // frames without raw bins keep the array, so it is not reallocated for the next frame with them
+        intensityRawValid = (rawSize > 0);
+        if ( intensityRawValid && ((intensityRaw == null) || (intensityRaw.length != rawSize)) )
+        {
+            intensityRaw = new float[rawSize];
         }
         
         sampleIdx = posIdx;
         position  = posRel;
         
-        SpectrumShaper shaper = analyser.getSpectrumShaper();
-        float scale = MAX_SPECTRUM / fft.specSize() * 2;
-        for (int i = 0; i < spectrumSize; i++)
+        shapeData(shaper, engine.getBands(), intensity);
+        if ( intensityRawValid )
+        {
+            shapeData(shaper, engine.getRawBands(), intensityRaw);
+        }
+        
+        if ( engine.isStereo() )
+        {
+            if ( (intensityL == null) || (intensityL.length != spectrumSize) )
+            {
+                intensityL    = new float[spectrumSize];
+                intensityR    = new float[spectrumSize];
+                intensityMid  = new float[spectrumSize];
+                intensitySide = new float[spectrumSize];
+            }
+            shapeData(shaper, engine.getStereoBands(MaxFFT.LEFT),  intensityL);
+            shapeData(shaper, engine.getStereoBands(MaxFFT.RIGHT), intensityR);
+            shapeData(shaper, engine.getStereoBands(MaxFFT.MID),   intensityMid);
+            shapeData(shaper, engine.getStereoBands(MaxFFT.SIDE),  intensitySide);
+        }
+        else
+        {
+            intensityL = intensityR = intensityMid = intensitySide = null;
+        }
+    }
+    
+    /**
+     * Scales and shapes spectrum data.
+     * 
+     * @param shaper  the spectrum shaper to use
+     * @param src     the normalised spectrum data
+     * @param dst     the array for the shaped data
+     */
+    private static void shapeData(SpectrumShaper shaper, float[] src, float[] dst)
+    {
+        for (int i = 0; i < dst.length; i++)
+        {
+            dst[i] = src[i] * MAX_SPECTRUM;
+        }
+        shaper.shape(dst, dst, dst.length);
+    }
+    
+    /**
+     * Copies the data of another spectrum information instance.
+     * The arrays of this instance are only reallocated if their size differs.
+     * 
+     * @param other  the spectrum information to copy
+     */
+    public void copyFrom(SpectrumInfo other)
+    {
+        sampleIdx    = other.sampleIdx;
+        position     = other.position;
+        copyTimes(other);
+        intensity    = copyArray(other.intensity, intensity);
+        intensityRawValid = other.hasRawSpectrum();
+        if ( intensityRawValid )
         {
-            intensity[i] = shaper.shape(fft.getAvg(i) * scale);
+            intensityRaw = copyArray(other.intensityRaw, intensityRaw);
         }
-        for (int i = 0; i < fft.specSize(); i++)
+        
+        intensityL    = copyArray(other.intensityL,    intensityL);
+        intensityR    = copyArray(other.intensityR,    intensityR);
+        intensityMid  = copyArray(other.intensityMid,  intensityMid);
+        intensitySide = copyArray(other.intensitySide, intensitySide);
+    }
+    
+    /**
+     * Copies only the time stamps of another spectrum information instance.
+     * 
+     * @param other  the spectrum information to copy the time stamps of
+     */
+    public void copyTimes(SpectrumInfo other)
+    {
+        captureTime   = other.captureTime;
+        analysisStart = other.analysisStart;
+        analysisEnd   = other.analysisEnd;
+    }
+    
+    /**
+     * Copies the content of an array, reusing the destination array if possible.
+     * 
+     * @param src  the source array (can be <code>null</code>)
+     * @param dst  the destination array (can be <code>null</code>)
+     * @return the destination array or <code>null</code> if the source array is <code>null</code>
+     */
+    private static float[] copyArray(float[] src, float[] dst)
+    {
+        if ( src == null ) return null;
+        if ( (dst == null) || (dst.length != src.length) )
         {
-            intensityRaw[i] = shaper.shape(fft.getBand(i) * scale);
+            dst = new float[src.length];
         }
+        System.arraycopy(src, 0, dst, 0, src.length);
+        return dst;
     }
     
     /**
@@ -59,8 +161,11 @@ public class SpectrumInfo
     public void reset()
     {
         sampleIdx    = 0;
+        captureTime  = analysisStart = analysisEnd = 0;
         intensity    = null;
         intensityRaw = null;
+        intensityRawValid = false;
+        intensityL   = intensityR = intensityMid = intensitySide = null;
     }
     
     /**
@@ -73,14 +178,33 @@ public class SpectrumInfo
     {
         return intensity != null;
     }
+    
+    /**
+     * Checks if the dataset contains raw frequency bins.
+     * 
+     * @return <code>true</code> if {@link #intensityRaw} is valid,
+     *         <code>false</code> if not
+     */
+    public boolean hasRawSpectrum()
+    {
+        return intensityRawValid && (intensityRaw != null);
+    }
         
     
     // millisecond index into the sound file
     public int     sampleIdx;
     // relative play position of the soudn file
     public float   position;
+    // time stamps in ns (System.nanoTime) for measuring the latency:
+    // arrival of the last sample of the frame, start and end of the analysis
+    public long    captureTime, analysisStart, analysisEnd;
     // array of frequency intensities
     public float[] intensity;
-    // array of frequency intensities 
+    // array of raw frequency bin intensities (only valid if intensityRawValid is set)
     public float[] intensityRaw;
+    public boolean intensityRawValid;
+    // arrays of frequency intensities per channel (only for stereo analysis)
+    public float[] intensityL, intensityR;
+    // arrays of frequency intensities of mid (L+R) and side (L-R) signal (only for stereo analysis)
+    public float[] intensityMid, intensitySide;
 }
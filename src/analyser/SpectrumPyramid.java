@@ -0,0 +1,419 @@
+package analyser;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class for viewing a spectrum file at any time resolution.
+ *
+ * Like a mip-map, the pyramid consists of levels of decreasing time resolution.
+ * Level 0 is the file itself, and every frame of level <i>L</i>
+ * combines 2<sup>L</sup> consecutive frames of the file,
+ * once as the mean and once as the maximum of their intensities (see {@link Reduction}).
+ * The levels are built once, in parallel, when the pyramid is created.
+ * Afterwards, any range of frames can be reduced to any amount of rows
+ * by combining the largest frames of the levels that fit into each row,
+ * so the time for a request depends on the amount of rows,
+ * not on the length of the file or the range.
+ * <p>
+ * To limit the memory, the finest levels are left out when they would contain more than
+ * {@link #MAX_LEVEL_VALUES} intensities. Requests that need such a level,
+ * e.g., zooming into a short range, read the frames of the file instead.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumPyramid
+{
+    /**
+     * Enumeration of the ways to combine frames into a row.
+     */
+    public enum Reduction
+    {
+        /** average intensity, like the rows of {@link SpectrumFile#read(int)} */
+        MEAN,
+        /** peak intensity, which keeps short events visible */
+        MAX
+    }
+
+
+    /**
+     * Creates the pyramid of a spectrum file.
+     *
+     * @param file         the spectrum file
+     * @param parallelism  the amount of threads to use for building the levels
+     *                     (0: amount of processors)
+     */
+    public SpectrumPyramid(SpectrumFile file, int parallelism)
+    {
+        this.file  = file;
+        bandCount  = file.getBandCount();
+        frameCount = file.getFrameCount();
+
+        // the highest level has a single frame
+        int levels = 1;
+        while ( getLevelFrameCount(levels - 1) > 1 )
+        {
+            levels++;
+        }
+        int first = 1;
+        while ( (first < levels - 1) && ((long) getLevelFrameCount(first) * bandCount > MAX_LEVEL_VALUES) )
+        {
+            first++;
+        }
+        firstLevel = first;
+        mean       = new float[levels][];
+        max        = new float[levels][];
+
+        ForkJoinPool pool = new ForkJoinPool((parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors());
+        try
+        {
+            for ( int level = firstLevel ; level < levels ; level++ )
+            {
+                int count = getLevelFrameCount(level);
+                mean[level] = new float[count * bandCount];
+                max[level]  = new float[count * bandCount];
+                pool.invoke(new LevelTask(level, 0, count));
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Gets the spectrum file of the pyramid.
+     *
+     * @return the spectrum file
+     */
+    public SpectrumFile getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Gets the amount of frequency bands.
+     *
+     * @return the amount of frequency bands
+     */
+    public int getBandCount()
+    {
+        return bandCount;
+    }
+
+    /**
+     * Gets the amount of frames of the file.
+     *
+     * @return the amount of frames
+     */
+    public int getFrameCount()
+    {
+        return frameCount;
+    }
+
+    /**
+     * Gets the amount of levels, including level 0.
+     *
+     * @return the amount of levels
+     */
+    public int getLevelCount()
+    {
+        return mean.length;
+    }
+
+    /**
+     * Gets the amount of frames of a level.
+     *
+     * @param level  the level
+     * @return the amount of frames of the level
+     */
+    public int getLevelFrameCount(int level)
+    {
+        return (int) (((long) frameCount + (1L << level) - 1) >> level);
+    }
+
+    /**
+     * Gets the amount of memory used by the levels.
+     *
+     * @return the amount of memory in bytes
+     */
+    public long getMemorySize()
+    {
+        long size = 0;
+        for ( int level = firstLevel ; level < mean.length ; level++ )
+        {
+            size += 4L * (mean[level].length + max[level].length);
+        }
+        return size;
+    }
+
+    /**
+     * Reduces the whole file to a fixed amount of rows.
+     *
+     * @param rowCount   the amount of rows
+     * @param reduction  the way of combining the frames of each row
+     * @return the intensities of the frequency bands of each row
+     */
+    public float[][] getRows(int rowCount, Reduction reduction)
+    {
+        return getRows(0, frameCount, new float[rowCount][bandCount], reduction);
+    }
+
+    /**
+     * Reduces a range of frames to a fixed amount of rows.
+     * Each row covers an equal part of the range.
+     * When the range has fewer frames than rows, frames are repeated.
+     * <p>
+     * The frames of a row are split into the largest aligned blocks that the levels contain,
+     * like a query of a segment tree, so every row combines at most two frames per level
+     * and a few frames of the file at its ends, and the result is the same
+     * as combining all frames of the row one by one.
+     *
+     * @param start      the index of the first frame of the range
+     * @param count      the amount of frames of the range
+     * @param rows       the array for the intensities of the frequency bands of each row
+     * @param reduction  the way of combining the frames of each row
+     * @return the array of rows
+     */
+    public float[][] getRows(int start, int count, float[][] rows, Reduction reduction)
+    {
+        if ( frameCount == 0 ) return rows;
+        start = Math.max(0, Math.min(start, frameCount - 1));
+        count = Math.max(1, Math.min(count, frameCount - start));
+        float[] frames = new float[(1 << firstLevel) * bandCount];
+        for ( int r = 0 ; r < rows.length ; r++ )
+        {
+            int     from = start + (int) ((long) count * r / rows.length);
+            int     to   = Math.max(from + 1, start + (int) ((long) count * (r + 1) / rows.length));
+            float[] row  = rows[r];
+            for ( int band = 0 ; band < bandCount ; band++ )
+            {
+                row[band] = (reduction == Reduction.MAX) ? Float.NEGATIVE_INFINITY : 0;
+            }
+            int f = from;
+            while ( f < to )
+            {
+                int level = getBlockLevel(f, to);
+                if ( level < firstLevel )
+                {
+                    // read the file up to the next block of the first level
+                    int next = Math.min(to, ((f >> firstLevel) + 1) << firstLevel);
+                    file.getFrames(f, next - f, frames);
+                    for ( int i = 0 ; i < next - f ; i++ )
+                    {
+                        combine(frames, i * bandCount, 1, row, reduction);
+                    }
+                    f = next;
+                }
+                else
+                {
+                    float[] data = (reduction == Reduction.MAX) ? max[level] : mean[level];
+                    int     size = Math.min(1 << level, frameCount - f);
+                    combine(data, (f >> level) * bandCount, size, row, reduction);
+                    f += size;
+                }
+            }
+            if ( reduction == Reduction.MEAN )
+            {
+                for ( int band = 0 ; band < bandCount ; band++ )
+                {
+                    row[band] /= to - from;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Finds the highest level with a frame that starts at a given frame
+     * and ends within a range.
+     *
+     * @param from  the index of the first frame of the range
+     * @param to    the index of the frame after the range
+     * @return the level
+     */
+    private int getBlockLevel(int from, int to)
+    {
+        int level = (from == 0) ? mean.length - 1 : Math.min(Integer.numberOfTrailingZeros(from), mean.length - 1);
+        // the last frame of a level can be shorter than the others
+        while ( (level > 0) && (Math.min((long) from + (1L << level), frameCount) > to) )
+        {
+            level--;
+        }
+        return level;
+    }
+
+    /**
+     * Adds the intensities of a frame to a row.
+     *
+     * @param src        the intensities of the frames
+     * @param idx        the index of the first band of the frame
+     * @param size       the amount of file frames that the frame combines
+     * @param row        the intensities of the row
+     * @param reduction  the way of combining the frames
+     */
+    private void combine(float[] src, int idx, int size, float[] row, Reduction reduction)
+    {
+        if ( reduction == Reduction.MAX )
+        {
+            for ( int band = 0 ; band < bandCount ; band++ )
+            {
+                if ( src[idx + band] > row[band] ) { row[band] = src[idx + band]; }
+            }
+        }
+        else
+        {
+            // sum of the intensities, divided by the length of the row at the end
+            for ( int band = 0 ; band < bandCount ; band++ )
+            {
+                row[band] += src[idx + band] * size;
+            }
+        }
+    }
+
+    /**
+     * Combines consecutive frames.
+     *
+     * @param src        the intensities of the frames, frame after frame
+     * @param count      the amount of frames
+     * @param dst        the array for the combined intensities
+     * @param dstIdx     the index of the first band in the array
+     * @param reduction  the way of combining the frames
+     */
+    private void reduce(float[] src, int count, float[] dst, int dstIdx, Reduction reduction)
+    {
+        for ( int band = 0 ; band < bandCount ; band++ )
+        {
+            dst[dstIdx + band] = (reduction == Reduction.MAX) ? Float.NEGATIVE_INFINITY : 0;
+        }
+        for ( int f = 0 ; f < count ; f++ )
+        {
+            int idx = f * bandCount;
+            for ( int band = 0 ; band < bandCount ; band++ )
+            {
+                float v = src[idx + band];
+                if ( reduction == Reduction.MAX )
+                {
+                    if ( v > dst[dstIdx + band] ) { dst[dstIdx + band] = v; }
+                }
+                else
+                {
+                    dst[dstIdx + band] += v;
+                }
+            }
+        }
+        if ( reduction == Reduction.MEAN )
+        {
+            for ( int band = 0 ; band < bandCount ; band++ )
+            {
+                dst[dstIdx + band] /= count;
+            }
+        }
+    }
+
+
+    /**
+     * Task for building a range of frames of a level.
+     * The first level is built from the frames of the file,
+     * every other level from the level below.
+     * Ranges that are too large are split into two subtasks.
+     */
+    private class LevelTask extends RecursiveAction
+    {
+        public LevelTask(int level, int startFrame, int endFrame)
+        {
+            this.level      = level;
+            this.startFrame = startFrame;
+            this.endFrame   = endFrame;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ( (long) (endFrame - startFrame) << (level - getSourceLevel()) > CHUNK_FRAMES )
+            {
+                int middle = (startFrame + endFrame) / 2;
+                invokeAll(new LevelTask(level, startFrame, middle),
+                          new LevelTask(level, middle, endFrame));
+                return;
+            }
+
+            int     srcLevel = getSourceLevel();
+            int     factor   = 1 << (level - srcLevel);
+            int     srcCount = getLevelFrameCount(srcLevel);
+            float[] frames   = (srcLevel == 0) ? new float[factor * bandCount] : null;
+            for ( int frame = startFrame ; frame < endFrame ; frame++ )
+            {
+                int from  = frame * factor;
+                int count = Math.min(factor, srcCount - from);
+                int idx   = frame * bandCount;
+                if ( srcLevel == 0 )
+                {
+                    file.getFrames(from, count, frames);
+                    reduce(frames, count, mean[level], idx, Reduction.MEAN);
+                    reduce(frames, count, max[level],  idx, Reduction.MAX);
+                }
+                else
+                {
+                    // the frames below are already reduced, so combine them pairwise
+                    float[] srcMean = mean[srcLevel];
+                    float[] srcMax  = max[srcLevel];
+                    int     src     = from * bandCount;
+                    // the last frame of a level may combine fewer frames of the file
+                    float   w0      = 1;
+                    float   w1      = 0;
+                    if ( count > 1 )
+                    {
+                        int size0 = 1 << srcLevel;
+                        int size1 = Math.min(size0, frameCount - ((from + 1) << srcLevel));
+                        w0 = (float) size0 / (size0 + size1);
+                        w1 = 1 - w0;
+                    }
+                    for ( int band = 0 ; band < bandCount ; band++ )
+                    {
+                        float m = srcMean[src + band] * w0;
+                        float x = srcMax[src + band];
+                        if ( count > 1 )
+                        {
+                            m += srcMean[src + bandCount + band] * w1;
+                            x  = Math.max(x, srcMax[src + bandCount + band]);
+                        }
+                        mean[level][idx + band] = m;
+                        max[level][idx + band]  = x;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gets the level that this level is built from.
+         *
+         * @return the source level
+         */
+        private int getSourceLevel()
+        {
+            return (level == firstLevel) ? 0 : level - 1;
+        }
+
+        private static final long serialVersionUID = 1L;
+
+        private final int level, startFrame, endFrame;
+    }
+
+
+    /**
+     * Maximum amount of intensities in a level.
+     * Each level has half the size of the level below,
+     * so the levels of both reductions use at most 64MB.
+     */
+    public static final int MAX_LEVEL_VALUES = 1 << 22;
+
+    // amount of file frames that are combined in one task
+    private static final int CHUNK_FRAMES = 1 << 12;
+
+    private final SpectrumFile file;
+    private final int          bandCount, frameCount;
+    private final int          firstLevel;
+    private final float[][]    mean, max;
+}
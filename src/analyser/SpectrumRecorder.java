@@ -0,0 +1,493 @@
+package analyser;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Analysis stage that records the live spectrum into binary spectrum files.
+ *
+ * The analysis thread copies the intensities of every frame into a preallocated ring of frames
+ * and never waits: if the ring is full because the writer has fallen behind, the frame is dropped and counted.
+ * A separate writer thread regularly takes all frames that have arrived in the meantime
+ * and appends them to the file through the buffered {@link SpectrumFile.Writer},
+ * so the file is written in large blocks.
+ * The header of the file is updated about every second,
+ * so the recording can already be opened while it is still running.
+ * <p>
+ * When the band layout of the analyser changes, e.g., with a different spectrum engine,
+ * the current file is finished and the recording continues in a new file
+ * with a running number appended to the name.
+ * <p>
+ * The recorder can apply an {@link AdaptiveGain} to every frame after recording it (see {@link #setGain(AdaptiveGain)}).
+ * The recorded frames are the intensities before the gain, and the gain states are written
+ * into a state file next to each recording (see {@link AdaptiveGain#getStateFile(File)}),
+ * so the recording can be replayed with the same gain curve.
+ * Since the recorder applies the gain itself, it knows the exact state for every recorded frame.
+ * A state is only written when the gain does not simply continue from the last recorded frame:
+ * at the start of a file, when the gain is switched on or off, reset, or restored, and after dropped frames.
+ * <p>
+ * The ring has a single writer, so the recorder must only be part of one analyser at a time.
+ * To move it to another analyser, remove it from the old analyser first:
+ * {@link SpectrumAnalyser#removeStage(SpectrumAnalyser.Stage)} waits for a frame that is still passing the recorder.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumRecorder implements SpectrumAnalyser.Stage
+{
+    /**
+     * Class for the ring of frames of one band layout.
+     * There is a single writer (the analysis thread) and a single reader (the writer thread).
+     */
+    private static class Buffer
+    {
+        public Buffer(int capacity, float[] bandFrequencies, float sampleRate, float frameRate)
+        {
+            this.bandFrequencies = bandFrequencies;
+            this.sampleRate      = sampleRate;
+            this.frameRate       = frameRate;
+            this.capacity        = capacity;
+            bands      = bandFrequencies.length;
+            data       = new float[capacity * bands];
+            writeCount = 0;
+            readCount  = 0;
+            gainStates = new ConcurrentLinkedQueue<GainState>();
+        }
+
+        public final float[]  bandFrequencies;
+        public final float    sampleRate, frameRate;
+        public final int      capacity, bands;
+        public final float[]  data;
+        // frames added by the analysis thread and frames taken by the writer thread
+        public volatile long  writeCount, readCount;
+        // gain states for the state file, added before their frame
+        public final ConcurrentLinkedQueue<GainState> gainStates;
+    }
+
+
+    /**
+     * Class for a gain state that applies from a recorded frame on.
+     */
+    private static class GainState
+    {
+        public GainState(long frame, AdaptiveGain.State state)
+        {
+            this.frame = frame;
+            this.state = state;
+        }
+
+        public final long               frame;
+        public final AdaptiveGain.State state;
+    }
+
+
+    /**
+     * Creates a new spectrum recorder.
+     * The recorder starts writing when it has been started with {@link #start()}
+     * and added to an analyser with {@link SpectrumAnalyser#addStage(SpectrumAnalyser.Stage)}.
+     *
+     * @param file            the file to record into
+     * @param encoding        the encoding of the intensities
+     * @param bufferDuration  the time span of frames that the writer may fall behind in s
+     */
+    public SpectrumRecorder(File file, SpectrumFile.Encoding encoding, float bufferDuration)
+    {
+        this.file           = file;
+        this.encoding       = encoding;
+        this.bufferDuration = bufferDuration;
+        buffer        = null;
+        currentFile   = null;
+        fileCount     = 0;
+        frame         = null;
+        gain          = null;
+        recordedGain  = null;
+        gainBuffer    = null;
+        gainFrames    = 0;
+        stateWriter   = null;
+        droppedFrames = 0;
+        writtenFrames = 0;
+        stopped       = false;
+        finished      = false;
+        error         = null;
+        thread        = null;
+    }
+
+    @Override
+    public void reset(SpectrumAnalyser analyser)
+    {
+        AdaptiveGain g = gain;
+        if ( g != null ) { g.reset(analyser); }
+        SpectrumEngine engine = analyser.getEngine();
+        if ( engine == null ) return;
+
+        float[] frequencies = new float[engine.getBandCount()];
+        for ( int band = 0 ; band < frequencies.length ; band++ )
+        {
+            frequencies[band] = engine.getBandFrequency(band);
+        }
+        Buffer b = buffer;
+        if ( (b == null) || !Arrays.equals(b.bandFrequencies, frequencies) ||
+             (b.frameRate != analyser.getAnalyseFrequency()) || (b.sampleRate != analyser.getSampleRate()) )
+        {
+            // the writer thread finishes the frames of the old buffer and starts a new file
+            int frameRate = analyser.getAnalyseFrequency();
+            buffer = new Buffer(Math.max(1, (int) Math.ceil(bufferDuration * frameRate)),
+                                frequencies, analyser.getSampleRate(), frameRate);
+        }
+    }
+
+    @Override
+    public void process(SpectrumInfo info)
+    {
+        AdaptiveGain g = gain;
+        record(info, g);
+        if ( g != null ) { g.process(info); }
+    }
+
+    /**
+     * Records a frame.
+     *
+     * @param info  the spectrum information of the frame
+     * @param g     the gain that is applied to the frame afterwards or <code>null</code> if there is no gain
+     */
+    private void record(SpectrumInfo info, AdaptiveGain g)
+    {
+        Buffer  b         = buffer;
+        float[] intensity = info.intensity;
+        if ( (b == null) || stopped ) return;
+        long frame = b.writeCount;
+        if ( (intensity == null) || (intensity.length != b.bands) || (frame - b.readCount >= b.capacity) )
+        {
+            droppedFrames++;
+            // the gain continues without the frame, so the state has to be written again
+            gainFrames = -1;
+            return;
+        }
+        recordGainState(b, frame, g);
+        System.arraycopy(intensity, 0, b.data, (int) (frame % b.capacity) * b.bands, b.bands);
+        // publishing the count makes the frame visible to the writer thread
+        b.writeCount = frame + 1;
+    }
+
+    /**
+     * Adds the state of the gain to a buffer if the gain does not continue from the last recorded frame.
+     * This runs before the gain processes the frame,
+     * so the state is exactly the state that the gain applies to the frame.
+     *
+     * @param b      the buffer
+     * @param frame  the index of the frame in the buffer
+     * @param g      the gain that is applied to the frame or <code>null</code> if there is no gain
+     */
+    private void recordGainState(Buffer b, long frame, AdaptiveGain g)
+    {
+        if ( (g == recordedGain) && (b == gainBuffer) && ((g == null) || (g.getFrameCount() == gainFrames)) )
+        {
+            gainFrames++;
+            return;
+        }
+        if ( (g != null) || ((recordedGain != null) && (b == gainBuffer)) )
+        {
+            // only allocates when the gain changes
+            b.gainStates.add(new GainState(frame, (g != null) ? g.getState(new AdaptiveGain.State()) : null));
+        }
+        recordedGain = g;
+        gainBuffer   = b;
+        gainFrames   = (g != null) ? g.getFrameCount() + 1 : 0;
+    }
+
+    /**
+     * Sets the gain that the recorder applies to every frame after recording it,
+     * whether the frame is recorded or not.
+     * The gain must not be a stage of the analyser at the same time.
+     * The gain is reset together with the recorder.
+     *
+     * @param gain  the gain or <code>null</code> to not apply a gain
+     */
+    public void setGain(AdaptiveGain gain)
+    {
+        this.gain = gain;
+    }
+
+    /**
+     * Starts the writer thread.
+     */
+    public synchronized void start()
+    {
+        if ( thread != null ) return;
+        thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                write();
+            }
+        }, "SpectrumRecorder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops recording.
+     * The writer thread writes the remaining frames and closes the file in the background,
+     * so this method returns immediately.
+     * The recorder should also be removed from the analyser.
+     */
+    public void stop()
+    {
+        stopped = true;
+        Thread t = thread;
+        if ( t != null ) { LockSupport.unpark(t); }
+    }
+
+    /**
+     * Waits until the writer thread has finished, e.g., when the application is closed.
+     *
+     * @param timeout  the maximum time to wait in ms
+     * @return <code>true</code> if the writer thread has finished
+     * @throws InterruptedException if the thread has been interrupted while waiting
+     */
+    public boolean awaitFinished(long timeout) throws InterruptedException
+    {
+        Thread t = thread;
+        if ( t != null ) { t.join(timeout); }
+        return finished;
+    }
+
+    /**
+     * Checks if the writer thread has finished, after {@link #stop()} or because of an error.
+     *
+     * @return <code>true</code> if the writer thread has finished
+     */
+    public boolean isFinished()
+    {
+        return finished;
+    }
+
+    /**
+     * Gets the error that has stopped the recording.
+     *
+     * @return the error or <code>null</code> if there was no error
+     */
+    public Exception getError()
+    {
+        return error;
+    }
+
+    /**
+     * Gets the file that is written at the moment.
+     *
+     * @return the file or <code>null</code> if no frame has been written yet
+     */
+    public File getCurrentFile()
+    {
+        return currentFile;
+    }
+
+    /**
+     * Gets the amount of frames that have been written into the files.
+     *
+     * @return the amount of written frames
+     */
+    public long getWrittenFrameCount()
+    {
+        return writtenFrames;
+    }
+
+    /**
+     * Gets the amount of frames that could not be recorded
+     * because the ring was full or the band layout did not match.
+     *
+     * @return the amount of dropped frames
+     */
+    public long getDroppedFrameCount()
+    {
+        return droppedFrames;
+    }
+
+    /**
+     * Main method of the writer thread.
+     */
+    private void write()
+    {
+        SpectrumFile.Writer writer     = null;
+        Buffer              current    = null;
+        long                commitTime = System.nanoTime();
+        try
+        {
+            while ( true )
+            {
+                // frames that have arrived before the stop request are still written
+                boolean stopping = stopped;
+                Buffer  b        = buffer;
+                if ( (current != null) && (b != current) )
+                {
+                    // band layout has changed: finish the old file
+                    writer = writeFrames(current, writer);
+                    closeFile(writer);
+                    writer = null;
+                }
+                current = b;
+                if ( current != null )
+                {
+                    writer = writeFrames(current, writer);
+                }
+                if ( stopping ) break;
+
+                long now = System.nanoTime();
+                if ( (writer != null) && (now - commitTime >= COMMIT_INTERVAL) )
+                {
+                    writer.commit();
+                    commitTime = now;
+                }
+                LockSupport.parkNanos(this, WRITE_INTERVAL);
+            }
+        }
+        catch (IOException e)
+        {
+            error = e;
+            LOG.log(Level.WARNING, "Could not record spectrum into {0} ({1})", new Object[] {currentFile, e});
+        }
+        finally
+        {
+            stopped = true;
+            try
+            {
+                closeFile(writer);
+            }
+            catch (IOException e)
+            {
+                if ( error == null ) { error = e; }
+            }
+            finished = true;
+        }
+    }
+
+    /**
+     * Writes all frames of a buffer that have not been written yet.
+     * The file is only created when there is a frame to write.
+     *
+     * @param b       the buffer
+     * @param writer  the writer of the current file or <code>null</code> if there is no file yet
+     * @return the writer of the current file
+     * @throws IOException if the frames could not be written
+     */
+    private SpectrumFile.Writer writeFrames(Buffer b, SpectrumFile.Writer writer) throws IOException
+    {
+        long read  = b.readCount;
+        long write = b.writeCount;
+        if ( read == write ) return writer;
+        if ( writer == null )
+        {
+            currentFile = getNextFile();
+            writer      = new SpectrumFile.Writer(currentFile, b.bandFrequencies, b.sampleRate, b.frameRate, encoding);
+            LOG.log(Level.INFO, "Recording spectrum into {0}", currentFile);
+        }
+        if ( (frame == null) || (frame.length != b.bands) ) { frame = new float[b.bands]; }
+        for ( ; read < write ; read++ )
+        {
+            System.arraycopy(b.data, (int) (read % b.capacity) * b.bands, frame, 0, b.bands);
+            writer.writeFrame(frame);
+        }
+        writtenFrames = writtenFrames + (write - b.readCount);
+        // the slots can be used again
+        b.readCount   = write;
+        writeGainStates(b, write);
+        return writer;
+    }
+
+    /**
+     * Writes the gain states of the frames that have been written into the state file of the current file.
+     * The state file is only created when there is a state to write.
+     *
+     * @param b      the buffer
+     * @param write  the amount of frames of the buffer that have been written
+     * @throws IOException if the states could not be written
+     */
+    private void writeGainStates(Buffer b, long write) throws IOException
+    {
+        GainState s = b.gainStates.peek();
+        if ( (s == null) || (s.frame >= write) ) return;
+        if ( stateWriter == null )
+        {
+            stateWriter = new PrintWriter(new FileWriter(AdaptiveGain.getStateFile(currentFile)));
+        }
+        for ( ; (s != null) && (s.frame < write) ; s = b.gainStates.peek() )
+        {
+            b.gainStates.poll();
+            stateWriter.println(AdaptiveGain.getStateLine(s.frame, s.state));
+        }
+        stateWriter.flush();
+        if ( stateWriter.checkError() )
+        {
+            throw new IOException("Could not write gain states of " + currentFile);
+        }
+    }
+
+    /**
+     * Closes the current file and its state file.
+     *
+     * @param writer  the writer of the current file or <code>null</code> if there is no file
+     * @throws IOException if the file could not be closed
+     */
+    private void closeFile(SpectrumFile.Writer writer) throws IOException
+    {
+        if ( stateWriter != null )
+        {
+            stateWriter.close();
+            stateWriter = null;
+        }
+        if ( writer != null ) { writer.close(); }
+    }
+
+    /**
+     * Determines the name of the next file.
+     * The first file has the name given to the recorder,
+     * the following files have a running number appended.
+     *
+     * @return the next file
+     */
+    private File getNextFile()
+    {
+        fileCount++;
+        if ( fileCount == 1 ) return file;
+        String name = file.getName();
+        int    dot  = name.lastIndexOf('.');
+        String ext  = (dot > 0) ? name.substring(dot) : "";
+        if ( dot > 0 ) { name = name.substring(0, dot); }
+        return new File(file.getAbsoluteFile().getParentFile(), name + "_" + fileCount + ext);
+    }
+
+
+    // time in ns between writing the frames that have arrived
+    private static final long WRITE_INTERVAL  = 100000000L;
+    // time in ns between updates of the header
+    private static final long COMMIT_INTERVAL = 1000000000L;
+
+    private final File                  file;
+    private final SpectrumFile.Encoding encoding;
+    private final float                 bufferDuration;
+    private volatile Buffer             buffer;
+    private volatile File               currentFile;
+    private int                         fileCount;
+    private float[]                     frame;
+    private volatile AdaptiveGain       gain;
+    // gain of the last recorded frame, its buffer, and the expected frame counter of the gain (analysis thread)
+    private AdaptiveGain                recordedGain;
+    private Buffer                      gainBuffer;
+    private long                        gainFrames;
+    // writer of the state file of the current file (writer thread)
+    private PrintWriter                 stateWriter;
+    private volatile long               droppedFrames, writtenFrames;
+    private volatile boolean            stopped, finished;
+    private volatile Exception          error;
+    private Thread                      thread;
+
+    private static final Logger LOG = Logger.getLogger(SpectrumRecorder.class.getName());
+}
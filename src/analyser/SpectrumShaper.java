@@ -7,6 +7,7 @@ package analyser;
  * 
  * @author  Stefan Marks
  * @version 1.0 - 16.06.2013: Created
+ * @version 1.1 - 18.10.2026: Added bulk shaping
  */
 public abstract class SpectrumShaper 
 {
@@ -30,6 +31,22 @@ public abstract class SpectrumShaper
      */
     public abstract float  shape(float value);
     
+    /**
+     * Shapes an array of input values.
+     * Input and output array can be the same.
+     * 
+     * @param in   the input values
+     * @param out  the array for the shaped output values
+     * @param n    the number of values to shape
+     */
+    public void shape(float[] in, float[] out, int n)
+    {
+        for ( int i = 0 ; i < n ; i++ )
+        {
+            out[i] = shape(in[i]);
+        }
+    }
+    
     
     private static class LinearSpectrumShaper extends SpectrumShaper
     {
@@ -41,6 +58,15 @@ public abstract class SpectrumShaper
         {
             return value;
         }
+
+        @Override
+        public void shape(float[] in, float[] out, int n)
+        {
+            if ( in != out )
+            {
+                System.arraycopy(in, 0, out, 0, n);
+            }
+        }
     }
 
     private static class SquareRootSpectrumShaper extends SpectrumShaper
@@ -53,12 +79,47 @@ public abstract class SpectrumShaper
         {
             return (float) Math.sqrt(value);
         }
+
+        @Override
+        public void shape(float[] in, float[] out, int n)
+        {
+            // Math.sqrt is a hardware intrinsic, a table would not be faster
+            for ( int i = 0 ; i < n ; i++ )
+            {
+                out[i] = (float) Math.sqrt(in[i]);
+            }
+        }
     }
     
+    /**
+     * Logarithmic shaper, mapping 12 octaves of intensity to the range 0 to 1.
+     * The bulk shaping function splits values into exponent and mantissa
+     * and uses a linearly interpolated table for the logarithm of the mantissa.
+     * The absolute error to the exact function is below 1e-6.
+     */
     private static class LogSpectrumShaper extends SpectrumShaper
     {
         private static final float log2 = (float) Math.log(2);
         
+        // amount of mantissa bits used for indexing the table
+        private static final int   TABLE_BITS  = 8;
+        private static final int   FRAC_BITS   = 23 - TABLE_BITS;
+        private static final float FRAC_SCALE  = 1.0f / (1 << FRAC_BITS);
+        // values below 2^-12 are shaped to 0
+        private static final int   MIN_EXPONENT = 127 - 12;
+        // log2(1 + i / 2^TABLE_BITS) / 12, with one extra entry for interpolation
+        private static final float[] LOG_TABLE = createTable();
+        
+        private static float[] createTable()
+        {
+            float[] table = new float[(1 << TABLE_BITS) + 1];
+            for ( int i = 0 ; i < table.length ; i++ )
+            {
+                table[i] = (float) (Math.log(1 + (double) i / (1 << TABLE_BITS)) / Math.log(2) / 12);
+            }
+            return table;
+        }
+        
         @Override
         public String getName() { return "Logarithmic"; }
 
@@ -67,5 +128,31 @@ public abstract class SpectrumShaper
         {
             return (float) Math.max(0, 1 + (Math.log(value) / log2) / 12);
         }
+
+        @Override
+        public void shape(float[] in, float[] out, int n)
+        {
+            for ( int i = 0 ; i < n ; i++ )
+            {
+                int bits     = Float.floatToRawIntBits(in[i]);
+                int exponent = bits >>> 23; // also catches negative values (sign bit set)
+                if ( exponent < MIN_EXPONENT )
+                {
+                    out[i] = 0;
+                }
+                else if ( exponent >= 0xFF )
+                {
+                    // negative, infinite, or NaN: use exact function
+                    out[i] = shape(in[i]);
+                }
+                else
+                {
+                    int   idx  = (bits >>> FRAC_BITS) & ((1 << TABLE_BITS) - 1);
+                    float frac = (bits & ((1 << FRAC_BITS) - 1)) * FRAC_SCALE;
+                    float log  = LOG_TABLE[idx] + (LOG_TABLE[idx + 1] - LOG_TABLE[idx]) * frac;
+                    out[i] = (exponent - MIN_EXPONENT) / 12.0f + log;
+                }
+            }
+        }
     }
 }
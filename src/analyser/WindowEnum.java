@@ -0,0 +1,137 @@
+package analyser;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Enumeration for the analysis window selection choices.
+ *
+ * The coefficients of a window are calculated once per window size
+ * and cached, so applying a window is a single multiplication per sample.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public enum WindowEnum
+{
+    HANN(           "Hann"),
+    HAMMING(        "Hamming"),
+    BLACKMAN_HARRIS("Blackman-Harris"),
+    KAISER(         "Kaiser");
+
+
+    private WindowEnum(String name)
+    {
+        this.name = name;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+
+
+    /**
+     * Gets the coefficient table of the window for a specific size.
+     * The table is shared and must not be modified.
+     *
+     * @param size  the size of the window
+     * @return the window coefficients
+     */
+    public float[] getTable(int size)
+    {
+        Long    key   = ((long) ordinal() << 32) | size;
+        float[] table = TABLES.get(key);
+        if ( table == null )
+        {
+            table = createTable(size);
+            float[] existing = TABLES.putIfAbsent(key, table);
+            if ( existing != null ) { table = existing; }
+        }
+        return table;
+    }
+
+
+    /**
+     * Calculates the coefficient table of the window.
+     * The windows are symmetric, the same way as the Minim window functions.
+     *
+     * @param size  the size of the window
+     * @return the window coefficients
+     */
+    private float[] createTable(int size)
+    {
+        float[] table = new float[size];
+        double  scale = 2 * Math.PI / Math.max(1, size - 1);
+        double  i0    = bessel0(KAISER_BETA);
+        for ( int i = 0 ; i < size ; i++ )
+        {
+            double x = scale * i;
+            double w;
+            switch ( this )
+            {
+                case HAMMING :
+                    w = 0.54 - 0.46 * Math.cos(x);
+                    break;
+                case BLACKMAN_HARRIS :
+                    w = 0.35875 - 0.48829 * Math.cos(x) + 0.14128 * Math.cos(2 * x) - 0.01168 * Math.cos(3 * x);
+                    break;
+                case KAISER :
+                    double r = 2.0 * i / Math.max(1, size - 1) - 1;
+                    w = bessel0(KAISER_BETA * Math.sqrt(1 - r * r)) / i0;
+                    break;
+                default :
+                    w = 0.5 * (1 - Math.cos(x));
+                    break;
+            }
+            table[i] = (float) w;
+        }
+        return table;
+    }
+
+
+    /**
+     * Calculates the zeroth order modified Bessel function of the first kind.
+     *
+     * @param x  the argument
+     * @return the function value
+     */
+    private static double bessel0(double x)
+    {
+        double sum  = 1;
+        double term = 1;
+        double half = x / 2;
+        for ( int k = 1 ; term > sum * 1e-12 ; k++ )
+        {
+            term *= (half / k) * (half / k);
+            sum  += term;
+        }
+        return sum;
+    }
+
+
+    /**
+     * Multiplies samples with window coefficients.
+     *
+     * @param table    the window coefficients
+     * @param samples  the samples to apply the window to
+     */
+    public static void apply(float[] table, float[] samples)
+    {
+        int len = Math.min(table.length, samples.length);
+        for ( int i = 0 ; i < len ; i++ )
+        {
+            samples[i] *= table[i];
+        }
+    }
+
+
+    // shape parameter of the Kaiser window (side lobes approx. -60dB)
+    private static final double KAISER_BETA = 8.6;
+
+    private static final ConcurrentMap<Long, float[]> TABLES = new ConcurrentHashMap<Long, float[]>();
+
+    private final String name;
+}
@@ -1,5 +1,8 @@
 package main;
 
+import analyser.SpectrumEngineEnum;
+import analyser.SpectrumPyramid;
+import analyser.WindowEnum;
 import com.illposed.osc.OSCBundle;
 import com.illposed.osc.OSCPacket;
 import com.illposed.osc.OSCParameter;
@@ -34,6 +37,7 @@ public class SoundBiteVariables
         shapeRadius      = new OSCParameter<Float>("/shaper/radius",      50.0f); paramList.add(shapeRadius);
         shapeMultiplier  = new OSCParameter<Float>("/shaper/multiplier",   1.0f); paramList.add(shapeMultiplier);
         shapeRevolutions = new OSCParameter<Integer>("/shaper/revolutions",   0); paramList.add(shapeRevolutions);
+        shapePulse       = new OSCParameter<Float>("/shaper/pulse",        0.0f); paramList.add(shapePulse);
 
         camPos  = new OSCParameter<PVector>("/cam/pos", new PVector(0, 0, 700)); paramList.add(camPos);
         camRot  = new OSCParameter<PVector>("/cam/rot", new PVector(0, 0, 0));   paramList.add(camRot);
@@ -48,6 +52,16 @@ public class SoundBiteVariables
 
         audioSource    = new OSCParameter<Integer>("/audio/source", 0);       paramList.add(audioSource);
         audioRecording = new OSCParameter<Boolean>("/audio/recording", true); paramList.add(audioRecording);
+        audioStereo    = new OSCParameter<Boolean>("/audio/stereo", false);   paramList.add(audioStereo);
+        audioEngine    = new OSCParameter<SpectrumEngineEnum>("/audio/engine", SpectrumEngineEnum.FFT); paramList.add(audioEngine);
+        audioWindow    = new OSCParameter<WindowEnum>("/audio/window", WindowEnum.HANN); paramList.add(audioWindow);
+        audioDirect    = new OSCParameter<Boolean>("/audio/direct", false);   paramList.add(audioDirect);
+        audioGain      = new OSCParameter<Boolean>("/audio/gain", false);     paramList.add(audioGain);
+
+        spectrumRows      = new OSCParameter<Integer>("/spectrum/rows", 720); paramList.add(spectrumRows);
+        spectrumReduction = new OSCParameter<SpectrumPyramid.Reduction>("/spectrum/reduction", SpectrumPyramid.Reduction.MEAN); paramList.add(spectrumReduction);
+        spectrumRange     = new OSCParameter<PVector>("/spectrum/range", new PVector(0, 1, 0)); paramList.add(spectrumRange);
+        spectrumRecord    = new OSCParameter<Boolean>("/spectrum/record", false); paramList.add(spectrumRecord);
     }
 
     
@@ -133,6 +147,8 @@ public class SoundBiteVariables
     // common shaper parameters 
     public OSCParameter<Float>            shapeSize, shapeRadius, shapeMultiplier;
     public OSCParameter<Integer>          shapeRevolutions;
+    // relative enlargement of the shape on a beat of the live spectrum (0: off)
+    public OSCParameter<Float>            shapePulse;
 
     // camera parameters 
     public OSCParameter<PVector>          camPos;
@@ -147,7 +163,18 @@ public class SoundBiteVariables
 
     public OSCParameter<Boolean>          guiControlsEnabled, guiSpectrumEnabled;
     public OSCParameter<Integer>          audioSource;
-    public OSCParameter<Boolean>          audioRecording;
+    public OSCParameter<Boolean>          audioRecording, audioStereo, audioDirect;
+    // automatic gain of the live spectrum
+    public OSCParameter<Boolean>          audioGain;
+    public OSCParameter<SpectrumEngineEnum> audioEngine;
+    public OSCParameter<WindowEnum>         audioWindow;
+
+    // spectrum file view: amount of rows, reduction, and range of the file (x: start, y: end, 0...1)
+    public OSCParameter<Integer>                   spectrumRows;
+    public OSCParameter<SpectrumPyramid.Reduction> spectrumReduction;
+    public OSCParameter<PVector>                   spectrumRange;
+    // recording of the live spectrum into a file
+    public OSCParameter<Boolean>                   spectrumRecord;
     
     private final List<OSCParameter>      paramList;
 }
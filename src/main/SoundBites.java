@@ -1,8 +1,21 @@
 package main;
 
+import analyser.AdaptiveGain;
+import analyser.AudioInputPool;
 import analyser.AudioManager;
+import analyser.BeatDetector;
+import analyser.LatencyMonitor;
+import analyser.OfflineAnalyser;
 import analyser.SpectrumAnalyser;
+import analyser.SpectrumArchive;
+import analyser.SpectrumEngineEnum;
+import analyser.SpectrumFile;
+import analyser.SpectrumFileLoader;
 import analyser.SpectrumInfo;
+import analyser.SpectrumPyramid;
+import analyser.SpectrumRecorder;
+import analyser.SpectrumShaper;
+import analyser.WindowEnum;
 import com.illposed.osc.OSCParameter;
 import com.illposed.osc.OSCParameterListener;
 import com.illposed.osc.OSCPort;
@@ -17,7 +30,6 @@ import controlP5.DropdownList;
 import controlP5.Slider;        
 import controlP5.Textlabel;
 import controlP5.Toggle;
-import ddf.minim.Minim;
 import geom.RenderMode;
 import geom.Skybox;
 import geom.SkyboxEnum;
@@ -35,13 +47,17 @@ import java.lang.Thread.UncaughtExceptionHandler;
 import java.net.SocketException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import javax.media.opengl.GL2;
+import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.FloatControl;
+import javax.sound.sampled.UnsupportedAudioFileException;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import processing.core.PApplet;
+import processing.core.PFont;
 import static processing.core.PConstants.DISABLE_DEPTH_TEST;
 import static processing.core.PConstants.ENABLE_DEPTH_TEST;
 import processing.core.PVector;
@@ -62,7 +78,25 @@ public class SoundBites extends PApplet
 {
     public static final String VERSION = "2.5.4";
     
-    public static final String CONFIG_FILE = "./config.txt";
+    public static final String CONFIG_FILE      = "./config.txt";
+    public static final String AUDIO_CACHE_FILE = "./audio_devices.txt";
+    
+    // amount of spectrum lines kept for live audio
+    private static final int   LIVE_SPECTRUM_COUNT  = 240;
+    // maximum amount of spectrum lines shown of a spectrum file
+    private static final int   MAX_SPECTRUM_ROWS    = 4096;
+    // time in s that the spectrum recorder can fall behind before frames are dropped
+    private static final float RECORDER_BUFFER_TIME = 10;
+    // maximum time in ms to wait for the spectrum recorder when closing
+    private static final long  RECORDER_CLOSE_TIME  = 2000;
+    // time in ms that unused audio inputs stay open for switching back quickly
+    private static final long  INPUT_STANDBY_TIME   = 5 * 60 * 1000;
+    // maximum time in ms to wait for the audio inputs when loading the configuration
+    private static final long  INPUT_PROBE_WAIT     = 5000;
+    // time in s of the live spectrum that is kept for each audio input
+    private static final float LIVE_ARCHIVE_TIME    = 60;
+    // time in ms that the shape pulses after a beat
+    private static final int   PULSE_TIME           = 200;
     
     
     /**
@@ -126,13 +160,105 @@ public class SoundBites extends PApplet
                 updatePauseMode();
             }
         });
+        vars.audioStereo.registerListener(new OSCParameterListener<Boolean>() {
+            @Override
+            public void valueChanged(OSCParameter<Boolean> param)
+            {
+                inputPool.setStereo(param.get());
+            }
+        });
+        vars.audioEngine.registerListener(new OSCParameterListener<SpectrumEngineEnum>() {
+            @Override
+            public void valueChanged(OSCParameter<SpectrumEngineEnum> param)
+            {
+                inputPool.setEngineType(param.get());
+            }
+        });
+        vars.audioWindow.registerListener(new OSCParameterListener<WindowEnum>() {
+            @Override
+            public void valueChanged(OSCParameter<WindowEnum> param)
+            {
+                inputPool.setWindowType(param.get());
+            }
+        });
+        vars.audioDirect.registerListener(new OSCParameterListener<Boolean>() {
+            @Override
+            public void valueChanged(OSCParameter<Boolean> param)
+            {
+                // the open inputs are replaced, so read from the new analyser
+                inputPool.setDirectCapture(param.get());
+                AudioInputPool.Channel channel = inputPool.getActive();
+                if ( channel != null ) { selectAudioInput(channel.getInput()); }
+            }
+        });
+        vars.spectrumRows.registerListener(new OSCParameterListener<Integer>() {
+            @Override
+            public void valueChanged(OSCParameter<Integer> param)
+            {
+                updateSpectrumView();
+            }
+        });
+        vars.spectrumReduction.registerListener(new OSCParameterListener<SpectrumPyramid.Reduction>() {
+            @Override
+            public void valueChanged(OSCParameter<SpectrumPyramid.Reduction> param)
+            {
+                updateSpectrumView();
+            }
+        });
+        vars.spectrumRange.registerListener(new OSCParameterListener<PVector>() {
+            @Override
+            public void valueChanged(OSCParameter<PVector> param)
+            {
+                updateSpectrumView();
+            }
+        });
+        vars.spectrumRecord.registerListener(new OSCParameterListener<Boolean>() {
+            @Override
+            public void valueChanged(OSCParameter<Boolean> param)
+            {
+                updateRecorder();
+            }
+        });
+        vars.audioGain.registerListener(new OSCParameterListener<Boolean>() {
+            @Override
+            public void valueChanged(OSCParameter<Boolean> param)
+            {
+                updateGain();
+            }
+        });
+        vars.shapePulse.registerListener(new OSCParameterListener<Float>() {
+            @Override
+            public void valueChanged(OSCParameter<Float> param)
+            {
+                updateBeatDetector();
+            }
+        });
         
         // find inputs
-        audioManager = new AudioManager();
-        // create audio analyser
-        audioAnalyser = new SpectrumAnalyser(60, 10);
+        audioManager = new AudioManager(new File(AUDIO_CACHE_FILE));
+        // create pool of audio inputs with their analysers
+        inputPool = new AudioInputPool(this, 60, 10, 2, INPUT_STANDBY_TIME);
+        inputPool.setStereo(vars.audioStereo.get());
+        inputPool.setEngineType(vars.audioEngine.get());
+        inputPool.setWindowType(vars.audioWindow.get());
+        inputPool.setDirectCapture(vars.audioDirect.get());
+        audioAnalyser = null;
+        archiveFrame  = 0;
+        archiveView   = new SpectrumArchive.View();
+        gain          = new AdaptiveGain();
+        gainAnalyser  = null;
+        beatDetector  = new BeatDetector();
+        beatAnalyser  = null;
+        beatCount     = 0;
+        beatMillis    = 0;
         inputIdx = 0; 
         
+        // latency measurement from the audio input to the rendered surface
+        latency        = new LatencyMonitor();
+        latencyTimes   = new SpectrumInfo();
+        latencyOverlay = false;
+        latencyFont    = null;
+        
         setupOSC();
         createGUI();
         
@@ -311,7 +437,6 @@ public class SoundBites extends PApplet
         yPos += guiSizeY + guiSpacing;
         lstInputs = gui.addDropdownList("input")
                 .setPosition(xPos, yPos + guiSizeY)
-                .setSize(guiMenuW, guiSizeY * (3 + audioManager.getInputs().size()))
                 .setItemHeight(guiSizeY)
                 .setBarHeight(guiSizeY)
                 .addListener(new controlP5.ControlListener()
@@ -337,19 +462,7 @@ public class SoundBites extends PApplet
         });
         // fill dropdown list with entries
         lstInputs.getCaptionLabel().getStyle().paddingTop = 5;
-        lstInputs.addItem("None", -2);
-        lstInputs.addItem("Spectrum File", -1);
-        int idx = 0;
-        for ( analyser.AudioInput input : audioManager.getInputs() )
-        {
-            String name = input.toString();
-            if ( name.length() > 20 )
-            {
-                name = name.substring(0, 20);
-            }
-            lstInputs.addItem(name, idx);
-            idx++;
-        }
+        updateInputList();
         
         // Slider for live input volume there as well
         sldVolume = gui.addSlider("Volume")
@@ -386,6 +499,31 @@ public class SoundBites extends PApplet
     }
 
     
+    /**
+     * Fills the dropdown list of inputs with the inputs that have been found so far.
+     */
+    private void updateInputList()
+    {
+        inputListVersion = audioManager.getModificationCount();
+        List<analyser.AudioInput> inputs = audioManager.getInputs();
+        lstInputs.clear();
+        lstInputs.setSize(guiMenuW, guiSizeY * (3 + inputs.size()));
+        lstInputs.addItem("None", -2);
+        lstInputs.addItem("Spectrum File", -1);
+        int idx = 0;
+        for ( analyser.AudioInput input : inputs )
+        {
+            String name = input.toString();
+            if ( name.length() > 20 )
+            {
+                name = name.substring(0, 20);
+            }
+            lstInputs.addItem(name, idx);
+            idx++;
+        }
+    }
+
+    
     /**
      * Draws a single frame.
      */
@@ -452,7 +590,9 @@ public class SoundBites extends PApplet
         // animate and draw the shape
         shaper.setSplitMode(btnSplit.getState());
         shaper.update(inputIdx * 360 / spectrumData.length);
+        shaper.setPulse(getPulse());
         shaper.render(gl);
+        latency.surfaceRendered(System.nanoTime());
         
         // undo transformations and depth testing for the GUI  
         gl.glPopMatrix();
@@ -465,6 +605,23 @@ public class SoundBites extends PApplet
         {
             updateRealtimeSpectrum();
         }
+        // or show the progress of a spectrum file
+        else if ( fileLoader != null )
+        {
+            updateLoading();
+        }
+        
+        // inputs that are found in the background
+        if ( audioManager.getModificationCount() != inputListVersion )
+        {
+            updateInputList();
+        }
+        
+        // the recorder only finishes on its own after an error
+        if ( (recorder != null) && recorder.isFinished() )
+        {
+            vars.spectrumRecord.set(false);
+        }
         
         // draw FPS
         if ( vars.guiControlsEnabled.get() )
@@ -472,6 +629,10 @@ public class SoundBites extends PApplet
             lblFps.setStringValue(String.format("FPS: %.1f", frameRate));
             gui.draw();
         }
+        if ( latencyOverlay )
+        {
+            drawLatencyOverlay();
+        }
         
         if ( saveRequested )
         {
@@ -486,18 +647,25 @@ public class SoundBites extends PApplet
      */
     private void updateRealtimeSpectrum()
     {
-        SpectrumInfo info = audioAnalyser.getSpectrumInfo(0);
-        if ( (info != null) && (info.intensity != null) )
+        SpectrumAnalyser liveAnalyser = audioAnalyser;
+        if ( liveAnalyser == null ) return;
+        
+        int len = liveAnalyser.getSpectrumIntensity(0, liveSpectrum, latencyTimes);
+        if ( len > 0 )
         {
-            int len = info.intensity.length;
-
+            latency.framePickedUp(latencyTimes, System.nanoTime());
+            
             // only update shape when recording
             if ( vars.audioRecording.get() )
             {
-                System.arraycopy(info.intensity, 0, spectrumData[inputIdx], 0, len);
-                shaper.updateSurface(inputIdx, spectrumData[inputIdx]);
-                inputIdx = (inputIdx + 1) % spectrumData.length;
-                // enable the surface to recalculate changed normals
+                long updateStart = System.nanoTime();
+                updateLiveShape(liveAnalyser.getArchive());
+                latency.surfaceUpdated(updateStart, System.nanoTime());
+            }
+            else
+            {
+                // continue with the frames after the pause
+                archiveFrame = liveAnalyser.getArchive().getWriteCount();
             }
             
             if ( vars.guiSpectrumEnabled.get() )
@@ -509,8 +677,8 @@ public class SoundBites extends PApplet
                 {
                     int x = width - guiSpacing - (len - i) * 2;
                     int y = height - guiSpacing;
-                    int h = (int) (info.intensity[i] * 100);
-                    int colour = mapper.mapSpectrum(info.intensity, i);
+                    int h = (int) (liveSpectrum[i] * 100);
+                    int colour = mapper.mapSpectrum(liveSpectrum, i);
                     stroke((colour >> 16) & 0xFF, (colour >> 8) & 0xFF, colour & 0xFF, 255);
                     line(x, y, x, y-h);
                 }
@@ -520,6 +688,229 @@ public class SoundBites extends PApplet
     }
     
     
+    /**
+     * Adds all frames to the live shape that the analyser has archived since the last update,
+     * so the shape contains every analysed frame, independent of the frame rate of the rendering.
+     * 
+     * @param archive  the archive of the live analyser
+     */
+    private void updateLiveShape(SpectrumArchive archive)
+    {
+        long end = archive.getWriteCount();
+        if ( end < archiveFrame )
+        {
+            // the archive has been reset
+            archiveFrame = 0;
+        }
+        archive.getRecent((int) Math.min(end - archiveFrame, spectrumData.length), archiveView);
+        float[] data  = archiveView.getData();
+        int     bands = Math.min(archiveView.getBandCount(), spectrumData[0].length);
+        for ( int idx = 0 ; idx < archiveView.getFrameCount() ; idx++ )
+        {
+            System.arraycopy(data, archiveView.getOffset(idx), spectrumData[inputIdx], 0, bands);
+            // the analysis thread may have overwritten the oldest frames in the meantime
+            if ( !archiveView.isValid() ) break;
+            shaper.updateSurface(inputIdx, spectrumData[inputIdx]);
+            inputIdx = (inputIdx + 1) % spectrumData.length;
+        }
+        archiveFrame = end;
+    }
+    
+    
+    /**
+     * Draws the latency measurements as text lines.
+     */
+    private void drawLatencyOverlay()
+    {
+        if ( latencyFont == null )
+        {
+            latencyFont = createFont("Monospaced", 12);
+        }
+        pushStyle();
+        textFont(latencyFont);
+        textAlign(LEFT, TOP);
+        fill(255);
+        int y = height / 2;
+        for ( LatencyMonitor.Interval i : LatencyMonitor.Interval.values() )
+        {
+            text(latency.getSummary(i), guiSpacing, y);
+            y += 16;
+        }
+        popStyle();
+    }
+    
+    
+    /**
+     * Toggles the display of the latency measurements.
+     * The measurements start over when the display is switched on.
+     */
+    private void toggleLatencyOverlay()
+    {
+        latencyOverlay = !latencyOverlay;
+        if ( latencyOverlay )
+        {
+            latency.reset();
+        }
+    }
+    
+    
+    /**
+     * Writes the latency measurements into a report file.
+     */
+    private void saveLatencyReport()
+    {
+        File file = new File("Latency_" + getTimestamp() + ".txt");
+        try
+        {
+            latency.writeReport(file);
+            System.out.println("Latency report written to " + file);
+        }
+        catch (FileNotFoundException e)
+        {
+            System.err.println("Could not write latency report (" + e + ").");
+        }
+    }
+    
+    
+    /**
+     * Starts or stops recording the live spectrum.
+     */
+    private void toggleRecorder()
+    {
+        vars.spectrumRecord.set(!vars.spectrumRecord.get());
+    }
+    
+    
+    /**
+     * Starts or stops recording the live spectrum into a file,
+     * and moves the recorder to the analyser of the selected audio input.
+     * The frames are written on the thread of the recorder.
+     * While recording, the recorder applies the automatic gain after recording each frame,
+     * so the file contains the spectrum without the gain,
+     * and the recorder writes the gain states into a file next to the recording,
+     * so the recording can be replayed with the same gain curve.
+     */
+    private synchronized void updateRecorder()
+    {
+        boolean record = vars.spectrumRecord.get() && (audioAnalyser != null);
+        if ( (recorder != null) && (!record || (recorderAnalyser != audioAnalyser)) )
+        {
+            // waits for the frame in progress, so the old and the new analyser never write into the recorder at the same time
+            recorderAnalyser.removeStage(recorder);
+            recorderAnalyser = null;
+            if ( !record )
+            {
+                recorder.stop();
+                if ( recorder.getError() != null )
+                {
+                    System.err.println("Could not record spectrum into " + recorder.getCurrentFile() + 
+                                       " (" + recorder.getError() + ").");
+                }
+                else
+                {
+                    System.out.println("Stopped recording into " + recorder.getCurrentFile() + 
+                                       " (" + recorder.getDroppedFrameCount() + " frames dropped)");
+                }
+                recorder = null;
+            }
+        }
+        if ( record && (recorder == null) )
+        {
+            File file = new File("Spectrum_" + getTimestamp() + SpectrumFile.EXTENSION);
+            recorder = new SpectrumRecorder(file, SpectrumFile.Encoding.FLOAT32, RECORDER_BUFFER_TIME);
+            recorder.start();
+            System.out.println("Recording live spectrum into " + file);
+        }
+        // hand the gain over before the recorder runs, so every recorded frame has the right gain state
+        updateGain();
+        if ( record && (recorderAnalyser == null) )
+        {
+            recorderAnalyser = audioAnalyser;
+            // record the spectrum before any other stage changes it
+            recorderAnalyser.addStage(0, recorder);
+        }
+    }
+    
+    
+    /**
+     * Switches the automatic gain of the live spectrum on or off.
+     */
+    private void toggleGain()
+    {
+        vars.audioGain.set(!vars.audioGain.get());
+    }
+    
+    
+    /**
+     * Switches the automatic gain of the live spectrum on or off,
+     * and moves it to the analyser of the selected audio input.
+     * While recording, the recorder applies the gain, otherwise it is a stage of the analyser.
+     * The gain is never applied twice to a frame, since the stage is removed before the recorder gets the gain.
+     * The gain starts over on every analyser it is added to.
+     */
+    private synchronized void updateGain()
+    {
+        boolean          active   = vars.audioGain.get() && (audioAnalyser != null);
+        SpectrumAnalyser analyser = (active && (recorder == null)) ? audioAnalyser : null;
+        if ( (gainAnalyser != null) && (gainAnalyser != analyser) )
+        {
+            // waits for the frame in progress
+            gainAnalyser.removeStage(gain);
+            gainAnalyser = null;
+        }
+        if ( recorder != null )
+        {
+            recorder.setGain(active ? gain : null);
+        }
+        if ( (analyser != null) && (gainAnalyser == null) )
+        {
+            gainAnalyser = analyser;
+            gainAnalyser.addStage(gain);
+        }
+    }
+    
+    
+    /**
+     * Adds the beat detector to the analyser of the selected audio input
+     * while the shape pulses on beats, and removes it otherwise.
+     */
+    private synchronized void updateBeatDetector()
+    {
+        boolean active = (vars.shapePulse.get() > 0) && (audioAnalyser != null);
+        if ( (beatAnalyser != null) && (!active || (beatAnalyser != audioAnalyser)) )
+        {
+            beatAnalyser.removeStage(beatDetector);
+            beatAnalyser = null;
+        }
+        if ( active && (beatAnalyser == null) )
+        {
+            beatAnalyser = audioAnalyser;
+            // the detector is reset when it is added, so the count starts over
+            beatCount    = 0;
+            beatAnalyser.addStage(beatDetector);
+        }
+    }
+    
+    
+    /**
+     * Calculates the pulse of the shape, which decays linearly within {@link #PULSE_TIME} after each beat.
+     * 
+     * @return the relative enlargement of the shape
+     */
+    private float getPulse()
+    {
+        if ( (beatAnalyser == null) || (spectrumFile != null) ) return 0;
+        long count = beatDetector.getBeatCount();
+        if ( count != beatCount )
+        {
+            beatCount  = count;
+            beatMillis = millis();
+        }
+        float t = (float) (millis() - beatMillis) / PULSE_TIME;
+        return ((count > 0) && (t < 1)) ? vars.shapePulse.get() * (1 - t) : 0;
+    }
+    
+    
     /**
      * Called when the mouse button is pressed.
      */
@@ -588,7 +979,13 @@ public class SoundBites extends PApplet
             switch ( evt.getKeyCode() )
             {
                 case KeyEvent.VK_A : reportAudioProperties(); break;
+                case KeyEvent.VK_E : toggleRecorder(); break;
                 case KeyEvent.VK_G : toggleGuiVisibility(); break;
+                case KeyEvent.VK_L : toggleLatencyOverlay(); break;
+                case KeyEvent.VK_M : toggleSpectrumReduction(); break;
+                case KeyEvent.VK_N : toggleGain(); break;
+                case KeyEvent.VK_T : saveLatencyReport(); break;
+                case KeyEvent.VK_X : cancelLoading(); break;
                 case KeyEvent.VK_R : toggleRenderMode(); break;
                 case KeyEvent.VK_S : toggleSkybox(); break;
             }
@@ -630,13 +1027,59 @@ public class SoundBites extends PApplet
         int choice = fc.showOpenDialog(this);
         if ( choice == JFileChooser.APPROVE_OPTION ) 
         {
-            openSpectrumFile(fc.getSelectedFile());
+            File file = fc.getSelectedFile();
+            if ( isAudioFile(file) )
+            {
+                analyseAudioFile(file);
+            }
+            else
+            {
+                openSpectrumFile(file);
+            }
         }
     }
+    
+    
+    /**
+     * Checks if a file is an audio file that can be analysed.
+     * 
+     * @param file  the file to check
+     * @return <code>true</code> if the file is a supported audio file,
+     *         <code>false</code> if not
+     */
+    private boolean isAudioFile(File file)
+    {
+        try
+        {
+            AudioSystem.getAudioFileFormat(file);
+            return true;
+        }
+        catch (UnsupportedAudioFileException | IOException e)
+        {
+            return false;
+        }
+    }
+    
+    
+    /**
+     * Analyses an audio file faster than realtime, writes the result into a spectrum file, and opens it.
+     * The analysis runs in the background before the spectrum file is loaded.
+     * 
+     * @param file  the audio file to analyse
+     */
+    private void analyseAudioFile(File file)
+    {
+        File spectrum = new File(file.getAbsolutePath() + "_spectrum.txt");
+        System.out.println("Analysing " + file);
+        OfflineAnalyser analyser = new OfflineAnalyser(60, 
+                vars.audioEngine.get(), SpectrumShaper.LOGARITHMIC, vars.audioStereo.get(), 0);
+        startLoading(new SpectrumFileLoader(file, analyser, spectrum, constrain(vars.spectrumRows.get(), 1, MAX_SPECTRUM_ROWS)));
+    }
 
 
     /**
      * Opens a spectrum file.
+     * The file is loaded in the background, and the surface grows while the rows arrive.
      * 
      * @param file the file to open
      */
@@ -645,46 +1088,137 @@ public class SoundBites extends PApplet
         if ( file != null )
         {
             System.out.println("Opening " + file);
-            String[] data = loadStrings(file);
-            // how many lines are there (expluding header)
-            int dataLen = data.length - 1;
-
-            // what if there is too much data: reduce
-            int specStep = ((dataLen - 1) / 720) + 1;
-            int specLen = dataLen / specStep;
-
-            // allocate spectrum data
-            spectrumData = new float[specLen][];
-            // go through the lines
-
-            for (int i = 0; i < dataLen; i += 1)
+            startLoading(new SpectrumFileLoader(file, constrain(vars.spectrumRows.get(), 1, MAX_SPECTRUM_ROWS)));
+        }
+    }
+    
+    
+    /**
+     * Starts loading a spectrum file in the background instead of the current file.
+     * 
+     * @param loader  the loader of the spectrum file
+     */
+    private void startLoading(SpectrumFileLoader loader)
+    {
+        cancelLoading();
+        // show a preview while loading, the pyramid provides the final rows
+        fileLoader = loader;
+        fileLoader.start();
+        loadedRows      = 0;
+        spectrumPyramid = null;
+        spectrumFile    = loader.getFile();
+        lblFilename.setText("Loading " + spectrumFile.getName());
+        sldVolume.setVisible(false);
+        btnPause.setVisible(false);
+    }
+    
+    
+    /**
+     * Shows the rows of the spectrum file that have been loaded since the last frame.
+     */
+    private void updateLoading()
+    {
+        SpectrumFileLoader loader   = fileLoader;
+        float[][]          rows     = loader.getRows();
+        boolean            finished = loader.isFinished();
+        String             name     = loader.getFile().getName();
+        if ( (rows != null) && (rows.length > 0) )
+        {
+            if ( spectrumData != rows )
             {
-                // split each line into the single frequencies
-                String[] freqStr = data[i + 1].split("\t");
-                int freqLen = freqStr.length - 1;
-                // create frequency array
-                int specIdx = i / specStep;
-                if (specIdx >= spectrumData.length)
-                {
-                    break;
-                }
-
-                if (spectrumData[specIdx] == null)
-                {
-                    spectrumData[specIdx] = new float[freqLen];
-                }
-                for (int f = 0; f < freqLen; f++)
-                {
-                    spectrumData[specIdx][f] += Float.parseFloat(freqStr[f + 1]) / specStep;
-                }
+                // size is known: start with an empty surface
+                spectrumData = rows;
+                updateShape();
+            }
+            int count = loader.getLoadedRowCount();
+            for ( ; loadedRows < count ; loadedRows++ )
+            {
+                shaper.updateSurface(loadedRows, spectrumData[loadedRows]);
+            }
+            if ( !finished )
+            {
+                lblFilename.setText(String.format("Loading %s: %.0f%% (CTRL-X to cancel)", name, loader.getProgress() * 100));
+            }
+        }
+        else if ( loader.isAnalysing() )
+        {
+            lblFilename.setText(String.format("Analysing %s: %.0f%% (CTRL-X to cancel)", name, loader.getProgress() * 100));
+        }
+        if ( !finished ) return;
+        
+        fileLoader = null;
+        if ( loader.getError() != null )
+        {
+            System.err.println("Could not read spectrum file (" + loader.getError() + ").");
+            lblFilename.setText("Could not load " + name);
+        }
+        else if ( loader.isCancelled() && (rows == null) )
+        {
+            lblFilename.setText("Filename: " + name + " (cancelled)");
+        }
+        else if ( (rows == null) || (rows.length == 0) )
+        {
+            System.err.println("Spectrum file " + loader.getFile() + " does not contain any data.");
+            lblFilename.setText("No data in " + name);
+        }
+        else if ( loader.isCancelled() )
+        {
+            lblFilename.setText("Filename: " + name + " (cancelled after " + loadedRows + " of " + rows.length + " lines)");
+        }
+        else
+        {
+            System.out.println("Read " + loader.getFrameCount() + " lines with " + rows[0].length + " frequencies each");
+            System.out.println("Stored as " + rows.length + " lines of spectrum data (compression=" + loader.getStep() + ")");
+            lblFilename.setText("Filename: " + name);
+            spectrumPyramid = loader.getPyramid();
+            if ( spectrumPyramid != null )
+            {
+                System.out.println("Built " + spectrumPyramid.getLevelCount() + " levels of spectrum data (" +
+                                   spectrumPyramid.getMemorySize() / 1024 + "kB)");
+                updateSpectrumView();
             }
-            System.out.println("Read " + (data.length - 1) + " lines with " + spectrumData[0].length + " frequencies each");
-            System.out.println("Stored as " + spectrumData.length + " lines of spectrum data (compression=" + specStep + ")");
-            recomputeTime = 0; // force recalculation
-            spectrumFile = file;
-            lblFilename.setText("Filename: " + file.getName());
-            sldVolume.setVisible(false);
-            btnPause.setVisible(false);
+        }
+    }
+    
+    
+    /**
+     * Reduces the loaded spectrum file to the rows selected by the spectrum variables
+     * and updates the shape.
+     */
+    private synchronized void updateSpectrumView()
+    {
+        if ( (spectrumPyramid == null) || (spectrumFile == null) ) return;
+        
+        PVector range  = vars.spectrumRange.get();
+        int     frames = spectrumPyramid.getFrameCount();
+        int     start  = (int) (constrain(min(range.x, range.y), 0, 1) * frames);
+        int     end    = (int) (constrain(max(range.x, range.y), 0, 1) * frames);
+        int     rows   = constrain(vars.spectrumRows.get(), 1, MAX_SPECTRUM_ROWS);
+        spectrumData = spectrumPyramid.getRows(start, end - start, 
+                new float[rows][spectrumPyramid.getBandCount()], vars.spectrumReduction.get());
+        updateShape();
+    }
+    
+    
+    /**
+     * Switches between the mean and the peak intensities of the spectrum file.
+     */
+    private void toggleSpectrumReduction()
+    {
+        int mode = vars.spectrumReduction.get().ordinal();
+        mode = (mode + 1) % SpectrumPyramid.Reduction.values().length;
+        vars.spectrumReduction.set(SpectrumPyramid.Reduction.values()[mode]);
+    }
+    
+    
+    /**
+     * Cancels loading a spectrum file.
+     */
+    private void cancelLoading()
+    {
+        if ( fileLoader != null )
+        {
+            fileLoader.cancel();
         }
     }
     
@@ -748,25 +1282,29 @@ public class SoundBites extends PApplet
     
     /**
      * Selects an audio input.
+     * Inputs that have been used recently are still open, 
+     * so switching to them only changes the analyser the spectrum is read from.
      * 
      * @param input  the input to use
      */
     private void selectAudioInput(analyser.AudioInput input)
     {
-        // detach audio analyser and destroy Minim
-        audioAnalyser.detachFromAudio();
-        if ( minim != null )
-        {
-            minim.stop();
-        }
+        cancelLoading();
+        fileLoader      = null;
+        spectrumPyramid = null;
+        
+        AudioInputPool.Channel channel = inputPool.select(input);
         
-        if ( input != null )
+        if ( channel != null )
         {
-            // create new Minim with new audio input
-            minim = new Minim(this);
-            minim.setInputMixer(input.getMixer());
-            // attach to audio analyser
-            audioAnalyser.attachToAudio(minim.getLineIn());
+            audioAnalyser = channel.getAnalyser();
+            // every input keeps its own archive while it is open
+            SpectrumArchive archive = audioAnalyser.getArchive();
+            if ( archive == null )
+            {
+                archive = new SpectrumArchive(LIVE_ARCHIVE_TIME);
+                audioAnalyser.setArchive(archive);
+            }
             // get volume/gain controller
             inputGain = input.getGainControl();
             if ( inputGain != null )
@@ -774,27 +1312,41 @@ public class SoundBites extends PApplet
                 sldVolume.setRange(inputGain.getMinimum(), inputGain.getMaximum());
             }
 
+            // keep the shape if the layout of the spectrum stays the same
             int spectrumCount = audioAnalyser.getSpectrumBandCount();
-            spectrumData = new float[240][spectrumCount];
+            if ( (spectrumFile != null) || (spectrumData == null) || 
+                 (spectrumData.length != LIVE_SPECTRUM_COUNT) || (spectrumData[0].length != spectrumCount) )
+            {
+                spectrumData = new float[LIVE_SPECTRUM_COUNT][spectrumCount];
+                liveSpectrum = new float[spectrumCount];
+                inputIdx = 0;
+                updateShape();
+            }
+            // refill the shape with the recent frames of the input, e.g., after switching back to it
+            archiveFrame = Math.max(archive.getOldestFrame(), archive.getWriteCount() - spectrumData.length);
             spectrumFile = null;
-            inputIdx = 0;
             lblFilename.setStringValue("Realtime Spectrum from " + input);
         }
         else
         {
             // no input selected
-            spectrumData = new float[240][64]; // dummy data
+            audioAnalyser = null;
+            spectrumData = new float[LIVE_SPECTRUM_COUNT][64]; // dummy data
+            liveSpectrum = new float[64];
             spectrumFile = null;     
             inputGain    = null; 
             lblFilename.setStringValue("No Input Selected");
+            updateShape();
         }
         
         // common code, mainly for updating the GUI
+        updateGain();
+        updateRecorder();
+        updateBeatDetector();
         btnPause.setVisible(input != null);
         sldVolume.setVisible(inputGain != null);
         lstInputs.setCaptionLabel("Select Input");
         System.out.println("Selected Audio Input: " + ((input != null) ? input : "none"));
-        updateShape();
     }
     
     
@@ -983,6 +1535,8 @@ public class SoundBites extends PApplet
             }
             
             updateMapper();
+            // the input index refers to the complete list of inputs
+            audioManager.waitForProbing(INPUT_PROBE_WAIT);
             selectAudioInput(audioManager.getInput(vars.audioSource.get()));
             updateMouseCursor();
         }
@@ -1012,12 +1566,22 @@ public class SoundBites extends PApplet
     @Override
     public void dispose()
     {        
-        audioAnalyser.detachFromAudio();
-        inputGain = null;
-        if ( minim != null )
+        if ( recorder != null )
         {
-            minim.stop();
+            // write the remaining frames before the analysers stop
+            recorder.stop();
+            try
+            {
+                recorder.awaitFinished(RECORDER_CLOSE_TIME);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
         }
+        inputPool.close();
+        audioAnalyser = null;
+        inputGain     = null;
         
         super.dispose();
     }
@@ -1149,8 +1713,11 @@ public class SoundBites extends PApplet
     private ColourMapper mapper;
             
     // spectrum data
-    private File        spectrumFile;
-    private float[][]   spectrumData;
+    private File               spectrumFile;
+    private float[][]          spectrumData;
+    private SpectrumFileLoader fileLoader;
+    private int                loadedRows;
+    private SpectrumPyramid    spectrumPyramid;
     
     // timestamp to trigger recalculation
     private long        recomputeTime;
@@ -1160,10 +1727,30 @@ public class SoundBites extends PApplet
             
     // live audio input
     private AudioManager      audioManager;
+    private int               inputListVersion;
     private int               inputIdx;
-    private Minim             minim;
+    private AudioInputPool    inputPool;
     private FloatControl      inputGain;
     private SpectrumAnalyser  audioAnalyser;
+    private float[]           liveSpectrum;
+    // next frame of the archive of the live analyser for the shape
+    private long              archiveFrame;
+    private SpectrumArchive.View archiveView;
+    private SpectrumRecorder  recorder;
+    private SpectrumAnalyser  recorderAnalyser;
+    private AdaptiveGain      gain;
+    private SpectrumAnalyser  gainAnalyser;
+    // beat detection for the pulse of the shape
+    private BeatDetector      beatDetector;
+    private SpectrumAnalyser  beatAnalyser;
+    private long              beatCount;
+    private int               beatMillis;
+    
+    // latency measurement
+    private LatencyMonitor    latency;
+    private SpectrumInfo      latencyTimes;
+    private boolean           latencyOverlay;
+    private PFont             latencyFont;
 
     private SoundBiteVariables vars;
 } 
@@ -75,6 +75,12 @@ public abstract class AbstractShaper implements Shaper
     {
         // rotate this shape around the Y axis
         gl.glRotatef(-animAngle, 0, 1, 0);
+        // enlarge the shape with the pulse
+        if ( pulse != 0 )
+        {
+            gl.glEnable(GL2.GL_RESCALE_NORMAL);
+            gl.glScalef(1 + pulse, 1 + pulse, 1 + pulse);
+        }
     }
     
     
@@ -110,6 +116,13 @@ public abstract class AbstractShaper implements Shaper
     }
 
     
+    @Override
+    public void setPulse(float pulse)
+    {
+        this.pulse = pulse;
+    }
+
+    
     @Override
     public void writeSTL(PrintWriter w, float scale)
     {
@@ -153,4 +166,5 @@ public abstract class AbstractShaper implements Shaper
     protected Surface               surface, splitSurf1, splitSurf2;
     protected boolean               splitMode;
     protected float                 animAngle;
+    protected float                 pulse;
 }
\ No newline at end of file
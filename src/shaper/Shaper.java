@@ -31,6 +31,7 @@ public interface Shaper
     
     void setRenderMode(RenderMode mode);
     void setSplitMode(boolean split);
+    void setPulse(float pulse);
     
     void writeSTL(PrintWriter w, float scale);
     void writeOBJ(PrintWriter w, float scale);
@@ -0,0 +1,250 @@
+package analyser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import javax.sound.sampled.AudioFormat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the text representation of the gain state,
+ * and for replaying the gain with restored and recorded states.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class AdaptiveGainTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStateText()
+    {
+        AdaptiveGain gain   = new AdaptiveGain();
+        Random       random = new Random(1);
+        for ( int frame = 0 ; frame < 100 ; frame++ )
+        {
+            gain.process(createInfo(random));
+        }
+        AdaptiveGain.State state  = gain.getState(new AdaptiveGain.State());
+        AdaptiveGain.State parsed = AdaptiveGain.State.parse(state.toString());
+        assertEquals(100, parsed.frames);
+        assertEquals(state.peakDecay,  parsed.peakDecay,  0);
+        assertEquals(state.floorDecay, parsed.floorDecay, 0);
+        assertEquals(state.minRange,   parsed.minRange,   0);
+        assertArrayEquals(state.peak,  parsed.peak,  0);
+        assertArrayEquals(state.floor, parsed.floor, 0);
+        assertEquals(state.toString(), parsed.toString());
+
+        AdaptiveGain.State empty = AdaptiveGain.State.parse(new AdaptiveGain.State().toString());
+        assertEquals(0, empty.peak.length);
+    }
+
+    @Test
+    public void testInvalidStateText()
+    {
+        String[] invalid = { "", "1,2,3", "1,0.5,0.5,0.1,2,1,2,3", "1,0.5,0.5,0.1,1,x,2", "1,0.5,0.5,0.1,1,1,2,3" };
+        for ( String str : invalid )
+        {
+            try
+            {
+                AdaptiveGain.State.parse(str);
+                fail("invalid state \"" + str + "\"");
+            }
+            catch (IllegalArgumentException e)
+            {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testRestoredState()
+    {
+        AdaptiveGain live   = new AdaptiveGain();
+        Random       random = new Random(2);
+        for ( int frame = 0 ; frame < 50 ; frame++ )
+        {
+            live.process(createInfo(random));
+        }
+        // restoring the snapshot in another gain continues with the same output
+        AdaptiveGain replay = new AdaptiveGain();
+        replay.setState(AdaptiveGain.State.parse(live.getState(new AdaptiveGain.State()).toString()));
+        for ( int frame = 0 ; frame < 200 ; frame++ )
+        {
+            SpectrumInfo info = createInfo(random);
+            float[] intensity = info.intensity.clone();
+            live.process(info);
+            SpectrumInfo replayInfo = new SpectrumInfo();
+            replayInfo.intensity = intensity;
+            replay.process(replayInfo);
+            assertArrayEquals("frame " + frame, info.intensity, intensity, 0);
+        }
+        assertEquals(live.getFrameCount(), replay.getFrameCount());
+    }
+
+    @Test
+    public void testReplay() throws IOException
+    {
+        AdaptiveGain   live   = new AdaptiveGain();
+        Random         random = new Random(3);
+        List<float[]>  input  = new ArrayList<float[]>();
+        List<float[]>  output = new ArrayList<float[]>();
+        StringBuilder  lines  = new StringBuilder();
+        for ( int frame = 0 ; frame < 100 ; frame++ )
+        {
+            SpectrumInfo info = createInfo(random);
+            input.add(info.intensity.clone());
+            if ( frame == 10 )
+            {
+                lines.append(AdaptiveGain.getStateLine(frame, live.getState(new AdaptiveGain.State()))).append('\n');
+            }
+            if ( frame == 50 )
+            {
+                lines.append(AdaptiveGain.getStateLine(frame, null)).append('\n');
+            }
+            if ( (frame >= 10) && (frame < 50) )
+            {
+                live.process(info);
+            }
+            output.add(info.intensity);
+        }
+        File stateFile = folder.newFile("spectrum" + AdaptiveGain.STATE_EXTENSION);
+        Files.write(stateFile.toPath(), lines.toString().getBytes(StandardCharsets.US_ASCII));
+
+        AdaptiveGain.Replay replay = new AdaptiveGain.Replay(stateFile);
+        for ( int frame = 0 ; frame < input.size() ; frame++ )
+        {
+            float[] intensity = input.get(frame);
+            replay.process(frame, intensity);
+            assertArrayEquals("frame " + frame, output.get(frame), intensity, 0);
+        }
+    }
+
+    @Test
+    public void testInvalidStateFile() throws IOException
+    {
+        File stateFile = folder.newFile("spectrum" + AdaptiveGain.STATE_EXTENSION);
+        Files.write(stateFile.toPath(), "0\t1,2,3\n".getBytes(StandardCharsets.US_ASCII));
+        try
+        {
+            new AdaptiveGain.Replay(stateFile);
+            fail("invalid state file");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRecording() throws IOException, InterruptedException
+    {
+        File             file     = new File(folder.getRoot(), "spectrum" + SpectrumFile.EXTENSION);
+        SpectrumRecorder recorder = new SpectrumRecorder(file, SpectrumFile.Encoding.FLOAT32, 10);
+        AdaptiveGain     gain     = new AdaptiveGain();
+        GainSwitch       stage    = new GainSwitch(recorder, gain);
+        AudioFormat      format   = new AudioFormat(44100, 16, 1, true, false);
+        SpectrumAnalyser analyser = new SpectrumAnalyser(60, 4);
+        recorder.start();
+        analyser.addStage(stage);
+        analyser.attachToCapture(new LineCapture(new FakeTargetDataLine(format, 440), format, 512));
+        long end = System.currentTimeMillis() + 10000;
+        while ( (stage.frames.size() < RECORDED_FRAMES) && (System.currentTimeMillis() < end) )
+        {
+            Thread.sleep(10);
+        }
+        analyser.removeStage(stage);
+        analyser.detachFromAudio();
+        assertTrue("recorder finished", recorder.awaitFinished(5000));
+        assertNull(recorder.getError());
+        assertEquals(0, recorder.getDroppedFrameCount());
+        assertTrue(AdaptiveGain.getStateFile(file).exists());
+
+        // the loaded frames have the same gain curve as the live frames
+        SpectrumFileLoader loader = new SpectrumFileLoader(file, RECORDED_FRAMES * 2);
+        loader.start();
+        end = System.currentTimeMillis() + 10000;
+        while ( !loader.isFinished() && (System.currentTimeMillis() < end) )
+        {
+            Thread.sleep(10);
+        }
+        assertNull(loader.getError());
+        float[][] rows = loader.getRows();
+        assertEquals(RECORDED_FRAMES, rows.length);
+        for ( int frame = 0 ; frame < RECORDED_FRAMES ; frame++ )
+        {
+            assertArrayEquals("frame " + frame, stage.frames.get(frame), rows[frame], 0);
+        }
+    }
+
+    /**
+     * Creates spectrum information with random intensities.
+     *
+     * @param random  the random number generator
+     * @return the spectrum information
+     */
+    private static SpectrumInfo createInfo(Random random)
+    {
+        SpectrumInfo info = new SpectrumInfo();
+        info.intensity = new float[BANDS];
+        for ( int b = 0 ; b < BANDS ; b++ )
+        {
+            info.intensity[b] = random.nextFloat() * (b + 1) / BANDS;
+        }
+        return info;
+    }
+
+    /**
+     * Stage that records a fixed amount of frames, switches the gain of the recorder on and off
+     * at fixed frames, and keeps a copy of each recorded frame after the gain.
+     */
+    private static class GainSwitch implements SpectrumAnalyser.Stage
+    {
+        public GainSwitch(SpectrumRecorder recorder, AdaptiveGain gain)
+        {
+            this.recorder = recorder;
+            this.gain     = gain;
+            // read by the test thread while the analysis thread adds frames
+            frames        = Collections.synchronizedList(new ArrayList<float[]>());
+        }
+
+        @Override
+        public void reset(SpectrumAnalyser analyser)
+        {
+            recorder.reset(analyser);
+        }
+
+        @Override
+        public void process(SpectrumInfo info)
+        {
+            int frame = frames.size();
+            if ( frame == RECORDED_FRAMES ) return;
+            if ( frame == 10 ) { recorder.setGain(gain); }
+            if ( frame == 50 ) { recorder.setGain(null); }
+            if ( frame == 70 ) { recorder.setGain(gain); }
+            recorder.process(info);
+            frames.add(info.intensity.clone());
+            if ( frames.size() == RECORDED_FRAMES ) { recorder.stop(); }
+        }
+
+        private final SpectrumRecorder recorder;
+        private final AdaptiveGain     gain;
+        public  final List<float[]>    frames;
+    }
+
+
+    // amount of bands of the random frames
+    private static final int BANDS           = 16;
+    // amount of frames to record from the fake audio line
+    private static final int RECORDED_FRAMES = 90;
+}
@@ -0,0 +1,186 @@
+package analyser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sound.sampled.AudioFormat;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for several analysers sharing the worker threads of an analysis pool:
+ * every analyser is analysed by one worker at a time and in order,
+ * and removing an analyser waits for the frame that a worker is analysing.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class AnalysisPoolTest
+{
+    @After
+    public void stopPool()
+    {
+        pool.stop();
+    }
+
+    @Test
+    public void testOneWorkerPerAnalyser() throws InterruptedException
+    {
+        List<SpectrumAnalyser> analysers = new ArrayList<SpectrumAnalyser>();
+        List<OrderStage>       stages    = new ArrayList<OrderStage>();
+        for ( int i = 0 ; i < ANALYSERS ; i++ )
+        {
+            SpectrumAnalyser analyser = attach(440 * (i + 1));
+            OrderStage       stage    = new OrderStage();
+            analyser.addStage(stage);
+            analysers.add(analyser);
+            stages.add(stage);
+        }
+        assertEquals(2, pool.getThreadCount());
+        assertEquals(ANALYSERS, pool.getAnalyserCount());
+        Thread.sleep(500);
+        for ( SpectrumAnalyser analyser : analysers )
+        {
+            analyser.detachFromAudio();
+        }
+        assertEquals(0, pool.getAnalyserCount());
+        for ( int i = 0 ; i < ANALYSERS ; i++ )
+        {
+            OrderStage stage = stages.get(i);
+            assertTrue("frames of analyser " + i, stage.frames.get() > 10);
+            assertEquals("overlapping frames of analyser " + i, 0, stage.overlaps.get());
+            assertEquals("frames out of order of analyser " + i, 0, stage.outOfOrder.get());
+        }
+    }
+
+    @Test
+    public void testRemoveWhileBusy() throws InterruptedException
+    {
+        SpectrumAnalyser slow  = attach(440);
+        SpectrumAnalyser other = attach(880);
+        SlowStage        stage = new SlowStage();
+        OrderStage       order = new OrderStage();
+        slow.addStage(stage);
+        other.addStage(order);
+        long end = System.currentTimeMillis() + 5000;
+        while ( !stage.processing && (System.currentTimeMillis() < end) )
+        {
+            Thread.yield();
+        }
+        assertTrue("stage is processing a frame", stage.processing);
+
+        // detaching removes the analyser from the pool and waits for the frame in progress
+        slow.detachFromAudio();
+        assertFalse("frame has finished", stage.processing);
+        assertEquals(1, pool.getAnalyserCount());
+        int  calls  = stage.calls.get();
+        int  frames = order.frames.get();
+        Thread.sleep(SlowStage.PROCESS_TIME * 5);
+        assertEquals("no frames after removing", calls, stage.calls.get());
+        assertTrue("the other analyser is still analysed", order.frames.get() > frames);
+        other.detachFromAudio();
+        assertEquals(0, order.overlaps.get());
+        assertEquals(0, order.outOfOrder.get());
+    }
+
+    /**
+     * Creates an analyser that analyses a fake audio line with the workers of the pool.
+     *
+     * @param frequency  the frequency of the sine wave of the line in Hz
+     * @return the attached analyser
+     */
+    private SpectrumAnalyser attach(float frequency)
+    {
+        AudioFormat      format   = new AudioFormat(44100, 16, 1, true, false);
+        SpectrumAnalyser analyser = new SpectrumAnalyser(60, 4);
+        analyser.setAnalysisPool(pool);
+        analyser.attachToCapture(new LineCapture(new FakeTargetDataLine(format, frequency), format, 512));
+        return analyser;
+    }
+
+    /**
+     * Stage that counts frames that overlap with another frame of the same analyser
+     * or arrive out of order.
+     */
+    private static class OrderStage implements SpectrumAnalyser.Stage
+    {
+        public OrderStage()
+        {
+            active     = new AtomicInteger(0);
+            frames     = new AtomicInteger(0);
+            overlaps   = new AtomicInteger(0);
+            outOfOrder = new AtomicInteger(0);
+            lastIdx    = -1;
+        }
+
+        @Override
+        public void reset(SpectrumAnalyser analyser)
+        {
+            // nothing to prepare
+        }
+
+        @Override
+        public void process(SpectrumInfo info)
+        {
+            if ( active.incrementAndGet() > 1 ) { overlaps.incrementAndGet(); }
+            if ( info.sampleIdx <= lastIdx )    { outOfOrder.incrementAndGet(); }
+            lastIdx = info.sampleIdx;
+            // give another worker the chance to pick the same analyser
+            Thread.yield();
+            frames.incrementAndGet();
+            active.decrementAndGet();
+        }
+
+        private final AtomicInteger active;
+        private int                 lastIdx;
+        public final AtomicInteger  frames, overlaps, outOfOrder;
+    }
+
+    /**
+     * Stage that takes a while to process a frame.
+     */
+    private static class SlowStage implements SpectrumAnalyser.Stage
+    {
+        public SlowStage()
+        {
+            calls      = new AtomicInteger(0);
+            processing = false;
+        }
+
+        @Override
+        public void reset(SpectrumAnalyser analyser)
+        {
+            // nothing to prepare
+        }
+
+        @Override
+        public void process(SpectrumInfo info)
+        {
+            processing = true;
+            calls.incrementAndGet();
+            try
+            {
+                Thread.sleep(PROCESS_TIME);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            processing = false;
+        }
+
+
+        // time in ms to process a frame
+        public static final long PROCESS_TIME = 20;
+
+        public final AtomicInteger calls;
+        public volatile boolean    processing;
+    }
+
+
+    // amount of analysers sharing the pool
+    private static final int ANALYSERS = 3;
+
+    private final AnalysisPool pool = new AnalysisPool(2);
+}
@@ -0,0 +1,128 @@
+package analyser;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for opening, selecting, and closing inputs of the audio input pool,
+ * with inputs that are captured directly from fake mixers.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class AudioInputPoolTest
+{
+    @After
+    public void closePool()
+    {
+        if ( pool != null ) { pool.close(); }
+    }
+
+    @Test
+    public void testOpenSelect() throws InterruptedException
+    {
+        pool = createPool(STANDBY_TIME);
+        FakeMixer  mixerA = new FakeMixer("A", 440);
+        FakeMixer  mixerB = new FakeMixer("B", 880);
+        AudioInput inputA = new AudioInput(null, mixerA);
+        AudioInput inputB = new AudioInput(null, mixerB);
+
+        // opening prepares an input without making it active
+        AudioInputPool.Channel channelA = pool.open(inputA);
+        assertSame(inputA, channelA.getInput());
+        assertTrue(channelA.isDirectCapture());
+        assertNull(pool.getActive());
+        assertSame("opening again finds the channel", channelA, pool.open(inputA));
+        assertEquals(1, mixerA.getOpenLineCount());
+
+        assertSame(channelA, pool.select(inputA));
+        AudioInputPool.Channel channelB = pool.select(inputB);
+        assertSame(channelB, pool.getActive());
+        assertEquals(2, pool.getChannels().size());
+        assertEquals(2, pool.getAnalysisPool().getAnalyserCount());
+
+        // the input on standby keeps being analysed
+        long framesA = channelA.getAnalyser().getScheduler().getAnalysedFrameCount();
+        long framesB = channelB.getAnalyser().getScheduler().getAnalysedFrameCount();
+        Thread.sleep(200);
+        assertTrue("standby input analysed", channelA.getAnalyser().getScheduler().getAnalysedFrameCount() > framesA);
+        assertTrue("active input analysed",  channelB.getAnalyser().getScheduler().getAnalysedFrameCount() > framesB);
+
+        // switching back only changes the active channel
+        assertSame(channelA, pool.select(inputA));
+        assertSame(channelA, pool.getActive());
+        assertEquals(1, mixerA.getLines().size());
+        assertEquals(1, mixerB.getLines().size());
+
+        assertNull(pool.select(null));
+        assertNull(pool.getActive());
+        assertEquals(2, pool.getChannels().size());
+    }
+
+    @Test
+    public void testStandbyClose() throws InterruptedException
+    {
+        pool = createPool(100);
+        FakeMixer  mixerA = new FakeMixer("A", 440);
+        FakeMixer  mixerB = new FakeMixer("B", 880);
+        AudioInput inputA = new AudioInput(null, mixerA);
+        AudioInput inputB = new AudioInput(null, mixerB);
+        AudioInputPool.Channel channelA = pool.select(inputA);
+        AudioInputPool.Channel channelB = pool.select(inputB);
+
+        // recently used inputs stay open
+        pool.closeIdleChannels();
+        assertEquals(2, pool.getChannels().size());
+
+        Thread.sleep(200);
+        pool.closeIdleChannels();
+        assertEquals(1, pool.getChannels().size());
+        assertSame("the active input stays open", channelB, pool.getChannels().get(0));
+        assertEquals(0, mixerA.getOpenLineCount());
+        assertEquals(1, mixerB.getOpenLineCount());
+        assertNull("analyser detached", channelA.getAnalyser().getEngine());
+        assertEquals(1, pool.getAnalysisPool().getAnalyserCount());
+
+        // selecting the closed input opens it again
+        AudioInputPool.Channel reopened = pool.select(inputA);
+        assertNotSame(channelA, reopened);
+        assertEquals(2, mixerA.getLines().size());
+        assertEquals(1, mixerA.getOpenLineCount());
+    }
+
+    @Test
+    public void testClose()
+    {
+        pool = createPool(STANDBY_TIME);
+        FakeMixer mixer = new FakeMixer("A", 440);
+        pool.select(new AudioInput(null, mixer));
+        pool.open(new AudioInput(null, new FakeMixer("B", 880)));
+        pool.close();
+        assertNull(pool.getActive());
+        assertEquals(0, pool.getChannels().size());
+        assertEquals(0, pool.getAnalysisPool().getAnalyserCount());
+        assertEquals(0, mixer.getOpenLineCount());
+        pool = null;
+    }
+
+    /**
+     * Creates a pool with two analysis threads that captures its inputs directly.
+     *
+     * @param standbyTime  the time in ms that inactive inputs stay open
+     * @return the pool
+     */
+    private static AudioInputPool createPool(long standbyTime)
+    {
+        // the applet is only needed for opening inputs with Minim
+        AudioInputPool pool = new AudioInputPool(null, 60, 4, 2, standbyTime);
+        pool.setDirectCapture(true);
+        return pool;
+    }
+
+
+    // standby time for tests that do not close idle inputs in ms
+    private static final long STANDBY_TIME = 60000;
+
+    private AudioInputPool pool;
+}
@@ -0,0 +1,137 @@
+package analyser;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the beat detector with synthetic kick patterns.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class BeatDetectorTest
+{
+    @Test
+    public void testKick120()
+    {
+        checkKicks(120);
+    }
+
+    @Test
+    public void testKick95()
+    {
+        checkKicks(95);
+    }
+
+    @Test
+    public void testFlywheel()
+    {
+        BeatDetector      detector = new BeatDetector();
+        Random            random   = new Random(3);
+        SpectrumInfo      info     = new SpectrumInfo();
+        BeatDetector.Beat beat     = new BeatDetector.Beat();
+        info.intensity = new float[BANDS];
+        int frames = (int) (DURATION * FRAME_RATE);
+        for ( int frame = 0 ; frame < frames ; frame++ )
+        {
+            kick(info, frame, 120, random);
+            detector.process(info);
+        }
+        long count = detector.getBeatCount();
+        // silence: only a limited amount of predicted beats follows
+        for ( int frame = frames ; frame < frames * 2 ; frame++ )
+        {
+            info.sampleIdx = getTime(frame);
+            for ( int b = 0 ; b < BANDS ; b++ ) { info.intensity[b] = 0; }
+            detector.process(info);
+        }
+        assertTrue(detector.readLastBeat(beat));
+        assertEquals("predicted beats", count + 4, beat.count);
+        assertEquals("no onset strength", 0, beat.strength, 0);
+    }
+
+    /**
+     * Runs a kick pattern through a detector and checks the tempo and the beat times.
+     *
+     * @param tempo  the tempo of the kicks in beats per minute
+     */
+    private static void checkKicks(float tempo)
+    {
+        BeatDetector      detector = new BeatDetector();
+        Random            random   = new Random(1);
+        SpectrumInfo      info     = new SpectrumInfo();
+        BeatDetector.Beat beat     = new BeatDetector.Beat();
+        info.intensity = new float[BANDS];
+        float period   = 60000 / tempo;
+        long  lastCount = 0;
+        int   lastTime  = 0;
+        int   checked   = 0;
+        for ( int frame = 0 ; frame < DURATION * FRAME_RATE ; frame++ )
+        {
+            kick(info, frame, tempo, random);
+            detector.process(info);
+            if ( detector.readLastBeat(beat) && (beat.count != lastCount) )
+            {
+                if ( (info.sampleIdx > WARM_UP) && (lastCount > 0) )
+                {
+                    // the beats are one frame apart from the ideal period at most
+                    assertEquals("beat interval at " + beat.time, period, beat.time - lastTime, 1000 / FRAME_RATE + 1);
+                    assertEquals("tempo at " + beat.time, tempo, beat.tempo, MAX_TEMPO_ERROR);
+                    checked++;
+                }
+                lastCount = beat.count;
+                lastTime  = beat.time;
+            }
+        }
+        float expected = DURATION * tempo / 60;
+        assertEquals("beat count", expected, detector.getBeatCount(), 2);
+        assertTrue("checked beats " + checked, checked > expected / 2);
+        assertEquals(tempo, detector.getTempo(), MAX_TEMPO_ERROR);
+    }
+
+    /**
+     * Fills the intensities of a frame with a kick pattern:
+     * a decaying burst in the low bands on every beat, over low noise in all bands.
+     *
+     * @param info    the spectrum information to fill
+     * @param frame   the index of the frame
+     * @param tempo   the tempo of the kicks in beats per minute
+     * @param random  the random number generator for the noise
+     */
+    private static void kick(SpectrumInfo info, int frame, float tempo, Random random)
+    {
+        float framesPerBeat = FRAME_RATE * 60 / tempo;
+        float phase         = frame % framesPerBeat;
+        float envelope      = (float) Math.exp(-phase / 4);
+        for ( int b = 0 ; b < BANDS ; b++ )
+        {
+            float kick = (b < BANDS / 4) ? envelope : 0;
+            info.intensity[b] = kick + 0.05f * random.nextFloat();
+        }
+        info.sampleIdx = getTime(frame);
+    }
+
+    /**
+     * Calculates the time of a frame.
+     *
+     * @param frame  the index of the frame
+     * @return the time of the frame in ms
+     */
+    private static int getTime(int frame)
+    {
+        return Math.round(frame * 1000 / FRAME_RATE);
+    }
+
+
+    // amount of bands of the synthetic spectrum
+    private static final int   BANDS           = 32;
+    // frame rate of the synthetic spectrum, the default frame rate of the detector
+    private static final float FRAME_RATE      = 60;
+    // duration of the kick patterns in s
+    private static final float DURATION        = 20;
+    // time in ms until the tempo estimation has settled
+    private static final int   WARM_UP         = 5000;
+    // maximum deviation of the tempo estimation in BPM
+    private static final float MAX_TEMPO_ERROR = 2;
+}
@@ -0,0 +1,86 @@
+package analyser;
+
+import java.util.Random;
+
+/**
+ * Benchmark of the forward transform of the FFT engines at the window sizes of the analyser.
+ *
+ * Every measurement transforms a copy of the same random signal,
+ * and the copy is part of the measured time for both engines.
+ * <p>
+ * Run with <code>java -cp ... analyser.FFTEngineBenchmark</code>.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class FFTEngineBenchmark
+{
+    public static void main(String[] args)
+    {
+        FFTEngineEnum[] types = FFTEngineEnum.values();
+        System.out.print(" size");
+        for ( FFTEngineEnum type : types )
+        {
+            System.out.printf("%10s", type);
+        }
+        System.out.println("   (us per transform)");
+        for ( int size = MIN_SIZE ; size <= MAX_SIZE ; size *= 2 )
+        {
+            System.out.printf("%5d", size);
+            for ( FFTEngineEnum type : types )
+            {
+                FFTEngine engine = type.createEngine(size);
+                // warm up the JIT first
+                measure(engine, WARMUP_TRANSFORMS);
+                double time = Double.MAX_VALUE;
+                for ( int run = 0 ; run < RUNS ; run++ )
+                {
+                    time = Math.min(time, measure(engine, TRANSFORMS));
+                }
+                System.out.printf("%10.1f", time / 1000);
+            }
+            System.out.println();
+        }
+        System.out.println(sink);
+    }
+
+    /**
+     * Measures the forward transform of an engine.
+     *
+     * @param engine      the FFT engine
+     * @param transforms  the amount of transforms to measure
+     * @return the time per transform in ns
+     */
+    private static double measure(FFTEngine engine, int transforms)
+    {
+        Random  random = new Random(1);
+        float[] signal = new float[engine.getSize()];
+        float[] data   = new float[signal.length];
+        for ( int i = 0 ; i < signal.length ; i++ )
+        {
+            signal[i] = random.nextFloat() * 2 - 1;
+        }
+        long start = System.nanoTime();
+        for ( int t = 0 ; t < transforms ; t++ )
+        {
+            System.arraycopy(signal, 0, data, 0, signal.length);
+            engine.forward(data);
+        }
+        long time = System.nanoTime() - start;
+        sink += data[transforms % data.length];
+        return (double) time / transforms;
+    }
+
+
+    // range of transform sizes to measure
+    private static final int MIN_SIZE          = 1024;
+    private static final int MAX_SIZE          = 16384;
+    // amount of transforms for warming up and per measurement
+    private static final int WARMUP_TRANSFORMS = 2000;
+    private static final int TRANSFORMS        = 200;
+    // amount of measurements, of which the fastest is reported
+    private static final int RUNS              = 20;
+
+    // keeps the transforms from being optimised away
+    private static float sink;
+}
@@ -0,0 +1,224 @@
+package analyser;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Control;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.Line;
+import javax.sound.sampled.LineListener;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.TargetDataLine;
+
+/**
+ * Mixer that provides {@link FakeTargetDataLine}s instead of capturing audio.
+ *
+ * Every requested capture line is a new fake line with the sine wave frequency of the mixer.
+ * The mixer keeps all lines it has provided, so tests can check if they have been closed.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class FakeMixer implements Mixer
+{
+    /**
+     * Creates a fake mixer.
+     *
+     * @param name       the name of the mixer
+     * @param frequency  the frequency of the sine wave of the lines in Hz
+     */
+    public FakeMixer(String name, float frequency)
+    {
+        this.info      = new Info(name);
+        this.frequency = frequency;
+        lines          = new ArrayList<FakeTargetDataLine>();
+    }
+
+    /**
+     * Gets all lines that the mixer has provided.
+     *
+     * @return the lines
+     */
+    public synchronized List<FakeTargetDataLine> getLines()
+    {
+        return new ArrayList<FakeTargetDataLine>(lines);
+    }
+
+    /**
+     * Gets the amount of provided lines that are open.
+     *
+     * @return the amount of open lines
+     */
+    public synchronized int getOpenLineCount()
+    {
+        int count = 0;
+        for ( FakeTargetDataLine line : lines )
+        {
+            if ( line.isOpen() ) { count++; }
+        }
+        return count;
+    }
+
+    @Override
+    public Mixer.Info getMixerInfo()
+    {
+        return info;
+    }
+
+    @Override
+    public Line.Info[] getSourceLineInfo()
+    {
+        return new Line.Info[0];
+    }
+
+    @Override
+    public Line.Info[] getTargetLineInfo()
+    {
+        return new Line.Info[] { new Line.Info(TargetDataLine.class) };
+    }
+
+    @Override
+    public Line.Info[] getSourceLineInfo(Line.Info info)
+    {
+        return new Line.Info[0];
+    }
+
+    @Override
+    public Line.Info[] getTargetLineInfo(Line.Info info)
+    {
+        return isLineSupported(info) ? new Line.Info[] { info } : new Line.Info[0];
+    }
+
+    @Override
+    public boolean isLineSupported(Line.Info info)
+    {
+        return (info instanceof DataLine.Info) && TargetDataLine.class.equals(info.getLineClass()) &&
+               (((DataLine.Info) info).getFormats().length > 0);
+    }
+
+    @Override
+    public synchronized Line getLine(Line.Info info)
+    {
+        if ( !isLineSupported(info) )
+        {
+            throw new IllegalArgumentException("Unsupported line " + info);
+        }
+        AudioFormat        format = ((DataLine.Info) info).getFormats()[0];
+        FakeTargetDataLine line   = new FakeTargetDataLine(format, frequency);
+        lines.add(line);
+        return line;
+    }
+
+    @Override
+    public int getMaxLines(Line.Info info)
+    {
+        return isLineSupported(info) ? AudioSystem.NOT_SPECIFIED : 0;
+    }
+
+    @Override
+    public Line[] getSourceLines()
+    {
+        return new Line[0];
+    }
+
+    @Override
+    public synchronized Line[] getTargetLines()
+    {
+        List<Line> open = new ArrayList<Line>();
+        for ( FakeTargetDataLine line : lines )
+        {
+            if ( line.isOpen() ) { open.add(line); }
+        }
+        return open.toArray(new Line[open.size()]);
+    }
+
+    @Override
+    public void synchronize(Line[] lines, boolean maintainSync)
+    {
+        throw new IllegalArgumentException("Synchronisation is not supported");
+    }
+
+    @Override
+    public void unsynchronize(Line[] lines)
+    {
+        throw new IllegalArgumentException("Synchronisation is not supported");
+    }
+
+    @Override
+    public boolean isSynchronizationSupported(Line[] lines, boolean maintainSync)
+    {
+        return false;
+    }
+
+    @Override
+    public Line.Info getLineInfo()
+    {
+        return new Line.Info(Mixer.class);
+    }
+
+    @Override
+    public void open()
+    {
+        // the lines are opened individually
+    }
+
+    @Override
+    public void close()
+    {
+        // the lines are closed individually
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return true;
+    }
+
+    @Override
+    public Control[] getControls()
+    {
+        return new Control[0];
+    }
+
+    @Override
+    public boolean isControlSupported(Control.Type control)
+    {
+        return false;
+    }
+
+    @Override
+    public Control getControl(Control.Type control)
+    {
+        throw new IllegalArgumentException("Unsupported control " + control);
+    }
+
+    @Override
+    public void addLineListener(LineListener listener)
+    {
+        // no line events
+    }
+
+    @Override
+    public void removeLineListener(LineListener listener)
+    {
+        // no line events
+    }
+
+
+    /**
+     * Information about a fake mixer.
+     */
+    private static class Info extends Mixer.Info
+    {
+        public Info(String name)
+        {
+            super(name, "SoundBites", "Fake mixer for tests", "1.0");
+        }
+    }
+
+
+    private final Mixer.Info               info;
+    private final float                    frequency;
+    private final List<FakeTargetDataLine> lines;
+}
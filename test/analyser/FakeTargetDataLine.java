@@ -0,0 +1,276 @@
+package analyser;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Control;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineListener;
+import javax.sound.sampled.TargetDataLine;
+
+/**
+ * Target data line that produces a sine wave instead of capturing audio.
+ *
+ * The data is delivered at the sample rate of the format, like a real line.
+ * Every read returns a few bytes less than requested, so sample frames
+ * are split across reads and the reader has to keep incomplete frames.
+ * Signed 16 and 24 bit samples in both byte orders are supported.
+ * The left channel has an amplitude of {@link #AMPLITUDE_LEFT},
+ * the right channel has an amplitude of {@link #AMPLITUDE_RIGHT}.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class FakeTargetDataLine implements TargetDataLine
+{
+    /**
+     * Creates a fake line.
+     *
+     * @param format     the format of the produced data
+     * @param frequency  the frequency of the sine wave in Hz
+     */
+    public FakeTargetDataLine(AudioFormat format, float frequency)
+    {
+        this.format    = format;
+        this.frequency = frequency;
+        sample         = new byte[4];
+        bufferSize     = 0;
+        open           = false;
+        running        = false;
+        startTime      = 0;
+        position       = 0;
+    }
+
+    /**
+     * Encodes a sample in the byte order and sample size of a format.
+     *
+     * @param format  the audio format
+     * @param value   the sample in the range -1...1
+     * @param data    the array to write the sample into
+     * @param idx     the index of the first byte of the sample
+     */
+    public static void encode(AudioFormat format, double value, byte[] data, int idx)
+    {
+        int bytes  = format.getSampleSizeInBits() / 8;
+        int sample = (int) Math.round(value * ((1 << (format.getSampleSizeInBits() - 1)) - 1));
+        for ( int b = 0 ; b < bytes ; b++ )
+        {
+            int shift = format.isBigEndian() ? 8 * (bytes - 1 - b) : 8 * b;
+            data[idx + b] = (byte) (sample >> shift);
+        }
+    }
+
+    @Override
+    public void open(AudioFormat format, int bufferSize)
+    {
+        this.bufferSize = bufferSize;
+        open = true;
+    }
+
+    @Override
+    public void open(AudioFormat format)
+    {
+        open(format, format.getFrameSize() * (int) format.getSampleRate());
+    }
+
+    @Override
+    public void open()
+    {
+        open(format);
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len)
+    {
+        // return a few bytes less than requested, so sample frames are split across reads
+        int bytes = (len > SPLIT_BYTES) ? len - SPLIT_BYTES : len;
+        if ( !running || (bytes <= 0) ) return 0;
+
+        // deliver the data when a real line would have it
+        long due = startTime + (long) ((position + bytes) / format.getFrameSize() * 1e9 / format.getSampleRate());
+        while ( running && (System.nanoTime() < due) )
+        {
+            try
+            {
+                wait(1);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+        }
+        if ( !running ) return 0;
+
+        int frameSize      = format.getFrameSize();
+        int bytesPerSample = format.getSampleSizeInBits() / 8;
+        for ( int i = 0 ; i < bytes ; i++ )
+        {
+            long idx   = position + i;
+            int  inner = (int) (idx % frameSize);
+            encode(format, getSample(idx / frameSize, inner / bytesPerSample), sample, 0);
+            b[off + i] = sample[inner % bytesPerSample];
+        }
+        position += bytes;
+        return bytes;
+    }
+
+    /**
+     * Gets a sample of the sine wave that the line produces.
+     *
+     * @param frame    the index of the sample frame
+     * @param channel  the channel (0: left, 1: right)
+     * @return the sample in the range -1...1
+     */
+    public double getSample(long frame, int channel)
+    {
+        double v = Math.sin(2 * Math.PI * frequency * frame / format.getSampleRate());
+        return v * ((channel == 0) ? AMPLITUDE_LEFT : AMPLITUDE_RIGHT);
+    }
+
+    @Override
+    public void drain()
+    {
+        // nothing is buffered
+    }
+
+    @Override
+    public synchronized void flush()
+    {
+        // nothing is buffered
+    }
+
+    @Override
+    public synchronized void start()
+    {
+        if ( running ) return;
+        running   = true;
+        startTime = System.nanoTime() - (long) (position / format.getFrameSize() * 1e9 / format.getSampleRate());
+    }
+
+    @Override
+    public synchronized void stop()
+    {
+        running = false;
+        notifyAll();
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+        return running;
+    }
+
+    @Override
+    public boolean isActive()
+    {
+        return running;
+    }
+
+    @Override
+    public AudioFormat getFormat()
+    {
+        return format;
+    }
+
+    @Override
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    @Override
+    public int available()
+    {
+        return 0;
+    }
+
+    @Override
+    public int getFramePosition()
+    {
+        return (int) getLongFramePosition();
+    }
+
+    @Override
+    public long getLongFramePosition()
+    {
+        return position / format.getFrameSize();
+    }
+
+    @Override
+    public long getMicrosecondPosition()
+    {
+        return (long) (getLongFramePosition() * 1e6 / format.getSampleRate());
+    }
+
+    @Override
+    public float getLevel()
+    {
+        return AudioSystem.NOT_SPECIFIED;
+    }
+
+    @Override
+    public DataLine.Info getLineInfo()
+    {
+        return new DataLine.Info(TargetDataLine.class, format);
+    }
+
+    @Override
+    public void close()
+    {
+        stop();
+        open = false;
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return open;
+    }
+
+    @Override
+    public Control[] getControls()
+    {
+        return new Control[0];
+    }
+
+    @Override
+    public boolean isControlSupported(Control.Type control)
+    {
+        return false;
+    }
+
+    @Override
+    public Control getControl(Control.Type control)
+    {
+        throw new IllegalArgumentException("Unsupported control " + control);
+    }
+
+    @Override
+    public void addLineListener(LineListener listener)
+    {
+        // no line events
+    }
+
+    @Override
+    public void removeLineListener(LineListener listener)
+    {
+        // no line events
+    }
+
+
+    /** amplitude of the left channel */
+    public static final double AMPLITUDE_LEFT  = 0.5;
+    /** amplitude of the right channel */
+    public static final double AMPLITUDE_RIGHT = -0.25;
+
+    // amount of bytes that each read returns less than requested
+    private static final int SPLIT_BYTES = 3;
+
+    private final AudioFormat format;
+    private final float       frequency;
+    private final byte[]      sample;
+    private int               bufferSize;
+    private volatile boolean  open, running;
+    // position is the amount of bytes delivered so far
+    private long              startTime, position;
+}
@@ -0,0 +1,130 @@
+package analyser;
+
+import java.util.Arrays;
+import javax.sound.sampled.AudioFormat;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for converting captured PCM data and for capturing from a line,
+ * using the {@link FakeTargetDataLine}.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class LineCaptureTest
+{
+    @Test
+    public void testDecode()
+    {
+        for ( int bits : new int[] { 16, 24 } )
+        {
+            for ( boolean bigEndian : new boolean[] { false, true } )
+            {
+                for ( int channels = 1 ; channels <= 2 ; channels++ )
+                {
+                    checkDecode(new AudioFormat(44100, bits, channels, true, bigEndian));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFormat()
+    {
+        AudioFormat format = new AudioFormat(44100, 8, 2, true, false);
+        new LineCapture(new FakeTargetDataLine(format, 440), format, BLOCK_SIZE);
+    }
+
+    @Test
+    public void testCapture() throws InterruptedException
+    {
+        AudioFormat        format   = new AudioFormat(44100, 24, 2, true, true);
+        FakeTargetDataLine line     = new FakeTargetDataLine(format, 440);
+        LineCapture        capture  = new LineCapture(line, format, BLOCK_SIZE);
+        SpectrumAnalyser   analyser = new SpectrumAnalyser(60, 10);
+        analyser.setStereo(true);
+        analyser.attachToCapture(capture);
+        Thread.sleep(500);
+        analyser.detachFromAudio();
+        assertFalse("line is closed", line.isOpen());
+        assertTrue("blocks have been captured", capture.getReadCount() > 10);
+        assertTrue("frames have been analysed", analyser.getScheduler().getAnalysedFrameCount() > 10);
+
+        // the reads split sample frames, so the samples only match if the split frames are joined correctly
+        long    frames = line.getLongFramePosition();
+        float[] left   = new float[BLOCK_SIZE * 4];
+        float[] right  = new float[left.length];
+        analyser.copyAudioDataL(left);
+        analyser.copyAudioDataR(right);
+        for ( int i = 0 ; i < left.length ; i++ )
+        {
+            long frame = frames - left.length + i;
+            assertEquals("left sample " + frame,  line.getSample(frame, 0), left[i],  MAX_ERROR_24);
+            assertEquals("right sample " + frame, line.getSample(frame, 1), right[i], MAX_ERROR_24);
+        }
+    }
+
+    /**
+     * Checks the conversion of a block of PCM data that wraps around the end of the circular buffers.
+     *
+     * @param format  the format of the PCM data
+     */
+    private static void checkDecode(AudioFormat format)
+    {
+        int    bytesPerSample = format.getSampleSizeInBits() / 8;
+        byte[] pcm            = new byte[BLOCK_SIZE * format.getFrameSize()];
+        for ( int frame = 0 ; frame < BLOCK_SIZE ; frame++ )
+        {
+            for ( int ch = 0 ; ch < format.getChannels() ; ch++ )
+            {
+                FakeTargetDataLine.encode(format, getSample(frame, ch), pcm, frame * format.getFrameSize() + ch * bytesPerSample);
+            }
+        }
+        LineCapture capture = new LineCapture(new FakeTargetDataLine(format, 440), format, BLOCK_SIZE);
+        float[]     ringL   = new float[RING_SIZE];
+        float[]     ringR   = new float[RING_SIZE];
+        Arrays.fill(ringL, Float.NaN);
+        Arrays.fill(ringR, Float.NaN);
+        capture.decode(pcm, BLOCK_SIZE, ringL, ringR, WRITE_IDX);
+
+        String name     = format.toString();
+        double maxError = (format.getSampleSizeInBits() == 16) ? MAX_ERROR_16 : MAX_ERROR_24;
+        for ( int frame = 0 ; frame < BLOCK_SIZE ; frame++ )
+        {
+            int idx = (WRITE_IDX + frame) % RING_SIZE;
+            // mono samples go into both channels
+            int right = (format.getChannels() == 2) ? 1 : 0;
+            assertEquals(name, getSample(frame, 0),     ringL[idx], maxError);
+            assertEquals(name, getSample(frame, right), ringR[idx], maxError);
+        }
+        // the rest of the buffers is untouched
+        for ( int idx = (WRITE_IDX + BLOCK_SIZE) % RING_SIZE ; idx < WRITE_IDX ; idx++ )
+        {
+            assertTrue(name, Float.isNaN(ringL[idx]) && Float.isNaN(ringR[idx]));
+        }
+    }
+
+    /**
+     * Gets a test sample with different signals for the left and the right channel,
+     * covering almost the whole range of values.
+     *
+     * @param frame    the index of the sample frame
+     * @param channel  the channel (0: left, 1: right)
+     * @return the sample
+     */
+    private static double getSample(int frame, int channel)
+    {
+        return Math.sin(frame * 0.1) * ((channel == 0) ? 0.99 : -0.3);
+    }
+
+
+    private static final int    BLOCK_SIZE   = 512;
+    // the block wraps around the end of the circular buffers
+    private static final int    RING_SIZE    = 1000;
+    private static final int    WRITE_IDX    = 800;
+    // maximum error of the conversion: half a step for rounding,
+    // and up to one step because the encoder scales with 2^(bits-1)-1 and the decoder with 2^(bits-1)
+    private static final double MAX_ERROR_16 = 1.5 / (1 << 15);
+    private static final double MAX_ERROR_24 = 1.5 / (1 << 23);
+}
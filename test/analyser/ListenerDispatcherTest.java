@@ -0,0 +1,108 @@
+package analyser;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the listener dispatcher with listeners that are stuck
+ * or that stop the dispatcher themselves.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class ListenerDispatcherTest
+{
+    @Test
+    public void testDefaultDelivery()
+    {
+        SpectrumAnalyser analyser = new SpectrumAnalyser(60, 4);
+        SpectrumAnalyser.Listener listener = new SpectrumAnalyser.Listener()
+        {
+            @Override
+            public void analysisUpdated(SpectrumAnalyser analyser) { }
+        };
+        assertTrue(analyser.registerListener(listener));
+        assertEquals(SpectrumAnalyser.Delivery.LATEST,
+                     analyser.getDispatcher().getSubscription(listener).getDelivery());
+    }
+
+    @Test
+    public void testStuckBlockingListener() throws InterruptedException
+    {
+        final CountDownLatch release    = new CountDownLatch(1);
+        SpectrumAnalyser     analyser   = new SpectrumAnalyser(60, 4);
+        ListenerDispatcher   dispatcher = analyser.getDispatcher();
+        SpectrumAnalyser.Listener listener = new SpectrumAnalyser.Listener()
+        {
+            @Override
+            public void analysisUpdated(SpectrumAnalyser analyser)
+            {
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        analyser.registerListener(listener, SpectrumAnalyser.Delivery.BLOCKING);
+        dispatcher.start();
+        try
+        {
+            long maxTime = 0;
+            for ( int frame = 0 ; frame < FRAMES ; frame++ )
+            {
+                long start = System.nanoTime();
+                assertTrue(dispatcher.publish(frame));
+                maxTime = Math.max(maxTime, System.nanoTime() - start);
+            }
+            assertTrue("publishing waited " + maxTime / 1000000 + "ms", maxTime < 5 * ListenerDispatcher.MAX_BLOCK_TIME);
+            assertTrue(dispatcher.getBlockedCount() > 0);
+            assertTrue(dispatcher.getOverflowCount() > 0);
+
+            release.countDown();
+            ListenerDispatcher.Subscription s = dispatcher.getSubscription(listener);
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while ( (s.getDeliveredCount() + s.getSkippedCount() < FRAMES) && (System.nanoTime() < end) )
+            {
+                Thread.sleep(10);
+            }
+            // every notification is either delivered or counted as skipped
+            assertEquals(FRAMES, s.getDeliveredCount() + s.getSkippedCount());
+            assertTrue(s.getSkippedCount() > 0);
+        }
+        finally
+        {
+            release.countDown();
+            dispatcher.stop();
+        }
+    }
+
+    @Test
+    public void testStopFromListener() throws InterruptedException
+    {
+        final CountDownLatch     stopped    = new CountDownLatch(1);
+        SpectrumAnalyser         analyser   = new SpectrumAnalyser(60, 4);
+        final ListenerDispatcher dispatcher = analyser.getDispatcher();
+        analyser.registerListener(new SpectrumAnalyser.Listener()
+        {
+            @Override
+            public void analysisUpdated(SpectrumAnalyser analyser)
+            {
+                dispatcher.stop();
+                stopped.countDown();
+            }
+        });
+        dispatcher.start();
+        dispatcher.publish(0);
+        assertTrue("stop() from a listener has returned", stopped.await(2, TimeUnit.SECONDS));
+    }
+
+
+    // amount of published notifications, more than fit into the ring buffer
+    private static final int FRAMES = 80;
+}
@@ -0,0 +1,75 @@
+package analyser;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the multi-rate engine has the band layout of the FFT engine
+ * and that sines peak in the same band with both engines.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class MultiRateSpectrumEngineTest
+{
+    @Test
+    public void testBandFrequencies()
+    {
+        for ( float rate : SAMPLE_RATES )
+        {
+            SpectrumEngine fft       = SpectrumAnalyser.createEngine(SpectrumEngineEnum.FFT,        FFTEngineEnum.REAL, rate);
+            SpectrumEngine multiRate = SpectrumAnalyser.createEngine(SpectrumEngineEnum.MULTI_RATE, FFTEngineEnum.REAL, rate);
+            assertEquals(fft.getBandCount(), multiRate.getBandCount());
+            for ( int band = 0 ; band < fft.getBandCount() ; band++ )
+            {
+                assertEquals("band " + band + " at " + rate + "Hz",
+                             fft.getBandFrequency(band), multiRate.getBandFrequency(band), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testSinePeaks()
+    {
+        for ( float rate : SAMPLE_RATES )
+        {
+            SpectrumEngine fft       = SpectrumAnalyser.createEngine(SpectrumEngineEnum.FFT,        FFTEngineEnum.REAL, rate);
+            SpectrumEngine multiRate = SpectrumAnalyser.createEngine(SpectrumEngineEnum.MULTI_RATE, FFTEngineEnum.REAL, rate);
+            for ( int band = 0 ; band < fft.getBandCount() ; band++ )
+            {
+                float freq = fft.getBandFrequency(band);
+                assertEquals("FFT, band " + band + " at " + rate + "Hz",        band, findPeak(fft,       freq, rate));
+                assertEquals("multi-rate, band " + band + " at " + rate + "Hz", band, findPeak(multiRate, freq, rate));
+            }
+        }
+    }
+
+    /**
+     * Analyses a sine with an engine and finds the band with the highest intensity.
+     *
+     * @param engine  the spectrum engine
+     * @param freq    the frequency of the sine
+     * @param rate    the sample rate
+     * @return the band with the highest intensity
+     */
+    private static int findPeak(SpectrumEngine engine, float freq, float rate)
+    {
+        float[] samples = new float[engine.getWindowSize()];
+        for ( int i = 0 ; i < samples.length ; i++ )
+        {
+            samples[i] = (float) (0.5 * Math.sin(2 * Math.PI * freq * i / rate));
+        }
+        engine.analyse(samples, null);
+        float[] bands = engine.getBands();
+        int     peak  = 0;
+        for ( int band = 1 ; band < bands.length ; band++ )
+        {
+            if ( bands[band] > bands[peak] ) { peak = band; }
+        }
+        return peak;
+    }
+
+
+    // sample rates of common audio inputs
+    private static final float[] SAMPLE_RATES = { 44100, 48000 };
+}
@@ -0,0 +1,107 @@
+package analyser;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for analysing audio files with the offline analyser.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class OfflineAnalyserTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testThreadCount() throws IOException, UnsupportedAudioFileException
+    {
+        File audio = writeAudioFile(folder, "test.wav", DURATION);
+        for ( SpectrumEngineEnum engine : SpectrumEngineEnum.values() )
+        {
+            byte[] single = analyse(audio, engine, 1);
+            byte[] multi  = analyse(audio, engine, THREADS);
+            assertTrue(engine + ": spectrum file is not empty", single.length > 0);
+            assertArrayEquals(engine + ": same output with 1 and " + THREADS + " threads", single, multi);
+        }
+    }
+
+    @Test
+    public void testCancel() throws IOException, UnsupportedAudioFileException
+    {
+        File            audio    = writeAudioFile(folder, "test.wav", DURATION);
+        File            spectrum = new File(folder.getRoot(), "cancelled.txt");
+        OfflineAnalyser analyser = new OfflineAnalyser(60, SpectrumEngineEnum.FFT, SpectrumShaper.LOGARITHMIC, true, THREADS);
+        analyser.cancel();
+        assertFalse(analyser.analyse(audio, spectrum));
+        assertFalse(spectrum.exists());
+    }
+
+    /**
+     * Analyses an audio file into a spectrum file.
+     *
+     * @param audio    the audio file
+     * @param engine   the spectrum engine to use
+     * @param threads  the amount of threads to use
+     * @return the content of the spectrum file
+     * @throws IOException if the files could not be read or written
+     * @throws UnsupportedAudioFileException if the audio file is not supported
+     */
+    private byte[] analyse(File audio, SpectrumEngineEnum engine, int threads) throws IOException, UnsupportedAudioFileException
+    {
+        File            spectrum = new File(folder.getRoot(), engine + "_" + threads + ".txt");
+        OfflineAnalyser analyser = new OfflineAnalyser(60, engine, SpectrumShaper.LOGARITHMIC, true, threads);
+        assertTrue(analyser.analyse(audio, spectrum));
+        assertEquals(1, analyser.getProgress(), 0);
+        return Files.readAllBytes(spectrum.toPath());
+    }
+
+    /**
+     * Writes a stereo WAV file with a sweep in the left channel and noise in the right channel.
+     *
+     * @param folder    the folder to write the file into
+     * @param name      the name of the file
+     * @param duration  the length of the file in s
+     * @return the file
+     * @throws IOException if the file could not be written
+     */
+    static File writeAudioFile(TemporaryFolder folder, String name, float duration) throws IOException
+    {
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, 2, true, false);
+        int         frames = (int) (duration * SAMPLE_RATE);
+        byte[]      data   = new byte[frames * format.getFrameSize()];
+        Random      random = new Random(1);
+        double      phase  = 0;
+        for ( int frame = 0 ; frame < frames ; frame++ )
+        {
+            // sweep from 100Hz to 5kHz
+            phase += 2 * Math.PI * (100 + 4900.0 * frame / frames) / SAMPLE_RATE;
+            int idx = frame * format.getFrameSize();
+            FakeTargetDataLine.encode(format, 0.5 * Math.sin(phase), data, idx);
+            FakeTargetDataLine.encode(format, 0.1 * (random.nextDouble() * 2 - 1), data, idx + 2);
+        }
+        File file = folder.newFile(name);
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(data), format, frames), AudioFileFormat.Type.WAVE, file);
+        return file;
+    }
+
+
+    // sample rate and length of the test file in s
+    private static final float SAMPLE_RATE = 44100;
+    private static final float DURATION    = 5;
+    // amount of threads to compare the single thread output with
+    private static final int   THREADS     = 4;
+}
@@ -0,0 +1,164 @@
+package analyser;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the real FFT engine against a direct DFT and against the Minim FFT engine.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class RealFFTEngineTest
+{
+    @Test
+    public void testAgainstDFT()
+    {
+        Random random = new Random(1);
+        for ( int size = MIN_SIZE ; size <= MAX_SIZE ; size *= 2 )
+        {
+            float[] samples = createSignal(random, size);
+            float[] data    = samples.clone();
+            new RealFFTEngine(size).forward(data);
+            double[] expected = dft(samples);
+            for ( int k = 0 ; k <= size / 2 ; k++ )
+            {
+                assertEquals("size " + size + ", bin " + k, expected[k], getMagnitude(data, k), getMaxError(size));
+            }
+        }
+    }
+
+    @Test
+    public void testAgainstMinim()
+    {
+        Random random = new Random(2);
+        for ( int size = MIN_SIZE ; size <= MAX_SIZE ; size *= 2 )
+        {
+            float[] real  = createSignal(random, size);
+            float[] minim = real.clone();
+            new RealFFTEngine(size).forward(real);
+            new MinimFFTEngine(size).forward(minim);
+            for ( int k = 0 ; k <= size / 2 ; k++ )
+            {
+                assertEquals("size " + size + ", bin " + k, getMagnitude(minim, k), getMagnitude(real, k), MAX_MINIM_ERROR * Math.sqrt(size));
+            }
+        }
+    }
+
+    @Test
+    public void testSine()
+    {
+        // a full scale sine wave in the centre of a bin results in a magnitude of N/2 in that bin only
+        int     size = 4096;
+        int     bin  = 100;
+        float[] data = new float[size];
+        for ( int i = 0 ; i < size ; i++ )
+        {
+            data[i] = (float) Math.sin(2 * Math.PI * bin * i / size);
+        }
+        new RealFFTEngine(size).forward(data);
+        for ( int k = 0 ; k <= size / 2 ; k++ )
+        {
+            double expected = (k == bin) ? size / 2 : 0;
+            assertEquals("bin " + k, expected, getMagnitude(data, k), getMaxError(size) + expected * MAX_SINE_ERROR);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize()
+    {
+        new RealFFTEngine(1000);
+    }
+
+    /**
+     * Creates a random signal in the range -1...1.
+     *
+     * @param random  the random number generator
+     * @param size    the amount of samples
+     * @return the signal
+     */
+    private static float[] createSignal(Random random, int size)
+    {
+        float[] samples = new float[size];
+        for ( int i = 0 ; i < size ; i++ )
+        {
+            samples[i] = random.nextFloat() * 2 - 1;
+        }
+        return samples;
+    }
+
+    /**
+     * Calculates the magnitudes of the spectrum of a real signal with a direct DFT in double precision.
+     *
+     * @param samples  the signal
+     * @return the magnitudes of the bins 0 to N/2
+     */
+    private static double[] dft(float[] samples)
+    {
+        int      n         = samples.length;
+        double[] cos       = new double[n];
+        double[] sin       = new double[n];
+        double[] magnitude = new double[n / 2 + 1];
+        for ( int i = 0 ; i < n ; i++ )
+        {
+            cos[i] = Math.cos(2 * Math.PI * i / n);
+            sin[i] = Math.sin(2 * Math.PI * i / n);
+        }
+        for ( int k = 0 ; k <= n / 2 ; k++ )
+        {
+            double re  = 0;
+            double im  = 0;
+            int    idx = 0;
+            for ( int i = 0 ; i < n ; i++ )
+            {
+                re += samples[i] * cos[idx];
+                im -= samples[i] * sin[idx];
+                // (k * i) mod n without overflow
+                idx += k;
+                if ( idx >= n ) { idx -= n; }
+            }
+            magnitude[k] = Math.hypot(re, im);
+        }
+        return magnitude;
+    }
+
+    /**
+     * Gets the magnitude of a bin of a packed spectrum.
+     *
+     * @param data  the packed spectrum
+     * @param k     the index of the bin (0...N/2)
+     * @return the magnitude
+     */
+    private static double getMagnitude(float[] data, int k)
+    {
+        if ( k == 0 )               return Math.abs(data[0]);
+        if ( k == data.length / 2 ) return Math.abs(data[1]);
+        return Math.hypot(data[2 * k], data[2 * k + 1]);
+    }
+
+    /**
+     * Gets the maximum error of a magnitude.
+     * The rounding errors of the float calculation grow with the square root of the size
+     * and with the amount of stages (about 2e-8 per unit measured).
+     *
+     * @param size  the size of the transform
+     * @return the maximum absolute error
+     */
+    private static double getMaxError(int size)
+    {
+        return MAX_RELATIVE_ERROR * Math.sqrt(size) * Integer.numberOfTrailingZeros(size);
+    }
+
+
+    // range of transform sizes to test, which covers the window sizes of the analyser
+    private static final int    MIN_SIZE           = 4;
+    private static final int    MAX_SIZE           = 16384;
+    // maximum error relative to the square root of the size times the amount of stages
+    private static final double MAX_RELATIVE_ERROR = 1e-7;
+    // the Minim FFT is less precise, so the comparison allows a larger error
+    // relative to the square root of the size (up to 1e-4 measured)
+    private static final double MAX_MINIM_ERROR    = 5e-4;
+    // maximum error of the peak of the sine wave relative to its magnitude (rounding of the samples)
+    private static final double MAX_SINE_ERROR     = 1e-6;
+}
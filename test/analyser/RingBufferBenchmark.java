@@ -0,0 +1,178 @@
+package analyser;
+
+/**
+ * Benchmark of the cost of the audio callback for copying samples into the input buffers,
+ * with the shifted input buffers that the analyser used before and with the circular buffers.
+ *
+ * The shifted buffers hold one analysis window and one audio block,
+ * and every callback moves the whole buffer by one block before appending the new samples.
+ * The circular buffers are larger, so the analysis can lag behind,
+ * but every callback only copies the new samples.
+ * Reading an analysis window costs the same in both cases, one copy of a window,
+ * and is measured separately since it has moved to the analysis thread.
+ * <p>
+ * Run with <code>java -cp ... analyser.RingBufferBenchmark</code>.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class RingBufferBenchmark
+{
+    public static void main(String[] args)
+    {
+        System.out.println("block   shifting   circular   window read (ns per callback, both channels)");
+        for ( int block : BLOCK_SIZES )
+        {
+            // warm up the JIT with every variant first
+            measureShifting(block, WARMUP_CALLBACKS);
+            measureRing(block, WARMUP_CALLBACKS);
+            measureWindow(block, WARMUP_CALLBACKS);
+            double shifting = Double.MAX_VALUE;
+            double ring     = Double.MAX_VALUE;
+            double window   = Double.MAX_VALUE;
+            for ( int run = 0 ; run < RUNS ; run++ )
+            {
+                shifting = Math.min(shifting, measureShifting(block, CALLBACKS));
+                ring     = Math.min(ring,     measureRing(block, CALLBACKS));
+                window   = Math.min(window,   measureWindow(block, CALLBACKS));
+            }
+            System.out.printf("%5d %10.1f %10.1f %13.1f%n", block, shifting, ring, window);
+        }
+        System.out.println(sink);
+    }
+
+    /**
+     * Measures the callback with shifted input buffers, as before the circular buffers.
+     *
+     * @param block      the amount of samples per callback
+     * @param callbacks  the amount of callbacks to measure
+     * @return the time per callback in ns
+     */
+    private static double measureShifting(int block, int callbacks)
+    {
+        float[] sampL = createBlock(block);
+        float[] sampR = createBlock(block);
+        float[] rawL  = new float[WINDOW_SIZE + block];
+        float[] rawR  = new float[WINDOW_SIZE + block];
+        long    start = System.nanoTime();
+        for ( int c = 0 ; c < callbacks ; c++ )
+        {
+            System.arraycopy(rawL, sampL.length, rawL, 0, rawL.length - sampL.length);
+            System.arraycopy(rawR, sampR.length, rawR, 0, rawR.length - sampR.length);
+            System.arraycopy(sampL, 0, rawL, rawL.length - sampL.length, sampL.length);
+            System.arraycopy(sampR, 0, rawR, rawR.length - sampR.length, sampR.length);
+        }
+        long time = System.nanoTime() - start;
+        sink += rawL[pick(callbacks, rawL.length)] + rawR[0];
+        return (double) time / callbacks;
+    }
+
+    /**
+     * Measures the callback with circular input buffers of the size that the analyser uses.
+     *
+     * @param block      the amount of samples per callback
+     * @param callbacks  the amount of callbacks to measure
+     * @return the time per callback in ns
+     */
+    private static double measureRing(int block, int callbacks)
+    {
+        float[] sampL    = createBlock(block);
+        float[] sampR    = createBlock(block);
+        float[] rawL     = new float[getRingSize(block)];
+        float[] rawR     = new float[rawL.length];
+        int     writeIdx = 0;
+        long    start    = System.nanoTime();
+        for ( int c = 0 ; c < callbacks ; c++ )
+        {
+            SpectrumAnalyser.writeToRing(sampL, rawL, writeIdx);
+            SpectrumAnalyser.writeToRing(sampR, rawR, writeIdx);
+            writeIdx = (writeIdx + sampL.length) % rawL.length;
+        }
+        long time = System.nanoTime() - start;
+        sink += rawL[pick(callbacks, rawL.length)] + rawR[writeIdx];
+        return (double) time / callbacks;
+    }
+
+    /**
+     * Measures reading one analysis window of both channels out of the circular buffers,
+     * at positions that move like the analysis, so some windows cross the end of the buffer.
+     *
+     * @param block      the amount of samples per callback
+     * @param callbacks  the amount of windows to read
+     * @return the time per window in ns
+     */
+    private static double measureWindow(int block, int callbacks)
+    {
+        float[] rawL    = createBlock(getRingSize(block));
+        float[] rawR    = createBlock(rawL.length);
+        float[] fftL    = new float[WINDOW_SIZE];
+        float[] fftR    = new float[WINDOW_SIZE];
+        int     readIdx = 0;
+        long    start   = System.nanoTime();
+        for ( int c = 0 ; c < callbacks ; c++ )
+        {
+            SpectrumAnalyser.readFromRing(rawL, readIdx, fftL);
+            SpectrumAnalyser.readFromRing(rawR, readIdx, fftR);
+            readIdx = (readIdx + HOP_SIZE) % rawL.length;
+        }
+        long time = System.nanoTime() - start;
+        sink += fftL[pick(callbacks, fftL.length)] + fftR[0];
+        return (double) time / callbacks;
+    }
+
+    /**
+     * Calculates the size of the circular buffers like {@link SpectrumAnalyser} does.
+     *
+     * @param block  the amount of samples per callback
+     * @return the size of the circular buffers
+     */
+    private static int getRingSize(int block)
+    {
+        return WINDOW_SIZE + LAG_BUFFERS * (block + HOP_SIZE);
+    }
+
+    /**
+     * Creates a block of samples.
+     *
+     * @param size  the amount of samples
+     * @return the samples
+     */
+    private static float[] createBlock(int size)
+    {
+        float[] samples = new float[size];
+        for ( int i = 0 ; i < size ; i++ )
+        {
+            samples[i] = (float) Math.sin(i * 0.1);
+        }
+        return samples;
+    }
+
+    /**
+     * Picks an index from the amount of callbacks, so the result depends on the loop.
+     *
+     * @param callbacks  the amount of callbacks
+     * @param length     the length of the array
+     * @return the index
+     */
+    private static int pick(int callbacks, int length)
+    {
+        return callbacks % length;
+    }
+
+
+    // audio block sizes to measure
+    private static final int[] BLOCK_SIZES      = { 64, 256, 1024 };
+    // analysis window and hop size at 44.1kHz and 60 analyses per second
+    private static final int   WINDOW_SIZE      = 2048;
+    private static final int   HOP_SIZE         = 735;
+    // amount of blocks the analysis may lag behind, as in the analyser
+    private static final int   LAG_BUFFERS      = 4;
+    // amount of callbacks for warming up and per measurement
+    private static final int   WARMUP_CALLBACKS = 200000;
+    private static final int   CALLBACKS        = 1000000;
+    // amount of measurements, of which the fastest is reported
+    private static final int   RUNS             = 5;
+
+    // keeps the copies from being optimised away
+    private static float sink;
+}
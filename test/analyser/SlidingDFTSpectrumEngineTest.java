@@ -0,0 +1,130 @@
+package analyser;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the incremental updates of the sliding DFT engine match a full re-synchronisation,
+ * and that the window position decides when the engine re-synchronises.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SlidingDFTSpectrumEngineTest
+{
+    @Test
+    public void testIncrementalMono()
+    {
+        checkIncremental(false);
+    }
+
+    @Test
+    public void testIncrementalStereo()
+    {
+        checkIncremental(true);
+    }
+
+    @Test
+    public void testDiscontinuity()
+    {
+        SpectrumEngine sliding = createEngine();
+        SpectrumEngine resync  = createEngine();
+        float[][]      signal  = createSignal(1);
+        int            size    = sliding.getWindowSize();
+        // skipping a frame, jumping back, or missing the position re-synchronises,
+        // which gives exactly the bands of a re-synchronised engine (the window without position is at 3 * HOP)
+        long[]    starts  = { 0, HOP, 3 * HOP, 2 * HOP, -1, 3 * HOP, 4 * HOP };
+        boolean[] exact   = { true, false, true, true, true, true, false };
+        float[]   windowL = new float[size];
+        for ( int i = 0 ; i < starts.length ; i++ )
+        {
+            System.arraycopy(signal[0], (int) ((starts[i] >= 0) ? starts[i] : 3 * HOP), windowL, 0, size);
+            sliding.setWindowStart(starts[i]);
+            sliding.analyse(windowL.clone(), null);
+            resync.analyse(windowL.clone(), null);
+            assertArrayEquals("window at " + starts[i], resync.getBands(), sliding.getBands(), exact[i] ? 0 : MAX_ERROR);
+        }
+    }
+
+    /**
+     * Analyses a signal with continuous windows, once with the window positions
+     * and once without, which re-synchronises every window, and compares the bands.
+     *
+     * @param stereo  <code>true</code> for a stereo signal, <code>false</code> for mono
+     */
+    private static void checkIncremental(boolean stereo)
+    {
+        SpectrumEngine sliding = createEngine();
+        SpectrumEngine resync  = createEngine();
+        float[][]      signal  = createSignal(stereo ? 2 : 1);
+        int            size    = sliding.getWindowSize();
+        float[]        windowL = new float[size];
+        float[]        windowR = new float[size];
+        for ( int frame = 0 ; frame < FRAMES ; frame++ )
+        {
+            int start = frame * HOP;
+            System.arraycopy(signal[0], start, windowL, 0, size);
+            if ( stereo ) { System.arraycopy(signal[1], start, windowR, 0, size); }
+            sliding.setWindowStart(start);
+            sliding.analyse(windowL.clone(), stereo ? windowR.clone() : null);
+            resync.analyse(windowL.clone(), stereo ? windowR.clone() : null);
+            float[] expected = resync.getBands();
+            float[] actual   = sliding.getBands();
+            for ( int band = 0 ; band < expected.length ; band++ )
+            {
+                assertEquals("frame " + frame + ", band " + band, expected[band], actual[band], MAX_ERROR);
+            }
+            if ( stereo )
+            {
+                assertArrayEquals(resync.getStereoBands(MaxFFT.SIDE), sliding.getStereoBands(MaxFFT.SIDE), MAX_ERROR);
+            }
+        }
+    }
+
+    /**
+     * Creates a sliding DFT engine with the standard parameters.
+     *
+     * @return the engine
+     */
+    private static SpectrumEngine createEngine()
+    {
+        SpectrumEngine engine = SpectrumAnalyser.createEngine(SpectrumEngineEnum.SLIDING_DFT, FFTEngineEnum.REAL, RATE);
+        engine.setHopSize(HOP);
+        return engine;
+    }
+
+    /**
+     * Creates a test signal of a few sines over noise, long enough for all test frames.
+     *
+     * @param channels  the amount of channels
+     * @return the samples of each channel
+     */
+    private static float[][] createSignal(int channels)
+    {
+        Random    random = new Random(1);
+        int       length = FRAMES * HOP + createEngine().getWindowSize();
+        float[][] signal = new float[channels][length];
+        for ( int c = 0 ; c < channels ; c++ )
+        {
+            for ( int i = 0 ; i < length ; i++ )
+            {
+                double t = i / (double) RATE;
+                signal[c][i] = (float) (0.3 * Math.sin(2 * Math.PI * 110 * (c + 1) * t) +
+                                        0.2 * Math.sin(2 * Math.PI * 2500 * t) +
+                                        0.1 * (random.nextDouble() - 0.5));
+            }
+        }
+        return signal;
+    }
+
+
+    // sample rate of the test signal
+    private static final float RATE      = 44100;
+    // amount of samples between two windows, as for 60 frames per second
+    private static final int   HOP       = 735;
+    // amount of analysed frames, less than one re-synchronisation interval
+    private static final int   FRAMES    = 50;
+    // maximum difference between the incremental and the re-synchronised intensities
+    private static final float MAX_ERROR = 1e-5f;
+}
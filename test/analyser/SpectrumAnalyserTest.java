@@ -0,0 +1,166 @@
+package analyser;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sound.sampled.AudioFormat;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the subscriptions to the representations of the spectrum,
+ * for removing stages while the analyser is running, and for the archive of the analyser.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumAnalyserTest
+{
+    @Test
+    public void testUnsubscribe()
+    {
+        SpectrumAnalyser analyser = new SpectrumAnalyser(60, 4);
+        assertFalse("no subscription", analyser.unsubscribe(SpectrumAnalyser.Representation.RAW));
+        assertFalse(analyser.isRawSpectrumEnabled());
+
+        analyser.subscribe(SpectrumAnalyser.Representation.BOTH);
+        assertTrue(analyser.isRawSpectrumEnabled());
+        assertTrue(analyser.unsubscribe(SpectrumAnalyser.Representation.BOTH));
+        assertFalse(analyser.unsubscribe(SpectrumAnalyser.Representation.RAW));
+        assertFalse(analyser.isRawSpectrumEnabled());
+
+        // the extra call must not swallow the next subscription
+        analyser.subscribe(SpectrumAnalyser.Representation.RAW);
+        assertTrue(analyser.isRawSpectrumEnabled());
+    }
+
+    @Test
+    public void testRemoveStageWaitsForFrame() throws InterruptedException
+    {
+        SpectrumAnalyser analyser = attach();
+        SlowStage        stage    = new SlowStage(analyser, false);
+        analyser.addStage(stage);
+        long end = System.currentTimeMillis() + 5000;
+        while ( !stage.processing && (System.currentTimeMillis() < end) )
+        {
+            Thread.yield();
+        }
+        assertTrue("stage is processing a frame", stage.processing);
+        assertTrue(analyser.removeStage(stage));
+        assertFalse("frame has passed the stage", stage.processing);
+        int calls = stage.calls.get();
+        Thread.sleep(SlowStage.PROCESS_TIME * 5);
+        assertEquals("no calls after removing", calls, stage.calls.get());
+        analyser.detachFromAudio();
+    }
+
+    @Test
+    public void testStageRemovesItself() throws InterruptedException
+    {
+        SpectrumAnalyser analyser = attach();
+        SlowStage        stage    = new SlowStage(analyser, true);
+        analyser.addStage(stage);
+        Thread.sleep(SlowStage.PROCESS_TIME * 10);
+        assertEquals(1, stage.calls.get());
+        assertFalse("stage has removed itself", analyser.removeStage(stage));
+        assertTrue("frames are still analysed", analyser.getScheduler().getAnalysedFrameCount() > 1);
+        analyser.detachFromAudio();
+    }
+
+    @Test
+    public void testArchive() throws InterruptedException
+    {
+        SpectrumAnalyser analyser = attach();
+        SpectrumArchive  archive  = new SpectrumArchive(10);
+        analyser.setArchive(archive);
+        assertSame(archive, analyser.getArchive());
+        assertEquals(analyser.getSpectrumBandCount(), archive.getBandCount());
+        // the archive receives the frames after the stages
+        analyser.addStage(new SpectrumAnalyser.Stage()
+        {
+            @Override
+            public void reset(SpectrumAnalyser analyser)
+            {
+                // nothing to prepare
+            }
+
+            @Override
+            public void process(SpectrumInfo info)
+            {
+                Arrays.fill(info.intensity, 0.5f);
+            }
+        });
+        long end = System.currentTimeMillis() + 5000;
+        while ( (archive.getWriteCount() < 3) && (System.currentTimeMillis() < end) )
+        {
+            Thread.sleep(10);
+        }
+        analyser.detachFromAudio();
+        SpectrumArchive.View view = archive.getRecent(2, new SpectrumArchive.View());
+        assertEquals(2, view.getFrameCount());
+        assertTrue("time stamps are sorted", view.getTime(0) <= view.getTime(1));
+        for ( int band = 0 ; band < view.getBandCount() ; band++ )
+        {
+            assertEquals(0.5f, view.get(1, band), 0);
+        }
+        assertTrue(view.isValid());
+    }
+
+    /**
+     * Creates an analyser that analyses a fake audio line.
+     *
+     * @return the attached analyser
+     */
+    private static SpectrumAnalyser attach()
+    {
+        AudioFormat      format   = new AudioFormat(44100, 16, 1, true, false);
+        SpectrumAnalyser analyser = new SpectrumAnalyser(60, 4);
+        analyser.attachToCapture(new LineCapture(new FakeTargetDataLine(format, 440), format, 512));
+        return analyser;
+    }
+
+    /**
+     * Stage that takes a while to process a frame.
+     */
+    private static class SlowStage implements SpectrumAnalyser.Stage
+    {
+        public SlowStage(SpectrumAnalyser analyser, boolean removeItself)
+        {
+            this.analyser     = analyser;
+            this.removeItself = removeItself;
+            calls             = new AtomicInteger(0);
+            processing        = false;
+        }
+
+        @Override
+        public void reset(SpectrumAnalyser analyser)
+        {
+            // nothing to prepare
+        }
+
+        @Override
+        public void process(SpectrumInfo info)
+        {
+            processing = true;
+            calls.incrementAndGet();
+            if ( removeItself ) { analyser.removeStage(this); }
+            try
+            {
+                Thread.sleep(PROCESS_TIME);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            processing = false;
+        }
+
+
+        // time in ms to process a frame
+        public static final long PROCESS_TIME = 20;
+
+        private final SpectrumAnalyser analyser;
+        private final boolean          removeItself;
+        public final AtomicInteger     calls;
+        public volatile boolean        processing;
+    }
+}
@@ -0,0 +1,225 @@
+package analyser;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the time lookup and the views of the spectrum archive,
+ * across the wrap of the ring buffer, jumps back in time, and changes of the band layout.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumArchiveTest
+{
+    @Test
+    public void testEmpty()
+    {
+        SpectrumArchive      archive = new SpectrumArchive(DURATION);
+        SpectrumArchive.View view    = new SpectrumArchive.View();
+        assertEquals(CAPACITY, archive.getCapacity());
+        assertEquals(-1, archive.findFrame(0));
+        assertEquals(Integer.MIN_VALUE, archive.getTime(0));
+        assertEquals(0, archive.getRange(0, 1000, view).getFrameCount());
+        assertEquals(0, archive.getRecent(5, view).getFrameCount());
+        assertTrue("empty view", view.isValid());
+        assertFalse("unused view", new SpectrumArchive.View().isValid());
+    }
+
+    @Test
+    public void testFindFrame()
+    {
+        SpectrumArchive archive = new SpectrumArchive(DURATION);
+        // frame n at time 10 * n
+        write(archive, 0, 25, BANDS);
+        // frames 0...15 have been overwritten
+        assertEquals(16, archive.getOldestFrame());
+        assertEquals(25, archive.getWriteCount());
+        assertEquals(-1, archive.findFrame(159));
+        assertEquals(16, archive.findFrame(160));
+        assertEquals(16, archive.findFrame(169));
+        assertEquals(20, archive.findFrame(200));
+        assertEquals(24, archive.findFrame(240));
+        assertEquals(24, archive.findFrame(100000));
+        for ( long frame = 16 ; frame < 25 ; frame++ )
+        {
+            assertEquals(frame * 10, archive.getTime(frame));
+        }
+        assertEquals(Integer.MIN_VALUE, archive.getTime(15));
+        assertEquals(Integer.MIN_VALUE, archive.getTime(25));
+    }
+
+    @Test
+    public void testRange()
+    {
+        SpectrumArchive      archive = new SpectrumArchive(DURATION);
+        SpectrumArchive.View view    = new SpectrumArchive.View();
+        write(archive, 0, 25, BANDS);
+
+        // the range wraps around the end of the ring buffer (slots 8, 9, 0, 1)
+        archive.getRange(175, 210, view);
+        assertEquals(18, view.getFirstFrame());
+        assertEquals(4, view.getFrameCount());
+        assertEquals(BANDS, view.getBandCount());
+        checkView(view);
+        assertTrue(view.isValid());
+
+        // ranges are clipped to the frames in the archive
+        archive.getRange(0, 165, view);
+        assertEquals(16, view.getFirstFrame());
+        assertEquals(1, view.getFrameCount());
+        archive.getRange(230, 1000, view);
+        assertEquals(23, view.getFirstFrame());
+        assertEquals(2, view.getFrameCount());
+        assertEquals(0, archive.getRange(0, 100, view).getFrameCount());
+        assertEquals(0, archive.getRange(201, 209, view).getFrameCount());
+    }
+
+    @Test
+    public void testRecent()
+    {
+        SpectrumArchive      archive = new SpectrumArchive(DURATION);
+        SpectrumArchive.View view    = new SpectrumArchive.View();
+        write(archive, 0, 3, BANDS);
+        archive.getRecent(5, view);
+        assertEquals(0, view.getFirstFrame());
+        assertEquals(3, view.getFrameCount());
+        checkView(view);
+
+        write(archive, 3, 25, BANDS);
+        archive.getRecent(4, view);
+        assertEquals(21, view.getFirstFrame());
+        assertEquals(4, view.getFrameCount());
+        checkView(view);
+        // one slot is kept free for the frame that is written next
+        archive.getRecent(100, view);
+        assertEquals(16, view.getFirstFrame());
+        assertEquals(CAPACITY - 1, view.getFrameCount());
+        checkView(view);
+    }
+
+    @Test
+    public void testOverwrittenView()
+    {
+        SpectrumArchive      archive = new SpectrumArchive(DURATION);
+        SpectrumArchive.View view    = new SpectrumArchive.View();
+        write(archive, 0, 8, BANDS);
+        archive.getRecent(5, view);
+        assertEquals(3, view.getFirstFrame());
+        assertTrue(view.isValid());
+        // writing frame 12 may overwrite frame 3
+        write(archive, 8, 12, BANDS);
+        assertTrue(view.isValid());
+        write(archive, 12, 13, BANDS);
+        assertFalse("first frame overwritten", view.isValid());
+    }
+
+    @Test
+    public void testTimeJump()
+    {
+        SpectrumArchive      archive = new SpectrumArchive(DURATION);
+        SpectrumArchive.View view    = new SpectrumArchive.View();
+        write(archive, 0, 8, BANDS);
+        archive.getRange(0, 1000, view);
+        // the playback position jumps back: the archive starts over with frame 8
+        SpectrumInfo info = createInfo(8, BANDS);
+        info.sampleIdx = 15;
+        archive.process(info);
+        assertEquals(8, archive.getOldestFrame());
+        assertFalse("frames before the jump are gone", view.isValid());
+        assertEquals(-1, archive.findFrame(10));
+        assertEquals(8, archive.findFrame(15));
+        assertEquals(8, archive.findFrame(1000));
+        archive.getRecent(5, view);
+        assertEquals(8, view.getFirstFrame());
+        assertEquals(1, view.getFrameCount());
+        assertEquals(15, view.getTime(0));
+        assertTrue(view.isValid());
+    }
+
+    @Test
+    public void testLayoutChange()
+    {
+        SpectrumArchive      archive = new SpectrumArchive(DURATION);
+        SpectrumArchive.View view    = new SpectrumArchive.View();
+        write(archive, 0, 5, BANDS);
+        archive.getRecent(5, view);
+        float[] oldData = view.getData();
+        // a frame with another amount of bands starts a new archive
+        write(archive, 0, 2, BANDS * 2);
+        assertFalse("old view is invalid", view.isValid());
+        assertSame("old data stays untouched", oldData, view.getData());
+        assertEquals(BANDS * 2, archive.getBandCount());
+        assertEquals(2, archive.getWriteCount());
+        archive.getRecent(5, view);
+        assertEquals(0, view.getFirstFrame());
+        assertEquals(2, view.getFrameCount());
+        assertEquals(BANDS * 2, view.getBandCount());
+        checkView(view);
+        assertTrue(view.isValid());
+    }
+
+    /**
+     * Writes frames into an archive.
+     * Frame n has the time stamp 10 * n and the intensity n + band / 100 in each band.
+     *
+     * @param archive  the archive
+     * @param start    the number of the first frame
+     * @param end      the number of the frame after the last frame
+     * @param bands    the amount of bands
+     */
+    private static void write(SpectrumArchive archive, int start, int end, int bands)
+    {
+        for ( int frame = start ; frame < end ; frame++ )
+        {
+            archive.process(createInfo(frame, bands));
+        }
+    }
+
+    /**
+     * Creates the spectrum information of a frame written by {@link #write(SpectrumArchive, int, int, int)}.
+     *
+     * @param frame  the number of the frame
+     * @param bands  the amount of bands
+     * @return the spectrum information
+     */
+    private static SpectrumInfo createInfo(int frame, int bands)
+    {
+        SpectrumInfo info = new SpectrumInfo();
+        info.sampleIdx = frame * 10;
+        info.intensity = new float[bands];
+        for ( int band = 0 ; band < bands ; band++ )
+        {
+            info.intensity[band] = frame + band / 100.0f;
+        }
+        return info;
+    }
+
+    /**
+     * Checks the time stamps and the intensities of a view against the frames
+     * written by {@link #write(SpectrumArchive, int, int, int)}.
+     *
+     * @param view  the view to check
+     */
+    private static void checkView(SpectrumArchive.View view)
+    {
+        for ( int idx = 0 ; idx < view.getFrameCount() ; idx++ )
+        {
+            long frame = view.getFirstFrame() + idx;
+            assertEquals(frame * 10, view.getTime(idx));
+            for ( int band = 0 ; band < view.getBandCount() ; band++ )
+            {
+                float expected = frame + band / 100.0f;
+                assertEquals(expected, view.get(idx, band), 0);
+                assertEquals(expected, view.getData()[view.getOffset(idx) + band], 0);
+            }
+        }
+    }
+
+
+    // amount of bands of the test frames
+    private static final int   BANDS    = 4;
+    // capacity of the test archive in frames at the default frame rate of 60 frames per second
+    private static final int   CAPACITY = 10;
+    private static final float DURATION = CAPACITY / 60.0f;
+}
@@ -0,0 +1,95 @@
+package analyser;
+
+import java.util.Random;
+
+/**
+ * Benchmark of the analysis of one frame with the multi-rate engine
+ * against the FFT engine, which runs the MaxFFT log average path on a single long window.
+ *
+ * Both engines are created with the standard analysis parameters of the analyser,
+ * and analyse the same random signal in mono and in stereo.
+ * <p>
+ * Run with <code>java -cp ... analyser.SpectrumEngineBenchmark</code>.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumEngineBenchmark
+{
+    public static void main(String[] args)
+    {
+        SpectrumEngineEnum[] types = { SpectrumEngineEnum.FFT, SpectrumEngineEnum.MULTI_RATE };
+        System.out.println(" rate  engine        window  bands      mono    stereo   (us per frame)");
+        for ( float rate : SAMPLE_RATES )
+        {
+            for ( SpectrumEngineEnum type : types )
+            {
+                SpectrumEngine engine = SpectrumAnalyser.createEngine(type, FFTEngineEnum.REAL, rate);
+                double mono   = measure(engine, false);
+                double stereo = measure(engine, true);
+                System.out.printf("%5.0f  %-12s %7d %6d %9.1f %9.1f%n", rate, type, engine.getWindowSize(),
+                                  engine.getBandCount(), mono / 1000, stereo / 1000);
+            }
+        }
+        System.out.println(sink);
+    }
+
+    /**
+     * Measures the analysis of an engine, after warming up the JIT.
+     *
+     * @param engine  the spectrum engine
+     * @param stereo  <code>true</code> to analyse two channels
+     * @return the fastest time per frame in ns
+     */
+    private static double measure(SpectrumEngine engine, boolean stereo)
+    {
+        Random  random = new Random(1);
+        float[] left   = new float[engine.getWindowSize()];
+        float[] right  = new float[left.length];
+        for ( int i = 0 ; i < left.length ; i++ )
+        {
+            left[i]  = random.nextFloat() * 2 - 1;
+            right[i] = random.nextFloat() * 2 - 1;
+        }
+        measure(engine, left, stereo ? right : null, WARMUP_FRAMES);
+        double time = Double.MAX_VALUE;
+        for ( int run = 0 ; run < RUNS ; run++ )
+        {
+            time = Math.min(time, measure(engine, left, stereo ? right : null, FRAMES));
+        }
+        return time;
+    }
+
+    /**
+     * Measures the analysis of a window.
+     *
+     * @param engine  the spectrum engine
+     * @param left    the samples of the left channel
+     * @param right   the samples of the right channel or <code>null</code> for mono
+     * @param frames  the amount of frames to analyse
+     * @return the time per frame in ns
+     */
+    private static double measure(SpectrumEngine engine, float[] left, float[] right, int frames)
+    {
+        long start = System.nanoTime();
+        for ( int f = 0 ; f < frames ; f++ )
+        {
+            engine.analyse(left, right);
+        }
+        long time = System.nanoTime() - start;
+        sink += engine.getBands()[frames % engine.getBandCount()];
+        return (double) time / frames;
+    }
+
+
+    // sample rates to measure
+    private static final float[] SAMPLE_RATES  = { 44100, 48000 };
+    // amount of frames for warming up and per measurement
+    private static final int     WARMUP_FRAMES = 2000;
+    private static final int     FRAMES        = 200;
+    // amount of measurements, of which the fastest is reported
+    private static final int     RUNS          = 20;
+
+    // keeps the analysis from being optimised away
+    private static float sink;
+}
@@ -0,0 +1,153 @@
+package analyser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for loading text spectrum files and converting them into binary spectrum files,
+ * and for analysing audio files before loading them.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumFileLoaderTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testConversion() throws IOException, InterruptedException
+    {
+        File               file   = writeSpectrum("spectrum.txt");
+        SpectrumFileLoader loader = load(file);
+        assertNull(loader.getError());
+        checkRows(loader.getRows());
+        assertNotNull("pyramid of the binary file", loader.getPyramid());
+        assertTrue(SpectrumFile.isSpectrumFile(SpectrumFileLoader.getBinaryFile(file)));
+    }
+
+    @Test
+    public void testBinaryFileNotReplaceable() throws IOException, InterruptedException
+    {
+        File file = writeSpectrum("spectrum.txt");
+        // a directory that is not empty cannot be replaced by the binary file
+        File binaryFile = SpectrumFileLoader.getBinaryFile(file);
+        assertTrue(binaryFile.mkdir());
+        assertTrue(new File(binaryFile, "keep").createNewFile());
+
+        SpectrumFileLoader loader = load(file);
+        assertNull("the rows are kept", loader.getError());
+        checkRows(loader.getRows());
+        assertNull(loader.getPyramid());
+        assertTrue(binaryFile.isDirectory());
+        assertFalse("temporary file is deleted", new File(binaryFile.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void testAudioFile() throws IOException, InterruptedException
+    {
+        File               audio    = OfflineAnalyserTest.writeAudioFile(folder, "audio.wav", 2);
+        File               spectrum = new File(folder.getRoot(), "audio_spectrum.txt");
+        OfflineAnalyser    analyser = new OfflineAnalyser(60, SpectrumEngineEnum.FFT, SpectrumShaper.LOGARITHMIC, false, 2);
+        SpectrumFileLoader loader   = new SpectrumFileLoader(audio, analyser, spectrum, FRAMES);
+        loader.start();
+        waitUntilFinished(loader);
+        assertNull(loader.getError());
+        assertFalse(loader.isAnalysing());
+        assertTrue(spectrum.exists());
+        // 2s at 60 frames per second, minus the frames that do not fit a whole window at the end
+        assertTrue("frames " + loader.getFrameCount(), (loader.getFrameCount() > 110) && (loader.getFrameCount() <= 120));
+        assertEquals(loader.getFrameCount(), loader.getLoadedRowCount() * loader.getStep(), loader.getStep());
+        assertNotNull(loader.getPyramid());
+    }
+
+    @Test
+    public void testCancelAnalysis() throws IOException, InterruptedException
+    {
+        File               audio    = OfflineAnalyserTest.writeAudioFile(folder, "audio.wav", 2);
+        File               spectrum = new File(folder.getRoot(), "audio_spectrum.txt");
+        OfflineAnalyser    analyser = new OfflineAnalyser(60, SpectrumEngineEnum.FFT, SpectrumShaper.LOGARITHMIC, false, 2);
+        SpectrumFileLoader loader   = new SpectrumFileLoader(audio, analyser, spectrum, FRAMES);
+        loader.cancel();
+        loader.start();
+        waitUntilFinished(loader);
+        assertNull(loader.getError());
+        assertTrue(analyser.isCancelled());
+        assertNull(loader.getRows());
+        assertFalse(spectrum.exists());
+    }
+
+    /**
+     * Writes a text spectrum file with two bands and {@link #FRAMES} frames.
+     *
+     * @param name  the name of the file
+     * @return the file
+     * @throws IOException if the file could not be written
+     */
+    private File writeSpectrum(String name) throws IOException
+    {
+        StringBuilder text = new StringBuilder("Time\t100\t200\n");
+        for ( int frame = 0 ; frame < FRAMES ; frame++ )
+        {
+            text.append(frame * 10).append('\t').append(frame).append('\t').append(-frame).append('\n');
+        }
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+
+    /**
+     * Loads a spectrum file and waits for the loader to finish.
+     *
+     * @param file  the file to load
+     * @return the finished loader
+     * @throws InterruptedException if the test was interrupted while waiting
+     */
+    private static SpectrumFileLoader load(File file) throws InterruptedException
+    {
+        SpectrumFileLoader loader = new SpectrumFileLoader(file, FRAMES);
+        loader.start();
+        waitUntilFinished(loader);
+        return loader;
+    }
+
+    /**
+     * Waits until a loader has finished.
+     *
+     * @param loader  the loader
+     * @throws InterruptedException if the test was interrupted while waiting
+     */
+    private static void waitUntilFinished(SpectrumFileLoader loader) throws InterruptedException
+    {
+        long end = System.currentTimeMillis() + 10000;
+        while ( !loader.isFinished() && (System.currentTimeMillis() < end) )
+        {
+            Thread.sleep(10);
+        }
+        assertTrue("loader finished", loader.isFinished());
+    }
+
+    /**
+     * Checks the rows of the spectrum written by {@link #writeSpectrum(String)}.
+     *
+     * @param rows  the loaded rows
+     */
+    private static void checkRows(float[][] rows)
+    {
+        assertEquals(FRAMES, rows.length);
+        for ( int row = 0 ; row < rows.length ; row++ )
+        {
+            assertArrayEquals(new float[] {row, -row}, rows[row], 0);
+        }
+    }
+
+
+    // amount of frames of the test file
+    private static final int FRAMES = 100;
+}
@@ -0,0 +1,189 @@
+package analyser;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmark of reading a large text spectrum file,
+ * with the line splitting and {@link Float#parseFloat(String)} that the program used before
+ * and with the streaming {@link SpectrumFileReader}.
+ *
+ * The benchmark writes a file of about 100 MB into the temporary directory,
+ * with the intensities written by {@link Float#toString(float)} like {@link OfflineAnalyser},
+ * and some written with 15 significant digits like other tools do.
+ * Both ways reduce the file to the same amount of rows,
+ * and the benchmark counts the cells in which they differ, which has to be 0.
+ * The peak heap usage is measured from a garbage collection before each way.
+ * The argument <code>old</code> or <code>new</code> only runs one of them.
+ * <p>
+ * Run with <code>java -cp ... analyser.SpectrumFileReaderBenchmark [old|new]</code>.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumFileReaderBenchmark
+{
+    public static void main(String[] args) throws IOException
+    {
+        String mode = (args.length > 0) ? args[0] : "both";
+        File   file = File.createTempFile("spectrum", ".txt");
+        file.deleteOnExit();
+        writeFile(file);
+        System.out.printf("file: %.1f MB, %d frames x %d bands, %d rows%n",
+                          file.length() / 1e6, FRAMES, BANDS, ROWS);
+
+        float[][] oldRows = null;
+        float[][] newRows = null;
+        if ( !mode.equals("new") )
+        {
+            resetPeakHeap();
+            double time = Double.MAX_VALUE;
+            for ( int run = 0 ; run < RUNS ; run++ )
+            {
+                long start = System.nanoTime();
+                oldRows = readSplit(file);
+                time = Math.min(time, (System.nanoTime() - start) / 1e9);
+            }
+            System.out.printf("split/parseFloat:   %.2f s, %.0f MB peak heap%n", time, getPeakHeap() / 1e6);
+        }
+        if ( !mode.equals("old") )
+        {
+            resetPeakHeap();
+            double time = Double.MAX_VALUE;
+            for ( int run = 0 ; run < RUNS ; run++ )
+            {
+                long start = System.nanoTime();
+                newRows = new SpectrumFileReader(file).read(ROWS);
+                time = Math.min(time, (System.nanoTime() - start) / 1e9);
+            }
+            System.out.printf("SpectrumFileReader: %.2f s, %.0f MB peak heap%n", time, getPeakHeap() / 1e6);
+        }
+        if ( (oldRows != null) && (newRows != null) )
+        {
+            int differences = 0;
+            for ( int row = 0 ; row < oldRows.length ; row++ )
+            {
+                for ( int band = 0 ; band < BANDS ; band++ )
+                {
+                    if ( Float.floatToIntBits(oldRows[row][band]) != Float.floatToIntBits(newRows[row][band]) )
+                    {
+                        differences++;
+                    }
+                }
+            }
+            System.out.printf("%d of %d cells differ%n", differences, oldRows.length * BANDS);
+        }
+        file.delete();
+    }
+
+    /**
+     * Writes the test file.
+     *
+     * @param file  the file to write
+     * @throws IOException if the file could not be written
+     */
+    private static void writeFile(File file) throws IOException
+    {
+        Random         random = new Random(1);
+        BufferedWriter w      = new BufferedWriter(new FileWriter(file));
+        try
+        {
+            w.write("Time");
+            for ( int band = 0 ; band < BANDS ; band++ )
+            {
+                w.write("\t" + (float) (20 * Math.pow(1000, (double) band / BANDS)));
+            }
+            w.newLine();
+            for ( int frame = 0 ; frame < FRAMES ; frame++ )
+            {
+                w.write(Integer.toString(frame * 1000 / 60));
+                for ( int band = 0 ; band < BANDS ; band++ )
+                {
+                    double value = random.nextDouble();
+                    w.write('\t');
+                    w.write((band % 10 == 0) ? String.format(Locale.ROOT, "%.14f", value)
+                                             : Float.toString((float) value));
+                }
+                w.newLine();
+            }
+        }
+        finally
+        {
+            w.close();
+        }
+    }
+
+    /**
+     * Reads the file the way the program did before the streaming reader:
+     * all lines at once, split at the tabs, and every cell parsed with {@link Float#parseFloat(String)}.
+     *
+     * @param file  the file to read
+     * @return the rows of averaged frames
+     * @throws IOException if the file could not be read
+     */
+    private static float[][] readSplit(File file) throws IOException
+    {
+        List<String> data    = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+        int          dataLen = data.size() - 1;
+        int          step    = ((dataLen - 1) / ROWS) + 1;
+        float[][]    rows    = new float[dataLen / step][];
+        for ( int i = 0 ; i < dataLen ; i++ )
+        {
+            String[] fields = data.get(i + 1).split("\t");
+            int      idx    = i / step;
+            if ( idx >= rows.length ) break;
+            if ( rows[idx] == null ) { rows[idx] = new float[fields.length - 1]; }
+            for ( int band = 0 ; band < fields.length - 1 ; band++ )
+            {
+                rows[idx][band] += Float.parseFloat(fields[band + 1]) / step;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Resets the peak usage of the heap memory pools after a garbage collection.
+     */
+    private static void resetPeakHeap()
+    {
+        System.gc();
+        for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+        {
+            if ( pool.getType() == MemoryType.HEAP ) { pool.resetPeakUsage(); }
+        }
+    }
+
+    /**
+     * Gets the sum of the peak usage of the heap memory pools since the last reset.
+     *
+     * @return the peak heap usage in bytes
+     */
+    private static long getPeakHeap()
+    {
+        long peak = 0;
+        for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+        {
+            if ( pool.getType() == MemoryType.HEAP ) { peak += pool.getPeakUsage().getUsed(); }
+        }
+        return peak;
+    }
+
+
+    // size of the test file, about 100 MB
+    private static final int FRAMES = 114985;
+    private static final int BANDS  = 80;
+    // amount of rows the file is reduced to, as for showing a spectrum file
+    private static final int ROWS   = 720;
+    // amount of measured runs, the fastest counts
+    private static final int RUNS   = 3;
+}
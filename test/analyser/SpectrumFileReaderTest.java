@@ -0,0 +1,172 @@
+package analyser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for reading text spectrum files, including files with labels instead of numbers
+ * in the header or the time column, and lines with empty fields at the end.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumFileReaderTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSpectrumFile() throws IOException
+    {
+        SpectrumFileReader reader = open("Time\t100.0\t200.0\n" +
+                                         "0.0\t0.5\t0.25\n" +
+                                         "10.0\t1.0\t0.75\n");
+        assertEquals(2, reader.getFrameCount());
+        assertArrayEquals(new float[] {100, 200}, reader.getBandFrequencies(), 0);
+        float[] frame = new float[reader.getBandCount()];
+        assertTrue(reader.readFrame(frame));
+        assertArrayEquals(new float[] {0.5f, 0.25f}, frame, 0);
+        assertTrue(reader.readFrame(frame));
+        assertEquals(10, reader.getFrameTime(), 0);
+        assertArrayEquals(new float[] {1.0f, 0.75f}, frame, 0);
+        assertFalse(reader.readFrame(frame));
+        reader.close();
+    }
+
+    @Test
+    public void testLabelsAndTrailingTabs() throws IOException
+    {
+        SpectrumFileReader reader = open("Time\tlow\t100 Hz\t200\t\r\n" +
+                                         "start\t1\t2\t3\t\t\r\n" +
+                                         "00:01\t4\t\t6\r\n");
+        assertEquals(2, reader.getFrameCount());
+        assertArrayEquals(new float[] {0, 0, 200}, reader.getBandFrequencies(), 0);
+        float[] frame = new float[reader.getBandCount()];
+        assertTrue(reader.readFrame(frame));
+        assertEquals(0, reader.getFrameTime(), 0);
+        assertArrayEquals(new float[] {1, 2, 3}, frame, 0);
+        assertTrue(reader.readFrame(frame));
+        assertEquals(0, reader.getFrameTime(), 0);
+        assertArrayEquals(new float[] {4, 0, 6}, frame, 0);
+        assertFalse(reader.readFrame(frame));
+        reader.close();
+    }
+
+    @Test
+    public void testBandCountFromData() throws IOException
+    {
+        // more frequencies in the header than bands in the data
+        SpectrumFileReader reader = open("Time\t100\t200\t300\t400\n" +
+                                         "0\t1\t2\n");
+        assertArrayEquals(new float[] {100, 200}, reader.getBandFrequencies(), 0);
+        reader.close();
+
+        // more bands in the data than frequencies in the header
+        reader = open("Time\t100\n" +
+                      "0\t1\t2\t3\n");
+        assertArrayEquals(new float[] {100, 0, 0}, reader.getBandFrequencies(), 0);
+        float[] frame = new float[reader.getBandCount()];
+        assertTrue(reader.readFrame(frame));
+        assertArrayEquals(new float[] {1, 2, 3}, frame, 0);
+        reader.close();
+
+        // no data at all
+        reader = open("Time\t100\t200\n");
+        assertEquals(0, reader.getFrameCount());
+        assertArrayEquals(new float[] {100, 200}, reader.getBandFrequencies(), 0);
+        reader.close();
+    }
+
+    @Test
+    public void testReduction() throws IOException
+    {
+        StringBuilder text = new StringBuilder("Time\t100\n");
+        for ( int frame = 0 ; frame < 10 ; frame++ )
+        {
+            text.append(frame * 10).append('\t').append(frame).append('\n');
+        }
+        float[][] rows = new SpectrumFileReader(write(text.toString())).read(5);
+        assertEquals(5, rows.length);
+        for ( int row = 0 ; row < rows.length ; row++ )
+        {
+            assertEquals(row * 2 + 0.5f, rows[row][0], 1e-6f);
+        }
+    }
+
+    @Test
+    public void testParseFloat()
+    {
+        Random random = new Random(1);
+        for ( int i = 0 ; i < 100000 ; i++ )
+        {
+            float  value = (float) (random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10));
+            byte[] text  = Float.toString(value).getBytes(StandardCharsets.US_ASCII);
+            assertEquals(value, SpectrumFileReader.parseFloat(text, 0, text.length), 0);
+        }
+        // numbers whose double is halfway between two floats must not be rounded twice,
+        // and the results have to match Float.parseFloat for any amount of digits
+        String[] numbers = { "1.41156667470932", "1.53999263048172", "-1.41156667470932",
+                             "1.00000005960464477539", "1e-40", "3.4028235e38", "3.4028236e38" };
+        for ( String number : numbers )
+        {
+            assertEquals(number, Float.parseFloat(number), parse(number), 0);
+        }
+        assertEquals(1.4115666f, parse("1.41156667470932"), 0);
+        assertEquals(1.5399927f, parse("1.53999263048172"), 0);
+        for ( int i = 0 ; i < 100000 ; i++ )
+        {
+            // doubles with 15 significant digits, as written by other tools
+            String number = String.format(Locale.ROOT, "%.14e", random.nextGaussian());
+            assertEquals(number, Float.parseFloat(number), parse(number), 0);
+        }
+        assertTrue(Float.isNaN(parse("NaN")));
+    }
+
+    /**
+     * Parses a number with the fast number parser of the reader.
+     *
+     * @param number  the number
+     * @return the parsed number
+     */
+    private static float parse(String number)
+    {
+        byte[] text = number.getBytes(StandardCharsets.US_ASCII);
+        return SpectrumFileReader.parseFloat(text, 0, text.length);
+    }
+
+    /**
+     * Writes a text spectrum file and opens it for reading frame by frame.
+     *
+     * @param text  the content of the file
+     * @return the opened reader
+     * @throws IOException if the file could not be written or read
+     */
+    private SpectrumFileReader open(String text) throws IOException
+    {
+        SpectrumFileReader reader = new SpectrumFileReader(write(text));
+        reader.open();
+        return reader;
+    }
+
+    /**
+     * Writes a text spectrum file.
+     *
+     * @param text  the content of the file
+     * @return the file
+     * @throws IOException if the file could not be written
+     */
+    private File write(String text) throws IOException
+    {
+        File file = folder.newFile();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+}
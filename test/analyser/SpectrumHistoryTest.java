@@ -0,0 +1,223 @@
+package analyser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Stress test for the spectrum history.
+ *
+ * A writer thread fills every frame with values that are tagged with the frame number,
+ * and changes the size of the arrays every few frames.
+ * At the same time, several reader threads copy frames with all read methods
+ * and check that every snapshot belongs to a single frame.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumHistoryTest
+{
+    @Test
+    public void testEmptyHistory()
+    {
+        SpectrumHistory history = new SpectrumHistory(4);
+        assertFalse(history.read(0, new SpectrumInfo()));
+        assertFalse(history.readFrame(0, new SpectrumInfo()));
+        assertEquals(-1, history.readIntensity(0, new float[BANDS]));
+    }
+
+    @Test
+    public void testOrder()
+    {
+        SpectrumHistory history = new SpectrumHistory(4);
+        for ( int frame = 0 ; frame < 10 ; frame++ )
+        {
+            writeFrame(history, frame);
+        }
+        SpectrumInfo info = new SpectrumInfo();
+        for ( int age = 0 ; age < 4 ; age++ )
+        {
+            assertTrue(history.read(age, info));
+            assertEquals(9 - age, info.sampleIdx);
+        }
+        assertFalse(history.read(4, info));
+        assertTrue(history.readFrame(6, info));
+        assertEquals(6, info.sampleIdx);
+        assertFalse("overwritten frame", history.readFrame(5, info));
+        assertFalse("future frame", history.readFrame(10, info));
+    }
+
+    @Test
+    public void testConcurrentReads() throws InterruptedException
+    {
+        final SpectrumHistory            history = new SpectrumHistory(HISTORY_SIZE);
+        final AtomicReference<Throwable> error   = new AtomicReference<>();
+        final AtomicLong                 reads   = new AtomicLong();
+        final long                       end     = System.nanoTime() + DURATION;
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for ( int frame = 0 ; (frame < MAX_FRAMES) && (System.nanoTime() < end) && (error.get() == null) ; frame++ )
+                {
+                    writeFrame(history, frame);
+                }
+            }
+        }, "writer"));
+        for ( int r = 0 ; r < READERS ; r++ )
+        {
+            final int reader = r;
+            threads.add(new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        readFrames(history, reader, end, reads);
+                    }
+                    catch (Throwable t)
+                    {
+                        error.compareAndSet(null, t);
+                    }
+                }
+            }, "reader " + r));
+        }
+        for ( Thread t : threads ) { t.start(); }
+        for ( Thread t : threads ) { t.join(); }
+
+        if ( error.get() != null )
+        {
+            throw new AssertionError("Torn frame: " + error.get().getMessage(), error.get());
+        }
+        assertTrue("writer has written frames", history.getWriteCount() > HISTORY_SIZE);
+        assertTrue("readers have read frames", reads.get() > 0);
+    }
+
+    /**
+     * Writes a frame that is tagged with its number.
+     * The size of the arrays changes every few frames,
+     * so readers also have to cope with reallocated arrays.
+     *
+     * @param history  the history to write into
+     * @param frame    the frame number
+     */
+    private static void writeFrame(SpectrumHistory history, int frame)
+    {
+        SpectrumInfo info = history.beginWrite();
+        int          size = BANDS + (frame / 7) % 3;
+        if ( (info.intensity == null) || (info.intensity.length != size) )
+        {
+            info.intensity    = new float[size];
+            info.intensityRaw = new float[size * 2];
+        }
+        info.intensityRawValid = true;
+        info.sampleIdx     = frame;
+        info.position      = frame;
+        info.captureTime   = frame;
+        info.analysisStart = frame;
+        info.analysisEnd   = frame;
+        for ( int i = 0 ; i < info.intensity.length ; i++ )
+        {
+            info.intensity[i] = frame;
+        }
+        for ( int i = 0 ; i < info.intensityRaw.length ; i++ )
+        {
+            info.intensityRaw[i] = -frame;
+        }
+        history.endWrite();
+    }
+
+    /**
+     * Reads frames with all read methods until the end time and checks each snapshot.
+     *
+     * @param history  the history to read from
+     * @param reader   the number of the reader, for varying the ages
+     * @param end      the end time in ns
+     * @param reads    the counter of successful reads
+     */
+    private static void readFrames(SpectrumHistory history, int reader, long end, AtomicLong reads)
+    {
+        SpectrumInfo info      = new SpectrumInfo();
+        SpectrumInfo times     = new SpectrumInfo();
+        float[]      intensity = new float[BANDS + 2];
+        long         latest    = -1;
+        int          count     = 0;
+        while ( System.nanoTime() < end )
+        {
+            int age = (count + reader) % HISTORY_SIZE;
+            if ( history.read(0, info) )
+            {
+                checkFrame(info, info.sampleIdx);
+                assertTrue("most recent frame goes backwards", info.sampleIdx >= latest);
+                latest = info.sampleIdx;
+                count++;
+            }
+            if ( history.read(age, info) )
+            {
+                checkFrame(info, info.sampleIdx);
+                count++;
+            }
+            long frame = history.getWriteCount() - 1 - age;
+            if ( history.readFrame(frame, info) )
+            {
+                checkFrame(info, frame);
+                count++;
+            }
+            int len = history.readIntensity(age, intensity, times);
+            if ( len >= 0 )
+            {
+                assertEquals(BANDS + (times.captureTime / 7) % 3, len);
+                assertEquals(times.captureTime, times.analysisStart);
+                assertEquals(times.captureTime, times.analysisEnd);
+                for ( int i = 0 ; i < len ; i++ )
+                {
+                    assertEquals(times.captureTime, intensity[i], 0);
+                }
+                count++;
+            }
+        }
+        reads.addAndGet(count);
+    }
+
+    /**
+     * Checks that all values of a snapshot belong to the same frame.
+     *
+     * @param info   the snapshot
+     * @param frame  the expected frame number
+     */
+    private static void checkFrame(SpectrumInfo info, long frame)
+    {
+        assertEquals(frame, info.sampleIdx);
+        assertEquals(frame, info.position, 0);
+        assertEquals(frame, info.captureTime);
+        assertEquals(frame, info.analysisStart);
+        assertEquals(frame, info.analysisEnd);
+        int size = BANDS + (int) (frame / 7) % 3;
+        assertEquals(size, info.intensity.length);
+        assertEquals(size * 2, info.intensityRaw.length);
+        for ( float v : info.intensity )
+        {
+            assertEquals(frame, v, 0);
+        }
+        for ( float v : info.intensityRaw )
+        {
+            assertEquals(-frame, v, 0);
+        }
+    }
+
+
+    private static final int  BANDS        = 64;
+    private static final int  HISTORY_SIZE = 8;
+    private static final int  READERS      = 3;
+    // duration of the stress test in ns
+    private static final long DURATION     = 2000000000L;
+    // frame numbers must be exact as float values
+    private static final int  MAX_FRAMES   = 1 << 23;
+}
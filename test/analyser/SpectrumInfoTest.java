@@ -0,0 +1,43 @@
+package analyser;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for copying spectrum information with and without raw frequency bins.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumInfoTest
+{
+    @Test
+    public void testCopyRawSpectrum()
+    {
+        SpectrumInfo src = new SpectrumInfo();
+        src.intensity         = new float[] { 1, 2 };
+        src.intensityRaw      = new float[] { 3, 4, 5 };
+        src.intensityRawValid = true;
+
+        SpectrumInfo dst = new SpectrumInfo();
+        assertFalse(dst.hasRawSpectrum());
+        dst.copyFrom(src);
+        assertTrue(dst.hasRawSpectrum());
+        assertArrayEquals(src.intensityRaw, dst.intensityRaw, 0);
+        assertNotSame(src.intensityRaw, dst.intensityRaw);
+
+        // a frame without raw bins keeps the array for the next frame with them
+        float[] raw = dst.intensityRaw;
+        src.intensityRawValid = false;
+        dst.copyFrom(src);
+        assertFalse(dst.hasRawSpectrum());
+        assertSame(raw, dst.intensityRaw);
+        src.intensityRawValid = true;
+        dst.copyFrom(src);
+        assertTrue(dst.hasRawSpectrum());
+        assertSame(raw, dst.intensityRaw);
+
+        dst.reset();
+        assertFalse(dst.hasRawSpectrum());
+    }
+}
@@ -0,0 +1,156 @@
+package analyser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.sound.sampled.AudioFormat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for recording the live spectrum of a fake audio line into a spectrum file,
+ * and for the error of a recording that cannot be written.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumRecorderTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecording() throws IOException, InterruptedException
+    {
+        File             file     = new File(folder.getRoot(), "spectrum" + SpectrumFile.EXTENSION);
+        SpectrumRecorder recorder = new SpectrumRecorder(file, SpectrumFile.Encoding.FLOAT32, 10);
+        SpectrumAnalyser analyser = new SpectrumAnalyser(60, 4);
+        FrameCopy        stage    = record(recorder, analyser, 2);
+        assertTrue("recorder finished", recorder.awaitFinished(5000));
+        assertNull(recorder.getError());
+        assertEquals(0, recorder.getDroppedFrameCount());
+        assertEquals(RECORDED_FRAMES, recorder.getWrittenFrameCount());
+        assertEquals(file, recorder.getCurrentFile());
+
+        // the file has the layout of the engine and every recorded frame
+        SpectrumFile   spectrum = new SpectrumFile(file);
+        SpectrumEngine engine   = SpectrumAnalyser.createEngine(analyser.getEngineType(), analyser.getFFTType(), SAMPLE_RATE);
+        assertEquals(SpectrumFile.Encoding.FLOAT32, spectrum.getEncoding());
+        assertEquals(RECORDED_FRAMES, spectrum.getFrameCount());
+        assertEquals(engine.getBandCount(), spectrum.getBandCount());
+        for ( int band = 0 ; band < engine.getBandCount() ; band++ )
+        {
+            assertEquals(engine.getBandFrequency(band), spectrum.getBandFrequencies()[band], 0);
+        }
+        assertEquals(SAMPLE_RATE, spectrum.getSampleRate(), 0);
+        assertEquals(60, spectrum.getFrameRate(), 0);
+        float[] intensity = new float[spectrum.getBandCount()];
+        for ( int frame = 0 ; frame < RECORDED_FRAMES ; frame++ )
+        {
+            spectrum.getFrame(frame, intensity);
+            assertArrayEquals("frame " + frame, stage.frames.get(frame), intensity, 0);
+        }
+        assertFalse("no gain state file", AdaptiveGain.getStateFile(file).exists());
+    }
+
+    @Test
+    public void testWriteError() throws InterruptedException
+    {
+        // the directory of the file does not exist
+        File             file     = new File(new File(folder.getRoot(), "missing"), "spectrum" + SpectrumFile.EXTENSION);
+        SpectrumRecorder recorder = new SpectrumRecorder(file, SpectrumFile.Encoding.FLOAT32, 10);
+        SpectrumAnalyser analyser = new SpectrumAnalyser(60, 4);
+        recorder.start();
+        analyser.addStage(recorder);
+        analyser.attachToCapture(new LineCapture(new FakeTargetDataLine(createFormat(1), 440), createFormat(1), 512));
+        // the writer thread stops on its own
+        assertTrue("recorder finished", recorder.awaitFinished(5000));
+        analyser.removeStage(recorder);
+        analyser.detachFromAudio();
+        assertTrue(recorder.isFinished());
+        assertTrue(recorder.getError() instanceof IOException);
+        assertEquals(0, recorder.getWrittenFrameCount());
+        assertFalse(file.exists());
+    }
+
+    /**
+     * Records a fixed amount of frames from a fake audio line.
+     *
+     * @param recorder  the recorder
+     * @param analyser  the analyser
+     * @param channels  the amount of channels of the audio line
+     * @return the stage with the copies of the recorded frames
+     * @throws InterruptedException if the thread has been interrupted while waiting
+     */
+    private static FrameCopy record(SpectrumRecorder recorder, SpectrumAnalyser analyser, int channels)
+        throws InterruptedException
+    {
+        FrameCopy   stage  = new FrameCopy(recorder);
+        AudioFormat format = createFormat(channels);
+        recorder.start();
+        analyser.addStage(stage);
+        analyser.attachToCapture(new LineCapture(new FakeTargetDataLine(format, 440), format, 512));
+        long end = System.currentTimeMillis() + 10000;
+        while ( (stage.frames.size() < RECORDED_FRAMES) && (System.currentTimeMillis() < end) )
+        {
+            Thread.sleep(10);
+        }
+        analyser.removeStage(stage);
+        analyser.detachFromAudio();
+        assertEquals(RECORDED_FRAMES, stage.frames.size());
+        return stage;
+    }
+
+    /**
+     * Creates the format of the fake audio line.
+     *
+     * @param channels  the amount of channels
+     * @return the format
+     */
+    private static AudioFormat createFormat(int channels)
+    {
+        return new AudioFormat(SAMPLE_RATE, 16, channels, true, false);
+    }
+
+    /**
+     * Stage that passes a fixed amount of frames to the recorder,
+     * keeps a copy of each frame, and stops the recorder afterwards.
+     */
+    private static class FrameCopy implements SpectrumAnalyser.Stage
+    {
+        public FrameCopy(SpectrumRecorder recorder)
+        {
+            this.recorder = recorder;
+            // read by the test thread while the analysis thread adds frames
+            frames        = Collections.synchronizedList(new ArrayList<float[]>());
+        }
+
+        @Override
+        public void reset(SpectrumAnalyser analyser)
+        {
+            recorder.reset(analyser);
+        }
+
+        @Override
+        public void process(SpectrumInfo info)
+        {
+            if ( frames.size() == RECORDED_FRAMES ) return;
+            recorder.process(info);
+            frames.add(info.intensity.clone());
+            if ( frames.size() == RECORDED_FRAMES ) { recorder.stop(); }
+        }
+
+        private final SpectrumRecorder recorder;
+        public  final List<float[]>    frames;
+    }
+
+
+    // sample rate of the fake audio line
+    private static final float SAMPLE_RATE     = 44100;
+    // amount of frames to record from the fake audio line
+    private static final int   RECORDED_FRAMES = 90;
+}
@@ -0,0 +1,140 @@
+package analyser;
+
+import java.util.Random;
+
+/**
+ * Benchmark of shaping the data of one analysis frame,
+ * with one call of {@link SpectrumShaper#shape(float)} per value as before the bulk shaping,
+ * and with one call of {@link SpectrumShaper#shape(float[], float[], int)} per array.
+ *
+ * A stereo frame of the FFT engine at 44.1kHz is shaped like {@link SpectrumInfo} does:
+ * the bands, the four stereo band arrays, and the raw frequency bins.
+ * The intensities are spread logarithmically over the range of the logarithmic shaper and below.
+ * <p>
+ * Run with <code>java -cp ... analyser.SpectrumShaperBenchmark</code>.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumShaperBenchmark
+{
+    public static void main(String[] args)
+    {
+        SpectrumEngine engine = SpectrumAnalyser.createEngine(SpectrumEngineEnum.FFT, FFTEngineEnum.REAL, 44100);
+        engine.setRawBandsEnabled(true);
+        int bands = engine.getBandCount();
+        int raw   = engine.getRawBandCount();
+        float[][] frame = new float[STEREO_ARRAYS + 1][];
+        for ( int a = 0 ; a < STEREO_ARRAYS ; a++ )
+        {
+            frame[a] = createValues(bands, a);
+        }
+        frame[STEREO_ARRAYS] = createValues(raw, STEREO_ARRAYS);
+        float[][] out = new float[frame.length][];
+        for ( int a = 0 ; a < frame.length ; a++ )
+        {
+            out[a] = new float[frame[a].length];
+        }
+
+        System.out.printf("frame: %d x %d bands + %d raw bins%n", STEREO_ARRAYS, bands, raw);
+        System.out.println("shaper        per value    bulk   (us per frame)");
+        SpectrumShaper[] shapers = { SpectrumShaper.LINEAR, SpectrumShaper.SQUARE_ROOT, SpectrumShaper.LOGARITHMIC };
+        for ( SpectrumShaper shaper : shapers )
+        {
+            // warm up the JIT with both variants first
+            measurePerValue(shaper, frame, out, WARMUP_FRAMES);
+            measureBulk(shaper, frame, out, WARMUP_FRAMES);
+            double perValue = Double.MAX_VALUE;
+            double bulk     = Double.MAX_VALUE;
+            for ( int run = 0 ; run < RUNS ; run++ )
+            {
+                perValue = Math.min(perValue, measurePerValue(shaper, frame, out, FRAMES));
+                bulk     = Math.min(bulk,     measureBulk(shaper, frame, out, FRAMES));
+            }
+            System.out.printf("%-12s %9.2f %8.2f%n", shaper.getName(), perValue / 1000, bulk / 1000);
+        }
+        System.out.println(sink);
+    }
+
+    /**
+     * Measures shaping frames with one call per value.
+     *
+     * @param shaper  the shaper
+     * @param frame   the arrays of a frame
+     * @param out     the arrays for the shaped values
+     * @param frames  the amount of frames to shape
+     * @return the time per frame in ns
+     */
+    private static double measurePerValue(SpectrumShaper shaper, float[][] frame, float[][] out, int frames)
+    {
+        long start = System.nanoTime();
+        for ( int f = 0 ; f < frames ; f++ )
+        {
+            for ( int a = 0 ; a < frame.length ; a++ )
+            {
+                float[] in = frame[a], o = out[a];
+                for ( int i = 0 ; i < in.length ; i++ )
+                {
+                    o[i] = shaper.shape(in[i]);
+                }
+            }
+        }
+        long time = System.nanoTime() - start;
+        sink += out[frames % out.length][0];
+        return (double) time / frames;
+    }
+
+    /**
+     * Measures shaping frames with one bulk call per array.
+     *
+     * @param shaper  the shaper
+     * @param frame   the arrays of a frame
+     * @param out     the arrays for the shaped values
+     * @param frames  the amount of frames to shape
+     * @return the time per frame in ns
+     */
+    private static double measureBulk(SpectrumShaper shaper, float[][] frame, float[][] out, int frames)
+    {
+        long start = System.nanoTime();
+        for ( int f = 0 ; f < frames ; f++ )
+        {
+            for ( int a = 0 ; a < frame.length ; a++ )
+            {
+                shaper.shape(frame[a], out[a], frame[a].length);
+            }
+        }
+        long time = System.nanoTime() - start;
+        sink += out[frames % out.length][0];
+        return (double) time / frames;
+    }
+
+    /**
+     * Creates intensities between 2^-14 and 1, evenly spread on a logarithmic scale.
+     *
+     * @param size  the amount of values
+     * @param seed  the seed of the random number generator
+     * @return the intensities
+     */
+    private static float[] createValues(int size, long seed)
+    {
+        Random  random = new Random(seed);
+        float[] values = new float[size];
+        for ( int i = 0 ; i < size ; i++ )
+        {
+            values[i] = (float) Math.pow(2, -14 * random.nextDouble());
+        }
+        return values;
+    }
+
+
+    // amount of band arrays of a stereo frame: bands, left, right, mid, side
+    private static final int STEREO_ARRAYS = 5;
+    // amount of frames for warming up and per measurement
+    private static final int WARMUP_FRAMES = 20000;
+    private static final int FRAMES        = 100000;
+    // amount of measurements, of which the fastest is reported
+    private static final int RUNS          = 5;
+
+    // keeps the shaping from being optimised away
+    private static float sink;
+}
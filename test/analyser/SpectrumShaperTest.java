@@ -0,0 +1,94 @@
+package analyser;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the bulk shaping functions of the spectrum shapers,
+ * which have to match the shaping of single values.
+ *
+ * @author  agent
+ * @version 1.0 - 18.10.2026: Created
+ */
+public class SpectrumShaperTest
+{
+    @Test
+    public void testLogarithmicErrorBound()
+    {
+        SpectrumShaper shaper   = SpectrumShaper.LOGARITHMIC;
+        Random         random   = new Random(1);
+        float[]        values   = new float[VALUES];
+        float[]        shaped   = new float[VALUES];
+        double         maxError = 0;
+        for ( int run = 0 ; run < RUNS ; run++ )
+        {
+            for ( int i = 0 ; i < values.length ; i++ )
+            {
+                // log-uniform between 2^-16 and 2^2, which covers the cut-off at 2^-12
+                values[i] = (float) Math.pow(2, -16 + 18 * random.nextDouble());
+            }
+            shaper.shape(values, shaped, values.length);
+            for ( int i = 0 ; i < values.length ; i++ )
+            {
+                double exact = Math.max(0, 1 + Math.log(values[i]) / Math.log(2) / 12);
+                maxError = Math.max(maxError, Math.abs(shaped[i] - exact));
+            }
+        }
+        assertTrue("maximum error " + maxError, maxError < MAX_LOG_ERROR);
+    }
+
+    @Test
+    public void testLogarithmicSpecialValues()
+    {
+        float[] values = { 0, -0.0f, -1, 1e-30f, 0x1p-12f, 0x1p-13f, 1, 0.5f, 4,
+                           Float.MIN_VALUE, Float.NaN, Float.POSITIVE_INFINITY };
+        float[] shaped = new float[values.length];
+        SpectrumShaper.LOGARITHMIC.shape(values, shaped, values.length);
+        for ( int i = 0 ; i < values.length ; i++ )
+        {
+            float single = SpectrumShaper.LOGARITHMIC.shape(values[i]);
+            assertEquals("shaping " + values[i], single, shaped[i], MAX_LOG_ERROR);
+        }
+        // exact at the powers of two
+        assertEquals(0, shaped[4], 0);
+        assertEquals(1, shaped[6], 0);
+        assertEquals(11 / 12.0f, shaped[7], 0);
+    }
+
+    @Test
+    public void testInPlace()
+    {
+        SpectrumShaper[] shapers = { SpectrumShaper.LINEAR, SpectrumShaper.SQUARE_ROOT, SpectrumShaper.LOGARITHMIC };
+        Random           random  = new Random(2);
+        for ( SpectrumShaper shaper : shapers )
+        {
+            float[] values = new float[1000];
+            for ( int i = 0 ; i < values.length ; i++ )
+            {
+                values[i] = random.nextFloat();
+            }
+            float[] shaped = new float[values.length];
+            shaper.shape(values, shaped, values.length);
+            // only the first n values are shaped
+            float[] inPlace = values.clone();
+            shaper.shape(inPlace, inPlace, 500);
+            for ( int i = 0 ; i < values.length ; i++ )
+            {
+                float expected = (i < 500) ? shaped[i] : values[i];
+                assertEquals(shaper.getName(), expected, inPlace[i], 0);
+                if ( shaper != SpectrumShaper.LOGARITHMIC )
+                {
+                    assertEquals(shaper.getName(), shaper.shape(values[i]), shaped[i], 0);
+                }
+            }
+        }
+    }
+
+
+    // maximum absolute error of the table based logarithmic shaper (2.9e-7 measured)
+    private static final double MAX_LOG_ERROR = 5e-7;
+    // amount of random values per run and amount of runs
+    private static final int    VALUES        = 1 << 20;
+    private static final int    RUNS          = 4;
+}